@@ -0,0 +1,104 @@
+package pl.edu.agh.isi;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.edu.agh.isi.cli.TaskRow;
+import pl.edu.agh.isi.cli.TaskRowImporter;
+import pl.edu.agh.isi.cli.TaskRowReader;
+
+/**
+ * Rows per second of adding a household's legacy chores, as a CSV file imported in
+ * batches and, for comparison, as one saved task per row like a create per chore
+ * without the JVM start. Every invocation starts from an empty tasks file.
+ * Run only these with ./gradlew jmh -PjmhIncludes=BulkImportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class BulkImportBenchmark {
+    private static final int ROWS = 2000;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private Path directory;
+    private File input;
+    private File tasksFile;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("bulk-import-benchmark");
+        input = directory.resolve("chores.csv").toFile();
+        try (BufferedWriter writer = Files.newBufferedWriter(input.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("topic,due,description,priority,recurring\n");
+            for (int i = 0; i < ROWS; i++) {
+                writer.write("Chore " + i + ",2025-0" + (1 + i % 9) + "-1" + (i % 10) + " 18:00,"
+                        + "\"Room " + (i % 12) + ", see list\"," + (1 + i % 3) + "," + (i % 5 == 0 ? "WEEKLY" : "")
+                        + "\n");
+            }
+        }
+        tasksFile = directory.resolve("tasks.json").toFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTasksFile() {
+        tasksFile.delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int importBatches() throws IOException {
+        TaskRowImporter importer = new TaskRowImporter(new TaskRepository(tasksFile), batchSize, null, null);
+        try (TaskRowReader reader = TaskRowReader.open(input)) {
+            return importer.importRows(reader).getImported();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int saveEachRow() throws IOException {
+        TaskRepository repository = new TaskRepository(tasksFile);
+        int saved = 0;
+        try (TaskRowReader reader = TaskRowReader.open(input)) {
+            TaskRow row;
+            while ((row = reader.next()) != null) {
+                repository.save(row.toTask());
+                saved++;
+            }
+        }
+        return saved;
+    }
+}
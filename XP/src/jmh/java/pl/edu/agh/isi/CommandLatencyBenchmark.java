@@ -0,0 +1,76 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The persistence part of one interactive command: every command creates its task
+ * repository, which loads the file, and saves one change. With the shared registry the
+ * repository reuses readers and writers resolved once per process; perCommand builds and
+ * configures a new mapper for every repository, as before the registry existed.
+ * The household is small, so the mapper set-up is a visible part of the time.
+ * Run only these with ./gradlew jmh -PjmhIncludes=CommandLatencyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandLatencyBenchmark {
+
+    @Param({"shared", "perCommand"})
+    public String registry;
+
+    @Param({"3", "30"})
+    public int seriesCount;
+
+    private Path directory;
+    private File tasksFile;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("command-latency-benchmark");
+        tasksFile = directory.resolve("tasks.json").toFile();
+        RecurrenceDataset.write(tasksFile, seriesCount, 1, LocalDateTime.now());
+        // Rewrite the generated file in the current schema once
+        new TaskRepository(tasksFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Task loadAndSave() {
+        TaskRepository repository = "shared".equals(registry)
+                ? new TaskRepository(tasksFile)
+                : new TaskRepository(tasksFile, StorageFormat.JSON.newMapper());
+        Task task = repository.findById(1).orElseThrow();
+        task.setAssignedTo(String.valueOf(System.nanoTime() % 5 + 1));
+        return repository.update(task);
+    }
+}
@@ -0,0 +1,98 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading and saving the same household, see {@link RecurrenceDataset}, as plain and as
+ * GZIP compressed JSON. The temporary files stay in the page cache, so a slower disk is
+ * modelled by waiting for the time its throughput needs to move the bytes of the file
+ * after each operation; diskMBps 0 leaves that out and shows the CPU cost alone.
+ * File sizes are printed once per trial. Run only these with
+ * ./gradlew jmh -PjmhIncludes=CompressionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class CompressionBenchmark {
+
+    @Param({"1000"})
+    public int seriesCount;
+
+    @Param({"NONE", "GZIP"})
+    public Compression compression;
+
+    // 0 for the page cache, 20 for a network share or SD card, 200 for a hard disk
+    @Param({"0", "20", "200"})
+    public int diskMBps;
+
+    private Path directory;
+    private File dataFile;
+    private File savedFile;
+    private TaskRepository repository;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("compression-benchmark");
+        File generated = directory.resolve("generated.json").toFile();
+        RecurrenceDataset.write(generated, seriesCount, 1, LocalDateTime.now());
+        String extension = compression == Compression.GZIP ? ".json" + Compression.GZIP_EXTENSION : ".json";
+        dataFile = directory.resolve("tasks" + extension).toFile();
+        savedFile = directory.resolve("saved" + extension).toFile();
+        new TaskRepository(generated).exportTo(dataFile, StorageFormat.JSON);
+        repository = new TaskRepository(dataFile);
+        System.out.printf("%n%s file: %d KB, %d tasks%n", compression, dataFile.length() / 1024,
+                repository.findAll().size());
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public TaskRepository load() {
+        transfer(dataFile.length());
+        return new TaskRepository(dataFile);
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        repository.exportTo(savedFile, StorageFormat.JSON);
+        long bytes = savedFile.length();
+        transfer(bytes);
+        return bytes;
+    }
+
+    private void transfer(long bytes) {
+        if (diskMBps > 0) {
+            LockSupport.parkNanos(bytes * 1000 / diskMBps);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Backing up a household, see {@link RecurrenceDataset}, after a few changes: a full
+ * export against a delta of the changes since the last backup. File sizes are printed
+ * once per trial. Run only these with ./gradlew jmh -PjmhIncludes=DeltaExportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class DeltaExportBenchmark {
+
+    @Param({"1000"})
+    public int seriesCount;
+
+    // Tasks changed since the last backup
+    @Param({"1", "100", "10000"})
+    public int churn;
+
+    private Path directory;
+    private File backupFile;
+    private File deltaFile;
+    private TaskRepository repository;
+    private long backedUp;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("delta-export-benchmark");
+        File dataFile = directory.resolve("tasks.json").toFile();
+        RecurrenceDataset.write(dataFile, seriesCount, 1, LocalDateTime.now());
+        backupFile = directory.resolve("backup.json").toFile();
+        deltaFile = directory.resolve("delta.json").toFile();
+        repository = new TaskRepository(dataFile);
+        backedUp = repository.exportTo(backupFile, StorageFormat.JSON);
+
+        // Instances, as changing a recurring task also changes how all its instances are stored
+        List<Task> changed = repository.findAll().stream()
+                .filter(task -> task.getParentTaskId() != null)
+                .limit(churn)
+                .collect(Collectors.toList());
+        for (Task task : changed) {
+            task.setDescription("Changed after the backup");
+        }
+        repository.updateAll(changed);
+        repository.exportChangesSince(backedUp, deltaFile, StorageFormat.JSON);
+        System.out.printf("%nfull backup: %d KB, delta of %d changes: %d KB%n", backupFile.length() / 1024,
+                changed.size(), deltaFile.length() / 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long fullExport() throws IOException {
+        return repository.exportTo(backupFile, StorageFormat.JSON);
+    }
+
+    @Benchmark
+    public Delta deltaExport() throws IOException {
+        return repository.exportChangesSince(backedUp, deltaFile, StorageFormat.JSON);
+    }
+}
@@ -0,0 +1,90 @@
+package pl.edu.agh.isi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Reading and writing a generated household, see {@link RecurrenceDataset}, through
+ * the streaming codecs of {@link DomainCodecs} and through the bean serializers
+ * databind builds from the annotations. Both produce the same bytes. Run only these with
+ * ./gradlew jmh -PjmhIncludes=DomainCodecsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class DomainCodecsBenchmark {
+
+    @Param({"100", "1000"})
+    public int seriesCount;
+
+    @Param({"databind", "streaming"})
+    public String codec;
+
+    private ObjectMapper mapper;
+    private List<Task> tasks;
+    private byte[] data;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("streaming".equals(codec)) {
+            mapper = StorageFormat.JSON.newMapper();
+        } else {
+            mapper = new ObjectMapper();
+            mapper.registerModule(new JavaTimeModule());
+            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        }
+        mapper.registerModule(TaskSchema.module());
+
+        Path directory = Files.createTempDirectory("domain-codecs-benchmark");
+        try {
+            File file = directory.resolve("tasks.json").toFile();
+            RecurrenceDataset.write(file, seriesCount, 1, LocalDateTime.now());
+            tasks = new TaskRepository(file).findAll();
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        data = write().toByteArray();
+        System.out.printf("%n%d tasks, %d KB%n", tasks.size(), data.length / 1024);
+    }
+
+    @Benchmark
+    public Task[] read() throws IOException {
+        return TaskSchema.readTasks(mapper, data);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data != null ? data.length : 1 << 16);
+        TaskSchema.write(mapper, out, tasks);
+        return out;
+    }
+}
@@ -0,0 +1,48 @@
+package pl.edu.agh.isi;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RecurrenceConfig.calculateNextDueDate ten years into a series, the step taken
+ * every time the next instance of a recurring task is generated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NextDueDateBenchmark {
+
+    @Param({"DAILY", "WEEKLY", "MONTHLY"})
+    public RecurrenceInterval interval;
+
+    private RecurrenceConfig config;
+    private LocalDateTime seriesStart;
+    private LocalDateTime current;
+
+    @Setup
+    public void setUp() {
+        config = new RecurrenceConfig(interval);
+        seriesStart = LocalDateTime.of(2015, 1, 31, 9, 0);
+        current = config.calculateNextDueDate(seriesStart, seriesStart.plusYears(10));
+    }
+
+    @Benchmark
+    public LocalDateTime calculateNextDueDate() {
+        return config.calculateNextDueDate(seriesStart, current);
+    }
+}
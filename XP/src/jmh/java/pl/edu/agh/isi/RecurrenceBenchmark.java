@@ -0,0 +1,110 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The recurrence paths against a generated household, see {@link RecurrenceDataset}:
+ * building and saving the next instance of a series, completing a recurring task,
+ * and listing the instances of one series. Stepping a single occurrence does not depend
+ * on the dataset and is measured by {@link NextDueDateBenchmark}.
+ * Writes go to a copy of the generated file that is restored before every iteration,
+ * so the series do not grow across iterations. Run only these with
+ * ./gradlew jmh -PjmhIncludes=RecurrenceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class RecurrenceBenchmark {
+
+    @Param({"100", "1000"})
+    public int seriesCount;
+
+    @Param({"1", "10"})
+    public int historyYears;
+
+    private Path directory;
+    private File generatedFile;
+    private File tasksFile;
+    private TaskRepository taskRepository;
+    private RecurringTaskService recurringTaskService;
+    private TaskService taskService;
+    private int series;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("recurrence-benchmark");
+        generatedFile = directory.resolve("generated.json").toFile();
+        tasksFile = directory.resolve("tasks.json").toFile();
+        RecurrenceDataset.write(generatedFile, seriesCount, historyYears, LocalDateTime.now());
+    }
+
+    @Setup(Level.Iteration)
+    public void load() throws IOException {
+        Files.copy(generatedFile.toPath(), tasksFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        taskRepository = new TaskRepository(tasksFile);
+        recurringTaskService = new RecurringTaskService(taskRepository);
+        taskService = new TaskService(taskRepository);
+        taskService.setRecurringTaskService(recurringTaskService);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Round robin over the series, so daily, weekly and monthly ones are measured alike
+    private int nextSeries() {
+        series = series % seriesCount + 1;
+        return series;
+    }
+
+    @Benchmark
+    public Optional<Task> createNextInstance() {
+        Task parent = taskRepository.findById(nextSeries()).orElseThrow();
+        return recurringTaskService.createNextInstance(parent);
+    }
+
+    @Benchmark
+    public Optional<Task> generateNextInstance() {
+        return recurringTaskService.generateNextInstance(nextSeries());
+    }
+
+    @Benchmark
+    public Task markRecurringTaskAsCompleted() {
+        return taskService.markTaskAsCompleted(nextSeries(), "Done");
+    }
+
+    @Benchmark
+    public List<Task> getRecurrenceInstancesForParent() {
+        return taskService.getRecurrenceInstancesForParent(nextSeries());
+    }
+}
@@ -0,0 +1,77 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Generates a tasks file shaped like a long-running household: recurring series
+ * cycling through daily, weekly and monthly intervals, each with every occurrence
+ * of the past years saved as a completed instance and the latest one still open.
+ * Recurring tasks get IDs 1 to seriesCount, their instances follow.
+ */
+final class RecurrenceDataset {
+    private static final RecurrenceInterval[] INTERVALS = {
+        RecurrenceInterval.DAILY, RecurrenceInterval.WEEKLY, RecurrenceInterval.MONTHLY
+    };
+
+    private RecurrenceDataset() {
+    }
+
+    /**
+     * Write the dataset
+     * @param file the tasks file to create
+     * @param seriesCount the number of recurring tasks
+     * @param historyYears how many years of instances every series has
+     * @param now the end of the history, the latest instance of a series is due around it
+     * @return the number of tasks written
+     */
+    static int write(File file, int seriesCount, int historyYears, LocalDateTime now) throws IOException {
+        LocalDateTime start = now.minusYears(historyYears);
+        List<Task> tasks = new ArrayList<>();
+        List<Task> instances = new ArrayList<>();
+        int nextId = seriesCount + 1;
+        for (int id = 1; id <= seriesCount; id++) {
+            RecurrenceConfig config = new RecurrenceConfig(INTERVALS[(id - 1) % INTERVALS.length]);
+            Task parent = new Task("Chore " + id, start.plusMinutes(id), "Generated series " + id,
+                    TaskPriority.fromLevel(id % 3 + 1), config);
+            parent.setId(id);
+            parent.setAssignedTo(String.valueOf(id % 5 + 1));
+            tasks.add(parent);
+
+            LocalDateTime due = parent.getDueDate();
+            int number = 0;
+            while (true) {
+                LocalDateTime next = config.calculateNextDueDate(parent.getDueDate(), due);
+                if (next.isAfter(now)) {
+                    break;
+                }
+                due = next;
+                number++;
+                Task instance = new Task(parent.getTopic(), due, parent.getDescription(), parent.getPriority(), id, number);
+                instance.setId(nextId++);
+                instance.setAssignedTo(parent.getAssignedTo());
+                instance.setCompleted(true);
+                instance.setCompletedAt(due.plusHours(2));
+                instances.add(instance);
+            }
+            // The latest occurrence is the one still waiting to be done
+            if (number > 0) {
+                Task latest = instances.get(instances.size() - 1);
+                latest.setCompleted(false);
+                latest.setCompletedAt(null);
+            }
+        }
+        tasks.addAll(instances);
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.writeValue(file, tasks);
+        return tasks.size();
+    }
+}
@@ -0,0 +1,82 @@
+package pl.edu.agh.isi;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding the nth occurrence of a series: the closed form of RecurrenceRule against
+ * stepping one occurrence at a time, which is what the single-step
+ * RecurrenceConfig.calculateNextDueDate used to require.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecurrenceRuleBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int occurrence;
+
+    @Param({"DAILY", "WEEKLY_DAYS", "MONTHLY_NTH"})
+    public String kind;
+
+    private RecurrenceRule rule;
+    private LocalDateTime probe;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 31, 9, 0);
+        switch (kind) {
+            case "DAILY":
+                rule = RecurrenceRule.daily(start, 3);
+                break;
+            case "WEEKLY_DAYS":
+                rule = RecurrenceRule.weekly(start, 2, EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY));
+                break;
+            default:
+                rule = RecurrenceRule.monthlyOnWeekday(start, 1, 2, DayOfWeek.TUESDAY);
+                break;
+        }
+        probe = rule.nthOccurrence(occurrence).minusHours(1);
+    }
+
+    @Benchmark
+    public LocalDateTime closedFormNth() {
+        return rule.nthOccurrence(occurrence);
+    }
+
+    @Benchmark
+    public LocalDateTime closedFormNextAfter() {
+        return rule.nextAfter(probe);
+    }
+
+    @Benchmark
+    public long closedFormCount() {
+        return rule.countBetween(rule.getStart(), probe);
+    }
+
+    @Benchmark
+    public LocalDateTime steppingNth() {
+        LocalDateTime current = rule.nthOccurrence(0);
+        for (int i = 0; i < occurrence; i++) {
+            current = rule.nextAfter(current);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,80 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading and saving the same household, see {@link RecurrenceDataset}, as JSON and
+ * as Smile. File sizes are printed once per trial. Run only these with
+ * ./gradlew jmh -PjmhIncludes=StorageFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class StorageFormatBenchmark {
+
+    @Param({"100", "1000"})
+    public int seriesCount;
+
+    @Param({"JSON", "SMILE"})
+    public StorageFormat format;
+
+    private Path directory;
+    private File dataFile;
+    private File savedFile;
+    private TaskRepository repository;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("storage-format-benchmark");
+        File generated = directory.resolve("generated.json").toFile();
+        RecurrenceDataset.write(generated, seriesCount, 1, LocalDateTime.now());
+        dataFile = directory.resolve("tasks." + format.getName()).toFile();
+        savedFile = directory.resolve("saved." + format.getName()).toFile();
+        new TaskRepository(generated).exportTo(dataFile, format);
+        repository = new TaskRepository(dataFile);
+        System.out.printf("%n%s file: %d KB, %d tasks%n", format.getName(), dataFile.length() / 1024,
+                repository.findAll().size());
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public TaskRepository load() {
+        return new TaskRepository(dataFile);
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        repository.exportTo(savedFile, format);
+        return savedFile.length();
+    }
+}
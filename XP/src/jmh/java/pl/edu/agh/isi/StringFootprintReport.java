@@ -0,0 +1,86 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Heap taken by tasks that repeat the same strings, loaded once as plain databind
+ * beans, where every task has its own copy of its topic, assignee and comment texts,
+ * and once through TaskRepository, which pools the repeated strings and keeps the
+ * comments the application writes as a template and an argument.
+ * Run with: ./gradlew stringFootprintReport [-PfootprintArgs="TASKS"]
+ * Heap figures are measured after a full GC and are approximate.
+ */
+public final class StringFootprintReport {
+    private static final int TOPICS = 200;
+    private static final String[] MEMBERS = {"Anna", "Piotr", "Kasia", "Tomek", "Ola"};
+
+    private StringFootprintReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        Path directory = Files.createTempDirectory("string-footprint");
+        try {
+            File file = directory.resolve("tasks.json").toFile();
+            write(file, taskCount);
+
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.registerModule(new JavaTimeModule());
+            mapper.registerModule(TaskSchema.module());
+            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            long baseline = TemplateFootprintReport.usedHeap();
+            Task[] copies = TaskSchema.readTasks(mapper, Files.readAllBytes(file.toPath()));
+            long heapBefore = TemplateFootprintReport.usedHeap() - baseline;
+            if (copies.length != taskCount) {
+                throw new IllegalStateException("Expected " + taskCount + " tasks, read " + copies.length);
+            }
+            copies = null;
+
+            baseline = TemplateFootprintReport.usedHeap();
+            TaskRepository repository = new TaskRepository(file);
+            long heapAfter = TemplateFootprintReport.usedHeap() - baseline;
+            if (repository.findAll().size() != taskCount) {
+                throw new IllegalStateException("Expected " + taskCount + " tasks in the repository");
+            }
+
+            System.out.printf("%d tasks, %d topics, %d members%n", taskCount, TOPICS, MEMBERS.length);
+            System.out.printf("%-6s %14s %14s %8s%n", "", "before", "after", "change");
+            TemplateFootprintReport.printRow("heap", heapBefore, heapAfter);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Standalone chores, each assigned with the comments the services add
+    private static void write(File file, int taskCount) throws IOException {
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 1; i <= taskCount; i++) {
+            int topic = i % TOPICS + 1;
+            int member = i % MEMBERS.length;
+            Task task = new Task(i, "Chore " + topic, start.plusMinutes(i), "Generated chore " + topic,
+                    TaskPriority.fromLevel(i % 3 + 1));
+            task.setAssignedTo(String.valueOf(member + 1));
+            task.addComment(new Comment("Generated as part of recurring task #" + topic));
+            task.addComment(new Comment("Task assigned to " + MEMBERS[member]));
+            tasks.add(task);
+        }
+        AtomicFileWriter.write(file, out -> TaskSchema.write(SerializationRegistry.of(StorageFormat.JSON).taskWriter(),
+                out, tasks));
+    }
+}
@@ -0,0 +1,87 @@
+package pl.edu.agh.isi;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup parse time of a large tasks file: single-threaded databind versus
+ * the chunked fork/join loader at increasing pool sizes.
+ * The file content is generated in memory so disk speed does not skew the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class TaskLoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int taskCount;
+
+    @Param({"1", "4", "8", "16"})
+    public int threads;
+
+    private ObjectMapper mapper;
+    private byte[] data;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 8, 0);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 1; i <= taskCount; i++) {
+            Task task = new Task(i, "Household chore " + (i % 500), start.plusHours(i),
+                    "Generated task number " + i, TaskPriority.fromLevel(i % 3 + 1));
+            task.setCompleted(i % 4 == 0);
+            task.setAssignedTo(String.valueOf(i % 5 + 1));
+            task.addComment(new Comment("Task assigned to member " + (i % 5 + 1)));
+            tasks.add(task);
+        }
+        data = mapper.writeValueAsBytes(tasks);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int sequentialDatabind() throws IOException {
+        Task[] loaded = mapper.readValue(data, Task[].class);
+        int maxId = 0;
+        for (Task task : loaded) {
+            maxId = Math.max(maxId, task.getId());
+        }
+        return maxId;
+    }
+
+    @Benchmark
+    public int parallelChunked() throws IOException {
+        return new ParallelTaskLoader(mapper, pool).load(data).getMaxId();
+    }
+}
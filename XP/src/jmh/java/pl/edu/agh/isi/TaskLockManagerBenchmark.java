@@ -0,0 +1,84 @@
+package pl.edu.agh.isi;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Contention benchmark for TaskLockManager.
+ * A single stripe behaves like a global lock and is the baseline for the striped variant.
+ * With sameTask=true every thread fights for one task, which must stay serialized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class TaskLockManagerBenchmark {
+
+    // Simulated read-modify-write work done while the lock is held
+    private static final long CRITICAL_SECTION_TOKENS = 200;
+
+    @Param({"1", "64"})
+    public int stripes;
+
+    @Param({"false", "true"})
+    public boolean sameTask;
+
+    private TaskLockManager lockManager;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        lockManager = new TaskLockManager(stripes);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int taskId;
+        List<Integer> taskPair;
+
+        @Setup
+        public void setUp(TaskLockManagerBenchmark benchmark) {
+            int thread = benchmark.threadCounter.incrementAndGet();
+            taskId = benchmark.sameTask ? 1 : thread;
+            // Pairs overlap with the neighbouring thread and are listed in opposite orders
+            taskPair = thread % 2 == 0
+                    ? Arrays.asList(thread, thread + 1)
+                    : Arrays.asList(thread + 1, thread);
+        }
+    }
+
+    @Benchmark
+    public int singleTask(ThreadState state) {
+        return lockManager.withLock(state.taskId, () -> {
+            Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+            return state.taskId;
+        });
+    }
+
+    @Benchmark
+    public int taskPair(ThreadState state) {
+        return lockManager.withLocks(state.taskPair, () -> {
+            Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+            return state.taskId;
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package pl.edu.agh.isi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of reading the same tasks as a current file, loaded without checks, and as a
+ * version 2 file going through the one-time TaskMigration pass. checkedEveryLoad is
+ * what loading cost before the version recorded that the records had been checked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class TaskMigrationBenchmark {
+
+    @Param({"10000", "100000"})
+    public int taskCount;
+
+    private SerializationRegistry registry;
+    private byte[] current;
+    private byte[] version2;
+    private File quarantine;
+
+    @Setup
+    public void setUp() throws IOException {
+        registry = SerializationRegistry.of(StorageFormat.JSON);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 8, 0);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 1; i <= taskCount; i++) {
+            Task task = new Task(i, "Household chore " + (i % 500), start.plusHours(i),
+                    "Generated task number " + i, TaskPriority.fromLevel(i % 3 + 1));
+            if (i % 2 == 0) {
+                task.setAssignedTo(String.valueOf(i % 5 + 1));
+                task.addComment(new Comment("Task assigned to member " + (i % 5 + 1)));
+            }
+            tasks.add(task);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskSchema.write(registry.taskWriter(), out, tasks);
+        current = out.toByteArray();
+        version2 = new String(current, StandardCharsets.UTF_8)
+                .replaceFirst("\"schema\":" + TaskSchema.VERSION, "\"schema\":2")
+                .getBytes(StandardCharsets.UTF_8);
+        quarantine = Files.createTempFile("tasks", ".quarantine.jsonl").toFile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        quarantine.delete();
+    }
+
+    @Benchmark
+    public Task[] loadCurrent() throws IOException {
+        return TaskSchema.readTasks(registry.taskArrayReader(), current);
+    }
+
+    @Benchmark
+    public Task[] checkedEveryLoad() throws IOException {
+        Task[] loaded = TaskSchema.readTasks(registry.taskArrayReader(), version2);
+        for (Task task : loaded) {
+            TaskMigration.upgrade(task, 2);
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public List<Task> migrateOnce() throws IOException {
+        ObjectReader reader = registry.taskReader();
+        return TaskMigration.migrate(reader, version2, 2, quarantine).getTasks();
+    }
+}
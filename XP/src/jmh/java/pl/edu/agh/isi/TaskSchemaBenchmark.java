@@ -0,0 +1,102 @@
+package pl.edu.agh.isi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parse time of the same tasks stored in schema version 1 and version 2, see TaskSchema.
+ * Version 1 content is produced with annotations switched off, which gives the long
+ * field names, date arrays, nulls and derived fields of older files.
+ * The sizes of both encodings are printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class TaskSchemaBenchmark {
+
+    @Param({"10000", "100000"})
+    public int taskCount;
+
+    private ObjectMapper mapper;
+    private byte[] version1;
+    private byte[] version2;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Configured like TaskRepository
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(TaskSchema.module());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 8, 0);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 1; i <= taskCount; i++) {
+            Task task = new Task(i, "Household chore " + (i % 500), start.plusHours(i),
+                    i % 3 == 0 ? null : "Generated task number " + i, TaskPriority.fromLevel(i % 3 + 1));
+            task.setCreatedAt(start.plusHours(i).minusDays(3).plusNanos(i * 1000L));
+            if (i % 4 == 0) {
+                task.setCompleted(true);
+                task.setCompletedAt(start.plusHours(i).plusMinutes(20));
+            }
+            if (i % 2 == 0) {
+                task.setAssignedTo(String.valueOf(i % 5 + 1));
+                task.addComment(new Comment("Task assigned to member " + (i % 5 + 1)));
+            }
+            if (i % 10 == 0) {
+                task.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+            }
+            tasks.add(task);
+        }
+
+        ObjectMapper version1Mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(MapperFeature.USE_ANNOTATIONS)
+                .build();
+        version1 = version1Mapper.writeValueAsBytes(tasks);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskSchema.write(mapper, out, tasks);
+        version2 = out.toByteArray();
+        System.out.printf("%nschema version 1: %d bytes, version 2: %d bytes (%.1f%%)%n",
+                version1.length, version2.length, 100.0 * (version2.length - version1.length) / version1.length);
+    }
+
+    private Task[] parse(byte[] data) throws IOException {
+        int offset = TaskSchema.readHeader(mapper, data).getArrayOffset();
+        return mapper.readValue(data, offset, data.length - offset, Task[].class);
+    }
+
+    @Benchmark
+    public Task[] parseVersion1() throws IOException {
+        return parse(version1);
+    }
+
+    @Benchmark
+    public Task[] parseVersion2() throws IOException {
+        return parse(version2);
+    }
+}
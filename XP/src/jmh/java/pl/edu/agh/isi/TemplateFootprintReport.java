@@ -0,0 +1,86 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * File size and heap taken by a recurring household before and after instances share
+ * the template fields of their recurring task. The dataset is written in the older
+ * layout, where every instance repeats topic, description and priority, and is then
+ * loaded once as plain tasks and once through TaskRepository, which links the
+ * templates and writes the file back in the shared layout.
+ * Run with: ./gradlew footprintReport [-PfootprintArgs="SERIES YEARS"]
+ * Heap figures are measured after a full GC and are approximate.
+ */
+public final class TemplateFootprintReport {
+
+    private TemplateFootprintReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int seriesCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int historyYears = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path directory = Files.createTempDirectory("template-footprint");
+        try {
+            File file = directory.resolve("tasks.json").toFile();
+            int taskCount = RecurrenceDataset.write(file, seriesCount, historyYears, LocalDateTime.now());
+            long fileBefore = file.length();
+
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.registerModule(new JavaTimeModule());
+            mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            long baseline = usedHeap();
+            Task[] copies = mapper.readValue(file, Task[].class);
+            long heapBefore = usedHeap() - baseline;
+            if (copies.length != taskCount) {
+                throw new IllegalStateException("Expected " + taskCount + " tasks, read " + copies.length);
+            }
+            copies = null;
+
+            baseline = usedHeap();
+            TaskRepository repository = new TaskRepository(file);
+            long heapAfter = usedHeap() - baseline;
+            // Write the file back in the shared layout
+            repository.updateAll(repository.findAll());
+            long fileAfter = file.length();
+
+            System.out.printf("%d series, %d years of history, %d tasks%n", seriesCount, historyYears, taskCount);
+            System.out.printf("%-6s %14s %14s %8s%n", "", "before", "after", "change");
+            printRow("file", fileBefore, fileAfter);
+            printRow("heap", heapBefore, heapAfter);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    static void printRow(String label, long before, long after) {
+        System.out.printf("%-6s %11d KB %11d KB %7.1f%%%n", label, before / 1024, after / 1024,
+                100.0 * (after - before) / before);
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
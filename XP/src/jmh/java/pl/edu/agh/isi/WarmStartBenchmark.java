@@ -0,0 +1,85 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Start of a repository over a large household, see {@link RecurrenceDataset}, from the
+ * data file and from its {@link WarmStartImage}. A cold start reads the data file, as
+ * the first command after another program changed it does; a warm start checks the
+ * image the last save wrote against the data file and reads it. File sizes are printed
+ * once per trial.
+ * Run only these with ./gradlew jmh -PjmhIncludes=WarmStartBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class WarmStartBenchmark {
+
+    @Param({"100", "1000"})
+    public int seriesCount;
+
+    @Param({"tasks.json", "tasks.json.gz"})
+    public String fileName;
+
+    private Path directory;
+    private File dataFile;
+    private WarmStartImage image;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("warm-start-benchmark");
+        File generated = directory.resolve("generated.json").toFile();
+        RecurrenceDataset.write(generated, seriesCount, 1, LocalDateTime.now());
+        dataFile = directory.resolve(fileName).toFile();
+        new TaskRepository(generated).exportTo(dataFile, StorageFormat.JSON);
+        // Saved once, which writes the image
+        TaskRepository repository = new TaskRepository(dataFile);
+        repository.replaceAll(repository.findAll(), StorageFormat.JSON);
+        image = new WarmStartImage(dataFile);
+        int tasks = repository.findAll().size();
+        System.out.printf("%n%s: %d KB, image: %d KB, %d tasks%n", fileName, dataFile.length() / 1024,
+                image.getFile().length() / 1024, tasks);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public TaskRepository coldStart() {
+        image.delete();
+        return new TaskRepository(dataFile);
+    }
+
+    @Benchmark
+    public TaskRepository warmStart() {
+        return new TaskRepository(dataFile);
+    }
+}
@@ -0,0 +1,109 @@
+package pl.edu.agh.isi;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Every task due within a date range, stored or still to be generated by a recurring
+ * task, in due date order.
+ * Stored tasks are sorted once. Each recurring task contributes a lazy iterator over its
+ * unsaved occurrences, and a heap holding the head of every iterator merges them, so
+ * producing the next entry costs O(log k) for k series and nothing is computed beyond
+ * what the caller reads. With completed tasks, the instances compacted into the
+ * {@link SeriesHistory} of a recurring task are rebuilt from it, one more sorted input
+ * for every series with history in the range.
+ */
+public class Agenda {
+    // Earlier due date first; on a tie stored tasks come before projected ones, then by ID
+    private static final Comparator<Task> ORDER = Comparator.comparing(Task::getDueDate)
+            .thenComparing(task -> task.getId() == 0)
+            .thenComparingInt(Task::getId)
+            .thenComparing(task -> task.getParentTaskId() == null ? 0 : task.getParentTaskId());
+
+    private final TaskRepository taskRepository;
+
+    public Agenda(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    /**
+     * Iterate over the tasks due within a range
+     * @param from the first due date to include
+     * @param to the last due date to include
+     * @param includeCompleted whether completed stored tasks are included
+     * @return the tasks in due date order; projected and compacted instances have ID 0
+     * @throws IllegalArgumentException if the range ends before it starts
+     */
+    public Iterator<Task> between(LocalDateTime from, LocalDateTime to, boolean includeCompleted) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The end of the range is before its start");
+        }
+        List<Task> tasks = taskRepository.findAll();
+        Map<Integer, Set<Integer>> savedNumbers = RecurringTaskService.savedNumbersByParent(tasks);
+
+        PriorityQueue<Source> heads = new PriorityQueue<>((a, b) -> ORDER.compare(a.head, b.head));
+        List<Task> stored = tasks.stream()
+                .filter(task -> task.getDueDate() != null)
+                .filter(task -> !task.getDueDate().isBefore(from) && !task.getDueDate().isAfter(to))
+                .filter(task -> includeCompleted || !task.isCompleted())
+                .sorted(ORDER)
+                .collect(Collectors.toList());
+        Source.offer(heads, stored.iterator());
+        for (Task task : tasks) {
+            Source.offer(heads, RecurringTaskService.projectSeries(task,
+                    savedNumbers.getOrDefault(task.getId(), Collections.emptySet()), from, to));
+            if (includeCompleted && task.getSeriesHistory() != null) {
+                Source.offer(heads, task.getSeriesHistory().toTasks(task).stream()
+                        .filter(instance -> !instance.getDueDate().isBefore(from)
+                                && !instance.getDueDate().isAfter(to))
+                        .sorted(ORDER)
+                        .iterator());
+            }
+        }
+
+        return new Iterator<Task>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Task next() {
+                Source source = heads.poll();
+                if (source == null) {
+                    throw new NoSuchElementException();
+                }
+                Task current = source.head;
+                Source.offer(heads, source.rest);
+                return current;
+            }
+        };
+    }
+
+    /**
+     * One sorted input of the merge with its current head
+     */
+    private static final class Source {
+        final Task head;
+        final Iterator<Task> rest;
+
+        private Source(Task head, Iterator<Task> rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+
+        static void offer(PriorityQueue<Source> heads, Iterator<Task> iterator) {
+            if (iterator.hasNext()) {
+                heads.add(new Source(iterator.next(), iterator));
+            }
+        }
+    }
+}
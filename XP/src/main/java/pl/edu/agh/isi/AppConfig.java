@@ -1,9 +1,5 @@
 package pl.edu.agh.isi;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
@@ -33,27 +29,20 @@ public class AppConfig {
     private String logLevel = "INFO";
     private int sessionTimeoutMinutes = 30;
     
+    // Days ahead for which list shows unsaved instances of recurring tasks, 0 to show none
+    private int virtualInstanceDays = 0;
+    
+    // Write data files compressed even when their name does not end with .gz
+    private boolean compressStorage = false;
+    
     // Default admin credentials
     private String adminUsername = "admin";
     private String adminPassword = "password"; // In a real app, this should be securely stored
     
-    // Jackson ObjectMapper for JSON serialization/deserialization
-    private transient ObjectMapper mapper;
-    
     /**
      * Private constructor for singleton pattern
      */
     private AppConfig() {
-        initMapper();
-    }
-    
-    /**
-     * Initialize the ObjectMapper
-     */
-    private void initMapper() {
-        mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
     
     /**
@@ -87,12 +76,8 @@ public class AppConfig {
         }
         
         try {
-            if (mapper == null) {
-                initMapper();
-            }
-            
-            // Read as a map to avoid overwriting transient fields
-            java.util.Map<String, Object> map = mapper.readValue(configFile, java.util.Map.class);
+            // Read as a map, so keys missing from the file keep their defaults
+            java.util.Map<String, Object> map = SerializationRegistry.configReader().readValue(configFile);
             
             // Update fields from the map
             if (map.containsKey("dbUrl")) this.dbUrl = (String) map.get("dbUrl");
@@ -103,6 +88,8 @@ public class AppConfig {
             if (map.containsKey("enableDebugMode")) this.enableDebugMode = (Boolean) map.get("enableDebugMode");
             if (map.containsKey("logLevel")) this.logLevel = (String) map.get("logLevel");
             if (map.containsKey("sessionTimeoutMinutes")) this.sessionTimeoutMinutes = ((Number) map.get("sessionTimeoutMinutes")).intValue();
+            if (map.containsKey("virtualInstanceDays")) this.virtualInstanceDays = ((Number) map.get("virtualInstanceDays")).intValue();
+            if (map.containsKey("compressStorage")) this.compressStorage = (Boolean) map.get("compressStorage");
             if (map.containsKey("adminUsername")) this.adminUsername = (String) map.get("adminUsername");
             if (map.containsKey("adminPassword")) this.adminPassword = (String) map.get("adminPassword");
             
@@ -128,10 +115,7 @@ public class AppConfig {
      */
     public boolean saveConfig(File configFile) {
         try {
-            if (mapper == null) {
-                initMapper();
-            }
-            mapper.writeValue(configFile, this);
+            SerializationRegistry.configWriter().writeValue(configFile, this);
             LOGGER.info("Configuration saved to " + configFile.getPath());
             return true;
         } catch (IOException e) {
@@ -152,6 +136,8 @@ public class AppConfig {
         enableDebugMode = false;
         logLevel = "INFO";
         sessionTimeoutMinutes = 30;
+        virtualInstanceDays = 0;
+        compressStorage = false;
         adminUsername = "admin";
         adminPassword = "password";
     }
@@ -238,6 +224,25 @@ public class AppConfig {
         this.sessionTimeoutMinutes = sessionTimeoutMinutes;
     }
     
+    public int getVirtualInstanceDays() {
+        return virtualInstanceDays;
+    }
+    
+    public void setVirtualInstanceDays(int virtualInstanceDays) {
+        if (virtualInstanceDays < 0) {
+            throw new IllegalArgumentException("Number of days cannot be negative");
+        }
+        this.virtualInstanceDays = virtualInstanceDays;
+    }
+    
+    public boolean isCompressStorage() {
+        return compressStorage;
+    }
+    
+    public void setCompressStorage(boolean compressStorage) {
+        this.compressStorage = compressStorage;
+    }
+    
     public String getAdminUsername() {
         return adminUsername;
     }
@@ -0,0 +1,127 @@
+package pl.edu.agh.isi;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces data files atomically.
+ * Content is written to a temporary file next to the target and then renamed over it,
+ * so a crash leaves either the old or the new content, never a half-written file. Each
+ * write gets a temporary file of its own, so two writers of the same target, e.g. two
+ * processes, never write into the same one.
+ */
+public final class AtomicFileWriter {
+
+    /**
+     * Writes content to a stream
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private AtomicFileWriter() {
+    }
+
+    /**
+     * Write and replace the target file in one step
+     * @param target the file to replace
+     * @param writer produces the new content
+     * @throws IOException if writing or replacing fails, the target is unchanged then
+     */
+    public static void write(File target, ContentWriter writer) throws IOException {
+        commit(prepare(target, writer), target);
+    }
+
+    /**
+     * Write and replace the target file in one step, compressing the content on the way
+     * @param target the file to replace
+     * @param compression how to compress the content
+     * @param writer produces the new content
+     * @throws IOException if writing or replacing fails, the target is unchanged then
+     */
+    public static void write(File target, Compression compression, ContentWriter writer)
+            throws IOException {
+        commit(prepare(target, compression, writer), target);
+    }
+
+    /**
+     * Write new content to a temporary file next to the target
+     * @param target the file that will be replaced
+     * @param writer produces the new content
+     * @return the temporary file to pass to {@link #commit(File, File)}
+     * @throws IOException if writing fails, no temporary file is left behind then
+     */
+    public static File prepare(File target, ContentWriter writer) throws IOException {
+        return prepare(target, Compression.NONE, writer);
+    }
+
+    /**
+     * Write new content to a temporary file next to the target, compressing it on the way
+     * @param target the file that will be replaced
+     * @param compression how to compress the content
+     * @param writer produces the new content
+     * @return the temporary file to pass to {@link #commit(File, File)}
+     * @throws IOException if writing fails, no temporary file is left behind then
+     */
+    public static File prepare(File target, Compression compression, ContentWriter writer)
+            throws IOException {
+        File parentDir = target.getAbsoluteFile().getParentFile();
+        parentDir.mkdirs();
+        File temp = Files.createTempFile(parentDir.toPath(), target.getName(), ".tmp").toFile();
+        try {
+            keepPermissions(target, temp);
+            try (OutputStream out = compression.compress(
+                    new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                writer.write(out);
+            }
+        } catch (IOException | RuntimeException e) {
+            discard(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    // Temporary files are readable by their owner only, the replaced file keeps what it had
+    private static void keepPermissions(File target, File temp) throws IOException {
+        if (!target.exists()) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(temp.toPath(),
+                    Files.getPosixFilePermissions(target.toPath()));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, the permissions come from the directory
+        }
+    }
+
+    /**
+     * Move a prepared temporary file over the target
+     * @param prepared the file returned by {@link #prepare(File, ContentWriter)}
+     * @param target the file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    public static void commit(File prepared, File target) throws IOException {
+        try {
+            Files.move(prepared.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(prepared.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Delete a prepared temporary file that will not be committed
+     * @param prepared the temporary file, may be null
+     */
+    public static void discard(File prepared) {
+        if (prepared != null) {
+            prepared.delete();
+        }
+    }
+}
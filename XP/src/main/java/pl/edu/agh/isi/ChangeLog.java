@@ -0,0 +1,283 @@
+package pl.edu.agh.isi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Change sequence numbers of the records of a data file.
+ * Every change or deletion of a record takes the next number of the file, and the log
+ * keeps the number of the last change of every record and of every deletion, so the
+ * records changed after any earlier number are found without a copy of the file as it
+ * was then. Stored in the header of the data file as
+ * {"seq":N,"pruned":P,"applied":A,"changed":[id,seq,...],"deleted":[id,seq,...]}.
+ * A delta since a number has to list the deletions after it, so deletions are kept
+ * until there are more than {@link #MAX_DELETIONS}; the older half is then dropped and
+ * "pruned" is the last number dropped, deltas since earlier numbers are refused. A file
+ * restored from deltas keeps in "applied" the last change of its source the deltas
+ * brought it to, so the next delta has to continue from there.
+ */
+final class ChangeLog {
+    static final int MAX_DELETIONS = 10_000;
+
+    private long sequence;
+    private long pruned;
+    // -1 until a delta is applied
+    private long applied = -1;
+    // Sorted by id, so the file is written the same way every time
+    private final Map<Integer, Long> changed = new TreeMap<>();
+    private final Map<Integer, Long> deleted = new TreeMap<>();
+
+    /**
+     * Start a log for a file written before change numbers were kept, with every
+     * record it holds changed at number 1, so a delta since 0 has all of them
+     * @param ids the records of the file
+     */
+    static ChangeLog startingWith(Collection<Integer> ids) {
+        ChangeLog log = new ChangeLog();
+        if (!ids.isEmpty()) {
+            log.sequence = 1;
+            for (Integer id : ids) {
+                log.changed.put(id, 1L);
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Get the number of the last change
+     */
+    synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Record that a record was saved or updated
+     * @return the number of the change
+     */
+    synchronized long recordChange(int id) {
+        sequence++;
+        changed.put(id, sequence);
+        deleted.remove(id);
+        return sequence;
+    }
+
+    /**
+     * Record that a record was deleted
+     * @return the number of the change
+     */
+    synchronized long recordDelete(int id) {
+        sequence++;
+        deleted.put(id, sequence);
+        changed.remove(id);
+        if (deleted.size() > MAX_DELETIONS) {
+            pruneDeletions();
+        }
+        return sequence;
+    }
+
+    // Drops the older half, so this runs once per MAX_DELETIONS / 2 deletions at most
+    private void pruneDeletions() {
+        long[] numbers = deleted.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        long last = numbers[numbers.length / 2];
+        deleted.values().removeIf(number -> number <= last);
+        pruned = Math.max(pruned, last);
+    }
+
+    /**
+     * Get the records changed after a number and not deleted since
+     * @param since the number of the last change already seen
+     */
+    synchronized List<Integer> changedSince(long since) {
+        return idsAfter(changed, since);
+    }
+
+    /**
+     * Get the records deleted after a number
+     * @param since the number of the last change already seen
+     */
+    synchronized List<Integer> deletedSince(long since) {
+        return idsAfter(deleted, since);
+    }
+
+    private static List<Integer> idsAfter(Map<Integer, Long> entries, long since) {
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, Long> entry : entries.entrySet()) {
+            if (entry.getValue() > since) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Check that a delta can be taken since a number
+     * @throws IllegalArgumentException if the number is negative, after the last change
+     * or before deletions that were pruned
+     */
+    synchronized void checkSince(long since) {
+        if (since < 0) {
+            throw new IllegalArgumentException("Change number cannot be negative: " + since);
+        }
+        if (since < pruned) {
+            throw new IllegalArgumentException("Deletions up to change " + pruned
+                    + " are no longer kept, export all records instead of the changes since "
+                    + since);
+        }
+        if (since > sequence) {
+            throw new IllegalArgumentException("Change " + since + " is after the last change "
+                    + sequence + ", the data file was replaced or restored since");
+        }
+    }
+
+    /**
+     * Check that a delta continues from the last one applied. A delta that also holds
+     * changes already applied is taken, its records are as new as those here or newer.
+     * @throws IllegalArgumentException if changes between the two would be missing, or
+     * the delta is older than what was applied
+     */
+    synchronized void checkApply(Delta delta) {
+        if (applied >= 0 && (delta.getSince() > applied || delta.getSequence() < applied)) {
+            throw new IllegalArgumentException("The delta holds changes " + (delta.getSince() + 1)
+                    + " to " + delta.getSequence() + ", but changes up to " + applied
+                    + " were applied last; apply the deltas in the order they were exported");
+        }
+    }
+
+    /**
+     * Record the last change of the source a delta brought the file to
+     * @param sequence the number, or -1 once the records no longer come from deltas
+     */
+    synchronized void setApplied(long sequence) {
+        applied = sequence;
+    }
+
+    synchronized long getApplied() {
+        return applied;
+    }
+
+    synchronized ChangeLog copy() {
+        ChangeLog copy = new ChangeLog();
+        copy.sequence = sequence;
+        copy.pruned = pruned;
+        copy.applied = applied;
+        copy.changed.putAll(changed);
+        copy.deleted.putAll(deleted);
+        return copy;
+    }
+
+    /**
+     * Write the log as the value of a field
+     */
+    synchronized void write(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("seq", sequence);
+        if (pruned > 0) {
+            generator.writeNumberField("pruned", pruned);
+        }
+        if (applied >= 0) {
+            generator.writeNumberField("applied", applied);
+        }
+        writeEntries(generator, "changed", changed);
+        writeEntries(generator, "deleted", deleted);
+        generator.writeEndObject();
+    }
+
+    private static void writeEntries(JsonGenerator generator, String name,
+            Map<Integer, Long> entries) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeStartArray();
+        for (Map.Entry<Integer, Long> entry : entries.entrySet()) {
+            generator.writeNumber(entry.getKey());
+            generator.writeNumber(entry.getValue());
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Read a log written by {@link #write(JsonGenerator)}
+     * @param parser positioned on the start of the object
+     */
+    static ChangeLog read(JsonParser parser) throws IOException {
+        ChangeLog log = new ChangeLog();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("seq".equals(name)) {
+                log.sequence = parser.getLongValue();
+            } else if ("pruned".equals(name)) {
+                log.pruned = parser.getLongValue();
+            } else if ("applied".equals(name)) {
+                log.applied = parser.getLongValue();
+            } else if ("changed".equals(name)) {
+                readEntries(parser, log.changed);
+            } else if ("deleted".equals(name)) {
+                readEntries(parser, log.deleted);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return log;
+    }
+
+    private static void readEntries(JsonParser parser, Map<Integer, Long> entries)
+            throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            int id = parser.getIntValue();
+            parser.nextToken();
+            entries.put(id, parser.getLongValue());
+        }
+    }
+
+    /**
+     * Write the header of a delta since a number, {"since":S,"seq":N,"deleted":[id,...]}
+     * @param deletedIds the records deleted after the number
+     */
+    static void writeDelta(JsonGenerator generator, long since, long sequence,
+            List<Integer> deletedIds) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("since", since);
+        generator.writeNumberField("seq", sequence);
+        generator.writeFieldName("deleted");
+        generator.writeStartArray();
+        for (Integer id : deletedIds) {
+            generator.writeNumber(id);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Read the header of a delta written by {@link #writeDelta}
+     * @param parser positioned on the start of the object
+     * @return the delta, without the number of changed records yet
+     */
+    static Delta readDelta(JsonParser parser) throws IOException {
+        long since = 0;
+        long sequence = 0;
+        List<Integer> deletedIds = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("since".equals(name)) {
+                since = parser.getLongValue();
+            } else if ("seq".equals(name)) {
+                sequence = parser.getLongValue();
+            } else if ("deleted".equals(name)) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    deletedIds.add(parser.getIntValue());
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Delta(since, sequence, deletedIds, 0);
+    }
+}
@@ -2,9 +2,25 @@ package pl.edu.agh.isi;
 
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Comment {
+    // Either the whole text, or the template and argument it is made from
+    @JsonProperty("s")
     private String content;
+    @JsonProperty("tpl")
+    private CommentTemplate template;
+    @JsonProperty("arg")
+    private String argument;
+    @JsonProperty("c")
+    @JsonAlias("createdAt")
     private LocalDateTime createdAt;
+    @JsonProperty("a")
+    @JsonAlias("author")
     private String author;
 
     // Default constructor for Jackson
@@ -22,12 +38,56 @@ public class Comment {
         this.author = author;
     }
 
+    // Stored comment, read by DomainCodecs; the template is null for a text of its own
+    Comment(CommentTemplate template, String text, LocalDateTime createdAt, String author) {
+        this.createdAt = createdAt;
+        this.author = StringPool.intern(author);
+        if (template != null) {
+            this.template = template;
+            this.argument = StringPool.intern(text);
+        } else {
+            this.content = text;
+        }
+    }
+
+    /**
+     * Create a comment from a template
+     * @param template the template of the text
+     * @param argument what follows the fixed part of the text, e.g. a task ID
+     */
+    public static Comment fromTemplate(CommentTemplate template, String argument) {
+        Comment comment = new Comment();
+        comment.template = template;
+        comment.argument = StringPool.intern(argument);
+        return comment;
+    }
+
+    // Stored as the fields, a text made from a template is not written out
+    @JsonIgnore
     public String getContent() {
-        return content;
+        return template != null ? template.format(argument) : content;
     }
 
+    @JsonProperty("s")
+    @JsonAlias("content")
     public void setContent(String content) {
         this.content = content;
+        this.template = null;
+        this.argument = null;
+    }
+
+    // The argument of the template, null for a text of its own
+    String getArgument() {
+        return argument;
+    }
+
+    /**
+     * Get the template the text is made from
+     * @return the template, or null for a text of its own
+     */
+    @JsonIgnore
+    public CommentTemplate getTemplate() {
+        return template;
     }
 
     public LocalDateTime getCreatedAt() {
@@ -0,0 +1,30 @@
+package pl.edu.agh.isi;
+
+/**
+ * Texts of the comments the application adds by itself. A comment made from a
+ * template keeps only the template and its argument, usually a shared task ID or
+ * member name, instead of its own copy of the whole text. Such comments are stored
+ * as the name of the template and the argument, so a comment someone wrote is never
+ * taken for one, however it starts.
+ */
+public enum CommentTemplate {
+    GENERATED("Generated as part of recurring task #"),
+    SCHEDULED("Generated by the scheduler for recurring task #"),
+    CAUGHT_UP("Caught up on recurring task #"),
+    ASSIGNED("Task assigned to "),
+    UNASSIGNED("Task unassigned from ");
+
+    private final String prefix;
+
+    CommentTemplate(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Get the text of a comment made from this template
+     * @param argument what follows the fixed part of the text
+     */
+    public String format(String argument) {
+        return prefix + argument;
+    }
+}
@@ -0,0 +1,105 @@
+package pl.edu.agh.isi;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of data files.
+ * Compressed files are recognized by their content when read, whatever their name.
+ * Data files are written compressed when their name ends with .gz or when compressed
+ * storage is switched on in the configuration, exports only when their name ends with
+ * .gz. Content is compressed while it is written, never collected in memory first.
+ */
+public enum Compression {
+    /** Stored as written */
+    NONE,
+    /** GZIP, the deflate encoding with a header and checksum that command line tools read */
+    GZIP;
+
+    public static final String GZIP_EXTENSION = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Choose the compression of a file by its name alone, as for exports
+     * @param file the file to write
+     * @return GZIP for a .gz file
+     */
+    public static Compression byExtension(File file) {
+        return file.getName().endsWith(GZIP_EXTENSION) ? GZIP : NONE;
+    }
+
+    /**
+     * Choose the compression to write a data file with
+     * @param file the data file to write
+     * @return GZIP for a .gz file or when the configuration asks for compressed storage
+     */
+    public static Compression forFile(File file) {
+        if (byExtension(file) == GZIP || AppConfig.getInstance().isCompressStorage()) {
+            return GZIP;
+        }
+        return NONE;
+    }
+
+    /**
+     * Wrap a stream so that what is written to it is compressed on the way
+     * @param out the stream to write to, closed with the returned one
+     */
+    public OutputStream compress(OutputStream out) throws IOException {
+        if (this == NONE) {
+            return out;
+        }
+        return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Wrap a stream so that compressed content is decompressed as it is read
+     * @param in the stream to read, plain or compressed
+     */
+    public static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (isGzip(first, second)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+
+    /**
+     * Decompress the content of a data file read as it is stored
+     * @param stored the content, plain or compressed
+     * @return the content itself if it is not compressed
+     */
+    public static byte[] decompress(byte[] stored) throws IOException {
+        if (stored.length < 2 || !isGzip(stored[0] & 0xff, stored[1] & 0xff)) {
+            return stored;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(stored), BUFFER_SIZE)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static boolean isGzip(int first, int second) {
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && second == (GZIPInputStream.GZIP_MAGIC >>> 8);
+    }
+
+    /**
+     * Read the whole content of a data file, decompressed
+     * @param file the file, plain or compressed
+     */
+    public static byte[] readAllBytes(File file) throws IOException {
+        try (InputStream in = decompress(Files.newInputStream(file.toPath()))) {
+            return in.readAllBytes();
+        }
+    }
+}
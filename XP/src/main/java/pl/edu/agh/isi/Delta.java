@@ -0,0 +1,94 @@
+package pl.edu.agh.isi;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The changes of a data file between two change sequence numbers: the records changed
+ * after the first number, written in full, and the ids of those deleted after it.
+ * A delta file has the header of a data file with a "delta" field
+ * {"since":S,"seq":N,"deleted":[id,...]} before the records. Applying a delta replaces
+ * and deletes whole records, so applying it again changes nothing.
+ */
+public final class Delta {
+    private final long since;
+    private final long sequence;
+    private final List<Integer> deletedIds;
+    private final int changedCount;
+
+    Delta(long since, long sequence, List<Integer> deletedIds, int changedCount) {
+        this.since = since;
+        this.sequence = sequence;
+        this.deletedIds = List.copyOf(deletedIds);
+        this.changedCount = changedCount;
+    }
+
+    /**
+     * Check whether a file is a delta rather than a full data file or export.
+     * Only the header is read.
+     * @param file the file, in any format and compression
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isDeltaFile(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Compression.decompress(Files.newInputStream(file.toPath())))) {
+            byte[] start = new byte[3];
+            in.mark(start.length);
+            int read = in.readNBytes(start, 0, start.length);
+            in.reset();
+            StorageFormat format = StorageFormat.detect(read == start.length ? start : new byte[0]);
+            try (JsonParser parser = SerializationRegistry.of(format).taskArrayReader().createParser(in)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return false;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    if ("delta".equals(parser.getCurrentName())) {
+                        return true;
+                    }
+                    // The records follow the header fields
+                    if (parser.nextToken() == JsonToken.START_ARRAY) {
+                        return false;
+                    }
+                    parser.skipChildren();
+                }
+                return false;
+            }
+        }
+    }
+
+    Delta withChangedCount(int count) {
+        return new Delta(since, sequence, deletedIds, count);
+    }
+
+    /**
+     * Get the number of the last change the delta leaves out
+     */
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * Get the number of the last change the delta holds, the one to export since next time
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getDeletedCount() {
+        return deletedIds.size();
+    }
+
+    List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+}
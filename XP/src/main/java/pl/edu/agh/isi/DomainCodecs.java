@@ -0,0 +1,648 @@
+package pl.edu.agh.isi;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Streaming serializers and deserializers of the stored classes, registered in place of
+ * the bean serializers databind builds by introspection. They write the same fields the
+ * annotations on the classes describe, read the short names of schema version 2 as well
+ * as the long names of version 1, and set the fields of stored data directly, without
+ * the checks the setters apply to new input. Dates and series histories go through the
+ * serializers the mapper has for them, so the date encoding stays with TaskSchema. A
+ * comment made from a {@link CommentTemplate} is written as {"tpl":NAME,"arg":...} in
+ * place of its text, since schema version 3.
+ */
+final class DomainCodecs {
+
+    private DomainCodecs() {
+    }
+
+    /**
+     * The codecs of Task, Comment, RecurrenceConfig and FamilyMember
+     */
+    static SimpleModule module() {
+        SimpleModule module = new SimpleModule("DomainCodecs");
+        module.addSerializer(Task.class, new TaskSerializer());
+        module.addDeserializer(Task.class, new TaskDeserializer());
+        module.addSerializer(Comment.class, new CommentSerializer());
+        module.addDeserializer(Comment.class, new CommentDeserializer());
+        module.addSerializer(RecurrenceConfig.class, new RecurrenceConfigSerializer());
+        module.addDeserializer(RecurrenceConfig.class, new RecurrenceConfigDeserializer());
+        module.addSerializer(FamilyMember.class, new FamilyMemberSerializer());
+        module.addDeserializer(FamilyMember.class, new FamilyMemberDeserializer());
+        return module;
+    }
+
+    // Name of the first field of an object, or null if it is empty
+    private static String firstField(JsonParser parser, DeserializationContext context,
+            Class<?> type) throws IOException {
+        if (parser.isExpectedStartObjectToken()) {
+            return parser.nextFieldName();
+        }
+        if (parser.hasToken(JsonToken.FIELD_NAME)) {
+            return parser.getCurrentName();
+        }
+        if (parser.hasToken(JsonToken.END_OBJECT)) {
+            return null;
+        }
+        context.handleUnexpectedToken(type, parser);
+        return null;
+    }
+
+    private static <E extends Enum<E>> E readEnum(JsonParser parser, DeserializationContext context,
+            Class<E> type) throws IOException {
+        String text = parser.getText();
+        try {
+            return Enum.valueOf(type, text);
+        } catch (IllegalArgumentException e) {
+            throw context.weirdStringException(text, type, "not one of the values accepted");
+        }
+    }
+
+    private static LocalDateTime readDate(JsonParser parser, DeserializationContext context,
+            JsonDeserializer<Object> dates) throws IOException {
+        return (LocalDateTime) dates.deserialize(parser, context);
+    }
+
+    private static JsonDeserializer<Object> find(DeserializationContext context, Class<?> type,
+            BeanProperty property) throws JsonMappingException {
+        return context.findContextualValueDeserializer(context.constructType(type), property);
+    }
+
+    static final class TaskSerializer extends StdSerializer<Task> implements ContextualSerializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonSerializer<Object> dates;
+        private final JsonSerializer<Object> comments;
+        private final JsonSerializer<Object> recurrence;
+        private final JsonSerializer<Object> history;
+
+        TaskSerializer() {
+            this(null, null, null, null);
+        }
+
+        private TaskSerializer(JsonSerializer<Object> dates, JsonSerializer<Object> comments,
+                JsonSerializer<Object> recurrence, JsonSerializer<Object> history) {
+            super(Task.class);
+            this.dates = dates;
+            this.comments = comments;
+            this.recurrence = recurrence;
+            this.history = history;
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider,
+                BeanProperty property) throws JsonMappingException {
+            return new TaskSerializer(provider.findValueSerializer(LocalDateTime.class, property),
+                    provider.findValueSerializer(Comment.class, property),
+                    provider.findValueSerializer(RecurrenceConfig.class, property),
+                    provider.findValueSerializer(SeriesHistory.class, property));
+        }
+
+        @Override
+        public void serialize(Task task, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject(task);
+            generator.writeNumberField("id", task.getId());
+            writeString(generator, "t", task.getStoredTopic());
+            if (task.isDescriptionCleared()) {
+                generator.writeNullField("d");
+            } else {
+                writeString(generator, "d", task.getStoredDescription());
+            }
+            writeDate(generator, provider, "c", task.getCreatedAt());
+            writeDate(generator, provider, "due", task.getDueDate());
+            writeDate(generator, provider, "at", task.getCompletedAt());
+            writeString(generator, "a", task.getAssignedTo());
+            List<Comment> taskComments = task.getComments();
+            if (taskComments != null && !taskComments.isEmpty()) {
+                generator.writeArrayFieldStart("cm");
+                for (Comment comment : taskComments) {
+                    comments.serialize(comment, generator, provider);
+                }
+                generator.writeEndArray();
+            }
+            if (task.getStoredPriority() != null) {
+                generator.writeStringField("p", task.getStoredPriority().name());
+            }
+            if (task.getRecurrenceConfig() != null) {
+                generator.writeFieldName("r");
+                recurrence.serialize(task.getRecurrenceConfig(), generator, provider);
+            }
+            if (task.getParentTaskId() != null) {
+                generator.writeNumberField("pid", task.getParentTaskId());
+            }
+            if (task.getRecurrenceNumber() != null) {
+                generator.writeNumberField("n", task.getRecurrenceNumber());
+            }
+            if (task.getSeriesHistory() != null) {
+                generator.writeFieldName("h");
+                history.serialize(task.getSeriesHistory(), generator, provider);
+            }
+            if (task.isCompleted()) {
+                generator.writeBooleanField("x", true);
+            }
+            generator.writeEndObject();
+        }
+
+        private void writeDate(JsonGenerator generator, SerializerProvider provider, String name,
+                LocalDateTime value) throws IOException {
+            if (value != null) {
+                generator.writeFieldName(name);
+                dates.serialize(value, generator, provider);
+            }
+        }
+
+        private static void writeString(JsonGenerator generator, String name, String value)
+                throws IOException {
+            if (value != null) {
+                generator.writeStringField(name, value);
+            }
+        }
+    }
+
+    static final class TaskDeserializer extends StdDeserializer<Task>
+            implements ContextualDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonDeserializer<Object> dates;
+        private final JsonDeserializer<Object> comments;
+        private final JsonDeserializer<Object> recurrence;
+        private final JsonDeserializer<Object> history;
+
+        TaskDeserializer() {
+            this(null, null, null, null);
+        }
+
+        private TaskDeserializer(JsonDeserializer<Object> dates, JsonDeserializer<Object> comments,
+                JsonDeserializer<Object> recurrence, JsonDeserializer<Object> history) {
+            super(Task.class);
+            this.dates = dates;
+            this.comments = comments;
+            this.recurrence = recurrence;
+            this.history = history;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context,
+                BeanProperty property) throws JsonMappingException {
+            return new TaskDeserializer(find(context, LocalDateTime.class, property),
+                    find(context, Comment.class, property),
+                    find(context, RecurrenceConfig.class, property),
+                    find(context, SeriesHistory.class, property));
+        }
+
+        @Override
+        public Task deserialize(JsonParser parser, DeserializationContext context)
+                throws IOException {
+            Task task = Task.stored();
+            for (String name = firstField(parser, context, Task.class); name != null;
+                    name = parser.nextFieldName()) {
+                if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                    // Written only for an instance without the description of its template
+                    if ("d".equals(name)) {
+                        task.restoreClearedDescription();
+                    }
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        task.setId(parser.getIntValue());
+                        break;
+                    case "t":
+                    case "topic":
+                        task.restoreTopic(StringPool.intern(parser.getText()));
+                        break;
+                    case "d":
+                    case "description":
+                        task.setDescription(StringPool.intern(parser.getText()));
+                        break;
+                    case "c":
+                    case "createdAt":
+                        task.setCreatedAt(readDate(parser, context, dates));
+                        break;
+                    case "due":
+                    case "dueDate":
+                        task.setDueDate(readDate(parser, context, dates));
+                        break;
+                    case "x":
+                    case "completed":
+                        task.setCompleted(parser.getValueAsBoolean());
+                        break;
+                    case "at":
+                    case "completedAt":
+                        task.setCompletedAt(readDate(parser, context, dates));
+                        break;
+                    case "a":
+                    case "assignedTo":
+                        task.setAssignedTo(StringPool.intern(parser.getText()));
+                        break;
+                    case "cm":
+                    case "comments":
+                        task.setComments(readComments(parser, context));
+                        break;
+                    case "p":
+                    case "priority":
+                        task.setPriority(readEnum(parser, context, TaskPriority.class));
+                        break;
+                    case "r":
+                    case "recurrenceConfig":
+                        Object config = recurrence.deserialize(parser, context);
+                        task.setRecurrenceConfig((RecurrenceConfig) config);
+                        break;
+                    case "pid":
+                    case "parentTaskId":
+                        task.setParentTaskId(parser.getIntValue());
+                        break;
+                    case "n":
+                    case "recurrenceNumber":
+                        task.setRecurrenceNumber(parser.getIntValue());
+                        break;
+                    case "h":
+                    case "seriesHistory":
+                        task.setSeriesHistory((SeriesHistory) history.deserialize(parser, context));
+                        break;
+                    default:
+                        // Derived fields of version 1, such as recurring, and unknown ones
+                        parser.skipChildren();
+                }
+            }
+            if (task.getCreatedAt() == null) {
+                task.setCreatedAt(LocalDateTime.now());
+            }
+            return task;
+        }
+
+        private List<Comment> readComments(JsonParser parser, DeserializationContext context)
+                throws IOException {
+            if (!parser.isExpectedStartArrayToken()) {
+                context.handleUnexpectedToken(List.class, parser);
+                return null;
+            }
+            List<Comment> read = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (!parser.hasToken(JsonToken.VALUE_NULL)) {
+                    read.add((Comment) comments.deserialize(parser, context));
+                }
+            }
+            return read;
+        }
+    }
+
+    static final class CommentSerializer extends StdSerializer<Comment>
+            implements ContextualSerializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonSerializer<Object> dates;
+
+        CommentSerializer() {
+            this(null);
+        }
+
+        private CommentSerializer(JsonSerializer<Object> dates) {
+            super(Comment.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider,
+                BeanProperty property) throws JsonMappingException {
+            return new CommentSerializer(
+                    provider.findValueSerializer(LocalDateTime.class, property));
+        }
+
+        @Override
+        public void serialize(Comment comment, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject(comment);
+            if (comment.getTemplate() != null) {
+                generator.writeStringField("tpl", comment.getTemplate().name());
+                generator.writeStringField("arg", comment.getArgument());
+            } else if (comment.getContent() != null) {
+                generator.writeStringField("s", comment.getContent());
+            }
+            if (comment.getCreatedAt() != null) {
+                generator.writeFieldName("c");
+                dates.serialize(comment.getCreatedAt(), generator, provider);
+            }
+            if (comment.getAuthor() != null) {
+                generator.writeStringField("a", comment.getAuthor());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    static final class CommentDeserializer extends StdDeserializer<Comment>
+            implements ContextualDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonDeserializer<Object> dates;
+
+        CommentDeserializer() {
+            this(null);
+        }
+
+        private CommentDeserializer(JsonDeserializer<Object> dates) {
+            super(Comment.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context,
+                BeanProperty property) throws JsonMappingException {
+            return new CommentDeserializer(find(context, LocalDateTime.class, property));
+        }
+
+        @Override
+        public Comment deserialize(JsonParser parser, DeserializationContext context)
+                throws IOException {
+            String content = null;
+            CommentTemplate template = null;
+            String argument = null;
+            LocalDateTime createdAt = null;
+            String author = null;
+            for (String name = firstField(parser, context, Comment.class); name != null;
+                    name = parser.nextFieldName()) {
+                if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (name) {
+                    case "s":
+                    case "content":
+                        content = parser.getText();
+                        break;
+                    case "tpl":
+                        template = readEnum(parser, context, CommentTemplate.class);
+                        break;
+                    case "arg":
+                        argument = parser.getText();
+                        break;
+                    case "c":
+                    case "createdAt":
+                        createdAt = readDate(parser, context, dates);
+                        break;
+                    case "a":
+                    case "author":
+                        author = parser.getText();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (createdAt == null) {
+                createdAt = LocalDateTime.now();
+            }
+            if (template != null) {
+                return new Comment(template, argument, createdAt, author);
+            }
+            return new Comment(null, content, createdAt, author);
+        }
+    }
+
+    static final class RecurrenceConfigSerializer extends StdSerializer<RecurrenceConfig>
+            implements ContextualSerializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonSerializer<Object> dates;
+
+        RecurrenceConfigSerializer() {
+            this(null);
+        }
+
+        private RecurrenceConfigSerializer(JsonSerializer<Object> dates) {
+            super(RecurrenceConfig.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider,
+                BeanProperty property) throws JsonMappingException {
+            return new RecurrenceConfigSerializer(
+                    provider.findValueSerializer(LocalDateTime.class, property));
+        }
+
+        @Override
+        public void serialize(RecurrenceConfig config, JsonGenerator generator,
+                SerializerProvider provider) throws IOException {
+            // Only what differs from a default-constructed config, like the NON_DEFAULT annotation
+            generator.writeStartObject(config);
+            if (config.getInterval() != null) {
+                generator.writeStringField("iv", config.getInterval().name());
+            }
+            if (config.getOccurrences() != -1) {
+                generator.writeNumberField("occ", config.getOccurrences());
+            }
+            if (config.getEndDate() != null) {
+                generator.writeFieldName("end");
+                dates.serialize(config.getEndDate(), generator, provider);
+            }
+            if (config.getEvery() != 1) {
+                generator.writeNumberField("every", config.getEvery());
+            }
+            if (config.getWeekdays() != null) {
+                generator.writeArrayFieldStart("on");
+                for (DayOfWeek day : config.getWeekdays()) {
+                    generator.writeString(day.name());
+                }
+                generator.writeEndArray();
+            }
+            if (config.getWeekOfMonth() != null) {
+                generator.writeNumberField("nth", config.getWeekOfMonth());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    static final class RecurrenceConfigDeserializer extends StdDeserializer<RecurrenceConfig>
+            implements ContextualDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonDeserializer<Object> dates;
+
+        RecurrenceConfigDeserializer() {
+            this(null);
+        }
+
+        private RecurrenceConfigDeserializer(JsonDeserializer<Object> dates) {
+            super(RecurrenceConfig.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context,
+                BeanProperty property) throws JsonMappingException {
+            return new RecurrenceConfigDeserializer(find(context, LocalDateTime.class, property));
+        }
+
+        @Override
+        public RecurrenceConfig deserialize(JsonParser parser, DeserializationContext context)
+                throws IOException {
+            RecurrenceInterval interval = null;
+            int occurrences = -1;
+            LocalDateTime endDate = null;
+            int every = 1;
+            Set<DayOfWeek> weekdays = null;
+            Integer weekOfMonth = null;
+            for (String name = firstField(parser, context, RecurrenceConfig.class); name != null;
+                    name = parser.nextFieldName()) {
+                if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (name) {
+                    case "iv":
+                    case "interval":
+                        interval = readEnum(parser, context, RecurrenceInterval.class);
+                        break;
+                    case "occ":
+                    case "occurrences":
+                        occurrences = parser.getIntValue();
+                        break;
+                    case "end":
+                    case "endDate":
+                        endDate = readDate(parser, context, dates);
+                        break;
+                    case "every":
+                        every = parser.getIntValue();
+                        break;
+                    case "on":
+                    case "weekdays":
+                        weekdays = readWeekdays(parser, context);
+                        break;
+                    case "nth":
+                    case "weekOfMonth":
+                        weekOfMonth = parser.getIntValue();
+                        break;
+                    default:
+                        // Derived fields of version 1, such as unlimited, and unknown ones
+                        parser.skipChildren();
+                }
+            }
+            return new RecurrenceConfig(interval, occurrences, endDate, every, weekdays,
+                    weekOfMonth);
+        }
+
+        private static Set<DayOfWeek> readWeekdays(JsonParser parser,
+                DeserializationContext context) throws IOException {
+            if (!parser.isExpectedStartArrayToken()) {
+                context.handleUnexpectedToken(Set.class, parser);
+                return null;
+            }
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                days.add(readEnum(parser, context, DayOfWeek.class));
+            }
+            // An empty set stands for the day of the due date, like null
+            return days.isEmpty() ? null : days;
+        }
+    }
+
+    static final class FamilyMemberSerializer extends StdSerializer<FamilyMember>
+            implements ContextualSerializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonSerializer<Object> dates;
+
+        FamilyMemberSerializer() {
+            this(null);
+        }
+
+        private FamilyMemberSerializer(JsonSerializer<Object> dates) {
+            super(FamilyMember.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public JsonSerializer<?> createContextual(SerializerProvider provider,
+                BeanProperty property) throws JsonMappingException {
+            return new FamilyMemberSerializer(
+                    provider.findValueSerializer(LocalDateTime.class, property));
+        }
+
+        @Override
+        public void serialize(FamilyMember member, JsonGenerator generator,
+                SerializerProvider provider) throws IOException {
+            // Family members have no inclusion rules, so nulls are written too
+            generator.writeStartObject(member);
+            generator.writeNumberField("id", member.getId());
+            generator.writeStringField("name", member.getName());
+            generator.writeFieldName("createdAt");
+            if (member.getCreatedAt() != null) {
+                dates.serialize(member.getCreatedAt(), generator, provider);
+            } else {
+                generator.writeNull();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    static final class FamilyMemberDeserializer extends StdDeserializer<FamilyMember>
+            implements ContextualDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonDeserializer<Object> dates;
+
+        FamilyMemberDeserializer() {
+            this(null);
+        }
+
+        private FamilyMemberDeserializer(JsonDeserializer<Object> dates) {
+            super(FamilyMember.class);
+            this.dates = dates;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context,
+                BeanProperty property) throws JsonMappingException {
+            return new FamilyMemberDeserializer(find(context, LocalDateTime.class, property));
+        }
+
+        @Override
+        public FamilyMember deserialize(JsonParser parser, DeserializationContext context)
+                throws IOException {
+            int id = 0;
+            String name = null;
+            LocalDateTime createdAt = null;
+            for (String field = firstField(parser, context, FamilyMember.class); field != null;
+                    field = parser.nextFieldName()) {
+                if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "id":
+                        id = parser.getIntValue();
+                        break;
+                    case "name":
+                        name = parser.getText();
+                        break;
+                    case "createdAt":
+                        createdAt = readDate(parser, context, dates);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return new FamilyMember(id, name, createdAt != null ? createdAt : LocalDateTime.now());
+        }
+    }
+}
@@ -26,6 +26,13 @@ public class FamilyMember {
         this.id = id;
     }
     
+    // Stored family member, read by DomainCodecs without checking the name again
+    FamilyMember(int id, String name, LocalDateTime createdAt) {
+        this.id = id;
+        this.name = name;
+        this.createdAt = createdAt;
+    }
+    
     public int getId() {
         return id;
     }
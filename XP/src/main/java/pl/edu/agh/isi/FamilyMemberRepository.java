@@ -2,44 +2,69 @@ package pl.edu.agh.isi;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
+/**
+ * Family members stored in one file, {"changes":{...},"members":[...]} with the
+ * {@link ChangeLog} of the members before them. Files written before change numbers
+ * were kept are a bare array of members and are still read.
+ */
 public class FamilyMemberRepository {
     private final File file;
-    private final ObjectMapper mapper;
+    // The format the file was read in, kept when writing it back
+    private volatile StorageFormat format = StorageFormat.JSON;
     private Map<Integer, FamilyMember> familyMembers;
     private AtomicInteger nextId;
+    // Numbers every change, for exporting only what changed since a backup
+    private ChangeLog changeLog = new ChangeLog();
+
+    // Held by the thread running a unit of work, which also blocks writes from other threads
+    private final ReentrantLock transactionLock = new ReentrantLock();
+    private int transactionDepth;
+    private boolean dirty;
+    // What the outermost unit of work changed, put back from the file if it is rolled back
+    private final Set<Integer> touched = new HashSet<>();
+    private int rollbackNextId;
+    private StorageFormat rollbackFormat;
 
     public FamilyMemberRepository(File file) {
         this.file = file;
-        this.mapper = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
-        this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        this.familyMembers = new HashMap<>();
+        this.familyMembers = new ConcurrentHashMap<>();
         this.nextId = new AtomicInteger(1);
         loadFamilyMembers();
     }
 
     private void loadFamilyMembers() {
+        changeLog = new ChangeLog();
         if (!file.exists()) {
-            familyMembers = new HashMap<>();
+            familyMembers = new ConcurrentHashMap<>();
             return;
         }
         try {
-            FamilyMember[] loaded = mapper.readValue(file, FamilyMember[].class);
-            familyMembers = new HashMap<>();
-            for (FamilyMember member : loaded) {
+            byte[] data = Compression.readAllBytes(file);
+            format = StorageFormat.detect(data);
+            Contents contents = readContents(SerializationRegistry.of(format).memberArrayReader(), data);
+            familyMembers = new ConcurrentHashMap<>();
+            for (FamilyMember member : contents.members) {
                 // Skip members with invalid data
-                if (member.getId() <= 0 || member.getName() == null || member.getName().isEmpty()) {
+                if (!isValid(member)) {
                     continue;
                 }
                 
@@ -48,34 +73,363 @@ public class FamilyMemberRepository {
                     nextId.set(member.getId() + 1);
                 }
             }
+            changeLog = contents.changes != null ? contents.changes : ChangeLog.startingWith(familyMembers.keySet());
         } catch (IOException e) {
             System.err.println("Error loading family members: " + e.getMessage());
-            familyMembers = new HashMap<>();
+            familyMembers = new ConcurrentHashMap<>();
         }
     }
 
-    private void saveFamilyMembers() {
+    private static boolean isValid(FamilyMember member) {
+        return member.getId() > 0 && member.getName() != null && !member.getName().isEmpty();
+    }
+
+    // What a members file or delta holds
+    private static final class Contents {
+        private FamilyMember[] members = new FamilyMember[0];
+        private ChangeLog changes;
+        private Delta delta;
+    }
+
+    private static Contents readContents(ObjectReader arrayReader, byte[] data) throws IOException {
+        Contents contents = new Contents();
+        try (JsonParser parser = arrayReader.createParser(data)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                contents.members = arrayReader.readValue(parser);
+                return contents;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an array or object of family members");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("changes".equals(name) && value == JsonToken.START_OBJECT) {
+                    contents.changes = ChangeLog.read(parser);
+                } else if ("delta".equals(name) && value == JsonToken.START_OBJECT) {
+                    contents.delta = ChangeLog.readDelta(parser);
+                } else if ("members".equals(name) && value == JsonToken.START_ARRAY) {
+                    contents.members = arrayReader.readValue(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return contents;
+    }
+
+    private static void writeContents(ObjectWriter writer, OutputStream out, Collection<FamilyMember> members,
+            ChangeLog changes) throws IOException {
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName("changes");
+            changes.write(generator);
+            generator.writeFieldName("members");
+            writer.writeValue(generator, members);
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeFamilyMembers(OutputStream out) throws IOException {
+        writeContents(SerializationRegistry.of(format).memberWriter(), out, familyMembers.values(), changeLog);
+    }
+
+    /**
+     * Get the format the data file is written in
+     */
+    public StorageFormat getStorageFormat() {
+        return format;
+    }
+
+    /**
+     * Get the number of the last change of the family members
+     */
+    public long getChangeSequence() {
+        return changeLog.getSequence();
+    }
+
+    /**
+     * Write all family members to another file
+     * @param target the file to write, replaced if it exists
+     * @param targetFormat the format to write it in
+     * @return the number of the last change the file holds, to export changes since next time
+     * @throws IOException if the file cannot be written, it is unchanged then
+     */
+    public long exportTo(File target, StorageFormat targetFormat) throws IOException {
+        // Taken before the members, a change in between is exported again next time
+        ChangeLog changes = changeLog.copy();
+        List<FamilyMember> snapshot = findAll();
+        ObjectWriter writer = SerializationRegistry.of(targetFormat).memberWriter();
+        AtomicFileWriter.write(target, Compression.byExtension(target),
+                out -> writeContents(writer, out, snapshot, changes));
+        return changes.getSequence();
+    }
+
+    /**
+     * Write the family members changed and deleted after a change number to a delta file,
+     * {"delta":{...},"members":[...]}
+     * @param since the number of the last change already backed up
+     * @param target the file to write, replaced if it exists
+     * @param targetFormat the format to write it in
+     * @return what the delta holds
+     * @throws IllegalArgumentException if the number is negative or after the last change
+     * @throws IOException if the file cannot be written, it is unchanged then
+     */
+    public Delta exportChangesSince(long since, File target, StorageFormat targetFormat) throws IOException {
+        ChangeLog changes = changeLog.copy();
+        changes.checkSince(since);
+        List<FamilyMember> changed = new ArrayList<>();
+        transactionLock.lock();
+        try {
+            for (Integer id : changes.changedSince(since)) {
+                FamilyMember member = familyMembers.get(id);
+                if (member != null) {
+                    changed.add(member);
+                }
+            }
+        } finally {
+            transactionLock.unlock();
+        }
+        List<Integer> deletedIds = changes.deletedSince(since);
+        ObjectWriter writer = SerializationRegistry.of(targetFormat).memberWriter();
+        AtomicFileWriter.write(target, Compression.byExtension(target), out -> {
+            try (JsonGenerator generator = writer.createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeFieldName("delta");
+                ChangeLog.writeDelta(generator, since, changes.getSequence(), deletedIds);
+                generator.writeFieldName("members");
+                writer.writeValue(generator, changed);
+                generator.writeEndObject();
+            }
+        });
+        return new Delta(since, changes.getSequence(), deletedIds, changed.size());
+    }
+
+    /**
+     * Apply a delta file written by {@link #exportChangesSince}: its members replace those
+     * with the same ids and its deleted members are removed. Deltas are applied in the
+     * order they were exported; applying one again changes nothing.
+     * @param source the delta file, in any format and compression
+     * @return what the delta held
+     * @throws IllegalArgumentException if the delta does not continue from the last one applied
+     * @throws IOException if the file cannot be read or is not a delta
+     */
+    public Delta applyChanges(File source) throws IOException {
+        return applyChanges(source, false);
+    }
+
+    /**
+     * Apply a delta file written by {@link #exportChangesSince}
+     * @param source the delta file, in any format and compression
+     * @param force whether to apply it even if it does not continue from the last one applied
+     * @return what the delta held
+     * @throws IllegalArgumentException if the delta does not continue from the last one
+     * applied and is not forced
+     * @throws IOException if the file cannot be read or is not a delta
+     */
+    public Delta applyChanges(File source, boolean force) throws IOException {
+        byte[] data = Compression.readAllBytes(source);
+        Contents contents = readContents(SerializationRegistry.of(StorageFormat.detect(data)).memberArrayReader(), data);
+        if (contents.delta == null) {
+            throw new IOException("Not a delta file: " + source);
+        }
+        int applied = 0;
+        transactionLock.lock();
         try {
-            if (!file.exists()) {
-                // Create parent directories if needed
-                File parentDir = file.getParentFile();
-                if (parentDir != null) {
-                    parentDir.mkdirs();
+            if (!force) {
+                changeLog.checkApply(contents.delta);
+            }
+            for (Integer id : contents.delta.getDeletedIds()) {
+                if (familyMembers.remove(id) != null) {
+                    changeLog.recordDelete(id);
+                    touch(id);
                 }
-                file.createNewFile();
             }
-            mapper.writeValue(file, familyMembers.values());
+            for (FamilyMember member : contents.members) {
+                if (!isValid(member)) {
+                    continue;
+                }
+                familyMembers.put(member.getId(), member);
+                changeLog.recordChange(member.getId());
+                touch(member.getId());
+                applied++;
+                if (member.getId() >= nextId.get()) {
+                    nextId.set(member.getId() + 1);
+                }
+            }
+            changeLog.setApplied(contents.delta.getSequence());
+            saveFamilyMembers();
+        } finally {
+            transactionLock.unlock();
+        }
+        return contents.delta.withChangedCount(applied);
+    }
+
+    /**
+     * Replace all family members, e.g. with those imported from another file
+     * @param imported the members to keep, with their IDs
+     * @param newFormat the format to write the data file in from now on
+     */
+    public void replaceAll(Collection<FamilyMember> imported, StorageFormat newFormat) {
+        transactionLock.lock();
+        try {
+            Map<Integer, FamilyMember> replacement = new ConcurrentHashMap<>();
+            int maxId = 0;
+            for (FamilyMember member : imported) {
+                replacement.put(member.getId(), member);
+                maxId = Math.max(maxId, member.getId());
+            }
+            for (Integer id : familyMembers.keySet()) {
+                if (!replacement.containsKey(id)) {
+                    changeLog.recordDelete(id);
+                }
+                touch(id);
+            }
+            for (Integer id : replacement.keySet()) {
+                changeLog.recordChange(id);
+                touch(id);
+            }
+            changeLog.setApplied(-1);
+            familyMembers = replacement;
+            nextId.set(maxId + 1);
+            format = newFormat;
+            saveFamilyMembers();
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    private void saveFamilyMembers() {
+        transactionLock.lock();
+        try {
+            if (transactionDepth > 0) {
+                // Written once when the unit of work commits
+                dirty = true;
+                return;
+            }
+            AtomicFileWriter.write(file, Compression.forFile(file), this::writeFamilyMembers);
         } catch (IOException e) {
             System.err.println("Error saving family members: " + e.getMessage());
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    /**
+     * Start deferring writes until the matching commit or rollback.
+     * Nested calls join the outermost transaction.
+     */
+    void beginTransaction() {
+        transactionLock.lock();
+        if (transactionDepth++ == 0) {
+            touched.clear();
+            rollbackNextId = nextId.get();
+            rollbackFormat = format;
+        }
+    }
+
+    // Called with the transaction lock held, for every member a change adds, replaces or removes
+    private void touch(int id) {
+        if (transactionDepth > 0) {
+            touched.add(id);
+        }
+    }
+
+    /**
+     * Write pending changes of the outermost transaction to a temporary file
+     * @return the prepared file, or null if there is nothing to write yet
+     */
+    File prepareCommit() throws IOException {
+        if (transactionDepth != 1 || !dirty) {
+            return null;
+        }
+        return AtomicFileWriter.prepare(file, Compression.forFile(file), this::writeFamilyMembers);
+    }
+
+    /**
+     * End the current transaction, replacing the data file with the prepared one
+     * @param prepared the file returned by {@link #prepareCommit()}, may be null
+     * @throws IOException if the file cannot be replaced, the transaction stays open
+     *                     then and must be rolled back
+     */
+    void finishCommit(File prepared) throws IOException {
+        if (prepared != null) {
+            AtomicFileWriter.commit(prepared, file);
+        }
+        if (transactionDepth == 1) {
+            dirty = false;
+            touched.clear();
+        }
+        transactionDepth--;
+        transactionLock.unlock();
+    }
+
+    /**
+     * End the current transaction. The outermost one puts back the members it saved,
+     * updated or deleted as the file holds them, and hands out its ids again; members it
+     * did not touch, including changes other threads made before it began, are kept.
+     */
+    void rollbackTransaction() {
+        try {
+            if (transactionDepth == 1) {
+                dirty = false;
+                if (!touched.isEmpty()) {
+                    restoreTouched();
+                }
+                nextId.set(rollbackNextId);
+                format = rollbackFormat;
+                touched.clear();
+            }
+        } finally {
+            transactionDepth--;
+            transactionLock.unlock();
+        }
+    }
+
+    private void restoreTouched() {
+        Map<Integer, FamilyMember> committed = new HashMap<>();
+        if (file.exists()) {
+            try {
+                byte[] data = Compression.readAllBytes(file);
+                ObjectReader reader = SerializationRegistry.of(StorageFormat.detect(data))
+                        .memberArrayReader();
+                for (FamilyMember member : readContents(reader, data).members) {
+                    if (isValid(member)) {
+                        committed.put(member.getId(), member);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error rolling back family members, reloading all of them: "
+                        + e.getMessage());
+                loadFamilyMembers();
+                return;
+            }
+        }
+        for (Integer id : touched) {
+            FamilyMember member = committed.get(id);
+            if (member != null) {
+                familyMembers.put(id, member);
+                changeLog.recordChange(id);
+            } else if (familyMembers.remove(id) != null) {
+                changeLog.recordDelete(id);
+            }
         }
     }
 
     public FamilyMember save(FamilyMember member) {
-        if (member.getId() == 0) {
-            member.setId(nextId.getAndIncrement());
+        transactionLock.lock();
+        try {
+            if (member.getId() == 0) {
+                member.setId(nextId.getAndIncrement());
+            }
+            familyMembers.put(member.getId(), member);
+            changeLog.recordChange(member.getId());
+            touch(member.getId());
+            saveFamilyMembers();
+        } finally {
+            transactionLock.unlock();
         }
-        familyMembers.put(member.getId(), member);
-        saveFamilyMembers();
         return member;
     }
 
@@ -96,8 +450,16 @@ public class FamilyMemberRepository {
     }
 
     public void delete(int id) {
-        familyMembers.remove(id);
-        saveFamilyMembers();
+        transactionLock.lock();
+        try {
+            if (familyMembers.remove(id) != null) {
+                changeLog.recordDelete(id);
+                touch(id);
+            }
+            saveFamilyMembers();
+        } finally {
+            transactionLock.unlock();
+        }
     }
 
     public void delete(String id) {
@@ -109,11 +471,19 @@ public class FamilyMemberRepository {
     }
 
     public FamilyMember update(FamilyMember member) {
-        if (!familyMembers.containsKey(member.getId())) {
-            throw new IllegalArgumentException("Family member not found with id: " + member.getId());
+        transactionLock.lock();
+        try {
+            if (!familyMembers.containsKey(member.getId())) {
+                throw new IllegalArgumentException(
+                        "Family member not found with id: " + member.getId());
+            }
+            familyMembers.put(member.getId(), member);
+            changeLog.recordChange(member.getId());
+            touch(member.getId());
+            saveFamilyMembers();
+        } finally {
+            transactionLock.unlock();
         }
-        familyMembers.put(member.getId(), member);
-        saveFamilyMembers();
         return member;
     }
 } 
\ No newline at end of file
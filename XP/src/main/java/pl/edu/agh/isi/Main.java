@@ -5,6 +5,7 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import pl.edu.agh.isi.cli.CreateTaskCommand;
 import pl.edu.agh.isi.cli.AddFamilyMemberCommand;
+import pl.edu.agh.isi.cli.AgendaCommand;
 import pl.edu.agh.isi.cli.RemoveFamilyMemberCommand;
 import pl.edu.agh.isi.cli.ListFamilyMembersCommand;
 import pl.edu.agh.isi.cli.CompleteTaskCommand;
@@ -15,6 +16,14 @@ import pl.edu.agh.isi.cli.UnassignTaskCommand;
 import pl.edu.agh.isi.cli.SetPriorityCommand;
 import pl.edu.agh.isi.cli.SetRecurringCommand;
 import pl.edu.agh.isi.cli.ConfigCommand;
+import pl.edu.agh.isi.cli.ScriptCommand;
+import pl.edu.agh.isi.cli.ScheduleCommand;
+import pl.edu.agh.isi.cli.CatchUpCommand;
+import pl.edu.agh.isi.cli.CompactCommand;
+import pl.edu.agh.isi.cli.RemindCommand;
+import pl.edu.agh.isi.cli.MaterializeCommand;
+import pl.edu.agh.isi.cli.ExportCommand;
+import pl.edu.agh.isi.cli.ImportCommand;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
@@ -36,7 +45,16 @@ import java.io.File;
         UnassignTaskCommand.class,
         SetPriorityCommand.class,
         SetRecurringCommand.class,
-        ConfigCommand.class
+        ConfigCommand.class,
+        ScriptCommand.class,
+        ScheduleCommand.class,
+        MaterializeCommand.class,
+        CatchUpCommand.class,
+        CompactCommand.class,
+        RemindCommand.class,
+        AgendaCommand.class,
+        ExportCommand.class,
+        ImportCommand.class
     },
     mixinStandardHelpOptions = false,
     versionProvider = Main.VersionProvider.class
@@ -50,6 +68,11 @@ public class Main implements Runnable {
     private boolean helpRequested = false;
     
     public static void main(String[] args) {
+        // Prepare the shared readers and writers while the command line is parsed
+        Thread warmUp = new Thread(SerializationRegistry::warmUp, "serialization-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+        
         // Initialize configuration
         AppConfig.getInstance();
         
@@ -78,17 +101,26 @@ public class Main implements Runnable {
         System.out.println("Welcome to Household Task Management Application!");
         System.out.println("Available commands:");
         System.out.println("  create \"Task Topic\" [-d \"YYYY-MM-DD HH:MM\"] [-i \"Description\"] [-p PRIORITY] [-r INTERVAL] - Create a new task");
-        System.out.println("  complete TASK_ID [-c \"Comment\"]                                 - Mark a task as completed");
+        System.out.println("  complete TASK_ID... [-c \"Comment\"]                              - Mark tasks as completed (IDs, lists or ranges)");
         System.out.println("  reopen TASK_ID [-c \"Comment\"]                                   - Reopen a completed task");
-        System.out.println("  list [-a | -c] [-d | -r | -P] [-p PRIORITY] [-R]               - List tasks");
-        System.out.println("  set-priority TASK_ID PRIORITY                                   - Set task priority (1-low, 2-medium, 3-high)");
+        System.out.println("  list [-a | -c] [-d | -r | -P] [-p PRIORITY] [-R] [-A DAYS]     - List tasks");
+        System.out.println("  set-priority TASK_IDS PRIORITY                                  - Set task priority (1-low, 2-medium, 3-high)");
         System.out.println("  set-recurring TASK_ID INTERVAL [-n OCCURRENCES] [-e \"END_DATE\"] - Set task as recurring");
-        System.out.println("  assign TASK_ID MEMBER_ID                                        - Assign task to a family member");
+        System.out.println("  assign TASK_IDS MEMBER_ID                                       - Assign tasks to a family member");
         System.out.println("  unassign TASK_ID                                                - Unassign task from family member");
         System.out.println("  add-member \"Name\"                                               - Add a new family member");
         System.out.println("  remove-member ID                                                - Remove a family member");
         System.out.println("  list-members                                                    - List all family members");
         System.out.println("  config [-s] [-r] [-t PATH] [-m PATH]                            - View or modify configuration");
+        System.out.println("  script FILE [-v]                                                - Run commands from a file concurrently");
+        System.out.println("  schedule [-w]                                                   - Generate recurring task instances that are due");
+        System.out.println("  materialize [TASK_ID] [-d DAYS | -u \"END_DATE\"]                - Generate recurring task instances ahead");
+        System.out.println("  catch-up [-l]                                                   - Generate recurring task instances missed while offline");
+        System.out.println("  compact [-d DAYS]                                               - Fold old completed recurring instances into histories");
+        System.out.println("  remind [-l LEADS] [-o FILE] [-w]                                - Fire reminders for upcoming and overdue tasks");
+        System.out.println("  agenda FROM TO [-a]                                             - Show tasks and recurring occurrences in a range");
+        System.out.println("  export OUTPUT [-F FORMAT] [-m] [-s SEQ]                         - Export tasks or family members, or what changed since");
+        System.out.println("  import INPUT [-F FORMAT] [-m] [-b SIZE]                         - Replace tasks or members, apply a delta, add CSV rows");
         System.out.println("  help                                                            - Show available commands");
         System.out.println("  exit                                                            - Quit the application");
         System.out.println();
@@ -140,17 +172,26 @@ public class Main implements Runnable {
                 } else if (input.equalsIgnoreCase("help")) {
                     System.out.println("Available commands:");
                     System.out.println("  create \"Task Topic\" [-d \"YYYY-MM-DD HH:MM\"] [-i \"Description\"] [-p PRIORITY] [-r INTERVAL] - Create a new task");
-                    System.out.println("  complete TASK_ID [-c \"Comment\"]                                 - Mark a task as completed");
+                    System.out.println("  complete TASK_ID... [-c \"Comment\"]                              - Mark tasks as completed (IDs, lists or ranges)");
                     System.out.println("  reopen TASK_ID [-c \"Comment\"]                                   - Reopen a completed task");
-                    System.out.println("  list [-a | -c] [-d | -r | -P] [-p PRIORITY] [-R]               - List tasks");
-                    System.out.println("  set-priority TASK_ID PRIORITY                                   - Set task priority (1-low, 2-medium, 3-high)");
+                    System.out.println("  list [-a | -c] [-d | -r | -P] [-p PRIORITY] [-R] [-A DAYS]     - List tasks");
+                    System.out.println("  set-priority TASK_IDS PRIORITY                                  - Set task priority (1-low, 2-medium, 3-high)");
                     System.out.println("  set-recurring TASK_ID INTERVAL [-n OCCURRENCES] [-e \"END_DATE\"] - Set task as recurring");
-                    System.out.println("  assign TASK_ID MEMBER_ID                                        - Assign task to a family member");
+                    System.out.println("  assign TASK_IDS MEMBER_ID                                       - Assign tasks to a family member");
                     System.out.println("  unassign TASK_ID                                                - Unassign task from family member");
                     System.out.println("  add-member \"Name\"                                               - Add a new family member");
                     System.out.println("  remove-member ID                                                - Remove a family member");
                     System.out.println("  list-members                                                    - List all family members");
                     System.out.println("  config [-s] [-r] [-t PATH] [-m PATH]                            - View or modify configuration");
+                    System.out.println("  script FILE [-v]                                                - Run commands from a file concurrently");
+                    System.out.println("  schedule [-w]                                                   - Generate recurring task instances that are due");
+                    System.out.println("  materialize [TASK_ID] [-d DAYS | -u \"END_DATE\"]                - Generate recurring task instances ahead");
+                    System.out.println("  catch-up [-l]                                                   - Generate recurring task instances missed while offline");
+                    System.out.println("  compact [-d DAYS]                                               - Fold old completed recurring instances into histories");
+                    System.out.println("  remind [-l LEADS] [-o FILE] [-w]                                - Fire reminders for upcoming and overdue tasks");
+                    System.out.println("  agenda FROM TO [-a]                                             - Show tasks and recurring occurrences in a range");
+                    System.out.println("  export OUTPUT [-F FORMAT] [-m] [-s SEQ]                         - Export tasks or family members, or what changed since");
+                    System.out.println("  import INPUT [-F FORMAT] [-m] [-b SIZE]                         - Replace tasks or members, apply a delta, add CSV rows");
                     System.out.println("  help                                                            - Show this help message");
                     System.out.println("  exit                                                            - Quit the application");
                     System.out.println();
@@ -159,9 +200,11 @@ public class Main implements Runnable {
                     System.out.println("  create \"Pay bills\" -p 3                      - Create a high priority task");
                     System.out.println("  create \"Take out trash\" -r WEEKLY            - Create a weekly recurring task");
                     System.out.println("  complete 1 -c \"Cleaned thoroughly\"            - Mark task as completed with comment");
+                    System.out.println("  complete 10-20                               - Mark tasks 10 to 20 as completed");
                     System.out.println("  list -p 3                                    - List high priority tasks");
                     System.out.println("  list -P                                      - List tasks sorted by priority");
                     System.out.println("  list -R                                      - List only recurring tasks");
+                    System.out.println("  list -A 14                                   - Include recurring instances of the next 14 days");
                     System.out.println("  set-priority 1 3                             - Set task 1 to high priority");
                     System.out.println("  set-recurring 1 WEEKLY                       - Set task 1 as weekly recurring");
                     System.out.println("  assign 1 2                                    - Assign task 1 to family member 2");
@@ -170,6 +213,17 @@ public class Main implements Runnable {
                     System.out.println("  remove-member 1                               - Remove family member with ID 1");
                     System.out.println("  list-members                                  - List all family members");
                     System.out.println("  config -t data/tasks.json -m data/members.json -s - Set paths and save config");
+                    System.out.println("  script commands.txt                           - Replay commands from a file");
+                    System.out.println("  schedule -w                                   - Keep generating recurring instances as they come due");
+                    System.out.println("  materialize -d 30                             - Plan recurring tasks for the next 30 days");
+                    System.out.println("  catch-up -l                                   - Create only the latest missed instance of each series");
+                    System.out.println("  compact -d 30                                 - Compact completed recurring instances due over 30 days ago");
+                    System.out.println("  remind -w                                     - Print reminders as tasks come due");
+                    System.out.println("  agenda 2025-03-01 2025-03-31                  - Show everything due in March 2025");
+                    System.out.println("  export tasks.sml -F smile                     - Export all tasks in the binary Smile format");
+                    System.out.println("  import backup.json                            - Replace all tasks with those of a backup");
+                    System.out.println("  export changes.json -s 120                    - Export only tasks changed after change 120");
+                    System.out.println("  import chores.csv                             - Add the tasks of a CSV file");
                 } else if (!input.isEmpty()) {
                     String[] cmdArgs = parseCommandLine(input);
                     cmd.execute(cmdArgs);
@@ -181,7 +235,12 @@ public class Main implements Runnable {
         }
     }
     
-    private String[] parseCommandLine(String input) {
+    /**
+     * Split a command line into arguments, keeping quoted text together
+     * @param input the command line
+     * @return the arguments
+     */
+    public static String[] parseCommandLine(String input) {
         java.util.List<String> args = new java.util.ArrayList<>();
         StringBuilder currentArg = new StringBuilder();
         boolean inQuotes = false;
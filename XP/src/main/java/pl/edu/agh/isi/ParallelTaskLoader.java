@@ -0,0 +1,254 @@
+package pl.edu.agh.isi;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Loads a JSON array of tasks in parallel.
+ * A single byte scan finds the boundaries of the top-level records, then ranges of
+ * records are parsed on a fork/join pool. Each leaf fills its own slots of one array and
+ * the highest id is reduced on the way back up. The tasks are then put into the result in
+ * file order, so of records sharing an id the last one wins, as with a sequential parse.
+ */
+class ParallelTaskLoader {
+    private static final int MIN_RECORDS_PER_CHUNK = 512;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ObjectReader reader;
+    private final ForkJoinPool pool;
+
+    ParallelTaskLoader(ObjectMapper mapper) {
+        this(mapper.readerFor(Task.class));
+    }
+
+    ParallelTaskLoader(ObjectMapper mapper, ForkJoinPool pool) {
+        this(mapper.readerFor(Task.class), pool);
+    }
+
+    /**
+     * @param reader a reader of single tasks, see SerializationRegistry
+     */
+    ParallelTaskLoader(ObjectReader reader) {
+        this(reader, ForkJoinPool.commonPool());
+    }
+
+    ParallelTaskLoader(ObjectReader reader, ForkJoinPool pool) {
+        this.reader = reader;
+        this.pool = pool;
+    }
+
+    /**
+     * Result of a parallel load
+     */
+    static class Result {
+        private final Map<Integer, Task> tasks;
+        private final int maxId;
+
+        Result(Map<Integer, Task> tasks, int maxId) {
+            this.tasks = tasks;
+            this.maxId = maxId;
+        }
+
+        Map<Integer, Task> getTasks() {
+            return tasks;
+        }
+
+        int getMaxId() {
+            return maxId;
+        }
+    }
+
+    /**
+     * Parse all tasks from the given file content, as they are written.
+     * Records of older versions are not upgraded, see {@link TaskMigration}.
+     * @param data UTF-8 encoded tasks file
+     * @return the loaded tasks keyed by id and the highest id found (0 if none)
+     * @throws IOException if the content is not a tasks file
+     */
+    Result load(byte[] data) throws IOException {
+        return load(data, TaskSchema.readHeader(reader, data).getArrayOffset());
+    }
+
+    /**
+     * Parse all tasks from a JSON array within the given file content
+     * @param data UTF-8 encoded file content
+     * @param arrayOffset offset of the array of tasks, see {@link TaskSchema#readHeader}
+     * @return the loaded tasks keyed by id and the highest id found (0 if none)
+     * @throws IOException if there is no JSON array of objects at the offset
+     */
+    Result load(byte[] data, int arrayOffset) throws IOException {
+        int[] bounds = scanRecordBounds(data, arrayOffset);
+        int records = bounds.length / 2;
+        Map<Integer, Task> tasks = new ConcurrentHashMap<>(Math.max(16, records * 4 / 3));
+        if (records == 0) {
+            return new Result(tasks, 0);
+        }
+        int chunkSize = Math.max(MIN_RECORDS_PER_CHUNK,
+                records / (pool.getParallelism() * CHUNKS_PER_THREAD));
+        Task[] parsed = new Task[records];
+        int maxId;
+        try {
+            maxId = pool.invoke(new ChunkTask(data, bounds, 0, records, chunkSize, parsed));
+        } catch (ChunkParseException e) {
+            throw e.getCause();
+        }
+        for (Task task : parsed) {
+            tasks.put(task.getId(), task);
+        }
+        return new Result(tasks, maxId);
+    }
+
+    /**
+     * Find the start and end offsets of every top-level object in a JSON array.
+     * Only quotes, escapes and braces are tracked, which is enough because
+     * none of them can appear inside a multi-byte UTF-8 sequence.
+     * @return offsets as [start0, end0, start1, end1, ...], end exclusive
+     */
+    static int[] scanRecordBounds(byte[] data) throws IOException {
+        return scanRecordBounds(data, 0);
+    }
+
+    /**
+     * Find the start and end offsets of every object in the JSON array starting at an offset
+     * @return offsets as [start0, end0, start1, end1, ...], end exclusive
+     */
+    static int[] scanRecordBounds(byte[] data, int from) throws IOException {
+        int pos = skipWhitespace(data, from);
+        if (pos >= data.length || data[pos] != '[') {
+            throw new IOException("Expected a JSON array of tasks");
+        }
+        int[] bounds = new int[64];
+        int count = 0;
+        int depth = 0;
+        int start = -1;
+        boolean inString = false;
+        for (int i = pos + 1; i < data.length; i++) {
+            byte b = data[i];
+            if (inString) {
+                if (b == '\\') {
+                    i++;
+                } else if (b == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    break;
+                case '{':
+                case '[':
+                    if (depth == 0) {
+                        if (b == '[') {
+                            throw new IOException("Unexpected array at offset " + i);
+                        }
+                        start = i;
+                    }
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (depth == 0) {
+                        if (b == ']') {
+                            return Arrays.copyOf(bounds, count);
+                        }
+                        throw new IOException("Unbalanced '}' at offset " + i);
+                    }
+                    depth--;
+                    if (depth == 0) {
+                        if (count + 2 > bounds.length) {
+                            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                        }
+                        bounds[count++] = start;
+                        bounds[count++] = i + 1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        throw new IOException("Unterminated JSON array of tasks");
+    }
+
+    private static int skipWhitespace(byte[] data, int pos) {
+        // Also skip a UTF-8 byte order mark
+        if (data.length >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB
+                && (data[2] & 0xFF) == 0xBF) {
+            pos = Math.max(pos, 3);
+        }
+        while (pos < data.length && Character.isWhitespace(data[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private class ChunkTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Task[] target;
+
+        ChunkTask(byte[] data, int[] bounds, int from, int to, int chunkSize, Task[] target) {
+            this.data = data;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.target = target;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= chunkSize) {
+                return parseChunk();
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(data, bounds, from, mid, chunkSize, target);
+            left.fork();
+            int rightMax = new ChunkTask(data, bounds, mid, to, chunkSize, target).compute();
+            return Math.max(left.join(), rightMax);
+        }
+
+        private int parseChunk() {
+            int maxId = 0;
+            for (int r = from; r < to; r++) {
+                int start = bounds[2 * r];
+                int end = bounds[2 * r + 1];
+                Task task;
+                try {
+                    task = reader.readValue(data, start, end - start);
+                } catch (IOException e) {
+                    throw new ChunkParseException(e);
+                }
+                target[r] = task;
+                maxId = Math.max(maxId, task.getId());
+            }
+            return maxId;
+        }
+    }
+
+    // Carries a checked parse failure out of the fork/join pool
+    private static class ChunkParseException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ChunkParseException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -1,17 +1,44 @@
 package pl.edu.agh.isi;
 
+import java.time.DayOfWeek;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * Configuration for recurring tasks
  */
+// Fields with the value of a default-constructed config are left out of the file
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
 public class RecurrenceConfig {
+    @JsonProperty("iv")
+    @JsonAlias("interval")
     private RecurrenceInterval interval;
+    @JsonProperty("occ")
+    @JsonAlias("occurrences")
     private int occurrences;
+    @JsonProperty("end")
+    @JsonAlias("endDate")
     private LocalDateTime endDate;
+    // Rule details, the defaults repeat every single day, week or month like older files
+    @JsonProperty("every")
+    private int every = 1;
+    @JsonProperty("on")
+    @JsonAlias("weekdays")
+    private Set<DayOfWeek> weekdays;
+    @JsonProperty("nth")
+    @JsonAlias("weekOfMonth")
+    private Integer weekOfMonth;
     
-    // Default constructor for Jackson
+    // Default constructor for Jackson, unlimited so schema version 2 can leave that out
     public RecurrenceConfig() {
+        this.occurrences = -1;
     }
     
     /**
@@ -58,6 +85,17 @@ public class RecurrenceConfig {
         this.endDate = endDate;
     }
     
+    // Stored config, read by DomainCodecs without checking the rule again
+    RecurrenceConfig(RecurrenceInterval interval, int occurrences, LocalDateTime endDate, int every,
+            Set<DayOfWeek> weekdays, Integer weekOfMonth) {
+        this.interval = interval;
+        this.occurrences = occurrences;
+        this.endDate = endDate;
+        this.every = every;
+        this.weekdays = weekdays;
+        this.weekOfMonth = weekOfMonth;
+    }
+    
     public RecurrenceInterval getInterval() {
         return interval;
     }
@@ -82,10 +120,73 @@ public class RecurrenceConfig {
         this.endDate = endDate;
     }
     
+    public int getEvery() {
+        return every;
+    }
+    
+    /**
+     * @param every repeat every this many days, weeks or months
+     */
+    public void setEvery(int every) {
+        if (every < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1");
+        }
+        this.every = every;
+    }
+    
+    public Set<DayOfWeek> getWeekdays() {
+        return weekdays;
+    }
+    
+    /**
+     * @param weekdays the days of a weekly recurrence, or the single day of a monthly
+     *                 recurrence on the nth weekday; null for the day of the due date
+     */
+    public void setWeekdays(Set<DayOfWeek> weekdays) {
+        this.weekdays = weekdays == null || weekdays.isEmpty() ? null : EnumSet.copyOf(weekdays);
+    }
+    
+    public Integer getWeekOfMonth() {
+        return weekOfMonth;
+    }
+    
+    /**
+     * @param weekOfMonth for a monthly recurrence on a weekday, 1-4 or -1 for the last one
+     */
+    public void setWeekOfMonth(Integer weekOfMonth) {
+        this.weekOfMonth = weekOfMonth;
+    }
+    
+    /**
+     * Build the rule of this configuration anchored at a series start
+     * @param start the due date of the first occurrence
+     * @return the rule
+     * @throws IllegalArgumentException if the rule details do not fit the interval
+     */
+    public RecurrenceRule toRule(LocalDateTime start) {
+        switch (interval) {
+            case DAILY:
+                return RecurrenceRule.daily(start, every);
+            case WEEKLY:
+                return RecurrenceRule.weekly(start, every, weekdays);
+            case MONTHLY:
+                if (weekOfMonth == null) {
+                    return RecurrenceRule.monthly(start, every);
+                }
+                if (weekdays == null || weekdays.size() != 1) {
+                    throw new IllegalArgumentException("A monthly recurrence on a weekday needs exactly one day");
+                }
+                return RecurrenceRule.monthlyOnWeekday(start, every, weekOfMonth, weekdays.iterator().next());
+            default:
+                throw new IllegalArgumentException("Unsupported interval: " + interval);
+        }
+    }
+    
     /**
      * Check if the recurrence is unlimited (no end date and no occurrence limit)
      * @return true if unlimited, false otherwise
      */
+    @JsonIgnore
     public boolean isUnlimited() {
         return occurrences == -1 && endDate == null;
     }
@@ -118,16 +219,24 @@ public class RecurrenceConfig {
             return null;
         }
         
-        switch (interval) {
-            case DAILY:
-                return currentDueDate.plusDays(1);
-            case WEEKLY:
-                return currentDueDate.plusWeeks(1);
-            case MONTHLY:
-                return currentDueDate.plusMonths(1);
-            default:
-                return null;
+        return toRule(currentDueDate).nextAfter(currentDueDate);
+    }
+    
+    /**
+     * Calculate the next due date of a series without drifting, e.g. a monthly task
+     * on the 31st returns to the 31st after a shorter month
+     * @param seriesStart the due date of the first occurrence of the series
+     * @param currentDueDate the current due date
+     * @return the first occurrence of the series after the current due date
+     */
+    public LocalDateTime calculateNextDueDate(LocalDateTime seriesStart, LocalDateTime currentDueDate) {
+        if (currentDueDate == null) {
+            return null;
+        }
+        if (seriesStart == null || seriesStart.isAfter(currentDueDate)) {
+            return calculateNextDueDate(currentDueDate);
         }
+        return toRule(seriesStart).nextAfter(currentDueDate);
     }
     
     @Override
@@ -135,6 +244,18 @@ public class RecurrenceConfig {
         StringBuilder sb = new StringBuilder();
         sb.append(interval.getDisplayName());
         
+        if (every > 1) {
+            sb.append(", every ").append(every);
+        }
+        
+        if (weekOfMonth != null) {
+            sb.append(", ").append(weekOfMonth == RecurrenceRule.LAST ? "last" : "week " + weekOfMonth);
+        }
+        
+        if (weekdays != null) {
+            sb.append(" on ").append(weekdays.stream().map(DayOfWeek::name).collect(Collectors.joining(", ")));
+        }
+        
         if (occurrences != -1) {
             sb.append(", ").append(occurrences).append(" occurrences");
         }
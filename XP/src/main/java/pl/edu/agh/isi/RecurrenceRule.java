@@ -0,0 +1,235 @@
+package pl.edu.agh.isi;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * An unbounded sequence of occurrences anchored at a start date.
+ * Occurrences are numbered from 0, the first one at or after the start. Every
+ * occurrence is computed from the anchor, never from the previous occurrence, so
+ * {@link #nthOccurrence(long)}, {@link #nextAfter(LocalDateTime)} and
+ * {@link #countBetween(LocalDateTime, LocalDateTime)} run in constant time, and a
+ * monthly rule on the 31st returns to the 31st after being clamped to a shorter month.
+ * All occurrences share the time of day of the start.
+ */
+public final class RecurrenceRule {
+    /** Ordinal selecting the last given weekday of a month */
+    public static final int LAST = -1;
+
+    private final RecurrenceInterval frequency;
+    private final int every;
+    private final LocalDateTime start;
+    private final LocalTime time;
+    // WEEKLY: sorted day offsets from Monday of the start week
+    private final int[] weekdayOffsets;
+    private final LocalDate firstWeek;
+    // MONTHLY on a weekday: 1-4 or LAST, 0 for the day of the month of the start
+    private final int ordinal;
+    private final DayOfWeek ordinalDay;
+    private final long firstMonth;
+    // Occurrences of the first period that fall before the start
+    private final int skip;
+
+    private RecurrenceRule(RecurrenceInterval frequency, int every, LocalDateTime start,
+                           int[] weekdayOffsets, int ordinal, DayOfWeek ordinalDay) {
+        if (frequency == null || start == null) {
+            throw new IllegalArgumentException("Frequency and start date are required");
+        }
+        if (every < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1");
+        }
+        this.frequency = frequency;
+        this.every = every;
+        this.start = start;
+        this.time = start.toLocalTime();
+        this.weekdayOffsets = weekdayOffsets;
+        this.firstWeek = start.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        this.ordinal = ordinal;
+        this.ordinalDay = ordinalDay;
+        this.firstMonth = monthIndex(start.toLocalDate());
+        this.skip = countSkipped();
+    }
+
+    /**
+     * Every given number of days
+     */
+    public static RecurrenceRule daily(LocalDateTime start, int every) {
+        return new RecurrenceRule(RecurrenceInterval.DAILY, every, start, null, 0, null);
+    }
+
+    /**
+     * On the given weekdays of every given number of weeks, counted from the week of the start
+     * @param weekdays the weekdays, the weekday of the start if null or empty
+     */
+    public static RecurrenceRule weekly(LocalDateTime start, int every, Set<DayOfWeek> weekdays) {
+        int[] offsets;
+        if (weekdays == null || weekdays.isEmpty()) {
+            offsets = new int[] {start.getDayOfWeek().getValue() - 1};
+        } else {
+            offsets = weekdays.stream().mapToInt(d -> d.getValue() - 1).sorted().toArray();
+        }
+        return new RecurrenceRule(RecurrenceInterval.WEEKLY, every, start, offsets, 0, null);
+    }
+
+    /**
+     * On the day of the month of the start, every given number of months.
+     * Months that are too short use their last day.
+     */
+    public static RecurrenceRule monthly(LocalDateTime start, int every) {
+        return new RecurrenceRule(RecurrenceInterval.MONTHLY, every, start, null, 0, null);
+    }
+
+    /**
+     * On the nth weekday of every given number of months, e.g. the second Tuesday
+     * @param ordinal 1 to 4, or {@link #LAST}
+     */
+    public static RecurrenceRule monthlyOnWeekday(LocalDateTime start, int every, int ordinal, DayOfWeek day) {
+        if ((ordinal < 1 || ordinal > 4) && ordinal != LAST) {
+            throw new IllegalArgumentException("Week of month must be between 1 and 4, or -1 for the last one");
+        }
+        if (day == null) {
+            throw new IllegalArgumentException("Day of week is required");
+        }
+        return new RecurrenceRule(RecurrenceInterval.MONTHLY, every, start, null, ordinal, day);
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Get an occurrence by its number
+     * @param n the occurrence number, 0 for the first one
+     * @return the occurrence
+     */
+    public LocalDateTime nthOccurrence(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Occurrence number cannot be negative");
+        }
+        switch (frequency) {
+            case DAILY:
+                return start.plusDays(n * every);
+            case WEEKLY: {
+                long position = n + skip;
+                int perWeek = weekdayOffsets.length;
+                long period = position / perWeek;
+                LocalDate date = firstWeek.plusDays(7L * every * period + weekdayOffsets[(int) (position % perWeek)]);
+                return LocalDateTime.of(date, time);
+            }
+            default:
+                if (ordinal == 0) {
+                    // Always from the anchor, so clamping to a short month does not carry over
+                    return start.plusMonths(n * every);
+                }
+                return LocalDateTime.of(weekdayInPeriod(n + skip), time);
+        }
+    }
+
+    /**
+     * Get the first occurrence strictly after a point in time
+     */
+    public LocalDateTime nextAfter(LocalDateTime instant) {
+        return nthOccurrence(indexAtOrBefore(instant) + 1);
+    }
+
+    /**
+     * Count occurrences between two points in time, both inclusive
+     */
+    public long countBetween(LocalDateTime from, LocalDateTime to) {
+        if (to.isBefore(from)) {
+            return 0;
+        }
+        long beforeFrom = indexAtOrBefore(from);
+        if (beforeFrom >= 0 && nthOccurrence(beforeFrom).equals(from)) {
+            beforeFrom--;
+        }
+        return indexAtOrBefore(to) - beforeFrom;
+    }
+
+    /**
+     * Get the number of the last occurrence at or before a point in time
+     * @return the occurrence number, -1 if the first occurrence is later
+     */
+    long indexAtOrBefore(LocalDateTime instant) {
+        if (instant.isBefore(start)) {
+            return -1;
+        }
+        long index;
+        switch (frequency) {
+            case DAILY:
+                // Whole days, so an instant earlier in the day than the start rounds down
+                index = ChronoUnit.DAYS.between(start, instant) / every;
+                break;
+            case WEEKLY: {
+                long days = instant.toLocalDate().toEpochDay() - firstWeek.toEpochDay();
+                long week = days / 7;
+                long period = week / every;
+                int perWeek = weekdayOffsets.length;
+                long position;
+                if (week % every != 0) {
+                    position = period * perWeek + perWeek - 1;
+                } else {
+                    int dayOffset = (int) (days % 7);
+                    int within = 0;
+                    for (int offset : weekdayOffsets) {
+                        if (offset < dayOffset || (offset == dayOffset && !instant.toLocalTime().isBefore(time))) {
+                            within++;
+                        }
+                    }
+                    position = period * perWeek + within - 1;
+                }
+                index = position - skip;
+                break;
+            }
+            default: {
+                long months = monthIndex(instant.toLocalDate()) - firstMonth;
+                long period = months / every;
+                if (ordinal == 0) {
+                    index = nthOccurrence(period).isAfter(instant) ? period - 1 : period;
+                } else {
+                    if (months % every == 0 && LocalDateTime.of(weekdayInPeriod(period), time).isAfter(instant)) {
+                        period--;
+                    }
+                    index = period - skip;
+                }
+                break;
+            }
+        }
+        return Math.max(index, -1);
+    }
+
+    private int countSkipped() {
+        if (frequency == RecurrenceInterval.WEEKLY) {
+            int dayOffset = start.getDayOfWeek().getValue() - 1;
+            return (int) Arrays.stream(weekdayOffsets).filter(offset -> offset < dayOffset).count();
+        }
+        if (frequency == RecurrenceInterval.MONTHLY && ordinal != 0) {
+            return LocalDateTime.of(weekdayInPeriod(0), time).isBefore(start) ? 1 : 0;
+        }
+        return 0;
+    }
+
+    private LocalDate weekdayInPeriod(long period) {
+        LocalDate firstOfMonth = YearMonth.from(start).plusMonths(period * every).atDay(1);
+        if (ordinal == LAST) {
+            return firstOfMonth.with(TemporalAdjusters.lastInMonth(ordinalDay));
+        }
+        return firstOfMonth.with(TemporalAdjusters.dayOfWeekInMonth(ordinal, ordinalDay));
+    }
+
+    private static long monthIndex(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    @Override
+    public String toString() {
+        return frequency + " every " + every + " from " + start;
+    }
+}
@@ -0,0 +1,441 @@
+package pl.edu.agh.isi;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Generates instances of recurring tasks as their occurrences come due, whether
+ * or not anyone completes them.
+ * Every series sits in a min-heap keyed by the due date of its latest occurrence. When
+ * that date passes, the next instance is created and the series goes back into the heap
+ * with the new due date. The scheduler thread sleeps until the earliest due date instead
+ * of polling, and is woken early when a series changes: while running it listens to the
+ * repository for recurring tasks and instances changed in this process. Before
+ * each pass, and at least every {@link #FILE_CHECK_INTERVAL}, the data file is read again
+ * if another process changed it, and the heap rebuilt from what it holds.
+ */
+public class RecurrenceScheduler implements TaskRepository.ChangeListener {
+    // How long the thread sleeps at most before looking for changes of the data file
+    static final Duration FILE_CHECK_INTERVAL = Duration.ofSeconds(30);
+
+    private final TaskRepository taskRepository;
+    private final RecurringTaskService recurringTaskService;
+    private final TaskLockManager lockManager;
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Series> queue = new PriorityQueue<>(
+            Comparator.comparing((Series s) -> s.dueDate).thenComparingInt(s -> s.taskId));
+    // Queued series by task ID, to replace a series without searching the heap
+    private final Map<Integer, Series> byTaskId = new HashMap<>();
+    private Thread thread;
+    private volatile boolean running;
+    private volatile Consumer<List<Task>> listener;
+    // Whether a series failed in the last pass, the thread then backs off before retrying
+    private volatile boolean lastPassFailed;
+
+    public RecurrenceScheduler(TaskRepository taskRepository, RecurringTaskService recurringTaskService,
+                               TaskLockManager lockManager) {
+        this(taskRepository, recurringTaskService, lockManager, Clock.systemDefaultZone());
+    }
+
+    // Constructor for testing with a fixed clock
+    RecurrenceScheduler(TaskRepository taskRepository, RecurringTaskService recurringTaskService,
+                        TaskLockManager lockManager, Clock clock) {
+        this.taskRepository = taskRepository;
+        this.recurringTaskService = recurringTaskService;
+        this.lockManager = lockManager;
+        this.clock = clock;
+    }
+
+    /**
+     * One queued series with the state of its latest occurrence
+     */
+    private static final class Series {
+        final int taskId;
+        final int number;
+        final LocalDateTime dueDate;
+
+        Series(int taskId, int number, LocalDateTime dueDate) {
+            this.taskId = taskId;
+            this.number = number;
+            this.dueDate = dueDate;
+        }
+    }
+
+    /**
+     * Set a callback for instances created by the scheduler thread
+     * @param listener receives every saved batch, called on the scheduler thread
+     */
+    public void setListener(Consumer<List<Task>> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Rebuild the heap from the repository.
+     * A single pass over all tasks finds the latest instance of every series, then each
+     * series is inserted into the heap, so the cost is O(n log n) in the number of tasks.
+     */
+    public void rebuild() {
+        List<Task> tasks = taskRepository.findAll();
+        Map<Integer, Task> latestInstances = RecurringTaskService.latestInstancesByParent(tasks);
+
+        List<Series> series = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.isRecurring()) {
+                Series entry = toSeries(task, latestInstances.get(task.getId()));
+                if (entry != null) {
+                    series.add(entry);
+                }
+            }
+        }
+
+        lock.lock();
+        try {
+            queue.clear();
+            byTaskId.clear();
+            queue.addAll(series);
+            for (Series entry : series) {
+                byTaskId.put(entry.taskId, entry);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-read one series from the repository, e.g. after it was created, changed or
+     * completed, and wake the scheduler if its next deadline moved
+     * @param taskId the ID of the recurring task
+     */
+    public void reschedule(int taskId) {
+        // Under the task lock, so a batch being generated for this series is seen complete
+        replace(taskId, lockManager.withLock(taskId, () -> readSeries(taskId)));
+    }
+
+    private Series readSeries(int taskId) {
+        return taskRepository.findById(taskId)
+                .filter(Task::isRecurring)
+                .map(task -> toSeries(task,
+                        recurringTaskService.findLatestInstance(taskId).orElse(null)))
+                .orElse(null);
+    }
+
+    private void replace(int taskId, Series entry) {
+        lock.lock();
+        try {
+            Series previous = byTaskId.remove(taskId);
+            if (previous != null) {
+                queue.remove(previous);
+            }
+            if (entry != null) {
+                queue.add(entry);
+                byTaskId.put(taskId, entry);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-read the series of a recurring task changed in this process, or move a queued series
+     * on to an instance created for it. Called on the thread making the change, which may hold
+     * other task locks, so the series is read without taking its lock; the pass that generates
+     * it re-reads it under the lock anyway.
+     */
+    @Override
+    public void taskChanged(Task task) {
+        if (task.isRecurring() || byTaskIdContains(task.getId())) {
+            replace(task.getId(), readSeries(task.getId()));
+        } else if (task.isRecurrenceInstance() && task.getDueDate() != null) {
+            advance(task.getParentTaskId(), task.getRecurrenceNumber(), task.getDueDate());
+        }
+    }
+
+    @Override
+    public void taskDeleted(int id) {
+        if (byTaskIdContains(id)) {
+            replace(id, null);
+        }
+    }
+
+    private boolean byTaskIdContains(int taskId) {
+        lock.lock();
+        try {
+            return byTaskId.containsKey(taskId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only a queued series is moved on, one being generated is requeued by its pass
+    private void advance(int taskId, int number, LocalDateTime dueDate) {
+        lock.lock();
+        try {
+            Series previous = byTaskId.get(taskId);
+            if (previous != null && number > previous.number) {
+                queue.remove(previous);
+                Series entry = new Series(taskId, number, dueDate);
+                queue.add(entry);
+                byTaskId.put(taskId, entry);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Series toSeries(Task task, Task latestInstance) {
+        if (latestInstance != null && latestInstance.getDueDate() != null) {
+            return new Series(task.getId(), latestInstance.getRecurrenceNumber(), latestInstance.getDueDate());
+        }
+        if (task.getDueDate() == null) {
+            // Without a due date there is nothing to count from
+            return null;
+        }
+        return new Series(task.getId(), 0, task.getDueDate());
+    }
+
+    /**
+     * Get the earliest due date among queued series
+     * @return the date, or empty if no series is queued
+     */
+    public Optional<LocalDateTime> nextDeadline() {
+        lock.lock();
+        try {
+            Series head = queue.peek();
+            return head == null ? Optional.empty() : Optional.of(head.dueDate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of queued series
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Create instances for all occurrences that are due now and save them in one write.
+     * A series that is several occurrences behind gets all missing instances. A series
+     * that fails is reported, gets none of its instances and stays queued to be tried
+     * again, the instances of the other series are saved.
+     * @return the created instances
+     */
+    public List<Task> materializeDue() {
+        if (taskRepository.reloadIfChanged()) {
+            rebuild();
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Series> due = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!queue.isEmpty() && !queue.peek().dueDate.isAfter(now)) {
+                Series entry = queue.poll();
+                byTaskId.remove(entry.taskId);
+                due.add(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (due.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Task> created = new ArrayList<>();
+        List<Series> requeue = new ArrayList<>();
+        List<Integer> taskIds = new ArrayList<>();
+        for (Series entry : due) {
+            taskIds.add(entry.taskId);
+        }
+        List<Integer> failed = new ArrayList<>();
+        List<Series> handled = new ArrayList<>();
+        try {
+            lockManager.withLocks(taskIds, () -> {
+                for (Series entry : due) {
+                    List<Task> instances = new ArrayList<>();
+                    try {
+                        Series current = materialize(entry, now, instances);
+                        if (current != null) {
+                            requeue.add(current);
+                        }
+                        created.addAll(instances);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error generating instances of recurring task "
+                                + entry.taskId + ": " + e.getMessage());
+                        failed.add(entry.taskId);
+                        requeue.add(entry);
+                    }
+                    handled.add(entry);
+                }
+                if (!created.isEmpty()) {
+                    taskRepository.saveAll(created);
+                }
+                return null;
+            });
+        } finally {
+            // Series the pass did not get to are tried again as they were
+            requeue.addAll(due.subList(handled.size(), due.size()));
+            lastPassFailed = !failed.isEmpty() || handled.size() < due.size();
+            requeue(requeue);
+        }
+        return created;
+    }
+
+    private void requeue(List<Series> entries) {
+        lock.lock();
+        try {
+            for (Series entry : entries) {
+                // A reschedule while we were working has the fresher state
+                if (!byTaskId.containsKey(entry.taskId)) {
+                    queue.add(entry);
+                    byTaskId.put(entry.taskId, entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Create the due instances of one series, returning its state after the last of them
+    private Series materialize(Series entry, LocalDateTime now, List<Task> instances) {
+        Task parent = taskRepository.findById(entry.taskId).filter(Task::isRecurring).orElse(null);
+        if (parent == null) {
+            // Deleted or no longer recurring since it was queued
+            return null;
+        }
+        Series current = entry;
+        while (current != null && !current.dueDate.isAfter(now)) {
+            Optional<Task> next = recurringTaskService.createNextInstance(parent, current.number,
+                    current.dueDate);
+            if (next.isEmpty()) {
+                current = null;
+            } else {
+                Task instance = next.get();
+                instance.addComment(Comment.fromTemplate(CommentTemplate.SCHEDULED,
+                        String.valueOf(parent.getId())));
+                instances.add(instance);
+                current = new Series(parent.getId(), instance.getRecurrenceNumber(),
+                        instance.getDueDate());
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Rebuild the heap, listen to the repository and start the scheduler thread
+     * @throws IllegalStateException if the scheduler is already running
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Scheduler is already running");
+        }
+        // Listening first, so no change between the rebuild and the listener is missed
+        taskRepository.addChangeListener(this);
+        rebuild();
+        running = true;
+        thread = new Thread(this::runLoop, "recurrence-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the scheduler thread and wait for it to finish its current batch
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        taskRepository.removeChangeListener(this);
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        thread.join();
+        thread = null;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                List<Task> created = materializeDue();
+                Consumer<List<Task>> callback = listener;
+                if (!created.isEmpty() && callback != null) {
+                    callback.accept(created);
+                }
+                if (lastPassFailed) {
+                    // The failed series are due again at once
+                    awaitQuietly();
+                } else {
+                    awaitNextDeadline();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Error generating recurring tasks: " + e.getMessage());
+                awaitQuietly();
+            }
+        }
+    }
+
+    private void awaitNextDeadline() throws InterruptedException {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            Series head = queue.peek();
+            Duration wait = head == null ? FILE_CHECK_INTERVAL
+                    : Duration.between(LocalDateTime.now(clock), head.dueDate);
+            if (wait.compareTo(FILE_CHECK_INTERVAL) > 0) {
+                wait = FILE_CHECK_INTERVAL;
+            }
+            if (!wait.isNegative() && !wait.isZero()) {
+                changed.await(wait.toMillis() + 1, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Back off after a failure so a broken store is not retried in a tight loop
+    private void awaitQuietly() {
+        lock.lock();
+        try {
+            if (running) {
+                changed.await(1, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
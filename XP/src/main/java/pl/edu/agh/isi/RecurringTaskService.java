@@ -1,12 +1,27 @@
 package pl.edu.agh.isi;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service for managing recurring tasks
  */
 public class RecurringTaskService {
+    // Guards against a far horizon on a daily series producing an unusable task list
+    public static final int MAX_WINDOW_INSTANCES = 100_000;
+    
     private final TaskRepository taskRepository;
     
     public RecurringTaskService(TaskRepository taskRepository) {
@@ -111,6 +126,38 @@ public class RecurringTaskService {
         Task parentTask = taskRepository.findById(taskId)
             .orElseThrow(() -> new IllegalArgumentException("Task not found with ID: " + taskId));
         
+        // Save the new task
+        return createNextInstance(parentTask).map(taskRepository::save);
+    }
+    
+    /**
+     * Build the next instance of a recurring task without saving it.
+     * The series continues after its latest instance, or after the task itself
+     * if no instance exists yet.
+     * @param parentTask the recurring task
+     * @return the unsaved task instance, or empty if no new instance should be created
+     */
+    public Optional<Task> createNextInstance(Task parentTask) {
+        if (!parentTask.isRecurring()) {
+            return Optional.empty();
+        }
+        
+        Task latest = findLatestInstance(parentTask.getId()).orElse(null);
+        if (latest == null) {
+            return createNextInstance(parentTask, 0, parentTask.getDueDate());
+        }
+        return createNextInstance(parentTask, latest.getRecurrenceNumber(), latest.getDueDate());
+    }
+    
+    /**
+     * Build the instance following a given occurrence of a recurring task without saving it
+     * @param parentTask the recurring task
+     * @param previousNumber the recurrence number of the previous occurrence, 0 for the task itself
+     * @param previousDueDate the due date of the previous occurrence
+     * @return the unsaved task instance, or empty if the series has ended
+     */
+    public Optional<Task> createNextInstance(Task parentTask, int previousNumber,
+            LocalDateTime previousDueDate) {
         if (!parentTask.isRecurring()) {
             return Optional.empty();
         }
@@ -118,25 +165,31 @@ public class RecurringTaskService {
         RecurrenceConfig config = parentTask.getRecurrenceConfig();
         
         // Determine the occurrence number
-        int occurrenceNumber = 1;
+        int occurrenceNumber = previousNumber + 1;
         
         // Check if we're at the limit of occurrences
         if (config.getOccurrences() != -1 && occurrenceNumber >= config.getOccurrences()) {
             return Optional.empty();
         }
         
-        // Calculate the next due date
-        LocalDateTime nextDueDate = config.calculateNextDueDate(parentTask.getDueDate());
+        // Calculate the next due date, anchored at the series start so monthly dates do not drift
+        LocalDateTime nextDueDate =
+                config.calculateNextDueDate(parentTask.getDueDate(), previousDueDate);
         
         // Check if we're past the end date
-        if (config.getEndDate() != null && (nextDueDate == null || nextDueDate.isAfter(config.getEndDate()))) {
+        if (config.getEndDate() != null
+                && (nextDueDate == null || nextDueDate.isAfter(config.getEndDate()))) {
             return Optional.empty();
         }
         
+        return Optional.of(newInstance(parentTask, occurrenceNumber, nextDueDate));
+    }
+    
+    private static Task newInstance(Task parentTask, int occurrenceNumber, LocalDateTime dueDate) {
         // Create the new task instance
         Task newTask = new Task(
             parentTask.getTopic(),
-            nextDueDate,
+            dueDate,
             parentTask.getDescription(),
             parentTask.getPriority(),
             parentTask.getId(),
@@ -148,8 +201,473 @@ public class RecurringTaskService {
             newTask.setAssignedTo(parentTask.getAssignedTo());
         }
         
-        // Save the new task
-        return Optional.of(taskRepository.save(newTask));
+        return newTask;
+    }
+    
+    /**
+     * Find the instance of a recurring task with the highest recurrence number
+     * @param parentTaskId the ID of the recurring task
+     * @return the latest instance, or empty if none was generated yet
+     */
+    public Optional<Task> findLatestInstance(int parentTaskId) {
+        return Optional.ofNullable(
+                latestInstancesByParent(taskRepository.findAll()).get(parentTaskId));
+    }
+    
+    /**
+     * Find the latest instance of every recurring task in one pass.
+     * Compacted instances count as well, they are rebuilt from the series history.
+     * @param tasks all tasks
+     * @return the latest instance by ID of its recurring task
+     */
+    static Map<Integer, Task> latestInstancesByParent(Collection<Task> tasks) {
+        Map<Integer, Task> latest = new HashMap<>();
+        for (Task task : tasks) {
+            Task candidate = null;
+            if (task.isRecurrenceInstance()) {
+                candidate = task;
+            } else if (task.getSeriesHistory() != null
+                    && task.getSeriesHistory().latest() != null) {
+                candidate = task.getSeriesHistory().latest().toTask(task);
+            }
+            if (candidate != null) {
+                latest.merge(candidate.getParentTaskId(), candidate,
+                    (a, b) -> a.getRecurrenceNumber() >= b.getRecurrenceNumber() ? a : b);
+            }
+        }
+        return latest;
+    }
+    
+    /**
+     * Fold completed instances due before a threshold into the series history of
+     * their recurring task and remove them, all in one write. Instances whose
+     * recurring task no longer exists are kept.
+     * @param olderThan instances due before this are compacted
+     * @return the number of compacted instances
+     */
+    public int compact(LocalDateTime olderThan) {
+        // Locked before the unit of work, like every change to a series
+        Set<Integer> instanceIds = new HashSet<>();
+        List<Integer> seriesIds = new ArrayList<>();
+        List<Task> tasks = taskRepository.findAll();
+        for (Task instance : compactable(tasks, byId(tasks), olderThan)) {
+            instanceIds.add(instance.getId());
+            seriesIds.add(instance.getId());
+            seriesIds.add(instance.getParentTaskId());
+        }
+        if (instanceIds.isEmpty()) {
+            return 0;
+        }
+        return taskRepository.getLockManager().withLocks(seriesIds, () ->
+            new UnitOfWork(taskRepository, null)
+                .execute(() -> compactLocked(olderThan, instanceIds)));
+    }
+    
+    // Checked again under the locks: an instance reopened meanwhile is kept, and one
+    // completed meanwhile was not locked and waits for the next compaction
+    private int compactLocked(LocalDateTime olderThan, Set<Integer> instanceIds) {
+        Map<Integer, Task> changedParents = new HashMap<>();
+        List<Task> compacted = new ArrayList<>();
+        List<Task> tasks = taskRepository.findAll();
+        Map<Integer, Task> byId = byId(tasks);
+        for (Task instance : compactable(tasks, byId, olderThan)) {
+            if (!instanceIds.contains(instance.getId())) {
+                continue;
+            }
+            Task parentTask = byId.get(instance.getParentTaskId());
+            if (parentTask.getSeriesHistory() == null) {
+                parentTask.setSeriesHistory(new SeriesHistory());
+            }
+            parentTask.getSeriesHistory().add(instance);
+            changedParents.put(parentTask.getId(), parentTask);
+            compacted.add(instance);
+        }
+        
+        if (compacted.isEmpty()) {
+            return 0;
+        }
+        taskRepository.updateAll(changedParents.values());
+        for (Task instance : compacted) {
+            taskRepository.delete(instance.getId());
+        }
+        return compacted.size();
+    }
+    
+    // Completed instances due before the threshold whose recurring task exists, by number
+    private static List<Task> compactable(List<Task> tasks, Map<Integer, Task> byId,
+            LocalDateTime olderThan) {
+        return tasks.stream()
+            .filter(Task::isRecurrenceInstance)
+            .filter(Task::isCompleted)
+            .filter(t -> t.getDueDate() != null && t.getDueDate().isBefore(olderThan))
+            .filter(t -> {
+                Task parentTask = byId.get(t.getParentTaskId());
+                return parentTask != null && !parentTask.isRecurrenceInstance();
+            })
+            .sorted(Comparator.comparingInt(Task::getRecurrenceNumber))
+            .collect(Collectors.toList());
+    }
+    
+    private static Map<Integer, Task> byId(List<Task> tasks) {
+        Map<Integer, Task> byId = new HashMap<>();
+        for (Task task : tasks) {
+            byId.put(task.getId(), task);
+        }
+        return byId;
+    }
+    
+    /**
+     * Generate all instances of a recurring task due up to a horizon and save them in one write.
+     * The series continues after its latest instance and stops at its occurrence limit or end date.
+     * @param taskId the ID of the recurring task
+     * @param horizon the last due date to generate instances for
+     * @return the created instances in due date order
+     * @throws IllegalArgumentException if the task is not found or not recurring
+     */
+    public List<Task> materializeWindow(int taskId, LocalDateTime horizon) {
+        Task parentTask = taskRepository.findById(taskId)
+            .orElseThrow(() -> new IllegalArgumentException("Task not found with ID: " + taskId));
+        
+        if (!parentTask.isRecurring()) {
+            throw new IllegalArgumentException("Task is not recurring");
+        }
+        
+        List<Task> created = new ArrayList<>();
+        addWindow(parentTask, findLatestInstance(taskId).orElse(null), horizon, created);
+        return saveWindow(created);
+    }
+    
+    /**
+     * Generate the instances of every recurring task due up to a horizon and save them in one write
+     * @param horizon the last due date to generate instances for
+     * @return the created instances
+     */
+    public List<Task> materializeWindow(LocalDateTime horizon) {
+        List<Task> tasks = taskRepository.findAll();
+        Map<Integer, Task> latestInstances = latestInstancesByParent(tasks);
+        
+        List<Task> created = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.isRecurring()) {
+                addWindow(task, latestInstances.get(task.getId()), horizon, created);
+            }
+        }
+        return saveWindow(created);
+    }
+    
+    private void addWindow(Task parentTask, Task latest, LocalDateTime horizon,
+            List<Task> created) {
+        int number = latest == null ? 0 : latest.getRecurrenceNumber();
+        LocalDateTime dueDate = latest == null ? parentTask.getDueDate() : latest.getDueDate();
+        
+        while (dueDate != null) {
+            Optional<Task> next = createNextInstance(parentTask, number, dueDate);
+            if (next.isEmpty() || next.get().getDueDate().isAfter(horizon)) {
+                return;
+            }
+            if (created.size() >= MAX_WINDOW_INSTANCES) {
+                throw new IllegalArgumentException("Window too large, more than "
+                    + MAX_WINDOW_INSTANCES + " instances, choose an earlier horizon");
+            }
+            Task instance = next.get();
+            instance.addComment(Comment.fromTemplate(CommentTemplate.GENERATED,
+                    String.valueOf(parentTask.getId())));
+            created.add(instance);
+            number = instance.getRecurrenceNumber();
+            dueDate = instance.getDueDate();
+        }
+    }
+    
+    /**
+     * Generate the instances of every recurring task that came due while the application
+     * was not running, and save them in one write. The number of missed occurrences of a
+     * series is computed from its rule rather than by stepping through them.
+     * @param now the current time, occurrences due at or before it are missed
+     * @param latestOnly create only the most recent missed instance of each series, with a
+     *                   comment counting the skipped ones, instead of all of them
+     * @return the created instances
+     * @throws IllegalArgumentException if more than {@link #MAX_WINDOW_INSTANCES} instances would
+     *         be created
+     */
+    public List<Task> catchUp(LocalDateTime now, boolean latestOnly) {
+        List<Task> tasks = taskRepository.findAll();
+        Map<Integer, Task> latestInstances = latestInstancesByParent(tasks);
+        
+        List<Task> created = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.isRecurring()) {
+                addMissed(task, latestInstances.get(task.getId()), now, latestOnly, created);
+            }
+        }
+        return saveWindow(created);
+    }
+    
+    private void addMissed(Task parentTask, Task latest, LocalDateTime now, boolean latestOnly,
+            List<Task> created) {
+        RecurrenceConfig config = parentTask.getRecurrenceConfig();
+        int number = latest == null ? 0 : latest.getRecurrenceNumber();
+        LocalDateTime dueDate = latest == null ? parentTask.getDueDate() : latest.getDueDate();
+        if (dueDate == null || !dueDate.isBefore(now)) {
+            return;
+        }
+        
+        // Same anchor as createNextInstance, so both produce the same dates
+        LocalDateTime seriesStart = parentTask.getDueDate();
+        RecurrenceRule rule = config.toRule(
+                seriesStart == null || seriesStart.isAfter(dueDate) ? dueDate : seriesStart);
+        long previous = rule.indexAtOrBefore(dueDate);
+        long last = rule.indexAtOrBefore(now);
+        if (config.getEndDate() != null) {
+            last = Math.min(last, rule.indexAtOrBefore(config.getEndDate()));
+        }
+        long missed = last - previous;
+        if (config.getOccurrences() != -1) {
+            missed = Math.min(missed, config.getOccurrences() - 1L - number);
+        }
+        if (missed <= 0) {
+            return;
+        }
+        
+        if (latestOnly) {
+            Task instance = newInstance(parentTask, Math.toIntExact(number + missed),
+                    rule.nthOccurrence(previous + missed));
+            String skipped = missed > 1
+                    ? ", skipped " + (missed - 1) + " missed occurrence(s)" : "";
+            instance.addComment(Comment.fromTemplate(CommentTemplate.CAUGHT_UP,
+                    parentTask.getId() + skipped));
+            created.add(instance);
+            return;
+        }
+        if (created.size() + missed > MAX_WINDOW_INSTANCES) {
+            throw new IllegalArgumentException("Too many missed instances, more than "
+                + MAX_WINDOW_INSTANCES + ", catch up on the latest ones only");
+        }
+        for (int k = 1; k <= missed; k++) {
+            Task instance = newInstance(parentTask, number + k, rule.nthOccurrence(previous + k));
+            instance.addComment(Comment.fromTemplate(CommentTemplate.CAUGHT_UP,
+                    String.valueOf(parentTask.getId())));
+            created.add(instance);
+        }
+    }
+    
+    /**
+     * Project the instances of every recurring task due within a range without saving them.
+     * Occurrences that already have a saved or compacted instance are left out, so the result can
+     * be merged with the stored tasks. Projected instances have ID 0; they are referred to as
+     * "PARENT_ID#NUMBER", see {@link #instanceReference(Task)}.
+     * @param from the first due date to include
+     * @param to the last due date to include
+     * @return the projected instances
+     * @throws IllegalArgumentException if more than {@link #MAX_WINDOW_INSTANCES} instances fall
+     *         in the range
+     */
+    public List<Task> projectInstances(LocalDateTime from, LocalDateTime to) {
+        List<Task> tasks = taskRepository.findAll();
+        Map<Integer, Set<Integer>> savedNumbers = savedNumbersByParent(tasks);
+        
+        List<Task> projected = new ArrayList<>();
+        for (Task parentTask : tasks) {
+            Iterator<Task> series = projectSeries(parentTask,
+                savedNumbers.getOrDefault(parentTask.getId(), Collections.emptySet()), from, to);
+            while (series.hasNext()) {
+                if (projected.size() >= MAX_WINDOW_INSTANCES) {
+                    throw new IllegalArgumentException("Range too large, more than "
+                        + MAX_WINDOW_INSTANCES + " instances, choose a shorter range");
+                }
+                projected.add(series.next());
+            }
+        }
+        return projected;
+    }
+    
+    /**
+     * Collect the recurrence numbers of the saved and compacted instances of every recurring task
+     * @param tasks all tasks
+     * @return the numbers by ID of the recurring task
+     */
+    static Map<Integer, Set<Integer>> savedNumbersByParent(Collection<Task> tasks) {
+        Map<Integer, Set<Integer>> savedNumbers = new HashMap<>();
+        for (Task task : tasks) {
+            if (task.isRecurrenceInstance()) {
+                savedNumbers.computeIfAbsent(task.getParentTaskId(), k -> new HashSet<>())
+                        .add(task.getRecurrenceNumber());
+            } else if (task.getSeriesHistory() != null) {
+                Set<Integer> numbers =
+                        savedNumbers.computeIfAbsent(task.getId(), k -> new HashSet<>());
+                task.getSeriesHistory().getEntries()
+                        .forEach(entry -> numbers.add(entry.getNumber()));
+            }
+        }
+        return savedNumbers;
+    }
+    
+    /**
+     * Lazily project the unsaved instances of one recurring task due within a range, in due date
+     * order. Each instance is computed only when requested, so a long range costs nothing up
+     * front.
+     * @param parentTask the task, an empty iterator is returned if it is not recurring
+     * @param savedNumbers recurrence numbers to leave out
+     * @param from the first due date to include
+     * @param to the last due date to include
+     * @return the projected instances
+     */
+    static Iterator<Task> projectSeries(Task parentTask, Set<Integer> savedNumbers,
+            LocalDateTime from, LocalDateTime to) {
+        if (!parentTask.isRecurring() || parentTask.getDueDate() == null) {
+            return Collections.emptyIterator();
+        }
+        RecurrenceConfig config = parentTask.getRecurrenceConfig();
+        RecurrenceRule rule = config.toRule(parentTask.getDueDate());
+        long base = rule.indexAtOrBefore(parentTask.getDueDate());
+        // Jump straight to the first occurrence in the range
+        long first = Math.max(base + 1, rule.indexAtOrBefore(from.minusNanos(1)) + 1);
+        
+        return new Iterator<Task>() {
+            private long index = first;
+            private Task next = advance();
+            
+            private Task advance() {
+                for (;; index++) {
+                    LocalDateTime dueDate = rule.nthOccurrence(index);
+                    long number = index - base;
+                    if (dueDate.isAfter(to)
+                            || (config.getEndDate() != null && dueDate.isAfter(config.getEndDate()))
+                            || (config.getOccurrences() != -1
+                                    && number >= config.getOccurrences())) {
+                        return null;
+                    }
+                    if (!savedNumbers.contains((int) number)) {
+                        index++;
+                        return newInstance(parentTask, Math.toIntExact(number), dueDate);
+                    }
+                }
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+            
+            @Override
+            public Task next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Task current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+    
+    /**
+     * Save a projected instance of a recurring task, e.g. before it is completed or assigned.
+     * If the instance was saved before, the saved one is returned.
+     * @param parentTaskId the ID of the recurring task
+     * @param number the recurrence number of the instance, 1 for the first one after the task
+     *        itself
+     * @return the saved instance
+     * @throws IllegalArgumentException if the task is not found or not recurring, or the series
+     *                                  has no such occurrence
+     */
+    public Task persistInstance(int parentTaskId, int number) {
+        return persistInstance(parentTaskId, number, 0);
+    }
+    
+    /**
+     * Save a projected instance of a recurring task under an ID reserved for it
+     * @param id the reserved ID, or 0 to take the next free one
+     */
+    Task persistInstance(int parentTaskId, int number, int id) {
+        Task parentTask = taskRepository.findById(parentTaskId)
+            .orElseThrow(() ->
+                    new IllegalArgumentException("Task not found with ID: " + parentTaskId));
+        
+        if (!parentTask.isRecurring() || parentTask.getDueDate() == null) {
+            throw new IllegalArgumentException("Task is not recurring");
+        }
+        
+        Optional<Task> existing = findInstance(parentTaskId, number);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        if (parentTask.getSeriesHistory() != null
+                && parentTask.getSeriesHistory().contains(number)) {
+            throw new IllegalArgumentException("Instance " + number + " of recurring task #"
+                + parentTaskId + " is completed and compacted");
+        }
+        
+        RecurrenceConfig config = parentTask.getRecurrenceConfig();
+        RecurrenceRule rule = config.toRule(parentTask.getDueDate());
+        LocalDateTime dueDate = number < 1 ? null
+            : rule.nthOccurrence(rule.indexAtOrBefore(parentTask.getDueDate()) + number);
+        if (dueDate == null
+                || (config.getOccurrences() != -1 && number >= config.getOccurrences())
+                || (config.getEndDate() != null && dueDate.isAfter(config.getEndDate()))) {
+            throw new IllegalArgumentException("Recurring task #" + parentTaskId
+                + " has no occurrence " + number);
+        }
+        Task instance = newInstance(parentTask, number, dueDate);
+        instance.setId(id);
+        return taskRepository.save(instance);
+    }
+    
+    /**
+     * Save a projected instance of a recurring task
+     * @param reference the instance reference, "PARENT_ID#NUMBER"
+     * @return the saved instance
+     */
+    public Task persistInstance(String reference) {
+        int[] parsed = parseInstanceReference(reference);
+        return persistInstance(parsed[0], parsed[1]);
+    }
+    
+    /**
+     * Find the saved instance of a recurring task with the given recurrence number
+     * @param parentTaskId the ID of the recurring task
+     * @param number the recurrence number of the instance
+     * @return the saved instance, or empty if it is only projected
+     */
+    public Optional<Task> findInstance(int parentTaskId, int number) {
+        return taskRepository.findAll().stream()
+            .filter(Task::isRecurrenceInstance)
+            .filter(t -> t.getParentTaskId() == parentTaskId && t.getRecurrenceNumber() == number)
+            .findFirst();
+    }
+    
+    /**
+     * Split an instance reference into the ID of the recurring task and the recurrence number
+     * @param reference the instance reference, "PARENT_ID#NUMBER"
+     * @return the parent ID and the number
+     * @throws IllegalArgumentException if the reference is malformed
+     */
+    static int[] parseInstanceReference(String reference) {
+        int hash = reference.indexOf('#');
+        try {
+            return new int[] {
+                Integer.parseInt(reference.substring(0, Math.max(hash, 0)).trim()),
+                Integer.parseInt(reference.substring(hash + 1).trim())
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid instance reference format: " + reference);
+        }
+    }
+    
+    /**
+     * Get the label of a task for listings: its ID, or "PARENT_ID#NUMBER" for a projected instance
+     */
+    public static String instanceReference(Task task) {
+        if (task.getId() != 0 || !task.isRecurrenceInstance()) {
+            return String.valueOf(task.getId());
+        }
+        return task.getParentTaskId() + "#" + task.getRecurrenceNumber();
+    }
+    
+    private List<Task> saveWindow(List<Task> created) {
+        if (created.isEmpty()) {
+            return created;
+        }
+        return taskRepository.saveAll(created);
     }
     
     /**
@@ -0,0 +1,62 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local file of fired reminders, one line each, for other tools to pick up.
+ * A line holds the firing time, the reminder key and the message, separated by tabs.
+ * The keys are read back at start so a reminder is written only once.
+ */
+public class ReminderOutbox {
+    private final File file;
+
+    public ReminderOutbox(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the keys of the reminders written so far
+     * @return the keys, empty if the outbox does not exist yet
+     */
+    public Set<String> loadKeys() {
+        Set<String> keys = new HashSet<>();
+        if (!file.exists()) {
+            return keys;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] fields = line.split("\t", 3);
+                if (fields.length == 3) {
+                    keys.add(fields[1]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read reminder outbox " + file.getPath(), e);
+        }
+        return keys;
+    }
+
+    /**
+     * Append a fired reminder
+     */
+    public synchronized void append(ReminderService.Reminder reminder) {
+        String line = LocalDateTime.now() + "\t" + reminder.getKey() + "\t" + reminder.getMessage()
+                + System.lineSeparator();
+        try {
+            Files.write(file.toPath(), line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write reminder outbox " + file.getPath(), e);
+        }
+    }
+}
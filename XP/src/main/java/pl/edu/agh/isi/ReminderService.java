@@ -0,0 +1,322 @@
+package pl.edu.agh.isi;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Fires reminders ahead of task due dates, and once more when a task becomes overdue.
+ * Every open task with a due date has one reminder per lead time in a {@link DelayQueue},
+ * so a change costs O(log n) per lead time and the reminder thread sleeps until the
+ * earliest reminder instead of scanning all tasks. Reminders of a changed task are not
+ * searched for and removed: the task gets a new generation and older entries are dropped
+ * when they reach the head of the queue, or all at once when they outnumber the current
+ * ones, which keeps the queue within a constant factor of the open tasks.
+ */
+public class ReminderService implements TaskRepository.ChangeListener {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // Below this size stale reminders are left for the head of the queue to drop
+    static final int PURGE_THRESHOLD = 1024;
+
+    private final TaskRepository taskRepository;
+    private final List<Duration> leadTimes;
+    private final Clock clock;
+
+    private final DelayQueue<Reminder> queue = new DelayQueue<>();
+    // Current generation by task ID, reminders of other generations are stale
+    private final Map<Integer, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong nextGeneration = new AtomicLong();
+    private final Set<String> fired = ConcurrentHashMap.newKeySet();
+    private volatile Consumer<Reminder> sink = reminder -> System.out.println(reminder.getMessage());
+    private Thread thread;
+
+    /**
+     * Create a reminder service
+     * @param taskRepository the repository to read tasks from
+     * @param leadTimes how long before the due date to remind, zero for a reminder at the due date
+     */
+    public ReminderService(TaskRepository taskRepository, Collection<Duration> leadTimes) {
+        this(taskRepository, leadTimes, Clock.systemDefaultZone());
+    }
+
+    // Constructor for testing with a controlled clock
+    ReminderService(TaskRepository taskRepository, Collection<Duration> leadTimes, Clock clock) {
+        if (leadTimes == null || leadTimes.isEmpty()) {
+            throw new IllegalArgumentException("At least one lead time is required");
+        }
+        for (Duration lead : leadTimes) {
+            if (lead.isNegative()) {
+                throw new IllegalArgumentException("Lead time cannot be negative: " + lead);
+            }
+        }
+        this.taskRepository = taskRepository;
+        this.leadTimes = new ArrayList<>(leadTimes);
+        this.clock = clock;
+    }
+
+    /**
+     * A reminder for one task and lead time
+     */
+    public final class Reminder implements Delayed {
+        private final int taskId;
+        private final String topic;
+        private final LocalDateTime dueDate;
+        private final Duration lead;
+        private final LocalDateTime fireAt;
+        private final long generation;
+
+        private Reminder(Task task, Duration lead, long generation) {
+            this.taskId = task.getId();
+            this.topic = task.getTopic();
+            this.dueDate = task.getDueDate();
+            this.lead = lead;
+            this.fireAt = dueDate.minus(lead);
+            this.generation = generation;
+        }
+
+        public int getTaskId() {
+            return taskId;
+        }
+
+        public LocalDateTime getDueDate() {
+            return dueDate;
+        }
+
+        public Duration getLead() {
+            return lead;
+        }
+
+        public LocalDateTime getFireAt() {
+            return fireAt;
+        }
+
+        /**
+         * Identifies the reminder across runs, so it is delivered once
+         */
+        public String getKey() {
+            return key(taskId, dueDate, lead);
+        }
+
+        public String getMessage() {
+            if (lead.isZero() && LocalDateTime.now(clock).isAfter(dueDate.plusMinutes(1))) {
+                return "Task '" + topic + "' (ID: " + taskId + ") is overdue, it was due at " + dueDate.format(DATE_FORMATTER);
+            }
+            if (lead.isZero()) {
+                return "Task '" + topic + "' (ID: " + taskId + ") is due now, at " + dueDate.format(DATE_FORMATTER);
+            }
+            return "Task '" + topic + "' (ID: " + taskId + ") is due in " + formatLead(lead)
+                    + ", at " + dueDate.format(DATE_FORMATTER);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(clock), fireAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof Reminder) {
+                int byTime = fireAt.compareTo(((Reminder) other).fireAt);
+                return byTime != 0 ? byTime : Integer.compare(taskId, ((Reminder) other).taskId);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    static String key(int taskId, LocalDateTime dueDate, Duration lead) {
+        return taskId + "@" + dueDate + "-" + lead;
+    }
+
+    private static String formatLead(Duration lead) {
+        if (lead.toDays() > 0 && lead.toHoursPart() == 0 && lead.toMinutesPart() == 0) {
+            return lead.toDays() + " day(s)";
+        }
+        if (lead.toHours() > 0 && lead.toMinutesPart() == 0) {
+            return lead.toHours() + " hour(s)";
+        }
+        return lead.toMinutes() + " minute(s)";
+    }
+
+    /**
+     * Set where fired reminders go
+     * @param sink receives every reminder once, called on the thread that fires it
+     */
+    public void setSink(Consumer<Reminder> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Mark reminders as delivered, e.g. those found in an outbox from an earlier run
+     * @param keys the reminder keys, see {@link Reminder#getKey()}
+     */
+    public void markFired(Collection<String> keys) {
+        fired.addAll(keys);
+    }
+
+    /**
+     * Rebuild the queue from the repository
+     */
+    public void rebuild() {
+        queue.clear();
+        generations.clear();
+        for (Task task : taskRepository.findAll()) {
+            schedule(task);
+        }
+    }
+
+    @Override
+    public void taskChanged(Task task) {
+        schedule(task);
+    }
+
+    @Override
+    public void taskDeleted(int id) {
+        generations.remove(id);
+        purgeIfMostlyStale();
+    }
+
+    private void schedule(Task task) {
+        long generation = nextGeneration.incrementAndGet();
+        if (task.isCompleted() || task.getDueDate() == null) {
+            generations.remove(task.getId());
+            purgeIfMostlyStale();
+            return;
+        }
+        generations.put(task.getId(), generation);
+        for (Duration lead : leadTimes) {
+            Reminder reminder = new Reminder(task, lead, generation);
+            if (!fired.contains(reminder.getKey())) {
+                queue.add(reminder);
+            }
+        }
+        purgeIfMostlyStale();
+    }
+
+    // A linear pass once the queue holds twice the reminders current tasks can have, so
+    // every change still costs O(log n) on average
+    private void purgeIfMostlyStale() {
+        int size = queue.size();
+        if (size > PURGE_THRESHOLD && size > 2 * generations.size() * leadTimes.size()) {
+            queue.removeIf(reminder -> !isCurrentGeneration(reminder));
+        }
+    }
+
+    private boolean isCurrentGeneration(Reminder reminder) {
+        Long generation = generations.get(reminder.taskId);
+        return generation != null && generation == reminder.generation;
+    }
+
+    /**
+     * Get the time of the earliest queued reminder, which may turn out to be stale
+     */
+    public Optional<LocalDateTime> nextReminder() {
+        Reminder head = queue.peek();
+        return head == null ? Optional.empty() : Optional.of(head.getFireAt());
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Fire all reminders that are due now
+     * @return the delivered reminders, in firing order
+     */
+    public List<Reminder> fireDue() {
+        List<Reminder> due = new ArrayList<>();
+        Reminder reminder;
+        while ((reminder = queue.poll()) != null) {
+            due.add(reminder);
+        }
+        return deliver(due);
+    }
+
+    private List<Reminder> deliver(List<Reminder> due) {
+        // When several reminders of a task are late, e.g. after a pause, only the closest to the due date counts
+        Map<Integer, Reminder> latest = new HashMap<>();
+        List<Reminder> delivered = new ArrayList<>();
+        for (Reminder reminder : due) {
+            if (isCurrent(reminder)) {
+                latest.merge(reminder.taskId, reminder,
+                        (a, b) -> a.lead.compareTo(b.lead) <= 0 ? a : b);
+            }
+        }
+        for (Reminder reminder : due) {
+            if (latest.get(reminder.taskId) == reminder && fired.add(reminder.getKey())) {
+                delivered.add(reminder);
+                sink.accept(reminder);
+            } else if (isCurrent(reminder)) {
+                fired.add(reminder.getKey());
+            }
+        }
+        return delivered;
+    }
+
+    private boolean isCurrent(Reminder reminder) {
+        if (!isCurrentGeneration(reminder) || fired.contains(reminder.getKey())) {
+            return false;
+        }
+        // A rolled back change may have been announced, so check the stored task as well
+        return taskRepository.findById(reminder.taskId)
+                .filter(task -> !task.isCompleted() && reminder.dueDate.equals(task.getDueDate()))
+                .isPresent();
+    }
+
+    /**
+     * Start firing reminders on a background thread as they come due.
+     * Reminders already due fire right away.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Reminder service is already running");
+        }
+        thread = new Thread(this::runLoop, "reminders");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the background thread and wait for it to finish
+     */
+    public void stop() throws InterruptedException {
+        Thread running;
+        synchronized (this) {
+            running = thread;
+            thread = null;
+        }
+        if (running != null) {
+            running.interrupt();
+            running.join();
+        }
+    }
+
+    private void runLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Reminder> due = new ArrayList<>();
+                due.add(queue.take());
+                queue.drainTo(due);
+                deliver(due);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Error firing reminders: " + e.getMessage());
+            }
+        }
+    }
+}
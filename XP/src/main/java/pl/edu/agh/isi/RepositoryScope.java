@@ -0,0 +1,100 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares repository instances between commands running at the same time.
+ * Outside a scope every call creates fresh instances, which is what a single command
+ * run from the shell needs. While a scope is open, commands working on the same data
+ * file get the same repository, and with it the same {@link TaskLockManager}, so concurrent
+ * commands see each other's changes and never overwrite the file with a stale copy.
+ */
+public final class RepositoryScope implements AutoCloseable {
+    private static volatile RepositoryScope current;
+
+    private final Map<String, TaskRepository> taskRepositories = new ConcurrentHashMap<>();
+    private final Map<String, FamilyMemberRepository> familyMemberRepositories = new ConcurrentHashMap<>();
+
+    private RepositoryScope() {
+    }
+
+    /**
+     * Open a scope shared by all threads until it is closed
+     * @return the opened scope
+     * @throws IllegalStateException if a scope is already open
+     */
+    public static synchronized RepositoryScope open() {
+        if (current != null) {
+            throw new IllegalStateException("A repository scope is already open");
+        }
+        current = new RepositoryScope();
+        return current;
+    }
+
+    @Override
+    public void close() {
+        synchronized (RepositoryScope.class) {
+            if (current == this) {
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Get the task repository for the given file
+     * @param file the tasks data file
+     * @return the shared repository while a scope is open, a new one otherwise
+     */
+    public static TaskRepository taskRepository(File file) {
+        RepositoryScope scope = current;
+        if (scope == null) {
+            return new TaskRepository(file);
+        }
+        return scope.taskRepositories.computeIfAbsent(key(file), k -> new TaskRepository(file));
+    }
+
+    /**
+     * Get the family member repository for the given file
+     * @param file the family members data file
+     * @return the shared repository while a scope is open, a new one otherwise
+     */
+    public static FamilyMemberRepository familyMemberRepository(File file) {
+        RepositoryScope scope = current;
+        if (scope == null) {
+            return new FamilyMemberRepository(file);
+        }
+        return scope.familyMemberRepositories.computeIfAbsent(key(file), k -> new FamilyMemberRepository(file));
+    }
+
+    /**
+     * Create a task service over the repository for the given file.
+     * Services are not shared, since commands configure them differently,
+     * but inside a scope they share the task locks of their repository.
+     * @param file the tasks data file
+     * @return a new task service
+     */
+    public static TaskService taskService(File file) {
+        return new TaskService(taskRepository(file));
+    }
+
+    /**
+     * Create a family member service over the repository for the given file
+     * @param file the family members data file
+     * @return a new family member service
+     */
+    public static FamilyMemberService familyMemberService(File file) {
+        return new FamilyMemberService(familyMemberRepository(file));
+    }
+
+    // The same file may be named by different relative paths
+    private static String key(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package pl.edu.agh.isi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Readers and writers of the stored types, shared by the whole process.
+ * Mappers are configured once per storage format and the readers and writers are
+ * created from them up front, which resolves their root serializers, so repositories
+ * created for every command reuse serializer caches that are already filled.
+ * Readers and writers are immutable and safe to share between threads.
+ */
+final class SerializationRegistry {
+    private static final SerializationRegistry JSON = new SerializationRegistry(StorageFormat.JSON);
+
+    // Configuration is a small JSON file of its own, dates as in the family members file
+    private static final ObjectMapper CONFIG_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final ObjectReader CONFIG_READER = CONFIG_MAPPER.readerFor(Map.class);
+    private static final ObjectWriter CONFIG_WRITER = CONFIG_MAPPER.writerFor(AppConfig.class)
+            .with(SerializationFeature.INDENT_OUTPUT);
+
+    // Smile is loaded only once a binary file or export needs it
+    private static final class SmileHolder {
+        static final SerializationRegistry SMILE = new SerializationRegistry(StorageFormat.SMILE);
+    }
+
+    private final ObjectReader taskReader;
+    private final ObjectReader taskArrayReader;
+    private final ObjectWriter taskWriter;
+    private final ObjectReader memberArrayReader;
+    private final ObjectWriter memberWriter;
+
+    private SerializationRegistry(StorageFormat format) {
+        this(tasksMapper(format.newMapper()), format.newMapper());
+    }
+
+    private SerializationRegistry(ObjectMapper tasksMapper, ObjectMapper membersMapper) {
+        this.taskReader = tasksMapper.readerFor(Task.class);
+        this.taskArrayReader = tasksMapper.readerFor(Task[].class);
+        this.taskWriter = tasksMapper.writerFor(Task.class);
+        this.memberArrayReader = membersMapper.readerFor(FamilyMember[].class);
+        this.memberWriter = membersMapper.writerFor(membersMapper.getTypeFactory()
+                .constructCollectionType(Collection.class, FamilyMember.class));
+    }
+
+    private static ObjectMapper tasksMapper(ObjectMapper mapper) {
+        mapper.registerModule(TaskSchema.module());
+        return mapper;
+    }
+
+    /**
+     * Get the shared registry of a format
+     */
+    static SerializationRegistry of(StorageFormat format) {
+        return format == StorageFormat.SMILE ? SmileHolder.SMILE : JSON;
+    }
+
+    /**
+     * Create a registry for tasks over a mapper of the caller, which is configured
+     * for the tasks file first; not shared
+     */
+    static SerializationRegistry forTasks(ObjectMapper mapper) {
+        mapper.registerModule(DomainCodecs.module());
+        return new SerializationRegistry(tasksMapper(mapper), mapper);
+    }
+
+    /** Reader of single tasks, as split out of a file by ParallelTaskLoader */
+    ObjectReader taskReader() {
+        return taskReader;
+    }
+
+    /** Reader of the array of tasks of a tasks file */
+    ObjectReader taskArrayReader() {
+        return taskArrayReader;
+    }
+
+    /** Writer of single tasks, in the encoding of TaskSchema */
+    ObjectWriter taskWriter() {
+        return taskWriter;
+    }
+
+    /** Reader of a family members file */
+    ObjectReader memberArrayReader() {
+        return memberArrayReader;
+    }
+
+    /** Writer of a family members file */
+    ObjectWriter memberWriter() {
+        return memberWriter;
+    }
+
+    static ObjectReader configReader() {
+        return CONFIG_READER;
+    }
+
+    static ObjectWriter configWriter() {
+        return CONFIG_WRITER;
+    }
+
+    /**
+     * Run a task and a family member through the JSON readers and writers once, so
+     * the serializers they use lazily are created and loaded before the first command
+     * needs them. Called at startup, off the main thread.
+     */
+    static void warmUp() {
+        try {
+            RecurrenceConfig config = new RecurrenceConfig(RecurrenceInterval.WEEKLY);
+            Task task = new Task(1, "Warm up", LocalDateTime.now(), "Warm up", TaskPriority.MEDIUM);
+            task.setRecurrenceConfig(config);
+            task.addComment(new Comment("Warm up"));
+            task.setSeriesHistory(new SeriesHistory());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TaskSchema.write(JSON.taskWriter, out, List.of(task));
+            TaskSchema.readTasks(JSON.taskArrayReader, out.toByteArray());
+
+            byte[] members = JSON.memberWriter.writeValueAsBytes(List.of(new FamilyMember(1, "Warm up")));
+            JSON.memberArrayReader.readValue(members);
+        } catch (IOException e) {
+            // Only the first command gets slower
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package pl.edu.agh.isi;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Compact history of the completed instances of a recurring task.
+ * Compaction replaces old completed instances, which repeat the topic, description
+ * and priority of their recurring task, by one small entry each, kept on the
+ * recurring task itself.
+ */
+public class SeriesHistory {
+    @JsonProperty("e")
+    @JsonAlias("entries")
+    private List<Entry> entries;
+
+    // Default constructor for Jackson
+    public SeriesHistory() {
+        this.entries = new ArrayList<>();
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries != null ? entries : new ArrayList<>();
+    }
+
+    /**
+     * Record a completed instance
+     * @param instance the instance, which is not changed
+     */
+    public void add(Task instance) {
+        Entry entry = new Entry();
+        entry.setNumber(instance.getRecurrenceNumber());
+        entry.setDueDate(instance.getDueDate());
+        entry.setCompletedAt(instance.getCompletedAt() != null ? instance.getCompletedAt() : instance.getDueDate());
+        entry.setAssignedTo(instance.getAssignedTo());
+        entry.setCommentCount(instance.getComments() != null ? instance.getComments().size() : 0);
+        entries.add(entry);
+    }
+
+    /**
+     * Check if an instance was compacted into this history
+     * @param number the recurrence number of the instance
+     */
+    public boolean contains(int number) {
+        return entries.stream().anyMatch(entry -> entry.getNumber() == number);
+    }
+
+    /**
+     * Get the entry with the highest recurrence number
+     * @return the entry, or null if the history is empty
+     */
+    public Entry latest() {
+        Entry latest = null;
+        for (Entry entry : entries) {
+            if (latest == null || entry.getNumber() > latest.getNumber()) {
+                latest = entry;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Rebuild the compacted instances as completed tasks, for queries over a series.
+     * The tasks have ID 0 and no comments, and are not meant to be saved.
+     * @param parentTask the recurring task this history belongs to
+     * @return the instances in the order they were compacted
+     */
+    public List<Task> toTasks(Task parentTask) {
+        List<Task> tasks = new ArrayList<>();
+        for (Entry entry : entries) {
+            tasks.add(entry.toTask(parentTask));
+        }
+        return tasks;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * One compacted instance
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public static class Entry {
+        @JsonProperty("n")
+        @JsonAlias("number")
+        private int number;
+        @JsonProperty("due")
+        @JsonAlias("dueDate")
+        private LocalDateTime dueDate;
+        @JsonProperty("at")
+        @JsonAlias("completedAt")
+        private LocalDateTime completedAt;
+        @JsonProperty("a")
+        @JsonAlias("assignedTo")
+        private String assignedTo;
+        @JsonProperty("cc")
+        @JsonAlias("commentCount")
+        private int commentCount;
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public LocalDateTime getDueDate() {
+            return dueDate;
+        }
+
+        public void setDueDate(LocalDateTime dueDate) {
+            this.dueDate = dueDate;
+        }
+
+        public LocalDateTime getCompletedAt() {
+            return completedAt;
+        }
+
+        public void setCompletedAt(LocalDateTime completedAt) {
+            this.completedAt = completedAt;
+        }
+
+        public String getAssignedTo() {
+            return assignedTo;
+        }
+
+        public void setAssignedTo(String assignedTo) {
+            this.assignedTo = assignedTo;
+        }
+
+        public int getCommentCount() {
+            return commentCount;
+        }
+
+        public void setCommentCount(int commentCount) {
+            this.commentCount = commentCount;
+        }
+
+        Task toTask(Task parentTask) {
+            Task task = new Task(parentTask.getTopic(), dueDate, parentTask.getDescription(),
+                    parentTask.getPriority(), parentTask.getId(), number);
+            task.setAssignedTo(assignedTo);
+            task.setCompleted(true);
+            task.setCompletedAt(completedAt);
+            return task;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package pl.edu.agh.isi;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Encodings of the data files.
+ * The format of an existing file is detected from its first bytes, not from its name,
+ * and a repository keeps writing a file in the format it was read in.
+ */
+public enum StorageFormat {
+    /** JSON text, readable and editable by hand */
+    JSON,
+    /** Jackson's binary Smile encoding of the same data, smaller and faster to parse */
+    SMILE;
+
+    // Every Smile document written by Jackson starts with ":)\n"
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+    /**
+     * Detect the format of file content
+     * @param data the content, JSON unless it starts with the Smile header
+     */
+    public static StorageFormat detect(byte[] data) {
+        if (data.length < SMILE_HEADER.length) {
+            return JSON;
+        }
+        for (int i = 0; i < SMILE_HEADER.length; i++) {
+            if (data[i] != SMILE_HEADER[i]) {
+                return JSON;
+            }
+        }
+        return SMILE;
+    }
+
+    /**
+     * Get a format by its name
+     * @param name json or smile, in any case
+     * @throws IllegalArgumentException if the name is not a known format
+     */
+    public static StorageFormat fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown storage format: " + name + ", use json or smile");
+        }
+    }
+
+    /**
+     * Create a mapper for this format with the settings shared by the repositories
+     */
+    ObjectMapper newMapper() {
+        ObjectMapper mapper;
+        if (this == SMILE) {
+            // Topics and names repeat a lot, so shared string values pay off
+            mapper = new ObjectMapper(SmileFactory.builder()
+                    .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                    .build());
+        } else {
+            mapper = new ObjectMapper();
+        }
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(DomainCodecs.module());
+        // Configure mapper to be more lenient when reading
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper;
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
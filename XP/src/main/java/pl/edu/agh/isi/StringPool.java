@@ -0,0 +1,41 @@
+package pl.edu.agh.isi;
+
+/**
+ * Bounded canonicalization table for strings that repeat across many tasks, such as
+ * assignee IDs, member names, topics and the arguments of comment templates.
+ * Each string hashes to one slot and replaces whatever other string was there, so the
+ * table never holds more than its fixed number of strings and never needs a lock;
+ * a string that lost its slot is simply not shared until it is pooled again.
+ * Unlike String.intern the strings stay ordinary heap objects and are collected once
+ * no task uses them.
+ */
+final class StringPool {
+    private static final int SLOTS = 4096;
+    // Long strings rarely repeat and would push out the short ones that do
+    static final int MAX_LENGTH = 256;
+
+    // Racy reads and writes are safe, since strings are immutable
+    private static final String[] TABLE = new String[SLOTS];
+
+    private StringPool() {
+    }
+
+    /**
+     * Get the pooled copy of a string
+     * @param value the string, may be null
+     * @return an equal string shared with earlier callers, or the string itself
+     */
+    static String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+        String pooled = TABLE[slot];
+        if (value.equals(pooled)) {
+            return pooled;
+        }
+        TABLE[slot] = value;
+        return value;
+    }
+}
@@ -3,32 +3,86 @@ package pl.edu.agh.isi;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Stored with the short names of schema version 2, the aliases read version 1, see TaskSchema
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Task {
     private int id;
+    // Topic, description and priority of an instance linked to a template are null
+    // unless they differ from it, and are left out of the file when null
+    @JsonProperty("t")
+    @JsonAlias("topic")
     private String topic;
+    @JsonProperty("d")
+    @JsonAlias("description")
     private String description;
+    @JsonProperty("c")
+    @JsonAlias("createdAt")
     private LocalDateTime createdAt;
+    @JsonProperty("due")
+    @JsonAlias("dueDate")
     private LocalDateTime dueDate;
     private boolean isCompleted;
+    @JsonProperty("at")
+    @JsonAlias("completedAt")
+    private LocalDateTime completedAt;
+    @JsonProperty("a")
+    @JsonAlias("assignedTo")
     private String assignedTo;
+    @JsonProperty("cm")
+    @JsonAlias("comments")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
     private List<Comment> comments;
+    @JsonProperty("p")
+    @JsonAlias("priority")
     private TaskPriority priority;
     
     // Recurrence-related fields
+    @JsonProperty("r")
+    @JsonAlias("recurrenceConfig")
     private RecurrenceConfig recurrenceConfig;
+    @JsonProperty("pid")
+    @JsonAlias("parentTaskId")
     private Integer parentTaskId;
+    @JsonProperty("n")
+    @JsonAlias("recurrenceNumber")
     private Integer recurrenceNumber;
+    @JsonProperty("h")
+    @JsonAlias("seriesHistory")
+    private SeriesHistory seriesHistory;
+    // Shared fields of the recurring task, for instances; not stored
+    private TaskTemplate template;
+    // An instance without a description although its template has one, stored as "d":null
+    @JsonIgnore
+    private boolean descriptionCleared;
 
     // Default constructor for Jackson
     public Task() {
         this.comments = new ArrayList<>();
         this.isCompleted = false;
         this.createdAt = LocalDateTime.now();
-        this.priority = TaskPriority.MEDIUM; // Default priority
+        // Priority is left unset, which reads as MEDIUM or as the template's for a linked instance
         this.recurrenceNumber = null;
     }
 
+    // Empty task for DomainCodecs, which sets every stored field itself
+    private Task(List<Comment> comments) {
+        this.comments = comments;
+    }
+
+    /**
+     * Create a task to be filled in from stored data, without the defaults of a new task
+     */
+    static Task stored() {
+        return new Task(new ArrayList<>());
+    }
+
     public Task(String topic, LocalDateTime dueDate, String description) {
         this();
         if (topic == null || topic.trim().isEmpty()) {
@@ -37,6 +91,7 @@ public class Task {
         this.topic = topic;
         this.dueDate = dueDate;
         this.description = description;
+        this.priority = TaskPriority.MEDIUM; // Default priority
     }
 
     public Task(int id, String topic, LocalDateTime dueDate, String description) {
@@ -89,23 +144,64 @@ public class Task {
         this.id = id;
     }
 
+    @JsonIgnore
     public String getTopic() {
-        return topic;
+        return topic != null || template == null ? topic : template.getTopic();
     }
 
-    public void setTopic(String topic) {
+    public synchronized void setTopic(String topic) {
         if (topic == null || topic.trim().isEmpty()) {
             throw new IllegalArgumentException("Topic cannot be empty");
         }
         this.topic = topic;
     }
 
-    public String getDescription() {
+    /**
+     * Set the topic of stored data, which was checked when it was first set
+     */
+    void restoreTopic(String topic) {
+        this.topic = topic;
+    }
+
+    // The topic, description and priority as stored, null where an instance uses its template
+    String getStoredTopic() {
+        return topic;
+    }
+
+    String getStoredDescription() {
         return description;
     }
 
-    public void setDescription(String description) {
+    TaskPriority getStoredPriority() {
+        return priority;
+    }
+
+    @JsonIgnore
+    public String getDescription() {
+        if (description != null || template == null || descriptionCleared) {
+            return description;
+        }
+        return template.getDescription();
+    }
+
+    public synchronized void setDescription(String description) {
         this.description = description;
+        this.descriptionCleared = description == null && template != null;
+    }
+
+    /**
+     * Whether this instance overrides the description of its template with none
+     */
+    boolean isDescriptionCleared() {
+        return descriptionCleared;
+    }
+
+    /**
+     * Restore an instance stored without the description of its template
+     */
+    void restoreClearedDescription() {
+        this.description = null;
+        this.descriptionCleared = true;
     }
 
     public LocalDateTime getCreatedAt() {
@@ -120,23 +216,45 @@ public class Task {
         return dueDate;
     }
 
-    public void setDueDate(LocalDateTime dueDate) {
+    public synchronized void setDueDate(LocalDateTime dueDate) {
         this.dueDate = dueDate;
     }
 
+    @JsonProperty("x")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
     public boolean isCompleted() {
         return isCompleted;
     }
 
-    public void setCompleted(boolean completed) {
+    @JsonProperty("x")
+    @JsonAlias("completed")
+    public synchronized void setCompleted(boolean completed) {
         isCompleted = completed;
     }
 
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public synchronized void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    /**
+     * Mark this task completed at a time, or open again with null. Both fields change at
+     * once, so a save never writes a completed task without its completion time.
+     */
+    @JsonIgnore
+    public synchronized void setCompletion(LocalDateTime completedAt) {
+        this.isCompleted = completedAt != null;
+        this.completedAt = completedAt;
+    }
+
     public String getAssignedTo() {
         return assignedTo;
     }
 
-    public void setAssignedTo(String assignedTo) {
+    public synchronized void setAssignedTo(String assignedTo) {
         this.assignedTo = assignedTo;
     }
 
@@ -148,18 +266,22 @@ public class Task {
         this.comments = comments;
     }
 
-    public void addComment(Comment comment) {
-        if (this.comments == null) {
-            this.comments = new ArrayList<>();
-        }
-        this.comments.add(comment);
+    public synchronized void addComment(Comment comment) {
+        // Copy on write, so a concurrent save never iterates a list that is being appended to
+        List<Comment> updated = this.comments == null ? new ArrayList<>() : new ArrayList<>(this.comments);
+        updated.add(comment);
+        this.comments = updated;
     }
     
+    @JsonIgnore
     public TaskPriority getPriority() {
-        return priority;
+        if (priority != null) {
+            return priority;
+        }
+        return template != null ? template.getPriority() : TaskPriority.MEDIUM;
     }
     
-    public void setPriority(TaskPriority priority) {
+    public synchronized void setPriority(TaskPriority priority) {
         this.priority = priority;
     }
     
@@ -187,10 +309,87 @@ public class Task {
         this.recurrenceNumber = recurrenceNumber;
     }
     
+    /**
+     * Get the compacted completed instances of this recurring task
+     * @return the history, or null if no instance was compacted
+     */
+    public SeriesHistory getSeriesHistory() {
+        return seriesHistory;
+    }
+    
+    public void setSeriesHistory(SeriesHistory seriesHistory) {
+        this.seriesHistory = seriesHistory;
+    }
+    
+    TaskTemplate getTemplate() {
+        return template;
+    }
+    
+    /**
+     * Link an instance read from the file to its template, the fields missing in
+     * the file are taken from it
+     */
+    void inheritFrom(TaskTemplate loadedTemplate) {
+        template = loadedTemplate;
+    }
+    
+    /**
+     * Link this instance to a template, keeping only the fields that differ from it,
+     * or unlink it with null, copying the template fields back into the task.
+     * What the getters return does not change.
+     */
+    synchronized void useTemplate(TaskTemplate newTemplate) {
+        String currentTopic = getTopic();
+        String currentDescription = getDescription();
+        TaskPriority currentPriority = getPriority();
+        if (newTemplate == null) {
+            // Copy the fields before unlinking, so readers never see them missing
+            topic = currentTopic;
+            description = currentDescription;
+            descriptionCleared = false;
+            priority = currentPriority;
+            template = null;
+            return;
+        }
+        template = newTemplate;
+        topic = Objects.equals(currentTopic, newTemplate.getTopic()) ? null : currentTopic;
+        // Null alone would fall back to the template, so no description is kept as a flag
+        descriptionCleared = currentDescription == null && newTemplate.getDescription() != null;
+        description = Objects.equals(currentDescription, newTemplate.getDescription())
+                ? null : currentDescription;
+        priority = currentPriority == newTemplate.getPriority() ? null : currentPriority;
+    }
+    
+    /**
+     * Copy this task to be written while others may change it. The fields are read under
+     * the lock its setters take, so a change of several of them is seen whole or not at
+     * all. Comments, recurrence and history are shared, comments are copied on write.
+     */
+    synchronized Task copy() {
+        Task copy = new Task(comments);
+        copy.id = id;
+        copy.topic = topic;
+        copy.description = description;
+        copy.createdAt = createdAt;
+        copy.dueDate = dueDate;
+        copy.isCompleted = isCompleted;
+        copy.completedAt = completedAt;
+        copy.assignedTo = assignedTo;
+        copy.priority = priority;
+        copy.recurrenceConfig = recurrenceConfig;
+        copy.parentTaskId = parentTaskId;
+        copy.recurrenceNumber = recurrenceNumber;
+        copy.seriesHistory = seriesHistory;
+        copy.template = template;
+        copy.descriptionCleared = descriptionCleared;
+        return copy;
+    }
+
     /**
      * Check if this task is a recurring task (has recurrence configuration)
      * @return true if this is a recurring task, false otherwise
      */
+    @JsonIgnore
     public boolean isRecurring() {
         return recurrenceConfig != null;
     }
@@ -199,6 +398,7 @@ public class Task {
      * Check if this task is a recurrence instance (child of a recurring task)
      * @return true if this is a recurrence instance, false otherwise
      */
+    @JsonIgnore
     public boolean isRecurrenceInstance() {
         return parentTaskId != null && recurrenceNumber != null;
     }
@@ -0,0 +1,136 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the tasks of a data file the fastest way that is valid for it: from its
+ * {@link WarmStartImage} while the image matches the file, through {@link TaskMigration}
+ * when the file is of an older schema version, with the {@link ParallelTaskLoader} when
+ * it is large JSON text, and with a single sequential parse otherwise. Linking instances
+ * to their recurring tasks and writing a migrated file back are left to the repository.
+ */
+final class TaskFileLoader {
+    // Below this size a single-threaded parse is faster than splitting the file
+    static final long PARALLEL_LOAD_THRESHOLD_BYTES = 1024 * 1024;
+
+    private final File file;
+    // Readers of the JSON file, those of other formats are shared by all repositories
+    private final SerializationRegistry json;
+
+    TaskFileLoader(File file, SerializationRegistry json) {
+        this.file = file;
+        this.json = json;
+    }
+
+    /**
+     * What a data file holds
+     */
+    static final class Result {
+        private Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+        private int maxId;
+        private StorageFormat format;
+        private ChangeLog changes;
+        private boolean migrated;
+        private int quarantined;
+
+        private void put(Collection<Task> loaded) {
+            for (Task task : loaded) {
+                tasks.put(task.getId(), task);
+                maxId = Math.max(maxId, task.getId());
+            }
+        }
+
+        /**
+         * The tasks by id, in a map the repository keeps
+         */
+        Map<Integer, Task> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * The highest id found, 0 if there is none
+         */
+        int getMaxId() {
+            return maxId;
+        }
+
+        StorageFormat getFormat() {
+            return format;
+        }
+
+        ChangeLog getChanges() {
+            return changes;
+        }
+
+        /**
+         * Whether the file is of an older schema version and should be written back
+         */
+        boolean isMigrated() {
+            return migrated;
+        }
+
+        /**
+         * How many records the migration moved to the quarantine file
+         */
+        int getQuarantined() {
+            return quarantined;
+        }
+    }
+
+    /**
+     * Read the data file
+     * @return what it holds, or null if it does not exist or is empty
+     * @throws IOException if it cannot be read or is not a tasks file
+     */
+    Result load() throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        // Taken before the content, a change in between makes the image stale
+        long modified = file.lastModified();
+        byte[] stored = Files.readAllBytes(file.toPath());
+        if (stored.length == 0) {
+            return null;
+        }
+        Result result = new Result();
+        WarmStartImage.Contents warm = new WarmStartImage(file).read(stored, modified);
+        if (warm != null) {
+            result.format = warm.getFormat();
+            result.tasks = new ConcurrentHashMap<>(warm.getTasks().length * 4 / 3 + 1);
+            result.put(Arrays.asList(warm.getTasks()));
+            result.changes = warm.getChanges();
+            return result;
+        }
+
+        byte[] data = Compression.decompress(stored);
+        result.format = StorageFormat.detect(data);
+        SerializationRegistry registry = result.format == StorageFormat.JSON
+                ? json : SerializationRegistry.of(result.format);
+        TaskSchema.Header header = TaskSchema.readHeader(registry.taskArrayReader(), data);
+        if (header.getVersion() < TaskSchema.VERSION) {
+            TaskMigration.Result migration = TaskMigration.migrate(registry.taskReader(), data,
+                    header.getVersion(), TaskMigration.quarantineFile(file));
+            result.put(migration.getTasks());
+            result.migrated = true;
+            result.quarantined = migration.getQuarantined();
+        } else if (result.format == StorageFormat.JSON
+                && data.length >= PARALLEL_LOAD_THRESHOLD_BYTES) {
+            // Only JSON text can be split into records without parsing it
+            ParallelTaskLoader.Result parallel = new ParallelTaskLoader(json.taskReader())
+                    .load(data, header.getArrayOffset());
+            result.tasks = parallel.getTasks();
+            result.maxId = parallel.getMaxId();
+        } else {
+            result.put(Arrays.asList(TaskSchema.readTasks(registry.taskArrayReader(), data)));
+        }
+        result.changes = header.getChanges() != null
+                ? header.getChanges() : ChangeLog.startingWith(result.tasks.keySet());
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package pl.edu.agh.isi;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped lock manager keyed by task id.
+ * Operations on tasks mapped to different stripes run in parallel, operations on the
+ * same task are serialized. Multi-task operations acquire their stripes in ascending
+ * stripe order, so two callers can never wait on each other in a cycle.
+ */
+public class TaskLockManager {
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public TaskLockManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create a lock manager with the given number of stripes
+     * @param stripeCount requested number of stripes, rounded up to a power of two
+     */
+    public TaskLockManager(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Run an action while holding the lock of a single task
+     * @param taskId the task id
+     * @param action the action to run
+     * @return the result of the action
+     */
+    public <T> T withLock(int taskId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeFor(taskId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run an action while holding the locks of several tasks.
+     * All locks must be requested up front; taking further task locks from inside the
+     * action bypasses the ordering and may deadlock.
+     * @param taskIds the task ids, duplicates are allowed
+     * @param action the action to run
+     * @return the result of the action
+     */
+    public <T> T withLocks(Collection<Integer> taskIds, Supplier<T> action) {
+        int[] order = taskIds.stream()
+                .mapToInt(this::stripeFor)
+                .distinct()
+                .sorted()
+                .toArray();
+        int acquired = 0;
+        try {
+            for (int index : order) {
+                stripes[index].lock();
+                acquired++;
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    // Sequential ids land on consecutive stripes, which is the ideal spread for this app
+    int stripeFor(int taskId) {
+        return taskId & mask;
+    }
+}
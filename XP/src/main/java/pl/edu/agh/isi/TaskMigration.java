@@ -0,0 +1,304 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Upgrades the tasks of a file written in an older schema version, one record at a time.
+ * Each step turns records of one version into records of the next, and a file goes
+ * through the steps from its own version on. The repository then writes it back in
+ * the current version, so the steps run once per file and loading a current file
+ * checks nothing. Once the records are upgraded, the recurrence instances of a data file
+ * are linked to their recurring tasks, keeping only the fields that differ, and
+ * instances of a missing recurring task with no topic of their own are rejected.
+ * Records a step rejects, and records that cannot be read at all, are appended to a
+ * quarantine file next to the data file instead of being dropped, one JSON object per
+ * line: {"schema":V,"reason":"...","task":{...}}. A record is appended once, however
+ * often the file is migrated before its upgrade is written back.
+ */
+final class TaskMigration {
+
+    /**
+     * Upgrades a record of one version to the next
+     */
+    @FunctionalInterface
+    private interface Step {
+        /**
+         * @return why the task cannot be kept, or null if it can
+         */
+        String apply(Task task);
+    }
+
+    // Steps by the version whose records they upgrade. Version 1 differs from version 2 in
+    // its layout only, which the field aliases read; comments of both keep their text, since
+    // telling which ones the application wrote would be a guess; and their instances are
+    // linked once all records are read, see linkInstances.
+    private static final Map<Integer, Step> STEPS = Map.of(2, TaskMigration::checkOnce);
+
+    private static final JsonFactory QUARANTINE_FACTORY = new JsonFactory();
+
+    private TaskMigration() {
+    }
+
+    /**
+     * What a migration kept and what it quarantined
+     */
+    static final class Result {
+        private final List<Task> tasks;
+        private final int quarantined;
+
+        private Result(List<Task> tasks, int quarantined) {
+            this.tasks = tasks;
+            this.quarantined = quarantined;
+        }
+
+        List<Task> getTasks() {
+            return tasks;
+        }
+
+        int getQuarantined() {
+            return quarantined;
+        }
+    }
+
+    /**
+     * Get the file the rejected records of a data file are appended to
+     */
+    static File quarantineFile(File dataFile) {
+        return new File(dataFile.getAbsoluteFile().getParentFile(),
+                dataFile.getName() + ".quarantine.jsonl");
+    }
+
+    /**
+     * Read the tasks of a file written in an older version and upgrade them.
+     * Rejected records are appended to the quarantine file before this returns.
+     * @param reader a reader of single tasks for the format of the file
+     * @param data the file content
+     * @param fromVersion the version the file was written in
+     * @param quarantine the file rejected records are appended to
+     * @return the tasks to keep
+     * @throws IOException if the content is not a tasks file or the quarantine cannot be written
+     */
+    static Result migrate(ObjectReader reader, byte[] data, int fromVersion, File quarantine)
+            throws IOException {
+        return migrate(reader, data, fromVersion, quarantine, true);
+    }
+
+    /**
+     * Read the tasks of a delta written in an older version and upgrade them. The
+     * recurring tasks of its instances are in the data file, so instances are linked
+     * when the delta is applied instead.
+     * @see #migrate(ObjectReader, byte[], int, File)
+     */
+    static Result migrateDelta(ObjectReader reader, byte[] data, int fromVersion, File quarantine)
+            throws IOException {
+        return migrate(reader, data, fromVersion, quarantine, false);
+    }
+
+    private static Result migrate(ObjectReader reader, byte[] data, int fromVersion,
+            File quarantine, boolean dataFile) throws IOException {
+        if (fromVersion < 1 || fromVersion >= TaskSchema.VERSION) {
+            throw new IllegalArgumentException("No migration from schema version " + fromVersion);
+        }
+        List<Task> tasks = new ArrayList<>();
+        List<TokenBuffer> rejected = new ArrayList<>();
+        List<String> reasons = new ArrayList<>();
+        // Records of the instances that may turn out to be orphans, quarantined as written
+        Map<Task, TokenBuffer> inheriting = new HashMap<>();
+        try (JsonParser parser = TaskSchema.openTasks(reader, data)) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                // Buffered, so a record that cannot be bound is still quarantined as it was written
+                TokenBuffer record = new TokenBuffer(parser).forceUseOfBigDecimal(true);
+                record.copyCurrentStructure(parser);
+                String reason;
+                Task task = null;
+                try (JsonParser recordParser = record.asParser()) {
+                    task = reader.readValue(recordParser);
+                    reason = upgrade(task, fromVersion);
+                } catch (JsonProcessingException e) {
+                    reason = "Cannot be read: " + e.getOriginalMessage();
+                }
+                if (reason == null) {
+                    tasks.add(task);
+                    if (dataFile && isInheritingInstance(task)) {
+                        inheriting.put(task, record);
+                    }
+                } else {
+                    rejected.add(record);
+                    reasons.add(reason);
+                }
+            }
+        }
+        if (dataFile) {
+            for (Task orphan : linkInstances(tasks)) {
+                rejected.add(inheriting.get(orphan));
+                reasons.add("Instance of a missing recurring task, without a topic of its own");
+            }
+        }
+        if (!rejected.isEmpty()) {
+            writeQuarantine(quarantine, fromVersion, rejected, reasons);
+        }
+        return new Result(tasks, rejected.size());
+    }
+
+    /**
+     * Upgrade a task read from a file of an older version
+     * @return why the task cannot be kept, or null if it can
+     */
+    static String upgrade(Task task, int fromVersion) {
+        for (int version = fromVersion; version < TaskSchema.VERSION; version++) {
+            Step step = STEPS.get(version);
+            String reason = step != null ? step.apply(task) : null;
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+
+    // Files before version 3 were checked on every load, version 3 holds only records that passed
+    private static String checkOnce(Task task) {
+        if (task.getId() <= 0) {
+            return "Task has no id";
+        }
+        if (isInheritingInstance(task)) {
+            return null;
+        }
+        // Tasks of the first format kept their topic in the description
+        if ((task.getTopic() == null || task.getTopic().isEmpty())
+                && task.getDescription() != null) {
+            task.setTopic(task.getDescription());
+        }
+        if (task.getTopic() == null || task.getTopic().isEmpty()) {
+            return "Task has no topic";
+        }
+        return null;
+    }
+
+    // Links the instances to their recurring tasks and removes the ones that cannot be kept
+    private static List<Task> linkInstances(List<Task> tasks) {
+        Map<Integer, Task> byId = new HashMap<>();
+        for (Task task : tasks) {
+            byId.put(task.getId(), task);
+        }
+        Map<Integer, TaskTemplate> templates = new HashMap<>();
+        List<Task> orphans = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.getParentTaskId() == null) {
+                continue;
+            }
+            Task parent = byId.get(task.getParentTaskId());
+            if (parent == null || parent.getParentTaskId() != null) {
+                if (task.getTopic() == null) {
+                    orphans.add(task);
+                }
+                continue;
+            }
+            TaskTemplate template = templates.computeIfAbsent(parent.getId(),
+                    id -> TaskTemplate.of(parent));
+            task.inheritFrom(template);
+            // Older files repeat the fields of the recurring task in every instance
+            task.useTemplate(template);
+        }
+        tasks.removeAll(new HashSet<>(orphans));
+        return orphans;
+    }
+
+    // An instance taking its topic from its recurring task, checked once linked
+    private static boolean isInheritingInstance(Task task) {
+        return task.getParentTaskId() != null && task.getTopic() == null;
+    }
+
+    // A file whose migration could not be written back is migrated again on the next load,
+    // so records the quarantine holds already are not appended twice
+    private static void writeQuarantine(File quarantine, int fromVersion, List<TokenBuffer> records,
+            List<String> reasons) throws IOException {
+        Set<String> quarantined = readQuarantinedKeys(quarantine);
+        try (OutputStream out = new FileOutputStream(quarantine, true);
+             JsonGenerator generator = QUARANTINE_FACTORY.createGenerator(out)) {
+            // One record per line, without the space written between root values
+            generator.setRootValueSeparator(null);
+            for (int i = 0; i < records.size(); i++) {
+                if (!quarantined.add(keyOf(records.get(i)))) {
+                    continue;
+                }
+                generator.writeStartObject();
+                generator.writeNumberField("schema", fromVersion);
+                generator.writeStringField("reason", reasons.get(i));
+                generator.writeFieldName("task");
+                records.get(i).serialize(generator);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static Set<String> readQuarantinedKeys(File quarantine) throws IOException {
+        Set<String> keys = new HashSet<>();
+        if (!quarantine.exists()) {
+            return keys;
+        }
+        for (String line : Files.readAllLines(quarantine.toPath(), StandardCharsets.UTF_8)) {
+            try (JsonParser parser = QUARANTINE_FACTORY.createParser(line)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("task".equals(name)) {
+                        TokenBuffer record = new TokenBuffer(parser).forceUseOfBigDecimal(true);
+                        record.copyCurrentStructure(parser);
+                        keys.add(keyOf(record));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // A line cut short by an earlier failed append, its record is written again
+            }
+        }
+        return keys;
+    }
+
+    // Records are told apart by their id, or by their whole content if they have none
+    private static String keyOf(TokenBuffer record) throws IOException {
+        try (JsonParser parser = record.asParser()) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("id".equals(name) && value == JsonToken.VALUE_NUMBER_INT
+                            && parser.getLongValue() > 0) {
+                        return "id:" + parser.getLongValue();
+                    }
+                    parser.skipChildren();
+                }
+            }
+        }
+        StringWriter content = new StringWriter();
+        try (JsonGenerator generator = QUARANTINE_FACTORY.createGenerator(content)) {
+            record.serialize(generator);
+        }
+        return content.toString();
+    }
+}
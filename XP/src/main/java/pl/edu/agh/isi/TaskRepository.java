@@ -1,31 +1,108 @@
 package pl.edu.agh.isi;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 public class TaskRepository {
+    // Below this size reading the data file is about as fast as reading its WarmStartImage
+    static final long WARM_START_THRESHOLD_BYTES = 1024 * 1024;
+
     private final File file;
-    private final ObjectMapper mapper;
+    // Readers and writers of the JSON file, shared unless a test passes its own mapper
+    private final SerializationRegistry json;
+    // The format the file was read in, kept when writing it back
+    private volatile StorageFormat format = StorageFormat.JSON;
     private Map<Integer, Task> tasks;
     private AtomicInteger nextId;
+    // Numbers every change, for exporting only what changed since a backup
+    private ChangeLog changeLog = new ChangeLog();
+    // Why the existing file could not be loaded, null if it was
+    private volatile String loadError;
+    // Modification time and size of the data file when it was last read or written here
+    private volatile long knownModified;
+    private volatile long knownLength;
+    // The data file as last prepared, when large enough for a WarmStartImage of it
+    private byte[] preparedContent;
+    // The tasks as last prepared, copies the image is made from
+    private List<Task> preparedTasks;
+
+    // Per-task locks of every service working on this repository
+    private final TaskLockManager lockManager = new TaskLockManager();
+    // Held by the thread running a unit of work, which also blocks writes from other threads
+    private final ReentrantLock transactionLock = new ReentrantLock();
+    private int transactionDepth;
+    private boolean dirty;
+    // What the outermost unit of work changed, put back from the file if it is rolled back
+    private final Set<Integer> touched = new HashSet<>();
+    private int rollbackNextId;
+    private StorageFormat rollbackFormat;
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Notified after tasks change in memory, on the thread making the change.
+     * Changes of a unit of work that is rolled back have been announced already,
+     * so listeners should treat what they hear as a hint and re-read the task when it matters.
+     */
+    public interface ChangeListener {
+        /**
+         * A task was saved or updated
+         */
+        void taskChanged(Task task);
+
+        /**
+         * A task was deleted
+         */
+        void taskDeleted(int id);
+    }
+
+    /**
+     * The task locks shared by all services and schedulers working on this repository,
+     * so that they exclude each other whichever of them changes a task
+     */
+    public TaskLockManager getLockManager() {
+        return lockManager;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged(Collection<Task> changed) {
+        for (ChangeListener listener : listeners) {
+            for (Task task : changed) {
+                listener.taskChanged(task);
+            }
+        }
+    }
 
     public TaskRepository(File file) {
         this.file = file;
-        this.mapper = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
-        // Configure mapper to be more lenient when reading JSON
-        this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        this.tasks = new HashMap<>();
+        this.json = SerializationRegistry.of(StorageFormat.JSON);
+        this.tasks = new ConcurrentHashMap<>();
         this.nextId = new AtomicInteger(1);
         loadTasks();
     }
@@ -33,69 +110,614 @@ public class TaskRepository {
     // Constructor for testing with a provided ObjectMapper
     TaskRepository(File file, ObjectMapper mapper) {
         this.file = file;
-        this.mapper = mapper;
         // Configure mapper to be more lenient when reading JSON
-        this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        this.tasks = new HashMap<>();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.json = SerializationRegistry.forTasks(mapper);
+        this.tasks = new ConcurrentHashMap<>();
         this.nextId = new AtomicInteger(1);
         loadTasks();
     }
 
     private void loadTasks() {
-        if (!file.exists()) {
-            tasks = new HashMap<>();
+        changeLog = new ChangeLog();
+        loadError = null;
+        // Taken before the content, a change in between is read by the next reloadIfChanged
+        rememberFileState();
+        TaskFileLoader.Result loaded;
+        try {
+            loaded = new TaskFileLoader(file, json).load();
+        } catch (IOException e) {
+            System.err.println("Error loading tasks: " + e.getMessage());
+            // Kept as it is, so what could not be read is not replaced by nothing on the next save
+            loadError = e.getMessage();
+            tasks = new ConcurrentHashMap<>();
             return;
         }
+        if (loaded == null) {
+            tasks = new ConcurrentHashMap<>();
+            return;
+        }
+        format = loaded.getFormat();
+        tasks = loaded.getTasks();
+        if (loaded.getMaxId() >= nextId.get()) {
+            nextId.set(loaded.getMaxId() + 1);
+        }
+        linkTemplates(true);
+        changeLog = loaded.getChanges();
+
+        if (loaded.getQuarantined() > 0) {
+            System.err.println(loaded.getQuarantined()
+                    + " task(s) could not be migrated and were moved to "
+                    + TaskMigration.quarantineFile(file));
+        }
+        if (loaded.isMigrated()) {
+            // Rewrite older files in the current schema once, they are migrated again if this fails
+            try {
+                commitDataFile(prepareDataFile());
+            } catch (IOException e) {
+                System.err.println("Error migrating tasks to schema version " + TaskSchema.VERSION
+                        + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // A file that could not be loaded would lose what it holds if it were written
+    private void checkWritable() throws IOException {
+        if (loadError != null) {
+            throw new IOException(file + " could not be read and is left as it is: " + loadError);
+        }
+    }
+
+    private void rememberFileState() {
+        knownModified = file.lastModified();
+        knownLength = file.length();
+    }
+
+    /**
+     * Read the data file again if it changed since this repository last read or wrote
+     * it, e.g. because another process saved tasks, judged by its modification time and
+     * size. Long-running commands call this before writing, so they never replace the
+     * file with tasks older than it holds. Listeners are not told, the caller knows that
+     * everything may have changed.
+     * @return whether the tasks were read again
+     */
+    public boolean reloadIfChanged() {
+        transactionLock.lock();
         try {
-            Task[] loaded = mapper.readValue(file, Task[].class);
-            tasks = new HashMap<>();
-            for (Task t : loaded) {
-                // Handle migration from old format - if topic is empty but description exists
-                if ((t.getTopic() == null || t.getTopic().isEmpty()) && t.getDescription() != null) {
-                    t.setTopic(t.getDescription());
+            // A unit of work keeps the state it started from until it ends
+            if (transactionDepth > 0
+                    || file.lastModified() == knownModified && file.length() == knownLength) {
+                return false;
+            }
+            nextId.set(1);
+            loadTasks();
+            return true;
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    /**
+     * Write the tasks to a temporary file next to the data file. Only a large file that
+     * is text or compressed takes longer to read than its {@link WarmStartImage}; such a
+     * file is encoded in memory first, so the image can be made from the same content.
+     * Called with the transaction lock held.
+     */
+    private File prepareDataFile() throws IOException {
+        Compression compression = Compression.forFile(file);
+        preparedContent = null;
+        preparedTasks = null;
+        List<Task> snapshot = snapshot(tasks.values());
+        ObjectWriter writer = registryFor(format).taskWriter();
+        if (format != StorageFormat.JSON && compression == Compression.NONE) {
+            return AtomicFileWriter.prepare(file, compression,
+                    out -> TaskSchema.write(writer, out, snapshot, changeLog));
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        TaskSchema.write(writer, data, snapshot, changeLog);
+        if (data.size() < WARM_START_THRESHOLD_BYTES) {
+            return AtomicFileWriter.prepare(file, compression, data::writeTo);
+        }
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        try (OutputStream out = compression.compress(stored)) {
+            data.writeTo(out);
+        }
+        byte[] content = stored.toByteArray();
+        File prepared = AtomicFileWriter.prepare(file, out -> out.write(content));
+        preparedContent = content;
+        preparedTasks = snapshot;
+        return prepared;
+    }
+
+    // Replaces the data file with a prepared one and its image with one of the new content
+    private void commitDataFile(File prepared) throws IOException {
+        AtomicFileWriter.commit(prepared, file);
+        rememberFileState();
+        byte[] content = preparedContent;
+        List<Task> written = preparedTasks;
+        preparedContent = null;
+        preparedTasks = null;
+        WarmStartImage image = new WarmStartImage(file);
+        if (content == null) {
+            image.delete();
+            return;
+        }
+        try {
+            image.write(content, knownModified, format, written, changeLog);
+        } catch (IOException e) {
+            // The next start reads the data file, the old image no longer matches it
+            System.err.println("Error writing " + image.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copy tasks to be written while services change them, see {@link Task#copy()}
+     */
+    private static List<Task> snapshot(Collection<Task> live) {
+        List<Task> copies = new ArrayList<>(live.size());
+        for (Task task : live) {
+            copies.add(task.copy());
+        }
+        return copies;
+    }
+
+    private SerializationRegistry registryFor(StorageFormat storageFormat) {
+        return storageFormat == StorageFormat.JSON ? json : SerializationRegistry.of(storageFormat);
+    }
+
+    /**
+     * Get the format the data file is written in
+     */
+    public StorageFormat getStorageFormat() {
+        return format;
+    }
+
+    /**
+     * Get the number of the last change of the tasks
+     */
+    public long getChangeSequence() {
+        return changeLog.getSequence();
+    }
+
+    /**
+     * Write all tasks to another file
+     * @param target the file to write, replaced if it exists
+     * @param targetFormat the format to write it in
+     * @return the number of the last change the file holds, to export changes since next time
+     * @throws IOException if the file cannot be written, it is unchanged then
+     */
+    public long exportTo(File target, StorageFormat targetFormat) throws IOException {
+        // Taken before the tasks, a change in between is exported again next time
+        ChangeLog changes = changeLog.copy();
+        List<Task> snapshot = snapshot(tasks.values());
+        ObjectWriter writer = registryFor(targetFormat).taskWriter();
+        AtomicFileWriter.write(target, Compression.byExtension(target),
+                out -> TaskSchema.write(writer, out, snapshot, changes));
+        return changes.getSequence();
+    }
+
+    /**
+     * Write the tasks changed and deleted after a change number to a delta file
+     * @param since the number of the last change already backed up
+     * @param target the file to write, replaced if it exists
+     * @param targetFormat the format to write it in
+     * @return what the delta holds
+     * @throws IllegalArgumentException if the number is negative or after the last change
+     * @throws IOException if the file cannot be written, it is unchanged then
+     */
+    public Delta exportChangesSince(long since, File target, StorageFormat targetFormat)
+            throws IOException {
+        ChangeLog changes = changeLog.copy();
+        changes.checkSince(since);
+        List<Task> changed = new ArrayList<>();
+        for (Integer id : changes.changedSince(since)) {
+            Task task = tasks.get(id);
+            // Deleted after the log was copied, listed by the next delta
+            if (task != null) {
+                changed.add(task.copy());
+            }
+        }
+        List<Integer> deletedIds = changes.deletedSince(since);
+        ObjectWriter writer = registryFor(targetFormat).taskWriter();
+        AtomicFileWriter.write(target, Compression.byExtension(target),
+                out -> TaskSchema.writeDelta(writer, out, since, changes.getSequence(), changed,
+                        deletedIds));
+        return new Delta(since, changes.getSequence(), deletedIds, changed.size());
+    }
+
+    /**
+     * Apply a delta file written by {@link #exportChangesSince}: its tasks replace those
+     * with the same ids and its deleted tasks are removed. Deltas are applied in the
+     * order they were exported; applying one again changes nothing.
+     * @param source the delta file, in any format and compression
+     * @return what the delta held
+     * @throws IllegalArgumentException if the delta does not continue from the last one applied
+     * @throws IOException if the file cannot be read or is not a delta
+     */
+    public Delta applyChanges(File source) throws IOException {
+        return applyChanges(source, false);
+    }
+
+    /**
+     * Apply a delta file written by {@link #exportChangesSince}
+     * @param source the delta file, in any format and compression
+     * @param force whether to apply it even if it does not continue from the last one applied
+     * @return what the delta held
+     * @throws IllegalArgumentException if the delta does not continue from the last one
+     * applied and is not forced
+     * @throws IOException if the file cannot be read or is not a delta
+     */
+    public Delta applyChanges(File source, boolean force) throws IOException {
+        byte[] data = Compression.readAllBytes(source);
+        SerializationRegistry registry = registryFor(StorageFormat.detect(data));
+        TaskSchema.Header header = TaskSchema.readHeader(registry.taskArrayReader(), data);
+        if (header.getDelta() == null) {
+            throw new IOException("Not a delta file: " + source);
+        }
+        List<Task> changed;
+        if (header.getVersion() < TaskSchema.VERSION) {
+            // Deltas of older versions are upgraded too, their rejected tasks quarantined with
+            // the data file's
+            changed = TaskMigration.migrateDelta(registry.taskReader(), data, header.getVersion(),
+                    TaskMigration.quarantineFile(file)).getTasks();
+        } else {
+            changed = Arrays.asList(TaskSchema.readTasks(registry.taskArrayReader(), data));
+        }
+
+        List<Integer> removed = new ArrayList<>();
+        List<Task> applied = new ArrayList<>();
+        transactionLock.lock();
+        try {
+            if (!force) {
+                changeLog.checkApply(header.getDelta());
+            }
+            for (Integer id : header.getDelta().getDeletedIds()) {
+                if (tasks.remove(id) != null) {
+                    changeLog.recordDelete(id);
+                    touch(id);
+                    removed.add(id);
                 }
-                
-                // Skip tasks with invalid data
-                if (t.getId() <= 0 || t.getTopic() == null || t.getTopic().isEmpty()) {
+            }
+            for (Task task : changed) {
+                tasks.put(task.getId(), task);
+                touch(task.getId());
+                applied.add(task);
+                if (task.getId() >= nextId.get()) {
+                    nextId.set(task.getId() + 1);
+                }
+            }
+            // Instances are stored without the fields of their recurring task, which
+            // is in the delta too or unchanged here
+            for (Task task : applied) {
+                if (task.getParentTaskId() == null) {
                     continue;
                 }
-                
-                tasks.put(t.getId(), t);
-                if (t.getId() >= nextId.get()) {
-                    nextId.set(t.getId() + 1);
+                Task parent = tasks.get(task.getParentTaskId());
+                if (parent != null && parent.getParentTaskId() == null) {
+                    task.inheritFrom(TaskTemplate.of(parent));
                 }
             }
-        } catch (IOException e) {
-            System.err.println("Error loading tasks: " + e.getMessage());
-            tasks = new HashMap<>();
+            for (Task task : applied) {
+                changeLog.recordChange(task.getId());
+            }
+            changeLog.setApplied(header.getDelta().getSequence());
+            saveTasks();
+        } finally {
+            transactionLock.unlock();
+        }
+        for (ChangeListener listener : listeners) {
+            for (Integer id : removed) {
+                listener.taskDeleted(id);
+            }
         }
+        fireChanged(applied);
+        return header.getDelta().withChangedCount(applied.size());
     }
 
-    private void saveTasks() {
+    /**
+     * Replace all tasks, e.g. with those imported from another file
+     * @param imported the tasks to keep, with their IDs
+     * @param newFormat the format to write the data file in from now on
+     */
+    public void replaceAll(Collection<Task> imported, StorageFormat newFormat) {
+        List<Integer> removed;
+        transactionLock.lock();
         try {
-            if (!file.exists()) {
-                // Create parent directories if needed
-                File parentDir = file.getParentFile();
-                if (parentDir != null) {
-                    parentDir.mkdirs();
+            removed = new ArrayList<>(tasks.keySet());
+            Map<Integer, Task> replacement = new ConcurrentHashMap<>();
+            int maxId = 0;
+            for (Task task : imported) {
+                replacement.put(task.getId(), task);
+                maxId = Math.max(maxId, task.getId());
+            }
+            removed.removeAll(replacement.keySet());
+            tasks = replacement;
+            nextId.set(maxId + 1);
+            format = newFormat;
+            for (Integer id : removed) {
+                changeLog.recordDelete(id);
+                touch(id);
+            }
+            for (Integer id : replacement.keySet()) {
+                changeLog.recordChange(id);
+                touch(id);
+            }
+            changeLog.setApplied(-1);
+            saveTasks();
+        } finally {
+            transactionLock.unlock();
+        }
+        for (ChangeListener listener : listeners) {
+            for (Integer id : removed) {
+                listener.taskDeleted(id);
+            }
+        }
+        fireChanged(imported);
+    }
+
+    /**
+     * Link every recurrence instance to the template of its recurring task, so the
+     * instances of a series share one copy of the topic, description and priority in
+     * memory and store only what differs. Tasks just read are only linked: the file
+     * stores no more than what differs, and has no instance without its recurring task
+     * and a topic, both seen to once by {@link TaskMigration}. After a change, instances
+     * of a deleted recurring task are unlinked, instances that lost their topic that way
+     * are dropped, and instances whose stored fields change with their template count as
+     * changed.
+     * @param loaded whether the tasks were just read, with inherited fields still missing
+     */
+    private void linkTemplates(boolean loaded) {
+        Map<Integer, TaskTemplate> templates = new HashMap<>();
+        List<Integer> orphans = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (task.getParentTaskId() == null) {
+                continue;
+            }
+            Task parent = tasks.get(task.getParentTaskId());
+            if (parent == null || parent.getParentTaskId() != null) {
+                if (loaded) {
+                    continue;
+                }
+                if (task.getTemplate() != null) {
+                    task.useTemplate(null);
+                    changeLog.recordChange(task.getId());
+                }
+                if (task.getTopic() == null) {
+                    orphans.add(task.getId());
                 }
-                file.createNewFile();
+                continue;
             }
-            mapper.writeValue(file, tasks.values());
+            TaskTemplate current = task.getTemplate();
+            // Keep using the template instances already share while the recurring task is unchanged
+            TaskTemplate template = templates.computeIfAbsent(parent.getId(),
+                    id -> current != null && current.matches(parent)
+                            ? current : TaskTemplate.of(parent));
+            if (loaded) {
+                task.inheritFrom(template);
+            } else if (current != template) {
+                task.useTemplate(template);
+                changeLog.recordChange(task.getId());
+            }
+        }
+        for (Integer id : orphans) {
+            tasks.remove(id);
+            changeLog.recordDelete(id);
+            touch(id);
+        }
+    }
+
+    // Writes are serialized so concurrent mutations of different tasks never interleave in the file
+    private void saveTasks() {
+        transactionLock.lock();
+        try {
+            if (transactionDepth > 0) {
+                // Written once when the unit of work commits
+                dirty = true;
+                return;
+            }
+            checkWritable();
+            linkTemplates(false);
+            commitDataFile(prepareDataFile());
         } catch (IOException e) {
             System.err.println("Error saving tasks: " + e.getMessage());
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    /**
+     * Start deferring writes until the matching commit or rollback.
+     * Nested calls join the outermost transaction.
+     */
+    void beginTransaction() {
+        transactionLock.lock();
+        if (transactionDepth++ == 0) {
+            touched.clear();
+            rollbackNextId = nextId.get();
+            rollbackFormat = format;
+        }
+    }
+
+    // Called with the transaction lock held, for every task a change adds, replaces or removes
+    private void touch(int id) {
+        if (transactionDepth > 0) {
+            touched.add(id);
+        }
+    }
+
+    /**
+     * Write pending changes of the outermost transaction to a temporary file
+     * @return the prepared file, or null if there is nothing to write yet
+     */
+    File prepareCommit() throws IOException {
+        if (transactionDepth != 1 || !dirty) {
+            return null;
+        }
+        checkWritable();
+        linkTemplates(false);
+        return prepareDataFile();
+    }
+
+    /**
+     * End the current transaction, replacing the data file with the prepared one
+     * @param prepared the file returned by {@link #prepareCommit()}, may be null
+     * @throws IOException if the file cannot be replaced, the transaction stays open
+     *                     then and must be rolled back
+     */
+    void finishCommit(File prepared) throws IOException {
+        if (prepared != null) {
+            commitDataFile(prepared);
+        }
+        if (transactionDepth == 1) {
+            dirty = false;
+            touched.clear();
         }
+        transactionDepth--;
+        transactionLock.unlock();
+    }
+
+    /**
+     * End the current transaction. The outermost one puts back the tasks it saved,
+     * updated or deleted as the file holds them, and hands out its ids again; tasks it
+     * did not touch, including changes other threads made before it began, are kept.
+     * Change numbers are not taken back, a restored task counts as changed once more.
+     */
+    void rollbackTransaction() {
+        List<Task> restored = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        try {
+            if (transactionDepth == 1) {
+                dirty = false;
+                if (!touched.isEmpty()) {
+                    restoreTouched(restored, removed);
+                }
+                nextId.set(rollbackNextId);
+                format = rollbackFormat;
+                touched.clear();
+            }
+        } finally {
+            transactionDepth--;
+            transactionLock.unlock();
+        }
+        for (ChangeListener listener : listeners) {
+            for (Integer id : removed) {
+                listener.taskDeleted(id);
+            }
+        }
+        fireChanged(restored);
+    }
+
+    private void restoreTouched(List<Task> restored, List<Integer> removed) {
+        Map<Integer, Task> committed;
+        try {
+            committed = readCommitted();
+        } catch (IOException e) {
+            System.err.println("Error rolling back tasks, reloading all of them: "
+                    + e.getMessage());
+            loadTasks();
+            return;
+        }
+        for (Integer id : touched) {
+            Task task = committed.get(id);
+            if (task != null) {
+                tasks.put(id, task);
+                changeLog.recordChange(id);
+                restored.add(task);
+            } else if (tasks.remove(id) != null) {
+                changeLog.recordDelete(id);
+                removed.add(id);
+            }
+        }
+        // Restored instances are read without the fields of their recurring task
+        for (Task task : restored) {
+            Task parent = task.getParentTaskId() != null ? tasks.get(task.getParentTaskId()) : null;
+            if (parent != null && parent.getParentTaskId() == null) {
+                task.inheritFrom(TaskTemplate.of(parent));
+            }
+        }
+    }
+
+    // The tasks as the data file holds them, i.e. as last written
+    private Map<Integer, Task> readCommitted() throws IOException {
+        Map<Integer, Task> committed = new HashMap<>();
+        if (!file.exists()) {
+            return committed;
+        }
+        byte[] data = Compression.readAllBytes(file);
+        if (data.length == 0) {
+            return committed;
+        }
+        SerializationRegistry registry = registryFor(StorageFormat.detect(data));
+        int version = TaskSchema.readHeader(registry.taskArrayReader(), data).getVersion();
+        for (Task task : TaskSchema.readTasks(registry.taskArrayReader(), data)) {
+            // A file whose migration could not be written back holds older records
+            if (version >= TaskSchema.VERSION || TaskMigration.upgrade(task, version) == null) {
+                committed.put(task.getId(), task);
+            }
+        }
+        return committed;
     }
 
     public Task save(Task task) {
-        if (task.getId() == 0) {
-            task.setId(nextId.getAndIncrement());
+        transactionLock.lock();
+        try {
+            if (task.getId() == 0) {
+                task.setId(nextId.getAndIncrement());
+            }
+            tasks.put(task.getId(), task);
+            changeLog.recordChange(task.getId());
+            touch(task.getId());
+            saveTasks();
+        } finally {
+            transactionLock.unlock();
         }
-        tasks.put(task.getId(), task);
-        saveTasks();
+        fireChanged(List.of(task));
         return task;
     }
 
+    /**
+     * Save several tasks with a single file write.
+     * New tasks (id 0) get fresh ids, tasks with an id are stored as they are.
+     * @param batch the tasks to save
+     * @return the saved tasks in the given order
+     */
+    public List<Task> saveAll(Collection<Task> batch) {
+        transactionLock.lock();
+        try {
+            for (Task task : batch) {
+                if (task.getId() == 0) {
+                    task.setId(nextId.getAndIncrement());
+                }
+                tasks.put(task.getId(), task);
+                changeLog.recordChange(task.getId());
+                touch(task.getId());
+            }
+            saveTasks();
+        } finally {
+            transactionLock.unlock();
+        }
+        fireChanged(batch);
+        return new ArrayList<>(batch);
+    }
+
+    /**
+     * Reserve a block of consecutive ids for tasks saved later, e.g. by a bulk import
+     * @param count how many ids to reserve
+     * @return the first id of the block
+     */
+    public int reserveIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Cannot reserve a negative number of ids: " + count);
+        }
+        // Not while a unit of work runs, which may hand its ids out again
+        transactionLock.lock();
+        try {
+            return nextId.getAndAdd(count);
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
     public Optional<Task> findById(int id) {
         return Optional.ofNullable(tasks.get(id));
     }
@@ -113,8 +735,19 @@ public class TaskRepository {
     }
 
     public void delete(int id) {
-        tasks.remove(id);
-        saveTasks();
+        transactionLock.lock();
+        try {
+            if (tasks.remove(id) != null) {
+                changeLog.recordDelete(id);
+                touch(id);
+            }
+            saveTasks();
+        } finally {
+            transactionLock.unlock();
+        }
+        for (ChangeListener listener : listeners) {
+            listener.taskDeleted(id);
+        }
     }
 
     public void delete(String id) {
@@ -126,11 +759,46 @@ public class TaskRepository {
     }
 
     public Task update(Task task) {
-        if (!tasks.containsKey(task.getId())) {
-            throw new IllegalArgumentException("Task not found with id: " + task.getId());
+        transactionLock.lock();
+        try {
+            if (!tasks.containsKey(task.getId())) {
+                throw new IllegalArgumentException("Task not found with id: " + task.getId());
+            }
+            tasks.put(task.getId(), task);
+            changeLog.recordChange(task.getId());
+            touch(task.getId());
+            saveTasks();
+        } finally {
+            transactionLock.unlock();
         }
-        tasks.put(task.getId(), task);
-        saveTasks();
+        fireChanged(List.of(task));
         return task;
     }
+
+    /**
+     * Update several existing tasks with a single file write.
+     * Nothing is changed if any of the tasks does not exist.
+     * @param batch the tasks to update
+     * @return the updated tasks in the given order
+     */
+    public List<Task> updateAll(Collection<Task> batch) {
+        transactionLock.lock();
+        try {
+            for (Task task : batch) {
+                if (!tasks.containsKey(task.getId())) {
+                    throw new IllegalArgumentException("Task not found with id: " + task.getId());
+                }
+            }
+            for (Task task : batch) {
+                tasks.put(task.getId(), task);
+                changeLog.recordChange(task.getId());
+                touch(task.getId());
+            }
+            saveTasks();
+        } finally {
+            transactionLock.unlock();
+        }
+        fireChanged(batch);
+        return new ArrayList<>(batch);
+    }
 }
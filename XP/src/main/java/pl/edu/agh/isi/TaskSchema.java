@@ -0,0 +1,329 @@
+package pl.edu.agh.isi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+
+/**
+ * Layout of the tasks file.
+ * Version 2 is an object {"schema":2,"tasks":[...]} whose tasks use short field names,
+ * leave out empty and derived fields, and store dates as epoch seconds in UTC, with a
+ * fraction only when the date has one. Version 1 is a bare array of tasks with long
+ * field names and dates as [year,month,day,hour,minute,second,nanos] arrays. Both are
+ * read, version 1 through the field aliases on the model classes. Version 3 has the
+ * layout of version 2 and holds only records that went through {@link TaskMigration},
+ * so they are loaded without checks; older files are migrated and rewritten in the
+ * current version when loaded. It stores the comments the application adds as their
+ * template and argument, while comments of older files keep their text as written.
+ * Its instances store only the fields that differ from their recurring task, and an
+ * instance without its recurring task has a topic of its own; both are seen to once
+ * by {@link TaskMigration}, so loading only links instances to their recurring tasks.
+ * Files since version 2 keep their {@link ChangeLog} in a "changes" field before the
+ * tasks, and delta files have a "delta" field there instead, see {@link Delta}.
+ */
+final class TaskSchema {
+    static final int VERSION = 3;
+
+    private TaskSchema() {
+    }
+
+    /**
+     * Where the tasks of a file start, and in which version they are written
+     */
+    static final class Header {
+        private final int version;
+        private final int arrayOffset;
+        private final ChangeLog changes;
+        private final Delta delta;
+
+        private Header(int version, int arrayOffset, ChangeLog changes, Delta delta) {
+            this.version = version;
+            this.arrayOffset = arrayOffset;
+            this.changes = changes;
+            this.delta = delta;
+        }
+
+        int getVersion() {
+            return version;
+        }
+
+        /**
+         * Byte offset of the '[' opening the array of tasks
+         */
+        int getArrayOffset() {
+            return arrayOffset;
+        }
+
+        /**
+         * The change log of the file, null if it was written before change numbers were kept
+         */
+        ChangeLog getChanges() {
+            return changes;
+        }
+
+        /**
+         * The delta header, null unless the file is a delta
+         */
+        Delta getDelta() {
+            return delta;
+        }
+    }
+
+    /**
+     * The date encoding of the current version, register it after JavaTimeModule
+     */
+    static SimpleModule module() {
+        SimpleModule module = new SimpleModule("TaskSchema");
+        module.addSerializer(LocalDateTime.class, new EpochSerializer());
+        module.addDeserializer(LocalDateTime.class, new EpochDeserializer());
+        return module;
+    }
+
+    /**
+     * Find the version and the array of tasks of a file
+     * @param mapper the mapper the file is read with
+     * @param data the file content
+     * @throws IOException if the content is not a tasks file or has a newer version
+     */
+    static Header readHeader(ObjectMapper mapper, byte[] data) throws IOException {
+        return readHeader(mapper.reader(), data);
+    }
+
+    /**
+     * Find the version and the array of tasks of a file
+     * @param reader any reader of the format of the file
+     * @param data the file content
+     * @throws IOException if the content is not a tasks file or has a newer version
+     */
+    static Header readHeader(ObjectReader reader, byte[] data) throws IOException {
+        try (JsonParser parser = reader.createParser(data)) {
+            Header header = seekTasks(parser);
+            return new Header(header.version, offset(parser), header.changes, header.delta);
+        }
+    }
+
+    /**
+     * Read all tasks of a file with one parser. Binary formats such as Smile are read
+     * this way, since they cannot be parsed from the middle of a file.
+     * @param mapper the mapper for the format of the file
+     * @param data the file content
+     * @throws IOException if the content is not a tasks file or has a newer version
+     */
+    static Task[] readTasks(ObjectMapper mapper, byte[] data) throws IOException {
+        return readTasks(mapper.readerFor(Task[].class), data);
+    }
+
+    /**
+     * Read all tasks of a file with one parser
+     * @param arrayReader a reader of Task[] for the format of the file
+     * @param data the file content
+     * @throws IOException if the content is not a tasks file or has a newer version
+     */
+    static Task[] readTasks(ObjectReader arrayReader, byte[] data) throws IOException {
+        try (JsonParser parser = arrayReader.createParser(data)) {
+            seekTasks(parser);
+            return arrayReader.readValue(parser);
+        }
+    }
+
+    /**
+     * Open a parser on the array of tasks of a file, for reading them one at a time
+     * @param reader any reader of the format of the file
+     * @param data the file content
+     * @return the parser, on the start of the array
+     * @throws IOException if the content is not a tasks file or has a newer version
+     */
+    static JsonParser openTasks(ObjectReader reader, byte[] data) throws IOException {
+        JsonParser parser = reader.createParser(data);
+        try {
+            seekTasks(parser);
+            return parser;
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    // Moves the parser to the start of the array of tasks and returns the header without the offset
+    private static Header seekTasks(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return new Header(1, 0, null, null);
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected an array or object of tasks");
+        }
+        int version = 0;
+        ChangeLog changes = null;
+        Delta delta = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("schema".equals(name)) {
+                version = parser.getIntValue();
+            } else if ("changes".equals(name) && value == JsonToken.START_OBJECT) {
+                changes = ChangeLog.read(parser);
+            } else if ("delta".equals(name) && value == JsonToken.START_OBJECT) {
+                delta = ChangeLog.readDelta(parser);
+            } else if ("tasks".equals(name) && value == JsonToken.START_ARRAY) {
+                if (version < 2) {
+                    throw new IOException("Missing schema version before the tasks");
+                }
+                if (version > VERSION) {
+                    throw new IOException("Tasks file has schema version " + version
+                            + ", this version reads up to " + VERSION);
+                }
+                return new Header(version, 0, changes, delta);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        throw new IOException("No tasks found in the tasks file");
+    }
+
+    private static int offset(JsonParser parser) {
+        return (int) parser.getTokenLocation().getByteOffset();
+    }
+
+    /**
+     * Write tasks in the current version
+     * @param mapper a mapper with {@link #module()} registered
+     * @param out the stream to write to, closed afterwards
+     * @param tasks the tasks to write
+     */
+    static void write(ObjectMapper mapper, OutputStream out, Collection<Task> tasks)
+            throws IOException {
+        write(mapper.writerFor(Task.class), out, tasks);
+    }
+
+    /**
+     * Write tasks in the current version
+     * @param writer a writer of Task from a mapper with {@link #module()} registered
+     * @param out the stream to write to, closed afterwards
+     * @param tasks the tasks to write
+     */
+    static void write(ObjectWriter writer, OutputStream out, Collection<Task> tasks)
+            throws IOException {
+        write(writer, out, tasks, null);
+    }
+
+    /**
+     * Write tasks in the current version with their change log
+     * @param writer a writer of Task from a mapper with {@link #module()} registered
+     * @param out the stream to write to, closed afterwards
+     * @param tasks the tasks to write
+     * @param changes the change log of the tasks, may be null
+     */
+    static void write(ObjectWriter writer, OutputStream out, Collection<Task> tasks,
+            ChangeLog changes) throws IOException {
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeNumberField("schema", VERSION);
+            if (changes != null) {
+                generator.writeFieldName("changes");
+                changes.write(generator);
+            }
+            writeTasks(writer, generator, tasks);
+        }
+    }
+
+    /**
+     * Write a delta in the current version
+     * @param writer a writer of Task from a mapper with {@link #module()} registered
+     * @param out the stream to write to, closed afterwards
+     * @param since the number of the last change the delta leaves out
+     * @param sequence the number of the last change the delta holds
+     * @param changed the tasks changed since then
+     * @param deletedIds the tasks deleted since then
+     */
+    static void writeDelta(ObjectWriter writer, OutputStream out, long since, long sequence,
+            Collection<Task> changed, List<Integer> deletedIds) throws IOException {
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeNumberField("schema", VERSION);
+            generator.writeFieldName("delta");
+            ChangeLog.writeDelta(generator, since, sequence, deletedIds);
+            writeTasks(writer, generator, changed);
+        }
+    }
+
+    private static void writeTasks(ObjectWriter writer, JsonGenerator generator,
+            Collection<Task> tasks) throws IOException {
+        generator.writeFieldName("tasks");
+        generator.writeStartArray();
+        for (Task task : tasks) {
+            writer.writeValue(generator, task);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static final class EpochSerializer extends StdSerializer<LocalDateTime> {
+        private static final long serialVersionUID = 1L;
+
+        EpochSerializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator,
+                SerializerProvider provider) throws IOException {
+            long seconds = value.toEpochSecond(ZoneOffset.UTC);
+            if (value.getNano() == 0) {
+                generator.writeNumber(seconds);
+                return;
+            }
+            BigDecimal exact = BigDecimal.valueOf(seconds)
+                    .add(BigDecimal.valueOf(value.getNano(), 9))
+                    .stripTrailingZeros();
+            if (generator.canWriteBinaryNatively()) {
+                // Binary formats such as Smile store the decimal itself
+                generator.writeNumber(exact);
+            } else {
+                generator.writeNumber(exact.toPlainString());
+            }
+        }
+    }
+
+    private static final class EpochDeserializer extends StdDeserializer<LocalDateTime> {
+        private static final long serialVersionUID = 1L;
+
+        EpochDeserializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context)
+                throws IOException {
+            if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                return LocalDateTime.ofEpochSecond(parser.getLongValue(), 0, ZoneOffset.UTC);
+            }
+            if (parser.hasToken(JsonToken.VALUE_NUMBER_FLOAT)) {
+                BigDecimal exact = parser.getDecimalValue();
+                BigDecimal seconds = exact.setScale(0, RoundingMode.FLOOR);
+                int nanos = exact.subtract(seconds).movePointRight(9).intValue();
+                return LocalDateTime.ofEpochSecond(seconds.longValueExact(), nanos, ZoneOffset.UTC);
+            }
+            // Version 1 arrays, or ISO strings
+            return LocalDateTimeDeserializer.INSTANCE.deserialize(parser, context);
+        }
+    }
+}
@@ -1,28 +1,34 @@
 package pl.edu.agh.isi;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 public class TaskService {
     private final TaskRepository taskRepository;
     private FamilyMemberService familyMemberService;
     private RecurringTaskService recurringTaskService;
+    private TaskLockManager lockManager;
 
     public TaskService(TaskRepository taskRepository) {
         this.taskRepository = taskRepository;
+        this.lockManager = taskRepository.getLockManager();
     }
     
     public TaskService(TaskRepository taskRepository, FamilyMemberService familyMemberService) {
-        this.taskRepository = taskRepository;
+        this(taskRepository);
         this.familyMemberService = familyMemberService;
     }
     
     public TaskService(TaskRepository taskRepository, FamilyMemberService familyMemberService, 
             RecurringTaskService recurringTaskService) {
-        this.taskRepository = taskRepository;
+        this(taskRepository);
         this.familyMemberService = familyMemberService;
         this.recurringTaskService = recurringTaskService;
     }
@@ -34,6 +40,18 @@ public class TaskService {
     public void setRecurringTaskService(RecurringTaskService recurringTaskService) {
         this.recurringTaskService = recurringTaskService;
     }
+    
+    /**
+     * Replace the lock manager of the repository, e.g. with one shared with code
+     * that does not go through the repository
+     */
+    public void setLockManager(TaskLockManager lockManager) {
+        this.lockManager = lockManager;
+    }
+    
+    public TaskLockManager getLockManager() {
+        return lockManager;
+    }
 
     public Task createTask(String topic, LocalDateTime dueDate, String description) {
         if (topic == null || topic.trim().isEmpty()) {
@@ -43,7 +61,8 @@ public class TaskService {
         return taskRepository.save(task);
     }
     
-    public Task createTask(String topic, LocalDateTime dueDate, String description, TaskPriority priority) {
+    public Task createTask(String topic, LocalDateTime dueDate, String description,
+            TaskPriority priority) {
         if (topic == null || topic.trim().isEmpty()) {
             throw new IllegalArgumentException("Topic cannot be empty");
         }
@@ -51,7 +70,8 @@ public class TaskService {
         return taskRepository.save(task);
     }
     
-    public Task createTask(String topic, LocalDateTime dueDate, String description, int priorityLevel) {
+    public Task createTask(String topic, LocalDateTime dueDate, String description,
+            int priorityLevel) {
         return createTask(topic, dueDate, description, TaskPriority.fromLevel(priorityLevel));
     }
     
@@ -64,7 +84,8 @@ public class TaskService {
             throw new IllegalStateException("RecurringTaskService is not set");
         }
         
-        return recurringTaskService.createRecurringTask(topic, dueDate, description, priority, recurrenceConfig);
+        return recurringTaskService.createRecurringTask(topic, dueDate, description, priority,
+                recurrenceConfig);
     }
     
     /**
@@ -182,23 +203,39 @@ public class TaskService {
     }
     
     /**
-     * Returns recurrence instances (tasks that are part of a recurring sequence)
+     * Returns recurrence instances (tasks that are part of a recurring sequence),
+     * including compacted ones rebuilt from series histories
      */
     public List<Task> getRecurrenceInstances() {
-        return taskRepository.findAll().stream()
+        List<Task> all = taskRepository.findAll();
+        List<Task> instances = all.stream()
                 .filter(Task::isRecurrenceInstance)
                 .collect(Collectors.toList());
+        for (Task task : all) {
+            if (task.getSeriesHistory() != null) {
+                instances.addAll(task.getSeriesHistory().toTasks(task));
+            }
+        }
+        return instances;
     }
     
     /**
-     * Returns recurrence instances for a specific parent task
+     * Returns recurrence instances for a specific parent task,
+     * including compacted ones rebuilt from its series history
      */
     public List<Task> getRecurrenceInstancesForParent(int parentTaskId) {
-        return taskRepository.findAll().stream()
+        List<Task> all = taskRepository.findAll();
+        List<Task> instances = all.stream()
                 .filter(task -> task.isRecurrenceInstance() && 
                        task.getParentTaskId() != null && 
                        task.getParentTaskId() == parentTaskId)
                 .collect(Collectors.toList());
+        for (Task task : all) {
+            if (task.getId() == parentTaskId && task.getSeriesHistory() != null) {
+                instances.addAll(0, task.getSeriesHistory().toTasks(task));
+            }
+        }
+        return instances;
     }
 
     public void deleteTask(int id) {
@@ -210,18 +247,23 @@ public class TaskService {
     }
 
     public Task updateTask(int id, String topic, LocalDateTime dueDate, String description) {
-        Task task = taskRepository.findById(id)
-            .orElseThrow(() -> new IllegalArgumentException("Task not found with id: " + id));
+        return lockManager.withLock(id, () -> {
+            Task task = taskRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Task not found with id: " + id));
         
-        if (topic != null) {
-            task.setTopic(topic);
-        }
-        if (dueDate != null) {
-            task.setDueDate(dueDate);
-        }
-        task.setDescription(description);
+            // Under the task's own lock, so a concurrent save writes the edit whole
+            synchronized (task) {
+                if (topic != null) {
+                    task.setTopic(topic);
+                }
+                if (dueDate != null) {
+                    task.setDueDate(dueDate);
+                }
+                task.setDescription(description);
+            }
         
-        return taskRepository.update(task);
+            return taskRepository.update(task);
+        });
     }
 
     public Task updateTask(String id, String topic, LocalDateTime dueDate, String description) {
@@ -233,15 +275,24 @@ public class TaskService {
     }
     
     public Task setPriority(int id, TaskPriority priority) {
-        Task task = taskRepository.findById(id)
-            .orElseThrow(() -> new IllegalArgumentException("Task not found with id: " + id));
+        return lockManager.withLock(id, () -> {
+            Task task = taskRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Task not found with id: " + id));
         
-        task.setPriority(priority);
+            task.setPriority(priority);
         
-        return taskRepository.update(task);
+            return taskRepository.update(task);
+        });
     }
     
+    /**
+     * Sets the priority of a task given by its ID, or by "PARENT_ID#NUMBER" for an upcoming
+     * instance of a recurring task, which is saved with the change
+     */
     public Task setPriority(String id, TaskPriority priority) {
+        if (isInstanceReference(id)) {
+            return changeInstance(id, instanceId -> setPriority(instanceId, priority));
+        }
         try {
             return setPriority(Integer.parseInt(id), priority);
         } catch (NumberFormatException e) {
@@ -258,10 +309,17 @@ public class TaskService {
     }
     
     public Task markTaskAsCompleted(int id, String completionComment) {
+        // The parent, its next instance and the instance comment are committed as one write
+        return lockManager.withLock(id, () -> 
+            new UnitOfWork(taskRepository, null)
+                    .execute(() -> completeTask(id, completionComment)));
+    }
+    
+    private Task completeTask(int id, String completionComment) {
         Task task = taskRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Task not found with id: " + id));
         
-        task.setCompleted(true);
+        task.setCompletion(LocalDateTime.now());
         
         if (completionComment != null && !completionComment.trim().isEmpty()) {
             Comment comment = new Comment(completionComment);
@@ -273,10 +331,12 @@ public class TaskService {
         // If this is a recurring task and recurringTaskService is set,
         // generate the next instance
         if (updatedTask.isRecurring() && recurringTaskService != null) {
-            Optional<Task> nextInstance = recurringTaskService.generateNextInstance(updatedTask.getId());
+            Optional<Task> nextInstance =
+                    recurringTaskService.generateNextInstance(updatedTask.getId());
             if (nextInstance.isPresent()) {
                 Task newTask = nextInstance.get();
-                Comment comment = new Comment("Generated as part of recurring task #" + updatedTask.getId());
+                Comment comment = Comment.fromTemplate(CommentTemplate.GENERATED,
+                        String.valueOf(updatedTask.getId()));
                 newTask.addComment(comment);
                 taskRepository.update(newTask);
             }
@@ -285,7 +345,15 @@ public class TaskService {
         return updatedTask;
     }
     
+    /**
+     * Marks a task given by its ID, or by "PARENT_ID#NUMBER" for an upcoming instance
+     * of a recurring task, as completed; the instance is saved with the change
+     */
     public Task markTaskAsCompleted(String id, String completionComment) {
+        if (isInstanceReference(id)) {
+            return changeInstance(id,
+                instanceId -> markTaskAsCompleted(instanceId, completionComment));
+        }
         try {
             return markTaskAsCompleted(Integer.parseInt(id), completionComment);
         } catch (NumberFormatException e) {
@@ -294,17 +362,19 @@ public class TaskService {
     }
     
     public Task reopenTask(int id, String reopenComment) {
-        Task task = taskRepository.findById(id)
-            .orElseThrow(() -> new IllegalArgumentException("Task not found with id: " + id));
+        return lockManager.withLock(id, () -> {
+            Task task = taskRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Task not found with id: " + id));
         
-        task.setCompleted(false);
+            task.setCompletion(null);
         
-        if (reopenComment != null && !reopenComment.trim().isEmpty()) {
-            Comment comment = new Comment(reopenComment);
-            task.addComment(comment);
-        }
+            if (reopenComment != null && !reopenComment.trim().isEmpty()) {
+                Comment comment = new Comment(reopenComment);
+                task.addComment(comment);
+            }
         
-        return taskRepository.update(task);
+            return taskRepository.update(task);
+        });
     }
     
     public Task reopenTask(String id, String reopenComment) {
@@ -325,37 +395,47 @@ public class TaskService {
      *                                  or if the task is already assigned
      */
     public Task assignTask(int taskId, int familyMemberId) {
-        if (familyMemberService == null) {
-            throw new IllegalStateException("FamilyMemberService is not set");
-        }
+        return lockManager.withLock(taskId, () -> {
+            if (familyMemberService == null) {
+                throw new IllegalStateException("FamilyMemberService is not set");
+            }
         
-        // Verify task exists
-        Task task = taskRepository.findById(taskId)
-            .orElseThrow(() -> new IllegalArgumentException("Task not found with ID: " + taskId));
+            // Verify task exists
+            Task task = taskRepository.findById(taskId)
+                .orElseThrow(() ->
+                        new IllegalArgumentException("Task not found with ID: " + taskId));
         
-        // Check if task is already assigned
-        if (task.getAssignedTo() != null && !task.getAssignedTo().isEmpty()) {
-            throw new IllegalArgumentException("Task is already assigned to someone");
-        }
+            // Check if task is already assigned
+            if (task.getAssignedTo() != null && !task.getAssignedTo().isEmpty()) {
+                throw new IllegalArgumentException("Task is already assigned to someone");
+            }
         
-        // Verify family member exists
-        FamilyMember member = familyMemberService.getFamilyMember(familyMemberId)
-            .orElseThrow(() -> new IllegalArgumentException("Family member not found with ID: " + familyMemberId));
+            // Verify family member exists
+            FamilyMember member = familyMemberService.getFamilyMember(familyMemberId)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Family member not found with ID: " + familyMemberId));
         
-        // Assign the task
-        task.setAssignedTo(String.valueOf(member.getId()));
+            // Assign the task
+            task.setAssignedTo(StringPool.intern(String.valueOf(member.getId())));
         
-        // Add a comment for the assignment
-        Comment comment = new Comment("Task assigned to " + member.getName());
-        task.addComment(comment);
+            // Add a comment for the assignment
+            Comment comment = Comment.fromTemplate(CommentTemplate.ASSIGNED, member.getName());
+            task.addComment(comment);
         
-        return taskRepository.update(task);
+            return taskRepository.update(task);
+        });
     }
     
     /**
-     * Assigns a task to a family member using string IDs
+     * Assigns a task to a family member using string IDs.
+     * The task may be given as "PARENT_ID#NUMBER" for an upcoming instance of a recurring
+     * task, which is saved with the assignment.
      */
     public Task assignTask(String taskId, String familyMemberId) {
+        if (isInstanceReference(taskId)) {
+            int memberId = parseId(familyMemberId);
+            return changeInstance(taskId, instanceId -> assignTask(instanceId, memberId));
+        }
         try {
             return assignTask(Integer.parseInt(taskId), Integer.parseInt(familyMemberId));
         } catch (NumberFormatException e) {
@@ -367,43 +447,49 @@ public class TaskService {
      * Unassigns a task from a family member
      */
     public Task unassignTask(int taskId) {
-        // Verify task exists
-        Task task = taskRepository.findById(taskId)
-            .orElseThrow(() -> new IllegalArgumentException("Task not found with ID: " + taskId));
+        return lockManager.withLock(taskId, () -> {
+            // Verify task exists
+            Task task = taskRepository.findById(taskId)
+                .orElseThrow(() ->
+                        new IllegalArgumentException("Task not found with ID: " + taskId));
         
-        // Check if task is assigned
-        if (task.getAssignedTo() == null || task.getAssignedTo().isEmpty()) {
-            throw new IllegalArgumentException("Task is not assigned to anyone");
-        }
+            // Check if task is assigned
+            if (task.getAssignedTo() == null || task.getAssignedTo().isEmpty()) {
+                throw new IllegalArgumentException("Task is not assigned to anyone");
+            }
         
-        // Get the member's name for the comment if possible
-        String memberName = "someone";
-        if (familyMemberService != null) {
-            try {
-                int memberId = Integer.parseInt(task.getAssignedTo());
-                Optional<FamilyMember> member = familyMemberService.getFamilyMember(memberId);
-                if (member.isPresent()) {
-                    memberName = member.get().getName();
+            // Get the member's name for the comment if possible
+            String memberName = "someone";
+            if (familyMemberService != null) {
+                try {
+                    int memberId = Integer.parseInt(task.getAssignedTo());
+                    Optional<FamilyMember> member = familyMemberService.getFamilyMember(memberId);
+                    if (member.isPresent()) {
+                        memberName = member.get().getName();
+                    }
+                } catch (Exception ignored) {
+                    // Ignore any errors in getting member name
                 }
-            } catch (Exception ignored) {
-                // Ignore any errors in getting member name
             }
-        }
         
-        // Unassign the task
-        task.setAssignedTo(null);
+            // Unassign the task
+            task.setAssignedTo(null);
         
-        // Add a comment for the unassignment
-        Comment comment = new Comment("Task unassigned from " + memberName);
-        task.addComment(comment);
+            // Add a comment for the unassignment
+            Comment comment = Comment.fromTemplate(CommentTemplate.UNASSIGNED, memberName);
+            task.addComment(comment);
         
-        return taskRepository.update(task);
+            return taskRepository.update(task);
+        });
     }
     
     /**
-     * Unassigns a task using string ID
+     * Unassigns a task using string ID, or "PARENT_ID#NUMBER" for an instance of a recurring task
      */
     public Task unassignTask(String taskId) {
+        if (isInstanceReference(taskId)) {
+            return changeInstance(taskId, this::unassignTask);
+        }
         try {
             return unassignTask(Integer.parseInt(taskId));
         } catch (NumberFormatException e) {
@@ -411,11 +497,178 @@ public class TaskService {
         }
     }
     
+    /**
+     * Creates several tasks with a single write to the repository
+     * 
+     * @param newTasks The tasks to create, all of them must be new and have a topic
+     * @return The created tasks with their assigned IDs
+     * @throws IllegalArgumentException if any of the tasks is invalid, nothing is created then
+     */
+    public List<Task> createAll(List<Task> newTasks) {
+        for (Task task : newTasks) {
+            if (task.getTopic() == null || task.getTopic().trim().isEmpty()) {
+                throw new IllegalArgumentException("Topic cannot be empty");
+            }
+            if (task.getId() != 0) {
+                throw new IllegalArgumentException("Task already has an ID: " + task.getId());
+            }
+        }
+        // The IDs are taken up front, so the new tasks are locked before anybody can see them
+        int firstId = taskRepository.reserveIds(newTasks.size());
+        List<Integer> ids = new ArrayList<>(newTasks.size());
+        for (Task task : newTasks) {
+            task.setId(firstId + ids.size());
+            ids.add(task.getId());
+        }
+        return lockManager.withLocks(ids, () -> taskRepository.saveAll(newTasks));
+    }
+    
+    /**
+     * Marks several tasks as completed with a single write to the repository.
+     * Next instances of recurring tasks are written in the same batch.
+     * 
+     * @param ids The IDs of the tasks to complete
+     * @param completionComment Optional comment added to every task
+     * @return The completed tasks
+     * @throws IllegalArgumentException if any of the tasks is not found, nothing is changed then
+     */
+    public List<Task> completeAll(Collection<Integer> ids, String completionComment) {
+        return lockManager.withLocks(ids, () -> {
+            List<Task> tasks = findAllOrThrow(ids);
+            List<Task> changed = new ArrayList<>(tasks);
+            
+            LocalDateTime now = LocalDateTime.now();
+            for (Task task : tasks) {
+                task.setCompletion(now);
+                if (completionComment != null && !completionComment.trim().isEmpty()) {
+                    task.addComment(new Comment(completionComment));
+                }
+                if (task.isRecurring() && recurringTaskService != null) {
+                    recurringTaskService.createNextInstance(task).ifPresent(newTask -> {
+                        newTask.addComment(Comment.fromTemplate(CommentTemplate.GENERATED,
+                                String.valueOf(task.getId())));
+                        changed.add(newTask);
+                    });
+                }
+            }
+            
+            taskRepository.saveAll(changed);
+            return tasks;
+        });
+    }
+    
+    /**
+     * Assigns several tasks to a family member with a single write to the repository
+     * 
+     * @param taskIds The IDs of the tasks to assign
+     * @param familyMemberId The ID of the family member
+     * @return The updated tasks
+     * @throws IllegalArgumentException if the family member or any task is not found,
+     *                                  or if any task is already assigned; nothing is changed then
+     */
+    public List<Task> assignAll(Collection<Integer> taskIds, int familyMemberId) {
+        if (familyMemberService == null) {
+            throw new IllegalStateException("FamilyMemberService is not set");
+        }
+        
+        return lockManager.withLocks(taskIds, () -> {
+            // Looked up under the locks, like assignTask does
+            FamilyMember member = familyMemberService.getFamilyMember(familyMemberId)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Family member not found with ID: " + familyMemberId));
+            
+            List<Task> tasks = findAllOrThrow(taskIds);
+            
+            List<Integer> alreadyAssigned = new ArrayList<>();
+            for (Task task : tasks) {
+                if (task.getAssignedTo() != null && !task.getAssignedTo().isEmpty()) {
+                    alreadyAssigned.add(task.getId());
+                }
+            }
+            if (!alreadyAssigned.isEmpty()) {
+                throw new IllegalArgumentException("Tasks are already assigned to someone: "
+                        + alreadyAssigned);
+            }
+            
+            for (Task task : tasks) {
+                task.setAssignedTo(StringPool.intern(String.valueOf(member.getId())));
+                task.addComment(Comment.fromTemplate(CommentTemplate.ASSIGNED, member.getName()));
+            }
+            
+            return taskRepository.updateAll(tasks);
+        });
+    }
+    
+    /**
+     * Sets the priority of several tasks with a single write to the repository
+     * 
+     * @param ids The IDs of the tasks
+     * @param priority The new priority
+     * @return The updated tasks
+     * @throws IllegalArgumentException if any of the tasks is not found, nothing is changed then
+     */
+    public List<Task> setPriorityAll(Collection<Integer> ids, TaskPriority priority) {
+        return lockManager.withLocks(ids, () -> {
+            List<Task> tasks = findAllOrThrow(ids);
+            for (Task task : tasks) {
+                task.setPriority(priority);
+            }
+            return taskRepository.updateAll(tasks);
+        });
+    }
+    
+    private static boolean isInstanceReference(String id) {
+        return id != null && id.indexOf('#') > 0;
+    }
+    
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ID format: " + id);
+        }
+    }
+    
+    // An upcoming instance has no ID to lock yet, so one is reserved and locked together with
+    // the recurring task. Saving the instance and changing it is then a single write, over
+    // this service's repository, which a separate service could not see before it is saved.
+    private Task changeInstance(String reference, IntFunction<Task> change) {
+        RecurringTaskService recurring = new RecurringTaskService(taskRepository);
+        int[] parsed = RecurringTaskService.parseInstanceReference(reference);
+        Optional<Task> saved = recurring.findInstance(parsed[0], parsed[1]);
+        if (saved.isPresent()) {
+            return change.apply(saved.get().getId());
+        }
+        int id = taskRepository.reserveIds(1);
+        return lockManager.withLocks(List.of(parsed[0], id), () ->
+            new UnitOfWork(taskRepository, null).execute(() ->
+                change.apply(recurring.persistInstance(parsed[0], parsed[1], id).getId())));
+    }
+    
+    // Resolves every ID before anything is modified, so a bulk operation is all or nothing
+    private List<Task> findAllOrThrow(Collection<Integer> ids) {
+        List<Task> tasks = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int id : new LinkedHashSet<>(ids)) {
+            Optional<Task> task = taskRepository.findById(id);
+            if (task.isPresent()) {
+                tasks.add(task.get());
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Tasks not found with IDs: " + missing);
+        }
+        return tasks;
+    }
+    
     /**
      * Gets the name of the family member assigned to a task
      */
     public Optional<String> getAssignedFamilyMemberName(Task task) {
-        if (task.getAssignedTo() == null || task.getAssignedTo().isEmpty() || familyMemberService == null) {
+        if (task.getAssignedTo() == null || task.getAssignedTo().isEmpty()
+                || familyMemberService == null) {
             return Optional.empty();
         }
         
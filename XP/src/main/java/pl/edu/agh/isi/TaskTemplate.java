@@ -0,0 +1,49 @@
+package pl.edu.agh.isi;
+
+import java.util.Objects;
+
+/**
+ * The topic, description and priority a recurring task hands down to its instances.
+ * A template is immutable, so all instances of a series share one, and each instance
+ * keeps only the fields in which it differs. A recurring task that is edited gets a new
+ * template, instances linked to the old one keep their values as overrides.
+ */
+final class TaskTemplate {
+    private final String topic;
+    private final String description;
+    private final TaskPriority priority;
+
+    private TaskTemplate(String topic, String description, TaskPriority priority) {
+        this.topic = topic;
+        this.description = description;
+        this.priority = priority;
+    }
+
+    /**
+     * Take the current template fields of a recurring task
+     */
+    static TaskTemplate of(Task task) {
+        return new TaskTemplate(task.getTopic(), task.getDescription(), task.getPriority());
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    TaskPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Check if a task still has the fields this template was taken from
+     */
+    boolean matches(Task task) {
+        return Objects.equals(topic, task.getTopic())
+                && Objects.equals(description, task.getDescription())
+                && priority == task.getPriority();
+    }
+}
@@ -0,0 +1,117 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Groups changes to the task and family member stores into one commit.
+ * While the work runs, repository writes are only collected in memory. On success
+ * every changed store is serialized to a temporary file first, and only then are the
+ * data files replaced, the tasks before the family members, each by an atomic rename.
+ * A failure while writing, or while replacing the tasks file, leaves every store
+ * unchanged and rolls the work back. The two renames are not atomic together: if the
+ * family members file cannot be replaced after the tasks file was, the task changes
+ * stay committed and only the family member changes are rolled back.
+ * If the work throws, the tasks it changed are put back as the tasks file holds them
+ * and the family members are read again.
+ * Task locks from {@link TaskLockManager} must be taken before a unit of work starts,
+ * never inside it, to keep a single lock order.
+ */
+public class UnitOfWork {
+    private final TaskRepository taskRepository;
+    private final FamilyMemberRepository familyMemberRepository;
+
+    /**
+     * Create a unit of work over the given repositories
+     * @param taskRepository the task repository, may be null
+     * @param familyMemberRepository the family member repository, may be null
+     */
+    public UnitOfWork(TaskRepository taskRepository, FamilyMemberRepository familyMemberRepository) {
+        this.taskRepository = taskRepository;
+        this.familyMemberRepository = familyMemberRepository;
+    }
+
+    /**
+     * Run the work and commit its changes, or roll them back if it throws
+     * @param work the work to run
+     * @return the result of the work
+     * @throws UncheckedIOException if the changes cannot be written, they are rolled back then
+     *                              except for task changes already written, see above
+     */
+    public <T> T execute(Supplier<T> work) {
+        begin();
+        T result;
+        try {
+            result = work.get();
+        } catch (RuntimeException | Error e) {
+            rollback();
+            throw e;
+        }
+        commit();
+        return result;
+    }
+
+    /**
+     * Run the work and commit its changes, or roll them back if it throws
+     * @param work the work to run
+     */
+    public void execute(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Stores are always locked in the same order, so two units of work cannot deadlock
+    private void begin() {
+        if (taskRepository != null) {
+            taskRepository.beginTransaction();
+        }
+        if (familyMemberRepository != null) {
+            familyMemberRepository.beginTransaction();
+        }
+    }
+
+    private void commit() {
+        File preparedTasks = null;
+        File preparedMembers = null;
+        try {
+            if (taskRepository != null) {
+                preparedTasks = taskRepository.prepareCommit();
+            }
+            if (familyMemberRepository != null) {
+                preparedMembers = familyMemberRepository.prepareCommit();
+            }
+            if (taskRepository != null) {
+                taskRepository.finishCommit(preparedTasks);
+            }
+        } catch (IOException e) {
+            AtomicFileWriter.discard(preparedTasks);
+            AtomicFileWriter.discard(preparedMembers);
+            rollback();
+            throw new UncheckedIOException("Could not write changes, they were rolled back", e);
+        }
+
+        if (familyMemberRepository != null) {
+            try {
+                familyMemberRepository.finishCommit(preparedMembers);
+            } catch (IOException e) {
+                AtomicFileWriter.discard(preparedMembers);
+                familyMemberRepository.rollbackTransaction();
+                throw new UncheckedIOException(
+                        "Task changes were written, family member changes were rolled back", e);
+            }
+        }
+    }
+
+    private void rollback() {
+        if (familyMemberRepository != null) {
+            familyMemberRepository.rollbackTransaction();
+        }
+        if (taskRepository != null) {
+            taskRepository.rollbackTransaction();
+        }
+    }
+}
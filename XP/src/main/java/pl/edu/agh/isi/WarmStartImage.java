@@ -0,0 +1,200 @@
+package pl.edu.agh.isi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.zip.CRC32C;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * The tasks of a data file as the repository last wrote it, kept next to it so the next
+ * process can start from them instead of decompressing and parsing the data file again.
+ * The image is written with the data file, from the same content, and is Smile holding
+ * the tasks as written, with their change log and the format of the data file, behind
+ * the size, modification time and CRC32C checksum of the data file it was made from:
+ * {"image":1,"schema":3,"size":S,"modified":M,"crc":C,"format":"json",
+ * "changes":{...},"tasks":[...]}.
+ * It is used only while all three still match the data file, so a file changed by
+ * another process, an editor or a restore is always read again. Deleting an image only
+ * makes the next start slower.
+ */
+final class WarmStartImage {
+    static final String EXTENSION = ".cache";
+    // Changed with the fields of the image, images of other versions are not read
+    private static final int IMAGE_VERSION = 1;
+
+    private final File file;
+
+    /**
+     * @param dataFile the data file the image is kept for
+     */
+    WarmStartImage(File dataFile) {
+        this.file = new File(dataFile.getAbsoluteFile().getParentFile(),
+                dataFile.getName() + EXTENSION);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * What an image holds
+     */
+    static final class Contents {
+        private final StorageFormat format;
+        private final ChangeLog changes;
+        private final Task[] tasks;
+
+        private Contents(StorageFormat format, ChangeLog changes, Task[] tasks) {
+            this.format = format;
+            this.changes = changes;
+            this.tasks = tasks;
+        }
+
+        /**
+         * The format of the data file, not of the image
+         */
+        StorageFormat getFormat() {
+            return format;
+        }
+
+        ChangeLog getChanges() {
+            return changes;
+        }
+
+        Task[] getTasks() {
+            return tasks;
+        }
+    }
+
+    /**
+     * Read the image if it was made from the data file as it is stored now.
+     * A stale image is given up on after its first fields.
+     * @param stored the content of the data file as stored, compressed or not
+     * @param modified the modification time of the data file, taken before its content was read
+     * @return what the image holds, or null if there is no image or it does not match
+     */
+    Contents read(byte[] stored, long modified) {
+        if (!file.isFile()) {
+            return null;
+        }
+        SerializationRegistry registry = SerializationRegistry.of(StorageFormat.SMILE);
+        try (JsonParser parser = registry.taskArrayReader().createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            boolean matches = false;
+            StorageFormat format = null;
+            ChangeLog changes = null;
+            Task[] tasks = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                switch (name) {
+                    case "image":
+                        if (parser.getIntValue() != IMAGE_VERSION) {
+                            return null;
+                        }
+                        break;
+                    case "schema":
+                        if (parser.getIntValue() != TaskSchema.VERSION) {
+                            return null;
+                        }
+                        break;
+                    case "size":
+                        if (parser.getLongValue() != stored.length) {
+                            return null;
+                        }
+                        break;
+                    case "modified":
+                        if (parser.getLongValue() != modified) {
+                            return null;
+                        }
+                        break;
+                    case "crc":
+                        if (parser.getLongValue() != checksum(stored)) {
+                            return null;
+                        }
+                        matches = true;
+                        break;
+                    case "format":
+                        format = StorageFormat.fromName(parser.getText());
+                        break;
+                    case "changes":
+                    case "tasks":
+                        // The checks come first, nothing is read from a stale image
+                        if (!matches) {
+                            return null;
+                        }
+                        if ("changes".equals(name)) {
+                            changes = ChangeLog.read(parser);
+                        } else {
+                            tasks = registry.taskArrayReader().readValue(parser);
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (format == null || changes == null || tasks == null) {
+                return null;
+            }
+            return new Contents(format, changes, tasks);
+        } catch (IOException | IllegalArgumentException e) {
+            // A damaged image only means reading the data file
+            return null;
+        }
+    }
+
+    /**
+     * Write the image of tasks just written to the data file, replacing the previous one
+     * @param stored the content of the data file as stored, the tasks were written as
+     * @param modified the modification time of the data file once it was written
+     * @param format the format of the data file
+     * @param tasks the tasks as written
+     * @param changes the change log as written
+     * @throws IOException if the image cannot be written, the previous one is unchanged then
+     */
+    void write(byte[] stored, long modified, StorageFormat format, Collection<Task> tasks,
+            ChangeLog changes) throws IOException {
+        ObjectWriter writer = SerializationRegistry.of(StorageFormat.SMILE).taskWriter();
+        long crc = checksum(stored);
+        AtomicFileWriter.write(file, out -> {
+            try (JsonGenerator generator = writer.createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeNumberField("image", IMAGE_VERSION);
+                generator.writeNumberField("schema", TaskSchema.VERSION);
+                generator.writeNumberField("size", stored.length);
+                generator.writeNumberField("modified", modified);
+                generator.writeNumberField("crc", crc);
+                generator.writeStringField("format", format.getName());
+                generator.writeFieldName("changes");
+                changes.write(generator);
+                generator.writeFieldName("tasks");
+                generator.writeStartArray();
+                for (Task task : tasks) {
+                    writer.writeValue(generator, task);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        });
+    }
+
+    /**
+     * Remove the image, e.g. once the data file is too small to need one
+     */
+    void delete() {
+        file.delete();
+    }
+
+    private static long checksum(byte[] stored) {
+        CRC32C crc = new CRC32C();
+        crc.update(stored);
+        return crc.getValue();
+    }
+}
@@ -9,8 +9,8 @@ import java.io.File;
 import java.util.concurrent.Callable;
 
 import pl.edu.agh.isi.FamilyMember;
-import pl.edu.agh.isi.FamilyMemberRepository;
 import pl.edu.agh.isi.FamilyMemberService;
+import pl.edu.agh.isi.RepositoryScope;
 
 @Command(
     name = "add-member",
@@ -53,8 +53,7 @@ public class AddFamilyMemberCommand implements Callable<Integer> {
     
     // Protected method for better testability
     protected FamilyMemberService createFamilyMemberService(File file) {
-        FamilyMemberRepository repository = new FamilyMemberRepository(file);
-        return new FamilyMemberService(repository);
+        return RepositoryScope.familyMemberService(file);
     }
     
     private void showExamples() {
@@ -0,0 +1,134 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+
+import pl.edu.agh.isi.Agenda;
+import pl.edu.agh.isi.RecurringTaskService;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.Task;
+
+@Command(
+    name = "agenda",
+    description = "Show every task and recurring occurrence due within a date range",
+    mixinStandardHelpOptions = false
+)
+public class AgendaCommand implements Callable<Integer> {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter DAY_HEADING_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd EEEE");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    @Parameters(index = "0", description = "Start of the range (format: yyyy-MM-dd or yyyy-MM-dd HH:mm)")
+    protected String fromStr;
+
+    @Parameters(index = "1", description = "End of the range, inclusive (format: yyyy-MM-dd or yyyy-MM-dd HH:mm)")
+    protected String toStr;
+
+    @Option(names = {"-a", "--all"},
+            description = "Include completed tasks and compacted occurrences")
+    protected boolean showAll = false;
+
+    @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            LocalDateTime from;
+            LocalDateTime to;
+            try {
+                from = parse(fromStr, LocalTime.MIN);
+                to = parse(toStr, LocalTime.MAX);
+            } catch (DateTimeParseException e) {
+                System.err.println("Error: Invalid date format. Use yyyy-MM-dd or yyyy-MM-dd HH:mm");
+                return 1;
+            }
+
+            // Printed as produced, the range is never held in memory
+            Iterator<Task> entries = createAgenda(tasksFile).between(from, to, showAll);
+            LocalDate day = null;
+            long count = 0;
+            while (entries.hasNext()) {
+                Task task = entries.next();
+                LocalDate taskDay = task.getDueDate().toLocalDate();
+                if (!taskDay.equals(day)) {
+                    if (day != null) {
+                        System.out.println();
+                    }
+                    System.out.println(taskDay.format(DAY_HEADING_FORMATTER));
+                    day = taskDay;
+                }
+                System.out.printf("  %s  %-8s %-3s %s%s%n",
+                        task.getDueDate().format(TIME_FORMATTER),
+                        RecurringTaskService.instanceReference(task),
+                        task.getPriority().getSymbol(),
+                        task.isCompleted() ? "✓ " : "",
+                        task.getTopic());
+                count++;
+            }
+
+            if (count == 0) {
+                System.out.println("Nothing due between " + from.format(DATE_TIME_FORMATTER)
+                        + " and " + to.format(DATE_TIME_FORMATTER));
+            } else {
+                System.out.println();
+                System.out.println("Total: " + count + " occurrence(s)");
+                System.out.println("Occurrences shown as PARENT_ID#NUMBER are not saved yet, e.g. complete 3#2 saves and completes one");
+            }
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    private static LocalDateTime parse(String value, LocalTime timeOfDay) {
+        String trimmed = value.trim();
+        if (trimmed.length() == 10) {
+            return LocalDate.parse(trimmed, DATE_FORMATTER).atTime(timeOfDay);
+        }
+        return LocalDateTime.parse(trimmed, DATE_TIME_FORMATTER);
+    }
+
+    // Protected method for better testability
+    protected Agenda createAgenda(File file) {
+        return new Agenda(RepositoryScope.taskRepository(file));
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: agenda FROM TO [-a]");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  agenda 2025-03-01 2025-03-31             - Everything due in March 2025");
+        System.out.println("  agenda 2025-01-01 2025-12-31 -a          - The whole year, including completed tasks");
+        System.out.println("  agenda \"2025-03-10 08:00\" \"2025-03-10 12:00\" - One morning");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -a, --all                                Include completed tasks and compacted occurrences");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
@@ -5,14 +5,15 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 
 import pl.edu.agh.isi.FamilyMember;
-import pl.edu.agh.isi.FamilyMemberRepository;
 import pl.edu.agh.isi.FamilyMemberService;
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
-import pl.edu.agh.isi.TaskRepository;
 import pl.edu.agh.isi.TaskService;
 
 @Command(
@@ -22,7 +23,7 @@ import pl.edu.agh.isi.TaskService;
 )
 public class AssignTaskCommand implements Callable<Integer> {
     
-    @Parameters(index = "0", description = "Task ID", arity = "1")
+    @Parameters(index = "0", description = "Task ID, list (1,4,9) or range (10-200)", arity = "1")
     protected String taskId;
     
     @Parameters(index = "1", description = "Family member ID", arity = "1")
@@ -51,6 +52,20 @@ public class AssignTaskCommand implements Callable<Integer> {
             // Set the familyMemberService in the taskService
             taskService.setFamilyMemberService(familyMemberService);
             
+            if (TaskIdParser.isBulk(taskId)) {
+                return assignAll(taskService, familyMemberService);
+            }
+            
+            // An upcoming instance of a recurring task is saved by the service, with the change
+            if (TaskIdParser.isInstanceReference(taskId)) {
+                Task task = taskService.assignTask(taskId, familyMemberId);
+                String memberName = taskService.getAssignedFamilyMemberName(task)
+                    .orElse(familyMemberId);
+                System.out.println("Task '" + task.getTopic() + "' (ID: " + task.getId()
+                    + ") assigned to " + memberName);
+                return 0;
+            }
+            
             // First check if the task exists
             Optional<Task> taskOpt = taskService.getTask(taskId);
             if (!taskOpt.isPresent()) {
@@ -90,11 +105,26 @@ public class AssignTaskCommand implements Callable<Integer> {
         }
     }
     
+    private Integer assignAll(TaskService taskService, FamilyMemberService familyMemberService) {
+        Optional<FamilyMember> memberOpt = familyMemberService.getFamilyMember(familyMemberId);
+        if (!memberOpt.isPresent()) {
+            System.err.println("Error: Family member with ID " + familyMemberId + " not found");
+            return 1;
+        }
+        
+        List<Integer> ids = TaskIdParser.parse(Collections.singletonList(taskId));
+        List<Task> tasks = taskService.assignAll(ids, memberOpt.get().getId());
+        System.out.println(tasks.size() + " task(s) assigned to " + memberOpt.get().getName());
+        return 0;
+    }
+    
     private void showExamples() {
-        System.out.println("Usage: assign TASK_ID FAMILY_MEMBER_ID");
+        System.out.println("Usage: assign TASK_IDS FAMILY_MEMBER_ID");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  assign 1 2        - Assign task with ID 1 to family member with ID 2");
+        System.out.println("  assign 1,4,9 2    - Assign tasks 1, 4 and 9 to family member with ID 2");
+        System.out.println("  assign 10-20 2    - Assign tasks 10 to 20 to family member with ID 2");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -h, --help        Show this help message");
@@ -102,12 +132,10 @@ public class AssignTaskCommand implements Callable<Integer> {
     
     // Protected methods for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
     
     protected FamilyMemberService createFamilyMemberService(File file) {
-        FamilyMemberRepository repository = new FamilyMemberRepository(file);
-        return new FamilyMemberService(repository);
+        return RepositoryScope.familyMemberService(file);
     }
 } 
\ No newline at end of file
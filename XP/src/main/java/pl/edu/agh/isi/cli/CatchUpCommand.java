@@ -0,0 +1,77 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import pl.edu.agh.isi.RecurringTaskService;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.Task;
+
+@Command(
+    name = "catch-up",
+    description = "Generate instances of recurring tasks missed while the application was not running",
+    mixinStandardHelpOptions = false
+)
+public class CatchUpCommand implements Callable<Integer> {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Option(names = {"-l", "--latest-only"}, description = "Create only the most recent missed instance of each series")
+    protected boolean latestOnly;
+
+    @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            RecurringTaskService service = createRecurringTaskService(tasksFile);
+            List<Task> created = service.catchUp(LocalDateTime.now(), latestOnly);
+
+            for (Task task : created) {
+                System.out.println("Created '" + task.getTopic() + "' (ID: " + task.getId() + ") due "
+                        + task.getDueDate().format(DATE_FORMATTER));
+            }
+            System.out.println(created.size() + " missed instance(s) generated");
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    // Protected method for better testability
+    protected RecurringTaskService createRecurringTaskService(File file) {
+        return new RecurringTaskService(RepositoryScope.taskRepository(file));
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: catch-up [-l]");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  catch-up                                 - Create every missed instance of all recurring tasks");
+        System.out.println("  catch-up -l                              - Create only the latest missed instance of each series");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -l, --latest-only                        Skip older missed instances, noting how many in a comment");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
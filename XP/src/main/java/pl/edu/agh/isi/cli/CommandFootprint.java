@@ -0,0 +1,71 @@
+package pl.edu.agh.isi.cli;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Works out which tasks a command line changes, so the script runner knows
+ * which lines may run at the same time.
+ */
+final class CommandFootprint {
+    // Options of task commands that take a value, which must not be read as a task ID
+    private static final Set<String> VALUE_OPTIONS = Set.of(
+            "-c", "--comment", "-n", "--occurrences", "-e", "--end-date", "--every", "--on", "--nth");
+
+    private CommandFootprint() {
+    }
+
+    /**
+     * Get the IDs of the tasks a command line touches
+     * @param args the command line arguments, starting with the command name
+     * @return the task IDs, or null if the footprint is unknown and the line must
+     *         run alone, e.g. for create, list, member and config commands
+     */
+    static Set<Integer> of(String[] args) {
+        if (args.length < 2) {
+            return null;
+        }
+        boolean allPositionals;
+        switch (args[0]) {
+            case "complete":
+                allPositionals = true;
+                break;
+            case "reopen":
+            case "assign":
+            case "unassign":
+            case "set-priority":
+            case "set-recurring":
+                allPositionals = false;
+                break;
+            default:
+                return null;
+        }
+
+        List<String> specs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (VALUE_OPTIONS.contains(arg)) {
+                i++;
+            } else if (arg.startsWith("-")) {
+                int eq = arg.indexOf('=');
+                if (eq < 0 || !VALUE_OPTIONS.contains(arg.substring(0, eq))) {
+                    // Other data files or help output: run the line alone
+                    return null;
+                }
+            } else if (allPositionals || specs.isEmpty()) {
+                specs.add(arg);
+            }
+        }
+        if (specs.isEmpty()) {
+            return null;
+        }
+        try {
+            return new LinkedHashSet<>(TaskIdParser.parse(specs));
+        } catch (IllegalArgumentException e) {
+            // The command reports the error itself
+            return null;
+        }
+    }
+}
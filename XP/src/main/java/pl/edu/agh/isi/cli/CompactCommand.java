@@ -0,0 +1,76 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Callable;
+
+import pl.edu.agh.isi.RecurringTaskService;
+import pl.edu.agh.isi.RepositoryScope;
+
+@Command(
+    name = "compact",
+    description = "Fold old completed instances of recurring tasks into series histories",
+    mixinStandardHelpOptions = false
+)
+public class CompactCommand implements Callable<Integer> {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Option(names = {"-d", "--days"}, description = "Compact instances due more than this many days ago", defaultValue = "90")
+    protected int days;
+
+    @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            if (days < 0) {
+                System.err.println("Error: Number of days cannot be negative");
+                return 1;
+            }
+
+            LocalDateTime threshold = LocalDateTime.now().minusDays(days);
+            int compacted = createRecurringTaskService(tasksFile).compact(threshold);
+            System.out.println(compacted + " completed instance(s) due before " + threshold.format(DATE_FORMATTER)
+                    + " compacted");
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    // Protected method for better testability
+    protected RecurringTaskService createRecurringTaskService(File file) {
+        return new RecurringTaskService(RepositoryScope.taskRepository(file));
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: compact [-d DAYS]");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  compact                                  - Compact completed instances due over 90 days ago");
+        System.out.println("  compact -d 0                             - Compact all completed instances");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -d, --days DAYS                          Age in days of the instances to compact (default 90)");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
@@ -6,10 +6,12 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
-import pl.edu.agh.isi.TaskRepository;
 import pl.edu.agh.isi.TaskService;
 
 @Command(
@@ -19,9 +21,12 @@ import pl.edu.agh.isi.TaskService;
 )
 public class CompleteTaskCommand implements Callable<Integer> {
     
-    @Parameters(index = "0", description = "Task ID", arity = "1")
+    @Parameters(index = "0", description = "Task ID, list (1,4,9) or range (10-200)", arity = "1")
     protected String id;
     
+    @Parameters(index = "1..*", description = "More task IDs, lists or ranges", arity = "0..*")
+    protected List<String> moreIds = new ArrayList<>();
+    
     @Option(names = {"-c", "--comment"}, description = "Completion comment")
     protected String comment;
     
@@ -41,7 +46,12 @@ public class CompleteTaskCommand implements Callable<Integer> {
             
             TaskService service = createTaskService(tasksFile);
             
-            if (service.getTask(id).isPresent()) {
+            if (TaskIdParser.isBulk(id) || (moreIds != null && !moreIds.isEmpty())) {
+                return completeAll(service);
+            }
+            
+            // An upcoming instance of a recurring task is saved by the service, with the change
+            if (TaskIdParser.isInstanceReference(id) || service.getTask(id).isPresent()) {
                 Task task = service.markTaskAsCompleted(id, comment);
                 System.out.println("Task '" + task.getTopic() + "' (ID: " + task.getId() + ") marked as completed");
                 if (comment != null && !comment.trim().isEmpty()) {
@@ -62,18 +72,35 @@ public class CompleteTaskCommand implements Callable<Integer> {
         }
     }
     
+    private Integer completeAll(TaskService service) {
+        List<String> specs = new ArrayList<>();
+        specs.add(id);
+        if (moreIds != null) {
+            specs.addAll(moreIds);
+        }
+        
+        List<Task> tasks = service.completeAll(TaskIdParser.parse(specs), comment);
+        System.out.println(tasks.size() + " task(s) marked as completed");
+        if (comment != null && !comment.trim().isEmpty()) {
+            System.out.println("Added comment: " + comment);
+        }
+        return 0;
+    }
+    
     // Protected method for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
     
     private void showExamples() {
-        System.out.println("Usage: complete TASK_ID [-c \"Comment\"]");
+        System.out.println("Usage: complete TASK_ID... [-c \"Comment\"]");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  complete 1                               - Mark task 1 as completed");
         System.out.println("  complete 2 -c \"Fixed the issue\"          - Mark task 2 as completed with a comment");
+        System.out.println("  complete 3 5 8                           - Mark tasks 3, 5 and 8 as completed");
+        System.out.println("  complete 10-200                          - Mark tasks 10 to 200 as completed");
+        System.out.println("  complete 3#2                             - Complete upcoming instance 2 of recurring task 3");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -c, --comment \"text\"                    Add a completion comment");
@@ -35,6 +35,12 @@ public class ConfigCommand implements Callable<Integer> {
     @Option(names = {"-d", "--debug"}, description = "Enable debug mode")
     private Boolean debugMode;
     
+    @Option(names = {"-v", "--virtual-days"}, description = "Show unsaved recurring instances this many days ahead in list, 0 to disable")
+    private Integer virtualInstanceDays;
+    
+    @Option(names = {"-z", "--compress"}, description = "Write data files compressed with GZIP")
+    private Boolean compressStorage;
+    
     @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
     private boolean helpRequested = false;
     
@@ -70,6 +76,18 @@ public class ConfigCommand implements Callable<Integer> {
                 System.out.println("Debug mode " + (debugMode ? "enabled" : "disabled"));
             }
             
+            if (virtualInstanceDays != null) {
+                config.setVirtualInstanceDays(virtualInstanceDays);
+                System.out.println(virtualInstanceDays == 0 ? "Virtual recurring instances disabled"
+                    : "Virtual recurring instances shown " + virtualInstanceDays + " day(s) ahead");
+            }
+            
+            if (compressStorage != null) {
+                config.setCompressStorage(compressStorage);
+                System.out.println(compressStorage ? "Data files will be written compressed"
+                    : "Data files will be written uncompressed, except .gz files");
+            }
+            
             // Save if requested
             if (saveConfig) {
                 boolean saved = config.saveConfig(configFile);
@@ -83,7 +101,8 @@ public class ConfigCommand implements Callable<Integer> {
             
             // If no specific action was requested, display the current config
             if (!saveConfig && !resetConfig && tasksFilePath == null && 
-                familyMembersFilePath == null && debugMode == null) {
+                familyMembersFilePath == null && debugMode == null && virtualInstanceDays == null &&
+                compressStorage == null) {
                 displayConfig(config);
             }
             
@@ -102,13 +121,15 @@ public class ConfigCommand implements Callable<Integer> {
         System.out.println("Database URL: " + config.getDbUrl());
         System.out.println("Debug mode: " + (config.isEnableDebugMode() ? "Enabled" : "Disabled"));
         System.out.println("Log level: " + config.getLogLevel());
+        System.out.println("Virtual recurring instances (days ahead): " + config.getVirtualInstanceDays());
+        System.out.println("Compressed storage: " + (config.isCompressStorage() ? "Enabled" : "Disabled"));
         System.out.println("Session timeout (minutes): " + config.getSessionTimeoutMinutes());
         System.out.println("Admin username: " + config.getAdminUsername());
         System.out.println("Admin password: " + (config.getAdminPassword().isEmpty() ? "Not set" : "********"));
     }
     
     private void showExamples() {
-        System.out.println("Usage: config [-s] [-r] [-t PATH] [-m PATH] [-d true|false]");
+        System.out.println("Usage: config [-s] [-r] [-t PATH] [-m PATH] [-d true|false] [-v DAYS] [-z true|false]");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  config                       - Display current configuration");
@@ -116,6 +137,8 @@ public class ConfigCommand implements Callable<Integer> {
         System.out.println("  config -r                    - Reset configuration to defaults");
         System.out.println("  config -t custom_tasks.json  - Set tasks file path");
         System.out.println("  config -d true               - Enable debug mode");
+        System.out.println("  config -v 14 -s              - List recurring instances 14 days ahead without saving them");
+        System.out.println("  config -z true -s            - Compress tasks and members files from the next save");
         System.out.println("  config -r -s                 - Reset to defaults and save");
         System.out.println();
         System.out.println("Options:");
@@ -125,6 +148,8 @@ public class ConfigCommand implements Callable<Integer> {
         System.out.println("  -t, --tasks-file PATH        Set the tasks file path");
         System.out.println("  -m, --members-file PATH      Set the family members file path");
         System.out.println("  -d, --debug true|false       Enable or disable debug mode");
+        System.out.println("  -v, --virtual-days DAYS      Days ahead to show unsaved recurring instances in list");
+        System.out.println("  -z, --compress true|false    Write data files compressed with GZIP");
         System.out.println("  -h, --help                   Show this help message");
     }
 } 
\ No newline at end of file
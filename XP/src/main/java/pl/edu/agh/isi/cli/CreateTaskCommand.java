@@ -11,6 +11,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.concurrent.Callable;
 
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
 import pl.edu.agh.isi.TaskPriority;
 import pl.edu.agh.isi.TaskRepository;
@@ -49,6 +50,15 @@ public class CreateTaskCommand implements Callable<Integer> {
     @Option(names = {"-e", "--end-date"}, description = "End date for recurrence (format: yyyy-MM-dd HH:mm)")
     protected String endDateStr;
     
+    @Option(names = {"--every"}, description = "Repeat every N days, weeks or months (for recurring tasks)")
+    protected Integer every;
+    
+    @Option(names = {"--on"}, description = "Weekdays, e.g. MON,WED,FRI (for recurring tasks)")
+    protected String weekdays;
+    
+    @Option(names = {"--nth"}, description = "Week of the month for MONTHLY with --on (1-4, -1 for the last)")
+    protected Integer weekOfMonth;
+    
     @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
     protected File tasksFile;
     
@@ -63,7 +73,7 @@ public class CreateTaskCommand implements Callable<Integer> {
                 return 0;
             }
             
-            TaskRepository repository = new TaskRepository(tasksFile);
+            TaskRepository repository = RepositoryScope.taskRepository(tasksFile);
             TaskService service = createTaskService(tasksFile);
             
             // Set up RecurringTaskService if needed
@@ -139,6 +149,7 @@ public class CreateTaskCommand implements Callable<Integer> {
                 } else {
                     config = new RecurrenceConfig(interval);
                 }
+                RecurrenceOptions.apply(config, every, weekdays, weekOfMonth);
                 
                 task = service.createRecurringTask(topic, dueDate, description, priority, config);
                 System.out.println("Recurring task created successfully with ID: " + task.getId());
@@ -163,7 +174,7 @@ public class CreateTaskCommand implements Callable<Integer> {
     }
     
     private void showExamples() {
-        System.out.println("Usage: create \"Task Topic\" [-d \"YYYY-MM-DD HH:MM\"] [-i \"Description\"] [-p PRIORITY] [-r INTERVAL] [-n OCCURRENCES] [-e \"END_DATE\"]");
+        System.out.println("Usage: create \"Task Topic\" [-d \"YYYY-MM-DD HH:MM\"] [-i \"Description\"] [-p PRIORITY] [-r INTERVAL] [-n OCCURRENCES] [-e \"END_DATE\"] [--every N] [--on DAYS] [--nth N]");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  create \"Clean kitchen\"                       - Create a simple task");
@@ -180,12 +191,14 @@ public class CreateTaskCommand implements Callable<Integer> {
         System.out.println("  -r, --recurring INTERVAL          Set recurrence (DAILY, WEEKLY, MONTHLY)");
         System.out.println("  -n, --occurrences NUMBER          Limit the number of recurrences");
         System.out.println("  -e, --end-date \"YYYY-MM-DD HH:MM\" Set an end date for recurrences");
+        System.out.println("  --every N                         Repeat every N days, weeks or months");
+        System.out.println("  --on DAYS                         Weekdays for WEEKLY, or the weekday for MONTHLY with --nth");
+        System.out.println("  --nth N                           Week of the month (1-4, -1 for the last)");
         System.out.println("  -h, --help                        Show this help message");
     }
     
     // Protected method for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
 } 
\ No newline at end of file
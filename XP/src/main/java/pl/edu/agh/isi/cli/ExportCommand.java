@@ -0,0 +1,118 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import pl.edu.agh.isi.Delta;
+import pl.edu.agh.isi.FamilyMemberRepository;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.StorageFormat;
+import pl.edu.agh.isi.TaskRepository;
+
+@Command(
+    name = "export",
+    description = "Write tasks or family members to another file, as JSON or Smile",
+    mixinStandardHelpOptions = false
+)
+public class ExportCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "File to write, compressed with GZIP if its name ends with .gz", arity = "1")
+    protected File output;
+
+    @Option(names = {"-F", "--format"}, description = "Format of the file: json or smile", defaultValue = "json")
+    protected String format;
+
+    @Option(names = {"-m", "--members"}, description = "Export family members instead of tasks")
+    protected boolean members = false;
+
+    @Option(names = {"-s", "--since"}, description = "Export only what changed after this change number")
+    protected Long since;
+
+    @Option(names = {"-f", "--task-file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"--member-file"}, description = "Family members data file", defaultValue = "family_members.json", hidden = true)
+    protected File familyMembersFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            StorageFormat storageFormat = StorageFormat.fromName(format);
+            String records = members ? "family member(s)" : "task(s)";
+            if (since != null) {
+                Delta delta = members
+                        ? createFamilyMemberRepository(familyMembersFile).exportChangesSince(since, output, storageFormat)
+                        : createTaskRepository(tasksFile).exportChangesSince(since, output, storageFormat);
+                System.out.println(delta.getChangedCount() + " changed and " + delta.getDeletedCount() + " deleted "
+                        + records + " since change " + since + " exported to " + output + " as " + storageFormat.getName());
+                System.out.println("Next time export with --since " + delta.getSequence());
+                return 0;
+            }
+
+            int count;
+            long sequence;
+            if (members) {
+                FamilyMemberRepository repository = createFamilyMemberRepository(familyMembersFile);
+                sequence = repository.exportTo(output, storageFormat);
+                count = repository.findAll().size();
+            } else {
+                TaskRepository repository = createTaskRepository(tasksFile);
+                sequence = repository.exportTo(output, storageFormat);
+                count = repository.findAll().size();
+            }
+            System.out.println(count + " " + records + " exported to " + output + " as " + storageFormat.getName());
+            System.out.println("Export later changes with --since " + sequence);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Error writing " + output + ": " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    // Protected methods for better testability
+    protected TaskRepository createTaskRepository(File file) {
+        return RepositoryScope.taskRepository(file);
+    }
+
+    protected FamilyMemberRepository createFamilyMemberRepository(File file) {
+        return RepositoryScope.familyMemberRepository(file);
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: export OUTPUT [-F FORMAT] [-m] [-s SEQ]");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  export backup.json                       - Export all tasks as JSON");
+        System.out.println("  export tasks.sml -F smile                - Export all tasks in the binary Smile format");
+        System.out.println("  export backup.json.gz                    - Export all tasks as GZIP compressed JSON");
+        System.out.println("  export members.json -m                   - Export all family members");
+        System.out.println("  export changes.json.gz -s 120            - Export only tasks changed or deleted after change 120");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -F, --format FORMAT                      Format of the file: json or smile (default json)");
+        System.out.println("  -m, --members                            Export family members instead of tasks");
+        System.out.println("  -s, --since SEQ                          Export only what changed after change SEQ, as printed");
+        System.out.println("                                           by the previous export; import applies it on top");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
@@ -0,0 +1,164 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import pl.edu.agh.isi.Delta;
+import pl.edu.agh.isi.FamilyMember;
+import pl.edu.agh.isi.FamilyMemberRepository;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.StorageFormat;
+import pl.edu.agh.isi.Task;
+import pl.edu.agh.isi.TaskRepository;
+
+@Command(
+    name = "import",
+    description = "Replace tasks or family members with those of another file, or add tasks from CSV or JSON Lines",
+    mixinStandardHelpOptions = false
+)
+public class ImportCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "File to read, its format and compression are detected", arity = "1")
+    protected File input;
+
+    @Option(names = {"-F", "--format"}, description = "Format to keep the data file in from now on: json or smile")
+    protected String format;
+
+    @Option(names = {"-m", "--members"}, description = "Import family members instead of tasks")
+    protected boolean members = false;
+
+    @Option(names = {"--force"}, description = "Apply a delta even if it does not continue from the last one applied")
+    protected boolean force = false;
+
+    @Option(names = {"-b", "--batch-size"}, description = "Rows saved at once when adding tasks from CSV or JSON Lines",
+            defaultValue = "" + TaskRowImporter.DEFAULT_BATCH_SIZE)
+    protected int batchSize;
+
+    @Option(names = {"-f", "--task-file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"--member-file"}, description = "Family members data file", defaultValue = "family_members.json", hidden = true)
+    protected File familyMembersFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            if (!input.isFile()) {
+                System.err.println("Error: File not found: " + input);
+                return 1;
+            }
+            StorageFormat newFormat = format != null ? StorageFormat.fromName(format) : null;
+
+            if (TaskRowReader.isRowFile(input)) {
+                if (members || newFormat != null) {
+                    System.err.println("Error: CSV and JSON Lines files add tasks, -m and -F are not used");
+                    return 1;
+                }
+                TaskRowImporter importer = new TaskRowImporter(createTaskRepository(tasksFile), batchSize,
+                        System.out, System.err);
+                TaskRowImporter.Summary summary;
+                try (TaskRowReader reader = TaskRowReader.open(input)) {
+                    summary = importer.importRows(reader);
+                }
+                System.out.printf("%d task(s) added from %s in %d batch(es), %d row(s) rejected, %.0f rows/s%n",
+                        summary.getImported(), input, summary.getBatches(), summary.getRejected(),
+                        summary.getRowsPerSecond());
+                return summary.getRejected() > 0 ? 1 : 0;
+            }
+
+            if (Delta.isDeltaFile(input)) {
+                if (newFormat != null) {
+                    System.err.println("Error: A delta is applied to the data file in its current format, -F is not used");
+                    return 1;
+                }
+                Delta delta = members
+                        ? createFamilyMemberRepository(familyMembersFile).applyChanges(input, force)
+                        : createTaskRepository(tasksFile).applyChanges(input, force);
+                System.out.println(delta.getChangedCount() + " changed and " + delta.getDeletedCount() + " deleted "
+                        + (members ? "family member(s)" : "task(s)") + " applied from " + input
+                        + " (changes " + (delta.getSince() + 1) + " to " + delta.getSequence() + ")");
+                return 0;
+            }
+
+            if (members) {
+                List<FamilyMember> imported = new FamilyMemberRepository(input).findAll();
+                FamilyMemberRepository repository = createFamilyMemberRepository(familyMembersFile);
+                StorageFormat target = newFormat != null ? newFormat : repository.getStorageFormat();
+                repository.replaceAll(imported, target);
+                System.out.println(imported.size() + " family member(s) imported from " + input
+                        + ", stored as " + target.getName());
+            } else {
+                List<Task> imported = new TaskRepository(input).findAll();
+                TaskRepository repository = createTaskRepository(tasksFile);
+                StorageFormat target = newFormat != null ? newFormat : repository.getStorageFormat();
+                repository.replaceAll(imported, target);
+                System.out.println(imported.size() + " task(s) imported from " + input
+                        + ", stored as " + target.getName());
+            }
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Error reading " + input + ": " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    // Protected methods for better testability
+    protected TaskRepository createTaskRepository(File file) {
+        return RepositoryScope.taskRepository(file);
+    }
+
+    protected FamilyMemberRepository createFamilyMemberRepository(File file) {
+        return RepositoryScope.familyMemberRepository(file);
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: import INPUT [-F FORMAT] [-m] [-b SIZE] [--force]");
+        System.out.println();
+        System.out.println("The current tasks or family members are replaced by those of INPUT.");
+        System.out.println("A delta written by export --since is applied on top of them instead,");
+        System.out.println("deltas are applied in the order they were exported. A delta that does not");
+        System.out.println("continue from the last one applied is refused unless --force is given.");
+        System.out.println("Tasks of a CSV (.csv) or JSON Lines (.jsonl, .ndjson) file are added with new IDs.");
+        System.out.println("Their fields are named after the options of create: topic, due, description,");
+        System.out.println("priority, recurring, occurrences, end, every, on and nth; a CSV file names them");
+        System.out.println("in its first line. Rows are checked like create, invalid ones are reported and skipped.");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  import backup.json                       - Restore tasks from a backup");
+        System.out.println("  import backup.json -F smile              - Restore tasks and keep them as Smile from now on");
+        System.out.println("  import backup.json.gz                    - Restore tasks from a compressed backup");
+        System.out.println("  import members.json -m                   - Restore family members");
+        System.out.println("  import changes.json.gz                   - Apply the changes of a delta to the tasks");
+        System.out.println("  import chores.csv -b 1000                - Add the tasks of a CSV file, 1000 rows at a time");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -F, --format FORMAT                      Format to keep the data file in: json or smile");
+        System.out.println("                                           (default: the format it is in now)");
+        System.out.println("  -m, --members                            Import family members instead of tasks");
+        System.out.println("      --force                              Apply a delta out of order");
+        System.out.println("  -b, --batch-size SIZE                    Rows saved at once from CSV or JSON Lines (default "
+                + TaskRowImporter.DEFAULT_BATCH_SIZE + ")");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
@@ -10,8 +10,8 @@ import java.util.List;
 import java.util.concurrent.Callable;
 
 import pl.edu.agh.isi.FamilyMember;
-import pl.edu.agh.isi.FamilyMemberRepository;
 import pl.edu.agh.isi.FamilyMemberService;
+import pl.edu.agh.isi.RepositoryScope;
 
 @Command(
     name = "list-members",
@@ -70,8 +70,7 @@ public class ListFamilyMembersCommand implements Callable<Integer> {
     
     // Protected method for better testability
     protected FamilyMemberService createFamilyMemberService(File file) {
-        FamilyMemberRepository repository = new FamilyMemberRepository(file);
-        return new FamilyMemberService(repository);
+        return RepositoryScope.familyMemberService(file);
     }
     
     private void showExamples() {
@@ -5,14 +5,17 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 import java.io.File;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
-import pl.edu.agh.isi.FamilyMemberRepository;
+import pl.edu.agh.isi.AppConfig;
 import pl.edu.agh.isi.FamilyMemberService;
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
 import pl.edu.agh.isi.TaskPriority;
 import pl.edu.agh.isi.TaskRepository;
@@ -57,6 +60,9 @@ public class ListTasksCommand implements Callable<Integer> {
     
     @Option(names = {"-R", "--recurring"}, description = "Show only recurring tasks")
     protected boolean onlyRecurring = false;
+    
+    @Option(names = {"-A", "--ahead"}, description = "Include unsaved instances of recurring tasks due in the next DAYS days")
+    protected Integer aheadDays;
 
     @Override
     public Integer call() throws Exception {
@@ -66,7 +72,7 @@ public class ListTasksCommand implements Callable<Integer> {
                 return 0;
             }
             
-            TaskRepository taskRepository = new TaskRepository(tasksFile);
+            TaskRepository taskRepository = RepositoryScope.taskRepository(tasksFile);
             TaskService taskService = createTaskService(tasksFile);
             FamilyMemberService familyMemberService = createFamilyMemberService(familyMembersFile);
             RecurringTaskService recurringTaskService = new RecurringTaskService(taskRepository);
@@ -84,6 +90,14 @@ public class ListTasksCommand implements Callable<Integer> {
                 tasks = taskService.getActiveTasks();
             }
             
+            // Project upcoming recurring instances, they are saved only once changed
+            int days = aheadDays != null ? aheadDays : AppConfig.getInstance().getVirtualInstanceDays();
+            if (!showOnlyCompleted && days > 0) {
+                LocalDateTime now = LocalDateTime.now();
+                tasks = new ArrayList<>(tasks);
+                tasks.addAll(recurringTaskService.projectInstances(now, now.plusDays(days)));
+            }
+            
             // Filter by recurring if specified
             if (onlyRecurring) {
                 tasks = tasks.stream()
@@ -161,9 +175,17 @@ public class ListTasksCommand implements Callable<Integer> {
                 heading += " (Sorted by due date, latest first)";
             }
             
+            // Projected instances are listed as "PARENT_ID#NUMBER", wider than plain IDs
+            int idWidth = 2;
+            for (Task task : tasks) {
+                idWidth = Math.max(idWidth, RecurringTaskService.instanceReference(task).length());
+            }
+            String idColumn = "%-" + idWidth + "s";
+            
             System.out.println(heading + ":");
             System.out.println("-----------------------------------------------------------------------------------------------------------");
-            System.out.println("ID | Status | Priority | Due Date           | Assigned To        | Recurring | Topic");
+            System.out.println(String.format(idColumn, "ID") + " | Status | Priority"
+                + " | Due Date           | Assigned To        | Recurring | Topic");
             System.out.println("-----------------------------------------------------------------------------------------------------------");
             
             for (Task task : tasks) {
@@ -195,11 +217,12 @@ public class ListTasksCommand implements Callable<Integer> {
                 if (task.isRecurring() && task.getRecurrenceConfig() != null) {
                     recurringDisplay = task.getRecurrenceConfig().getInterval().getDisplayName().substring(0, 1);
                 } else if (task.isRecurrenceInstance()) {
-                    recurringDisplay = "Instance";
+                    recurringDisplay = task.getId() == 0 ? "Upcoming" : "Instance";
                 }
                 
-                System.out.printf("%-2d | %-6s | %-8s | %-18s | %-18s | %-9s | %s%n", 
-                    task.getId(), status, priorityDisplay, dueDateStr, assignedTo, recurringDisplay, task.getTopic());
+                System.out.printf(idColumn + " | %-6s | %-8s | %-18s | %-18s | %-9s | %s%n",
+                    RecurringTaskService.instanceReference(task), status, priorityDisplay,
+                    dueDateStr, assignedTo, recurringDisplay, task.getTopic());
             }
             
             System.out.println("-----------------------------------------------------------------------------------------------------------");
@@ -209,6 +232,9 @@ public class ListTasksCommand implements Callable<Integer> {
             System.out.println();
             
             // Show hints
+            if (tasks.stream().anyMatch(task -> task.getId() == 0)) {
+                System.out.println("Upcoming instances are not saved yet, refer to them as PARENT_ID#NUMBER, e.g. complete 3#2");
+            }
             if (!(sortAscending || sortDescending || sortByPriority)) {
                 System.out.println("Tip: Use -d to sort by due date (earliest first) or -r (latest first) or -P (by priority)");
             }
@@ -222,7 +248,7 @@ public class ListTasksCommand implements Callable<Integer> {
     }
     
     private void showExamples() {
-        System.out.println("Usage: list [-a | -c] [-d | -r | -P] [-p PRIORITY] [-R]");
+        System.out.println("Usage: list [-a | -c] [-d | -r | -P] [-p PRIORITY] [-R] [-A DAYS]");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  list                          - List active (non-completed) tasks");
@@ -234,6 +260,7 @@ public class ListTasksCommand implements Callable<Integer> {
         System.out.println("  list -p 3                     - List only high priority tasks");
         System.out.println("  list -R                       - List only recurring tasks");
         System.out.println("  list -a -d                    - List all tasks sorted by due date (ascending)");
+        System.out.println("  list -A 14 -d                 - Include recurring instances due in the next 14 days");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -a, --all                     Show all tasks including completed ones");
@@ -243,18 +270,17 @@ public class ListTasksCommand implements Callable<Integer> {
         System.out.println("  -P, --priority-sort           Sort tasks by priority (highest first)");
         System.out.println("  -p, --priority LEVEL          Filter tasks by priority level (1-low, 2-medium, 3-high)");
         System.out.println("  -R, --recurring               Show only recurring tasks");
+        System.out.println("  -A, --ahead DAYS              Include unsaved recurring instances due in the next DAYS days");
         System.out.println("  -h, --help                    Show this help message");
     }
 
     // Protected method for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
     
     // Protected method for family member service creation
     protected FamilyMemberService createFamilyMemberService(File file) {
-        FamilyMemberRepository repository = new FamilyMemberRepository(file);
-        return new FamilyMemberService(repository);
+        return RepositoryScope.familyMemberService(file);
     }
 } 
\ No newline at end of file
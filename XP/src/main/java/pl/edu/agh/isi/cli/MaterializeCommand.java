@@ -0,0 +1,114 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import pl.edu.agh.isi.RecurringTaskService;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.Task;
+
+@Command(
+    name = "materialize",
+    description = "Generate instances of recurring tasks ahead of time",
+    mixinStandardHelpOptions = false
+)
+public class MaterializeCommand implements Callable<Integer> {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Parameters(index = "0", description = "Recurring task ID, all recurring tasks if omitted", arity = "0..1")
+    protected String taskId;
+
+    @Option(names = {"-d", "--days"}, description = "Number of days ahead to plan", defaultValue = "30")
+    protected int days;
+
+    @Option(names = {"-u", "--until"}, description = "Plan up to this date (format: yyyy-MM-dd HH:mm)")
+    protected String untilStr;
+
+    @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            LocalDateTime horizon;
+            if (untilStr != null && !untilStr.isEmpty()) {
+                try {
+                    horizon = LocalDateTime.parse(untilStr, DATE_FORMATTER);
+                } catch (DateTimeParseException e) {
+                    System.err.println("Error: Invalid date format. Use yyyy-MM-dd HH:mm");
+                    return 1;
+                }
+            } else if (days <= 0) {
+                System.err.println("Error: Number of days must be positive");
+                return 1;
+            } else {
+                horizon = LocalDateTime.now().plusDays(days);
+            }
+
+            RecurringTaskService service = createRecurringTaskService(tasksFile);
+            List<Task> created;
+            if (taskId != null) {
+                int id;
+                try {
+                    id = Integer.parseInt(taskId);
+                } catch (NumberFormatException e) {
+                    System.err.println("Error: Invalid task ID format: " + taskId);
+                    return 1;
+                }
+                created = service.materializeWindow(id, horizon);
+            } else {
+                created = service.materializeWindow(horizon);
+            }
+
+            for (Task task : created) {
+                System.out.println("Created '" + task.getTopic() + "' (ID: " + task.getId() + ") due "
+                        + task.getDueDate().format(DATE_FORMATTER));
+            }
+            System.out.println(created.size() + " instance(s) generated up to " + horizon.format(DATE_FORMATTER));
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    // Protected method for better testability
+    protected RecurringTaskService createRecurringTaskService(File file) {
+        return new RecurringTaskService(RepositoryScope.taskRepository(file));
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: materialize [TASK_ID] [-d DAYS | -u \"yyyy-MM-dd HH:mm\"]");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  materialize                              - Plan all recurring tasks 30 days ahead");
+        System.out.println("  materialize 3 -d 90                      - Plan task 3 for the next 90 days");
+        System.out.println("  materialize -u \"2025-12-31 23:59\"        - Plan all recurring tasks until the end of 2025");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -d, --days DAYS                          Number of days ahead to plan (default 30)");
+        System.out.println("  -u, --until \"date\"                       Plan up to this date instead");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
@@ -0,0 +1,78 @@
+package pl.edu.agh.isi.cli;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+import pl.edu.agh.isi.RecurrenceConfig;
+import pl.edu.agh.isi.RecurrenceInterval;
+
+/**
+ * Applies the rule options shared by commands that make tasks recurring:
+ * --every N, --on MON,WED and --nth N.
+ */
+public final class RecurrenceOptions {
+
+    private RecurrenceOptions() {
+    }
+
+    /**
+     * Apply rule options to a recurrence configuration
+     * @param config the configuration to change
+     * @param every repeat every this many intervals, may be null
+     * @param weekdays comma separated weekdays such as "MON,WED" or "FRIDAY", may be null
+     * @param weekOfMonth week of the month for monthly rules, 1-4 or -1 for the last, may be null
+     * @throws IllegalArgumentException if an option is malformed or the options do not fit the interval
+     */
+    public static void apply(RecurrenceConfig config, Integer every, String weekdays, Integer weekOfMonth) {
+        if (every != null) {
+            config.setEvery(every);
+        }
+        if (weekdays != null && !weekdays.trim().isEmpty()) {
+            config.setWeekdays(parseWeekdays(weekdays));
+        }
+        if (weekOfMonth != null) {
+            if (config.getInterval() != RecurrenceInterval.MONTHLY) {
+                throw new IllegalArgumentException("--nth is only supported for MONTHLY recurrence");
+            }
+            config.setWeekOfMonth(weekOfMonth);
+        }
+        if (config.getWeekdays() != null && config.getInterval() == RecurrenceInterval.DAILY) {
+            throw new IllegalArgumentException("--on is only supported for WEEKLY and MONTHLY recurrence");
+        }
+        if (config.getInterval() == RecurrenceInterval.MONTHLY
+                && (config.getWeekdays() == null) != (config.getWeekOfMonth() == null)) {
+            throw new IllegalArgumentException("MONTHLY recurrence on a weekday needs both --nth and --on");
+        }
+        // Build the rule once to report invalid combinations before anything is saved
+        config.toRule(LocalDateTime.now());
+    }
+
+    /**
+     * Parse a comma separated list of weekdays, full names or three letter abbreviations
+     * @param spec the list, e.g. "MON,WED,FRI"
+     * @return the weekdays
+     * @throws IllegalArgumentException if a day is not recognized
+     */
+    public static Set<DayOfWeek> parseWeekdays(String spec) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String part : spec.split(",")) {
+            String name = part.trim().toUpperCase();
+            if (name.isEmpty()) {
+                continue;
+            }
+            DayOfWeek match = null;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (day.name().equals(name) || (name.length() == 3 && day.name().startsWith(name))) {
+                    match = day;
+                }
+            }
+            if (match == null) {
+                throw new IllegalArgumentException("Invalid weekday: " + part.trim());
+            }
+            days.add(match);
+        }
+        return days;
+    }
+}
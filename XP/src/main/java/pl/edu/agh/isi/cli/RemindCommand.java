@@ -0,0 +1,184 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import pl.edu.agh.isi.ReminderOutbox;
+import pl.edu.agh.isi.ReminderService;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.TaskRepository;
+
+@Command(
+    name = "remind",
+    description = "Fire reminders for tasks that are coming due or overdue",
+    mixinStandardHelpOptions = false
+)
+public class RemindCommand implements Callable<Integer> {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // How often watch mode looks for tasks saved by other processes
+    private static final long FILE_CHECK_INTERVAL_SECONDS = 5;
+
+    @Option(names = {"-l", "--lead"}, description = "Comma separated lead times, e.g. 1d,2h,30m,0", defaultValue = "1d,1h,0")
+    protected String leadTimes;
+
+    @Option(names = {"-o", "--outbox"}, description = "File to append fired reminders to", defaultValue = "reminders.outbox")
+    protected File outboxFile;
+
+    @Option(names = {"-w", "--watch"}, description = "Keep running and print reminders as they fire")
+    protected boolean watch = false;
+
+    @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            TaskRepository repository = RepositoryScope.taskRepository(tasksFile);
+            ReminderService service = createReminderService(repository, parseLeadTimes(leadTimes));
+
+            if (watch) {
+                return watch(repository, service);
+            }
+
+            ReminderOutbox outbox = new ReminderOutbox(outboxFile);
+            service.markFired(outbox.loadKeys());
+            service.setSink(outbox::append);
+            service.rebuild();
+            List<ReminderService.Reminder> fired = service.fireDue();
+            for (ReminderService.Reminder reminder : fired) {
+                System.out.println(reminder.getMessage());
+            }
+            System.out.println(fired.size() + " reminder(s) written to " + outboxFile.getPath());
+            printNextReminder(service.nextReminder());
+            return 0;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    private Integer watch(TaskRepository repository, ReminderService service) throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        service.setSink(reminder -> System.out.println(reminder.getMessage()));
+        service.rebuild();
+        // Keeps the queue in sync with tasks changed in this process
+        repository.addChangeListener(service);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                service.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            repository.removeChangeListener(service);
+            stopped.countDown();
+        }));
+
+        service.start();
+        System.out.println("Reminders running for " + service.size() + " reminder(s), press Ctrl+C to stop");
+        printNextReminder(service.nextReminder());
+        // Other commands run as other processes, so their changes only show in the data file
+        while (!stopped.await(FILE_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+            if (repository.reloadIfChanged()) {
+                service.rebuild();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parse lead times such as "1d,2h,30m,0"
+     * @param spec comma separated numbers with a unit: w, d, h or m; 0 for the due date itself
+     * @return the lead times
+     * @throws IllegalArgumentException if a lead time is malformed
+     */
+    static List<Duration> parseLeadTimes(String spec) {
+        List<Duration> leads = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String lead = part.trim().toLowerCase();
+            if (lead.isEmpty()) {
+                continue;
+            }
+            if (lead.equals("0")) {
+                leads.add(Duration.ZERO);
+                continue;
+            }
+            long amount;
+            try {
+                amount = Long.parseLong(lead.substring(0, lead.length() - 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid lead time: " + part.trim());
+            }
+            switch (lead.charAt(lead.length() - 1)) {
+                case 'w':
+                    leads.add(Duration.ofDays(7 * amount));
+                    break;
+                case 'd':
+                    leads.add(Duration.ofDays(amount));
+                    break;
+                case 'h':
+                    leads.add(Duration.ofHours(amount));
+                    break;
+                case 'm':
+                    leads.add(Duration.ofMinutes(amount));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid lead time: " + part.trim());
+            }
+        }
+        return leads;
+    }
+
+    private void printNextReminder(Optional<LocalDateTime> next) {
+        if (next.isPresent()) {
+            System.out.println("Next reminder: " + next.get().format(DATE_FORMATTER));
+        } else {
+            System.out.println("No reminders scheduled");
+        }
+    }
+
+    // Protected method for better testability
+    protected ReminderService createReminderService(TaskRepository repository, List<Duration> leads) {
+        return new ReminderService(repository, leads);
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: remind [-l LEADS] [-o FILE] [-w]");
+        System.out.println();
+        System.out.println("Reminds of open tasks ahead of their due date and when they become due.");
+        System.out.println("Each reminder is written once; late reminders of a task collapse into one.");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  remind                                   - Append due reminders to reminders.outbox");
+        System.out.println("  remind -l 2d,3h,0                        - Remind 2 days and 3 hours ahead, and at the due date");
+        System.out.println("  remind -w                                - Keep running and print reminders as they fire");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -l, --lead LEADS                         Lead times in w, d, h or m (default 1d,1h,0)");
+        System.out.println("  -o, --outbox FILE                        Outbox file (default reminders.outbox)");
+        System.out.println("  -w, --watch                              Keep running until stopped");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
@@ -10,8 +10,8 @@ import java.util.concurrent.Callable;
 import java.util.Optional;
 
 import pl.edu.agh.isi.FamilyMember;
-import pl.edu.agh.isi.FamilyMemberRepository;
 import pl.edu.agh.isi.FamilyMemberService;
+import pl.edu.agh.isi.RepositoryScope;
 
 @Command(
     name = "remove-member",
@@ -70,7 +70,6 @@ public class RemoveFamilyMemberCommand implements Callable<Integer> {
     
     // Protected method for better testability
     protected FamilyMemberService createFamilyMemberService(File file) {
-        FamilyMemberRepository repository = new FamilyMemberRepository(file);
-        return new FamilyMemberService(repository);
+        return RepositoryScope.familyMemberService(file);
     }
 } 
\ No newline at end of file
@@ -8,8 +8,8 @@ import picocli.CommandLine.Parameters;
 import java.io.File;
 import java.util.concurrent.Callable;
 
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
-import pl.edu.agh.isi.TaskRepository;
 import pl.edu.agh.isi.TaskService;
 
 @Command(
@@ -83,7 +83,6 @@ public class ReopenTaskCommand implements Callable<Integer> {
     
     // Protected method for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
 } 
\ No newline at end of file
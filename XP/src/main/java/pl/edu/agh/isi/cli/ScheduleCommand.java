@@ -0,0 +1,125 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import pl.edu.agh.isi.RecurrenceScheduler;
+import pl.edu.agh.isi.RecurringTaskService;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.Task;
+import pl.edu.agh.isi.TaskRepository;
+
+@Command(
+    name = "schedule",
+    description = "Generate instances of recurring tasks that have come due",
+    mixinStandardHelpOptions = false
+)
+public class ScheduleCommand implements Callable<Integer> {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Option(names = {"-w", "--watch"}, description = "Keep running and generate instances as they come due")
+    protected boolean watch = false;
+
+    @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            RecurrenceScheduler scheduler = createScheduler(tasksFile);
+
+            if (watch) {
+                return watch(scheduler);
+            }
+
+            scheduler.rebuild();
+            List<Task> created = scheduler.materializeDue();
+            printCreated(created);
+            if (created.isEmpty()) {
+                System.out.println("No recurring task instances are due");
+            }
+            printNextDeadline(scheduler.nextDeadline());
+            return 0;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    private Integer watch(RecurrenceScheduler scheduler) throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        scheduler.setListener(this::printCreated);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                scheduler.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stopped.countDown();
+        }));
+
+        scheduler.start();
+        System.out.println("Scheduler running for " + scheduler.size() + " recurring task(s), press Ctrl+C to stop");
+        printNextDeadline(scheduler.nextDeadline());
+        stopped.await();
+        return 0;
+    }
+
+    private void printCreated(List<Task> created) {
+        for (Task task : created) {
+            System.out.println("Created '" + task.getTopic() + "' (ID: " + task.getId() + ") due "
+                    + task.getDueDate().format(DATE_FORMATTER)
+                    + " as occurrence " + task.getRecurrenceNumber() + " of task " + task.getParentTaskId());
+        }
+    }
+
+    private void printNextDeadline(Optional<LocalDateTime> deadline) {
+        if (deadline.isPresent()) {
+            System.out.println("Next occurrence due: " + deadline.get().format(DATE_FORMATTER));
+        } else {
+            System.out.println("No recurring tasks scheduled");
+        }
+    }
+
+    // Protected method for better testability
+    protected RecurrenceScheduler createScheduler(File file) {
+        TaskRepository repository = RepositoryScope.taskRepository(file);
+        return new RecurrenceScheduler(repository, new RecurringTaskService(repository),
+                repository.getLockManager());
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: schedule [-w]");
+        System.out.println();
+        System.out.println("Creates the next instance of every recurring task whose latest occurrence");
+        System.out.println("is due, even if nobody completed it.");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  schedule                                 - Generate due instances once");
+        System.out.println("  schedule -w                              - Keep generating instances as they come due");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -w, --watch                              Keep running until stopped");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
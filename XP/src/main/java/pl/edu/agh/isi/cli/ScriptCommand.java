@@ -0,0 +1,168 @@
+package pl.edu.agh.isi.cli;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import pl.edu.agh.isi.Main;
+import pl.edu.agh.isi.RepositoryScope;
+import pl.edu.agh.isi.Task;
+
+@Command(
+    name = "script",
+    description = "Run commands from a file, independent commands concurrently",
+    mixinStandardHelpOptions = false
+)
+public class ScriptCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "Script file with one command per line", arity = "1")
+    protected File scriptFile;
+
+    @Option(names = {"-v", "--verbose"}, description = "Show the output of every command")
+    protected boolean verbose = false;
+
+    @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
+    protected File tasksFile;
+
+    @Option(names = {"-h", "--help"}, usageHelp = true, description = "Show help message")
+    protected boolean helpRequested = false;
+
+    @Override
+    public Integer call() throws Exception {
+        try {
+            if (helpRequested) {
+                showExamples();
+                return 0;
+            }
+
+            if (!scriptFile.exists()) {
+                System.err.println("Error: Script file " + scriptFile.getPath() + " not found");
+                return 1;
+            }
+            List<String> lines = Files.readAllLines(scriptFile.toPath());
+
+            ScriptRunner.Report report;
+            // Lines share the repositories of the scope, which is closed once they all ran
+            RepositoryScope scope = RepositoryScope.open();
+            try {
+                // Tasks created by the script itself get their IDs while it runs
+                Set<Integer> knownTaskIds = RepositoryScope.taskRepository(tasksFile).findAll()
+                        .stream()
+                        .map(Task::getId)
+                        .collect(Collectors.toSet());
+                report = runScript(lines, knownTaskIds);
+            } finally {
+                scope.close();
+            }
+
+            System.out.printf(Locale.ROOT, "Executed %d command(s) in %.1f ms, %d failed%n",
+                    report.getCommandCount(), report.getWallTimeNanos() / 1e6,
+                    report.getFailedCount());
+            System.out.printf(Locale.ROOT, "Throughput: %.1f commands/s%n",
+                    report.getThroughputPerSecond());
+            System.out.printf(Locale.ROOT,
+                    "Latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    report.getLatencyPercentileNanos(50) / 1e6,
+                    report.getLatencyPercentileNanos(90) / 1e6,
+                    report.getLatencyPercentileNanos(99) / 1e6,
+                    report.getLatencyPercentileNanos(100) / 1e6);
+            return report.getFailedCount() == 0 ? 0 : 1;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+            return 2;
+        }
+    }
+
+    private ScriptRunner.Report runScript(List<String> lines, Set<Integer> knownTaskIds) {
+        PrintStream out = System.out;
+        ExecutorService executor = ScriptRunner.newCommandExecutor();
+        try {
+            if (!verbose) {
+                // Errors still go to System.err
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+            return new ScriptRunner(new PicocliLineHandler(knownTaskIds), executor).run(lines);
+        } finally {
+            // Restored whatever the run throws, the statistics and later commands print to it
+            System.setOut(out);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs script lines as application commands.
+     * Parsed command objects keep state, so each line borrows a CommandLine from a pool
+     * instead of sharing one, and the pool never grows beyond the number of lines in flight.
+     */
+    private static class PicocliLineHandler implements ScriptRunner.LineHandler {
+        private final Set<Integer> knownTaskIds;
+        private final Queue<CommandLine> pool = new ConcurrentLinkedQueue<>();
+
+        PicocliLineHandler(Set<Integer> knownTaskIds) {
+            this.knownTaskIds = knownTaskIds;
+        }
+
+        @Override
+        public Set<Integer> footprint(String[] args) {
+            Set<Integer> ids = CommandFootprint.of(args);
+            // A task missing at the start may be created by an earlier line, so wait for it
+            if (ids == null || !knownTaskIds.containsAll(ids)) {
+                return null;
+            }
+            return ids;
+        }
+
+        @Override
+        public int execute(String[] args) {
+            if (args[0].equals("script") || args[0].equals("-i")
+                    || args[0].equals("--interactive")) {
+                System.err.println("Error: Command not allowed in a script: " + args[0]);
+                return 1;
+            }
+            CommandLine cmd = pool.poll();
+            if (cmd == null) {
+                cmd = new CommandLine(new Main());
+            }
+            try {
+                return cmd.execute(args);
+            } finally {
+                pool.offer(cmd);
+            }
+        }
+    }
+
+    private void showExamples() {
+        System.out.println("Usage: script FILE [-v]");
+        System.out.println();
+        System.out.println("Runs one command per line. Commands on different tasks run concurrently,");
+        System.out.println("commands on the same task run in file order. Other commands, such as");
+        System.out.println("create, list or add-member, run alone after all lines before them.");
+        System.out.println("Empty lines and lines starting with # are skipped.");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  script commands.txt                      - Run commands and show statistics");
+        System.out.println("  script commands.txt -v                   - Also show the output of every command");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -v, --verbose                            Show the output of every command");
+        System.out.println("  -h, --help                               Show this help message");
+    }
+}
@@ -0,0 +1,192 @@
+package pl.edu.agh.isi.cli;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import pl.edu.agh.isi.Main;
+
+/**
+ * Runs the lines of a command script concurrently.
+ * Lines touching disjoint sets of tasks run at the same time, lines touching a common
+ * task run in script order. A line whose footprint is unknown acts as a barrier: it
+ * starts after every earlier line has finished, and every later line waits for it.
+ */
+public class ScriptRunner {
+    // Thread count used when virtual threads are not available, commands mostly wait on file I/O
+    static final int FALLBACK_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 4);
+
+    /**
+     * Executes one parsed script line
+     */
+    public interface LineHandler {
+        /**
+         * @param args the line arguments, starting with the command name
+         * @return the IDs of the tasks the line touches, or null if it must run alone
+         */
+        Set<Integer> footprint(String[] args);
+
+        /**
+         * @param args the line arguments, starting with the command name
+         * @return the exit code, 0 on success
+         */
+        int execute(String[] args);
+    }
+
+    private final LineHandler handler;
+    private final ExecutorService executor;
+
+    public ScriptRunner(LineHandler handler, ExecutorService executor) {
+        this.handler = handler;
+        this.executor = executor;
+    }
+
+    /**
+     * Create an executor for running command lines, with one virtual thread per line
+     * when the runtime supports it and a fixed pool of platform threads otherwise
+     * @return the executor, to be shut down by the caller
+     */
+    public static ExecutorService newCommandExecutor() {
+        try {
+            // Looked up at runtime, virtual threads need Java 21 while the project targets 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(FALLBACK_THREADS);
+        }
+    }
+
+    /**
+     * Run the script and wait until every line has finished.
+     * Empty lines and lines starting with '#' are skipped.
+     * @param lines the script lines
+     * @return the run statistics
+     */
+    public Report run(List<String> lines) {
+        List<String[]> commands = new ArrayList<>();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                commands.add(Main.parseCommandLine(trimmed));
+            }
+        }
+
+        long[] latencies = new long[commands.size()];
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        CompletableFuture<Void> barrier = CompletableFuture.completedFuture(null);
+        // Last line scheduled for each task since the latest barrier
+        Map<Integer, CompletableFuture<Void>> tails = new HashMap<>();
+        List<CompletableFuture<Void>> sinceBarrier = new ArrayList<>();
+
+        for (int i = 0; i < commands.size(); i++) {
+            String[] args = commands.get(i);
+            int index = i;
+            Runnable line = () -> {
+                long lineStart = System.nanoTime();
+                try {
+                    if (handler.execute(args) != 0) {
+                        failed.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Error: " + String.join(" ", args) + ": " + e.getMessage());
+                    failed.incrementAndGet();
+                }
+                latencies[index] = System.nanoTime() - lineStart;
+            };
+
+            Set<Integer> footprint = handler.footprint(args);
+            if (footprint == null) {
+                sinceBarrier.add(barrier);
+                barrier = CompletableFuture.allOf(sinceBarrier.toArray(new CompletableFuture<?>[0]))
+                        .thenRunAsync(line, executor);
+                tails.clear();
+                sinceBarrier.clear();
+                continue;
+            }
+
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            for (Integer id : footprint) {
+                CompletableFuture<Void> tail = tails.get(id);
+                if (tail != null) {
+                    dependencies.add(tail);
+                }
+            }
+            if (dependencies.isEmpty()) {
+                dependencies.add(barrier);
+            }
+            CompletableFuture<Void> future = CompletableFuture
+                    .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                    .thenRunAsync(line, executor);
+            for (Integer id : footprint) {
+                tails.put(id, future);
+            }
+            sinceBarrier.add(future);
+        }
+
+        sinceBarrier.add(barrier);
+        CompletableFuture.allOf(sinceBarrier.toArray(new CompletableFuture<?>[0])).join();
+        return new Report(latencies, failed.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Throughput and latency statistics of a script run.
+     * Latency is measured per line from the start to the end of its execution.
+     */
+    public static final class Report {
+        private final long[] sortedLatencies;
+        private final int failedCount;
+        private final long wallTimeNanos;
+
+        Report(long[] latencies, int failedCount, long wallTimeNanos) {
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(this.sortedLatencies);
+            this.failedCount = failedCount;
+            this.wallTimeNanos = wallTimeNanos;
+        }
+
+        public int getCommandCount() {
+            return sortedLatencies.length;
+        }
+
+        public int getFailedCount() {
+            return failedCount;
+        }
+
+        public long getWallTimeNanos() {
+            return wallTimeNanos;
+        }
+
+        /**
+         * @return executed lines per second of wall time
+         */
+        public double getThroughputPerSecond() {
+            return wallTimeNanos == 0 ? 0 : sortedLatencies.length * 1_000_000_000.0 / wallTimeNanos;
+        }
+
+        /**
+         * Get a latency percentile using the nearest-rank method
+         * @param percentile the percentile, between 0 and 100
+         * @return the latency in nanoseconds, 0 if no line was run
+         */
+        public long getLatencyPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, rank - 1)];
+        }
+    }
+}
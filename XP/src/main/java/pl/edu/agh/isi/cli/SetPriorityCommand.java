@@ -5,12 +5,14 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
 import pl.edu.agh.isi.TaskPriority;
-import pl.edu.agh.isi.TaskRepository;
 import pl.edu.agh.isi.TaskService;
 
 @Command(
@@ -20,7 +22,7 @@ import pl.edu.agh.isi.TaskService;
 )
 public class SetPriorityCommand implements Callable<Integer> {
     
-    @Parameters(index = "0", description = "Task ID", arity = "1")
+    @Parameters(index = "0", description = "Task ID, list (1,4,9) or range (10-200)", arity = "1")
     protected String taskId;
     
     @Parameters(index = "1", description = "Priority level (1-low, 2-medium, 3-high)", arity = "1")
@@ -41,12 +43,15 @@ public class SetPriorityCommand implements Callable<Integer> {
             }
             
             TaskService service = createTaskService(tasksFile);
+            boolean bulk = TaskIdParser.isBulk(taskId);
             
-            // First check if the task exists
-            Optional<Task> taskOpt = service.getTask(taskId);
-            if (!taskOpt.isPresent()) {
-                System.err.println("Error: Task with ID " + taskId + " not found");
-                return 1;
+            // First check if the task exists, an upcoming instance is saved by the service
+            if (!bulk && !TaskIdParser.isInstanceReference(taskId)) {
+                Optional<Task> taskOpt = service.getTask(taskId);
+                if (!taskOpt.isPresent()) {
+                    System.err.println("Error: Task with ID " + taskId + " not found");
+                    return 1;
+                }
             }
             
             // Validate the priority level
@@ -65,6 +70,13 @@ public class SetPriorityCommand implements Callable<Integer> {
             
             // Set the priority
             TaskPriority priority = TaskPriority.fromLevel(level);
+            if (bulk) {
+                List<Integer> ids = TaskIdParser.parse(Collections.singletonList(taskId));
+                List<Task> tasks = service.setPriorityAll(ids, priority);
+                System.out.println(tasks.size() + " task(s) priority set to: " + 
+                    priority.getDisplayName() + " " + priority.getSymbol());
+                return 0;
+            }
             Task task = service.setPriority(taskId, priority);
             
             System.out.println("Task '" + task.getTopic() + "' (ID: " + task.getId() + ") priority set to: " + 
@@ -82,7 +94,7 @@ public class SetPriorityCommand implements Callable<Integer> {
     }
     
     private void showExamples() {
-        System.out.println("Usage: set-priority TASK_ID PRIORITY_LEVEL");
+        System.out.println("Usage: set-priority TASK_IDS PRIORITY_LEVEL");
         System.out.println();
         System.out.println("Priority Levels:");
         System.out.println("  1 - Low");
@@ -92,6 +104,7 @@ public class SetPriorityCommand implements Callable<Integer> {
         System.out.println("Examples:");
         System.out.println("  set-priority 1 3        - Set task with ID 1 to high priority");
         System.out.println("  set-priority 2 1        - Set task with ID 2 to low priority");
+        System.out.println("  set-priority 5-9 3      - Set tasks 5 to 9 to high priority");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -h, --help              Show this help message");
@@ -99,7 +112,6 @@ public class SetPriorityCommand implements Callable<Integer> {
     
     // Protected method for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
 } 
\ No newline at end of file
@@ -11,6 +11,7 @@ import java.time.format.DateTimeParseException;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
 import pl.edu.agh.isi.TaskRepository;
 import pl.edu.agh.isi.TaskService;
@@ -39,6 +40,15 @@ public class SetRecurringCommand implements Callable<Integer> {
     @Option(names = {"-e", "--end-date"}, description = "End date (format: yyyy-MM-dd HH:mm)")
     protected String endDateStr;
     
+    @Option(names = {"--every"}, description = "Repeat every N days, weeks or months")
+    protected Integer every;
+    
+    @Option(names = {"--on"}, description = "Weekdays, e.g. MON,WED,FRI")
+    protected String weekdays;
+    
+    @Option(names = {"--nth"}, description = "Week of the month for MONTHLY with --on (1-4, -1 for the last)")
+    protected Integer weekOfMonth;
+    
     @Option(names = {"-f", "--file"}, description = "Tasks data file", defaultValue = "tasks.json", hidden = true)
     protected File tasksFile;
     
@@ -54,7 +64,7 @@ public class SetRecurringCommand implements Callable<Integer> {
             }
             
             // Create services
-            TaskRepository taskRepository = new TaskRepository(tasksFile);
+            TaskRepository taskRepository = RepositoryScope.taskRepository(tasksFile);
             RecurringTaskService recurringTaskService = new RecurringTaskService(taskRepository);
             TaskService taskService = createTaskService(tasksFile);
             taskService.setRecurringTaskService(recurringTaskService);
@@ -101,6 +111,7 @@ public class SetRecurringCommand implements Callable<Integer> {
             
             // Set the task as recurring
             try {
+                RecurrenceOptions.apply(config, every, weekdays, weekOfMonth);
                 task = taskService.setTaskAsRecurring(taskId, config);
                 
                 System.out.println("Task '" + task.getTopic() + "' (ID: " + task.getId() + 
@@ -124,7 +135,7 @@ public class SetRecurringCommand implements Callable<Integer> {
     }
     
     private void showExamples() {
-        System.out.println("Usage: set-recurring TASK_ID INTERVAL [-n OCCURRENCES] [-e \"END_DATE\"]");
+        System.out.println("Usage: set-recurring TASK_ID INTERVAL [-n OCCURRENCES] [-e \"END_DATE\"] [--every N] [--on DAYS] [--nth N]");
         System.out.println();
         System.out.println("Intervals:");
         System.out.println("  DAILY   - Task repeats every day");
@@ -135,16 +146,21 @@ public class SetRecurringCommand implements Callable<Integer> {
         System.out.println("  set-recurring 1 DAILY                       - Task repeats daily indefinitely");
         System.out.println("  set-recurring 2 WEEKLY -n 10                - Task repeats weekly for 10 occurrences");
         System.out.println("  set-recurring 3 MONTHLY -e \"2024-12-31 23:59\" - Task repeats monthly until end of 2024");
+        System.out.println("  set-recurring 4 WEEKLY --every 2 --on MON,THU - Every other week on Monday and Thursday");
+        System.out.println("  set-recurring 5 MONTHLY --nth 2 --on TUE    - Second Tuesday of every month");
+        System.out.println("  set-recurring 6 MONTHLY --nth -1 --on FRI   - Last Friday of every month");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -n, --occurrences NUMBER          Limit the number of recurrences");
         System.out.println("  -e, --end-date \"YYYY-MM-DD HH:MM\" Set an end date for recurrences");
+        System.out.println("  --every N                         Repeat every N days, weeks or months");
+        System.out.println("  --on DAYS                         Weekdays for WEEKLY, or the weekday for MONTHLY with --nth");
+        System.out.println("  --nth N                           Week of the month (1-4, -1 for the last)");
         System.out.println("  -h, --help                        Show this help message");
     }
     
     // Protected method for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,90 @@
+package pl.edu.agh.isi.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Parses task ID arguments for bulk commands.
+ * Every argument may hold a single ID, a comma separated list or a range,
+ * e.g. "7", "1,4,9" or "10-200".
+ */
+public final class TaskIdParser {
+    // Guards against typos such as "1-100000000" expanding into a huge batch
+    public static final int MAX_IDS = 100_000;
+
+    private TaskIdParser() {
+    }
+
+    /**
+     * Check if an argument refers to more than one task
+     * @param spec the argument
+     * @return true if it is a list or a range
+     */
+    public static boolean isBulk(String spec) {
+        return spec != null && (spec.contains(",") || spec.contains("-"));
+    }
+
+    /**
+     * Check if an argument refers to an upcoming instance of a recurring task
+     * that is not saved yet, e.g. "3#2" for the second instance of task 3
+     * @param spec the argument
+     * @return true if it is an instance reference
+     */
+    public static boolean isInstanceReference(String spec) {
+        return spec != null && spec.indexOf('#') > 0;
+    }
+
+    /**
+     * Parse ID arguments into a sorted list of distinct IDs
+     * @param specs the arguments
+     * @return the IDs in ascending order
+     * @throws IllegalArgumentException if an argument is malformed or the batch is too large
+     */
+    public static List<Integer> parse(List<String> specs) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (String spec : specs) {
+            for (String part : spec.split(",")) {
+                String trimmed = part.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int dash = trimmed.indexOf('-');
+                if (dash < 0) {
+                    ids.add(parseId(trimmed));
+                } else {
+                    int from = parseId(trimmed.substring(0, dash));
+                    int to = parseId(trimmed.substring(dash + 1));
+                    if (from > to) {
+                        throw new IllegalArgumentException("Invalid ID range: " + trimmed);
+                    }
+                    if ((long) to - from + 1 > MAX_IDS) {
+                        throw new IllegalArgumentException("ID range is too large: " + trimmed);
+                    }
+                    for (int id = from; id <= to; id++) {
+                        ids.add(id);
+                    }
+                }
+                if (ids.size() > MAX_IDS) {
+                    throw new IllegalArgumentException("Too many task IDs, the limit is " + MAX_IDS);
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("No task IDs given");
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static int parseId(String value) {
+        try {
+            int id = Integer.parseInt(value.trim());
+            if (id <= 0) {
+                throw new IllegalArgumentException("Invalid task ID: " + value);
+            }
+            return id;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid task ID format: " + value);
+        }
+    }
+}
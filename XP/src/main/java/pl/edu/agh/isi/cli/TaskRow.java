@@ -0,0 +1,145 @@
+package pl.edu.agh.isi.cli;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+import pl.edu.agh.isi.RecurrenceConfig;
+import pl.edu.agh.isi.RecurrenceInterval;
+import pl.edu.agh.isi.Task;
+import pl.edu.agh.isi.TaskPriority;
+
+/**
+ * One task of a bulk import, as read from a CSV or JSON Lines file.
+ * Fields are named after the options of create: topic, due, description, priority,
+ * recurring, occurrences, end, every, on and nth, and are checked the same way.
+ */
+public final class TaskRow {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final int line;
+    private final Map<String, String> fields;
+    private final String error;
+
+    private TaskRow(int line, Map<String, String> fields, String error) {
+        this.line = line;
+        this.fields = fields;
+        this.error = error;
+    }
+
+    /**
+     * Create a row from its fields
+     * @param line the line the row starts on
+     * @param fields values by field name, empty values count as missing
+     */
+    public static TaskRow of(int line, Map<String, String> fields) {
+        return new TaskRow(line, fields, null);
+    }
+
+    /**
+     * Create a row that could not be read
+     * @param line the line the row starts on
+     * @param error what is wrong with it
+     */
+    public static TaskRow invalid(int line, String error) {
+        return new TaskRow(line, Map.of(), error);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Build the task of this row, without an ID
+     * @throws IllegalArgumentException with the message create would print if a field is invalid
+     */
+    public Task toTask() {
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        String topic = fields.get("topic");
+        if (topic == null || topic.trim().isEmpty()) {
+            throw new IllegalArgumentException("Topic cannot be empty");
+        }
+        LocalDateTime dueDate = parseDate("due", "due date");
+        String description = fields.getOrDefault("description", "");
+        TaskPriority priority = parsePriority();
+
+        String recurring = value("recurring");
+        if (recurring == null) {
+            return new Task(topic, dueDate, description, priority);
+        }
+        RecurrenceInterval interval = RecurrenceInterval.fromString(recurring);
+        if (interval == null) {
+            throw new IllegalArgumentException("Invalid recurrence interval. Please use: DAILY, WEEKLY, or MONTHLY");
+        }
+        if (dueDate == null) {
+            throw new IllegalArgumentException("Due date is required for recurring tasks");
+        }
+        Integer occurrences = parseNumber("occurrences");
+        LocalDateTime endDate = parseDate("end", "end date");
+        RecurrenceConfig config;
+        if (occurrences != null && endDate != null) {
+            config = new RecurrenceConfig(interval, occurrences, endDate);
+        } else if (occurrences != null) {
+            config = new RecurrenceConfig(interval, occurrences);
+        } else if (endDate != null) {
+            config = new RecurrenceConfig(interval, endDate);
+        } else {
+            config = new RecurrenceConfig(interval);
+        }
+        RecurrenceOptions.apply(config, parseNumber("every"), value("on"), parseNumber("nth"));
+        return new Task(topic, dueDate, description, priority, config);
+    }
+
+    // The trimmed value of a field, null if it is missing or blank
+    private String value(String name) {
+        String value = fields.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    private LocalDateTime parseDate(String name, String label) {
+        String value = value(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value, DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format for " + label + ". Please use: yyyy-MM-dd HH:mm");
+        }
+    }
+
+    private TaskPriority parsePriority() {
+        String value = value("priority");
+        if (value == null) {
+            return TaskPriority.MEDIUM;
+        }
+        try {
+            int priorityLevel = Integer.parseInt(value);
+            if (priorityLevel < 1 || priorityLevel > 3) {
+                throw new IllegalArgumentException("Invalid priority level. Please use: 1 (low), 2 (medium), or 3 (high)");
+            }
+            return TaskPriority.fromLevel(priorityLevel);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid priority format. Please use: 1 (low), 2 (medium), or 3 (high)");
+        }
+    }
+
+    private Integer parseNumber(String name) {
+        String value = value(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package pl.edu.agh.isi.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.edu.agh.isi.Task;
+import pl.edu.agh.isi.TaskRepository;
+
+/**
+ * Adds the tasks of a CSV or JSON Lines file in batches. The rows of a batch are
+ * checked first, the valid ones get a block of consecutive IDs and are saved with a
+ * single write of the data file, and one line per batch reports what was imported
+ * and why rows were rejected. Batches saved before a failure stay saved.
+ */
+public class TaskRowImporter {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    // Rejected rows listed per batch, the rest are only counted
+    private static final int ERRORS_SHOWN_PER_BATCH = 10;
+
+    private final TaskRepository repository;
+    private final int batchSize;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    /**
+     * Create an importer
+     * @param repository the repository to add the tasks to
+     * @param batchSize rows read per batch
+     * @param out where batch reports go, may be null
+     * @param err where rejected rows are listed, may be null
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public TaskRowImporter(TaskRepository repository, int batchSize, PrintStream out, PrintStream err) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * What an import did
+     */
+    public static final class Summary {
+        private int rows;
+        private int imported;
+        private int batches;
+        private long elapsedNanos;
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getRejected() {
+            return rows - imported;
+        }
+
+        public int getBatches() {
+            return batches;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+        }
+    }
+
+    /**
+     * Import all rows of a reader
+     * @param reader the rows, not closed
+     * @throws IOException if the file cannot be read, earlier batches are saved then
+     */
+    public Summary importRows(TaskRowReader reader) throws IOException {
+        long start = System.nanoTime();
+        Summary summary = new Summary();
+        List<TaskRow> batch = new ArrayList<>(batchSize);
+        TaskRow row;
+        while ((row = reader.next()) != null) {
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                commit(batch, summary);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            commit(batch, summary);
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private void commit(List<TaskRow> batch, Summary summary) {
+        List<Task> tasks = new ArrayList<>(batch.size());
+        List<String> errors = new ArrayList<>();
+        for (TaskRow row : batch) {
+            try {
+                tasks.add(row.toTask());
+            } catch (IllegalArgumentException e) {
+                errors.add("line " + row.getLine() + ": " + e.getMessage());
+            }
+        }
+
+        String ids = "";
+        if (!tasks.isEmpty()) {
+            int firstId = repository.reserveIds(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).setId(firstId + i);
+            }
+            repository.saveAll(tasks);
+            ids = " with IDs " + firstId + "-" + (firstId + tasks.size() - 1);
+        }
+        summary.batches++;
+        summary.rows += batch.size();
+        summary.imported += tasks.size();
+
+        if (out != null) {
+            out.println("Batch " + summary.batches + " (lines " + batch.get(0).getLine() + "-"
+                    + batch.get(batch.size() - 1).getLine() + "): " + tasks.size() + " imported" + ids
+                    + ", " + errors.size() + " rejected");
+        }
+        if (err != null) {
+            for (String error : errors.subList(0, Math.min(errors.size(), ERRORS_SHOWN_PER_BATCH))) {
+                err.println("  " + error);
+            }
+            if (errors.size() > ERRORS_SHOWN_PER_BATCH) {
+                err.println("  ... and " + (errors.size() - ERRORS_SHOWN_PER_BATCH) + " more");
+            }
+        }
+    }
+}
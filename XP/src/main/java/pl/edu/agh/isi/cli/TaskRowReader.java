@@ -0,0 +1,283 @@
+package pl.edu.agh.isi.cli;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import pl.edu.agh.isi.Compression;
+
+/**
+ * Reads the rows of a bulk import one at a time, without holding the file in memory.
+ * CSV files (.csv) start with a header naming the fields, values may be quoted with
+ * double quotes and contain commas, quotes written twice and line breaks. JSON Lines
+ * files (.jsonl or .ndjson) hold one object per line. Either may be GZIP compressed.
+ * Rows that cannot be read are returned as invalid rows, so the rest of the file is
+ * still imported.
+ */
+public abstract class TaskRowReader implements Closeable {
+
+    private static final List<String> FIELDS = List.of(
+            "topic", "due", "description", "priority", "recurring", "occurrences", "end", "every", "on", "nth");
+    // The long option names of create are accepted as well
+    private static final Map<String, String> ALIASES = Map.of(
+            "due-date", "due", "end-date", "end", "interval", "recurring");
+    private static final ObjectReader JSON_READER = new ObjectMapper().readerFor(JsonNode.class);
+
+    protected final BufferedReader reader;
+
+    private TaskRowReader(Reader reader) {
+        this.reader = new BufferedReader(reader, 64 * 1024);
+    }
+
+    /**
+     * Check whether a file is a CSV or JSON Lines file, by its name
+     */
+    public static boolean isRowFile(File file) {
+        return extension(file) != null;
+    }
+
+    /**
+     * Open a CSV or JSON Lines file
+     * @throws IllegalArgumentException if the name has neither extension or the CSV header is invalid
+     * @throws IOException if the file cannot be read
+     */
+    public static TaskRowReader open(File file) throws IOException {
+        String extension = extension(file);
+        if (extension == null) {
+            throw new IllegalArgumentException("Expected a .csv, .jsonl or .ndjson file: " + file);
+        }
+        Reader reader = new InputStreamReader(Compression.decompress(Files.newInputStream(file.toPath())),
+                StandardCharsets.UTF_8);
+        try {
+            return extension.equals("csv") ? new Csv(reader) : new JsonLines(reader);
+        } catch (RuntimeException | IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private static String extension(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(Compression.GZIP_EXTENSION)) {
+            name = name.substring(0, name.length() - Compression.GZIP_EXTENSION.length());
+        }
+        for (String extension : List.of("csv", "jsonl", "ndjson")) {
+            if (name.endsWith("." + extension)) {
+                return extension;
+            }
+        }
+        return null;
+    }
+
+    private static String fieldName(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        key = ALIASES.getOrDefault(key, key);
+        if (!FIELDS.contains(key)) {
+            throw new IllegalArgumentException("Unknown field: " + name.trim() + ", use " + String.join(", ", FIELDS));
+        }
+        return key;
+    }
+
+    /**
+     * Read the next row
+     * @return the row, or null at the end of the file
+     */
+    public abstract TaskRow next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class Csv extends TaskRowReader {
+        private final List<String> header = new ArrayList<>();
+        private int line = 1;
+
+        private Csv(Reader reader) throws IOException {
+            super(reader);
+            // Spreadsheets often start UTF-8 files with a byte order mark
+            this.reader.mark(1);
+            if (this.reader.read() != '\uFEFF') {
+                this.reader.reset();
+            }
+            List<String> names = new ArrayList<>();
+            if (readRecord(names) != null) {
+                throw new IllegalArgumentException("Invalid CSV header on line 1");
+            }
+            if (names.isEmpty()) {
+                throw new IllegalArgumentException("The CSV file has no header");
+            }
+            for (String name : names) {
+                header.add(fieldName(name));
+            }
+            if (!header.contains("topic")) {
+                throw new IllegalArgumentException("The CSV header has no topic column");
+            }
+        }
+
+        @Override
+        public TaskRow next() throws IOException {
+            while (true) {
+                int start = line;
+                List<String> values = new ArrayList<>();
+                String error = readRecord(values);
+                if (error == null && values.isEmpty()) {
+                    if (atEnd()) {
+                        return null;
+                    }
+                    // Blank line
+                    continue;
+                }
+                if (error != null) {
+                    return TaskRow.invalid(start, error);
+                }
+                if (values.size() > header.size()) {
+                    return TaskRow.invalid(start, "Expected " + header.size() + " fields, found " + values.size());
+                }
+                Map<String, String> fields = new HashMap<>();
+                for (int i = 0; i < values.size(); i++) {
+                    fields.put(header.get(i), values.get(i));
+                }
+                return TaskRow.of(start, fields);
+            }
+        }
+
+        private boolean atEnd() throws IOException {
+            reader.mark(1);
+            int c = reader.read();
+            if (c == -1) {
+                return true;
+            }
+            reader.reset();
+            return false;
+        }
+
+        /**
+         * Read one record into values, nothing for a blank line or the end of the file
+         * @return an error, or null if the record was read
+         */
+        private String readRecord(List<String> values) throws IOException {
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            boolean any = false;
+            while (true) {
+                int c = reader.read();
+                if (c == -1) {
+                    if (quoted) {
+                        return "Unterminated quoted field";
+                    }
+                    if (any) {
+                        values.add(field.toString());
+                    }
+                    return null;
+                }
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    line++;
+                    if (values.isEmpty() && field.length() == 0 && !wasQuoted) {
+                        // A blank line holds no record
+                        return null;
+                    }
+                    values.add(field.toString());
+                    return null;
+                } else {
+                    field.append((char) c);
+                }
+            }
+        }
+    }
+
+    private static final class JsonLines extends TaskRowReader {
+        private int line;
+
+        private JsonLines(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        public TaskRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.trim().isEmpty());
+
+            JsonNode node;
+            try {
+                node = JSON_READER.readValue(text);
+            } catch (JsonProcessingException e) {
+                return TaskRow.invalid(line, "Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return TaskRow.invalid(line, "Expected an object of task fields");
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                String name;
+                try {
+                    name = fieldName(entry.getKey());
+                } catch (IllegalArgumentException e) {
+                    return TaskRow.invalid(line, e.getMessage());
+                }
+                JsonNode value = entry.getValue();
+                if (value.isNull()) {
+                    continue;
+                }
+                if (!value.isValueNode()) {
+                    return TaskRow.invalid(line, "Field " + name + " must be a text or a number");
+                }
+                fields.put(name, value.asText());
+            }
+            return TaskRow.of(line, fields);
+        }
+    }
+}
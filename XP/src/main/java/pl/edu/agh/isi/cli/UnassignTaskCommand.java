@@ -9,10 +9,9 @@ import java.util.Optional;
 import java.util.concurrent.Callable;
 
 import pl.edu.agh.isi.FamilyMember;
-import pl.edu.agh.isi.FamilyMemberRepository;
 import pl.edu.agh.isi.FamilyMemberService;
+import pl.edu.agh.isi.RepositoryScope;
 import pl.edu.agh.isi.Task;
-import pl.edu.agh.isi.TaskRepository;
 import pl.edu.agh.isi.TaskService;
 
 @Command(
@@ -48,6 +47,14 @@ public class UnassignTaskCommand implements Callable<Integer> {
             // Set the familyMemberService in the taskService
             taskService.setFamilyMemberService(familyMemberService);
             
+            // A saved instance of a recurring task may be given by its reference too
+            if (TaskIdParser.isInstanceReference(taskId)) {
+                Task task = taskService.unassignTask(taskId);
+                System.out.println("Task '" + task.getTopic() + "' (ID: " + task.getId()
+                    + ") unassigned");
+                return 0;
+            }
+            
             // First check if the task exists
             Optional<Task> taskOpt = taskService.getTask(taskId);
             if (!taskOpt.isPresent()) {
@@ -103,12 +110,10 @@ public class UnassignTaskCommand implements Callable<Integer> {
     
     // Protected methods for better testability
     protected TaskService createTaskService(File file) {
-        TaskRepository repository = new TaskRepository(file);
-        return new TaskService(repository);
+        return RepositoryScope.taskService(file);
     }
     
     protected FamilyMemberService createFamilyMemberService(File file) {
-        FamilyMemberRepository repository = new FamilyMemberRepository(file);
-        return new FamilyMemberService(repository);
+        return RepositoryScope.familyMemberService(file);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,145 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Agenda")
+class AgendaTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TaskRepository taskRepository;
+    private RecurringTaskService recurringTaskService;
+    private Agenda agenda;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = new TaskRepository(tempDir.resolve("tasks.json").toFile());
+        recurringTaskService = new RecurringTaskService(taskRepository);
+        agenda = new Agenda(taskRepository);
+        start = LocalDateTime.of(2025, 3, 10, 0, 0);
+    }
+
+    private List<Task> collect(Iterator<Task> entries) {
+        List<Task> tasks = new ArrayList<>();
+        entries.forEachRemaining(tasks::add);
+        return tasks;
+    }
+
+    @Test
+    @DisplayName("should merge stored tasks and recurring occurrences in due date order")
+    void shouldMergeInDueDateOrder() {
+        // given
+        Task daily = recurringTaskService.createRecurringTask("Dishes", start.plusHours(20), "",
+                TaskPriority.MEDIUM, new RecurrenceConfig(RecurrenceInterval.DAILY));
+        Task weekly = recurringTaskService.createRecurringTask("Trash", start.plusDays(1).plusHours(7), "",
+                TaskPriority.LOW, new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        Task oneOff = taskRepository.save(new Task("Call plumber", start.plusDays(2).plusHours(9), ""));
+
+        // when
+        List<Task> entries = collect(agenda.between(start, start.plusDays(3), false));
+
+        // then
+        List<String> labels = new ArrayList<>();
+        for (Task task : entries) {
+            labels.add(RecurringTaskService.instanceReference(task));
+        }
+        assertEquals(List.of(
+                String.valueOf(daily.getId()),
+                String.valueOf(weekly.getId()),
+                daily.getId() + "#1",
+                String.valueOf(oneOff.getId()),
+                daily.getId() + "#2"), labels);
+        for (int i = 1; i < entries.size(); i++) {
+            assertFalse(entries.get(i).getDueDate().isBefore(entries.get(i - 1).getDueDate()));
+        }
+    }
+
+    @Test
+    @DisplayName("should show saved instances once and leave out completed tasks unless asked")
+    void shouldNotDuplicateSavedInstances() {
+        // given
+        Task daily = recurringTaskService.createRecurringTask("Dishes", start.plusHours(20), "",
+                TaskPriority.MEDIUM, new RecurrenceConfig(RecurrenceInterval.DAILY));
+        Task saved = recurringTaskService.persistInstance(daily.getId(), 1);
+        Task done = recurringTaskService.persistInstance(daily.getId(), 2);
+        done.setCompleted(true);
+        taskRepository.update(done);
+
+        // when
+        List<Task> open = collect(agenda.between(start, start.plusDays(3).minusMinutes(1), false));
+        List<Task> all = collect(agenda.between(start, start.plusDays(3).minusMinutes(1), true));
+
+        // then
+        assertEquals(2, open.size());
+        assertEquals(saved.getId(), open.get(1).getId());
+        assertEquals(3, all.size());
+        assertEquals(done.getId(), all.get(2).getId());
+    }
+
+    @Test
+    @DisplayName("should show compacted instances with completed tasks only")
+    void shouldShowCompactedInstancesWithCompletedTasks() {
+        // given
+        Task daily = recurringTaskService.createRecurringTask("Dishes", start.plusHours(20), "",
+                TaskPriority.MEDIUM, new RecurrenceConfig(RecurrenceInterval.DAILY));
+        for (int number = 1; number <= 2; number++) {
+            Task done = recurringTaskService.persistInstance(daily.getId(), number);
+            done.setCompleted(true);
+            taskRepository.update(done);
+        }
+        assertEquals(2, recurringTaskService.compact(start.plusDays(5)));
+
+        // when
+        List<Task> open = collect(agenda.between(start, start.plusDays(3).minusMinutes(1), false));
+        List<Task> all = collect(agenda.between(start, start.plusDays(3).minusMinutes(1), true));
+
+        // then
+        assertEquals(1, open.size());
+        assertEquals(daily.getId(), open.get(0).getId());
+        assertEquals(3, all.size());
+        assertEquals(daily.getId() + "#1", RecurringTaskService.instanceReference(all.get(1)));
+        assertEquals(daily.getId() + "#2", RecurringTaskService.instanceReference(all.get(2)));
+        assertTrue(all.get(2).isCompleted());
+        assertEquals(start.plusDays(2).plusHours(20), all.get(2).getDueDate());
+    }
+
+    @Test
+    @DisplayName("should produce entries lazily over a very long range")
+    void shouldProduceEntriesLazily() {
+        // given
+        for (int i = 0; i < 300; i++) {
+            recurringTaskService.createRecurringTask("Chore " + i, start.plusMinutes(i), "",
+                    TaskPriority.LOW, new RecurrenceConfig(RecurrenceInterval.DAILY));
+        }
+
+        // when
+        Iterator<Task> entries = agenda.between(start, start.plusYears(1000), false);
+        List<Task> firstDays = new ArrayList<>();
+        while (firstDays.size() < 900) {
+            firstDays.add(entries.next());
+        }
+
+        // then
+        assertTrue(entries.hasNext());
+        assertEquals(start.plusDays(2).plusMinutes(299), firstDays.get(899).getDueDate());
+    }
+
+    @Test
+    @DisplayName("should reject a range that ends before it starts")
+    void shouldRejectReversedRange() {
+        assertThrows(IllegalArgumentException.class, () -> agenda.between(start, start.minusDays(1), false));
+    }
+}
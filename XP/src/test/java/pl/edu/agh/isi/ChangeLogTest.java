@@ -0,0 +1,51 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ChangeLog")
+class ChangeLogTest {
+
+    @Test
+    @DisplayName("should drop the older half of the deletions once there are too many")
+    void shouldPruneOldDeletions() {
+        // given
+        ChangeLog log = new ChangeLog();
+
+        // when
+        for (int id = 1; id <= ChangeLog.MAX_DELETIONS + 1; id++) {
+            log.recordDelete(id);
+        }
+
+        // then
+        List<Integer> kept = log.deletedSince(0);
+        assertTrue(kept.size() <= ChangeLog.MAX_DELETIONS / 2 + 1);
+        assertEquals(ChangeLog.MAX_DELETIONS + 1, kept.get(kept.size() - 1).intValue());
+        long pruned = ChangeLog.MAX_DELETIONS + 1 - kept.size();
+        assertThrows(IllegalArgumentException.class, () -> log.checkSince(pruned - 1));
+        log.checkSince(pruned);
+        assertEquals(kept, log.deletedSince(pruned));
+    }
+
+    @Test
+    @DisplayName("should take only deltas that continue from the last one applied")
+    void shouldCheckDeltaOrder() {
+        // given
+        ChangeLog log = new ChangeLog();
+        log.checkApply(new Delta(5, 8, List.of(), 0));
+
+        // when
+        log.setApplied(8);
+
+        // then
+        log.checkApply(new Delta(8, 12, List.of(), 0));
+        log.checkApply(new Delta(5, 8, List.of(), 0));
+        log.checkApply(new Delta(3, 10, List.of(), 0));
+        assertThrows(IllegalArgumentException.class, () -> log.checkApply(new Delta(9, 12, List.of(), 0)));
+        assertThrows(IllegalArgumentException.class, () -> log.checkApply(new Delta(2, 5, List.of(), 0)));
+    }
+}
@@ -49,4 +49,32 @@ class CommentTest {
         comment.setCreatedAt(now);
         assertEquals(now, comment.getCreatedAt());
     }
+    
+    @Test
+    void testFromTemplate() {
+        comment = Comment.fromTemplate(CommentTemplate.ASSIGNED, "John");
+        assertEquals("Task assigned to John", comment.getContent());
+        assertEquals(CommentTemplate.ASSIGNED, comment.getTemplate());
+        assertNotNull(comment.getCreatedAt());
+    }
+    
+    @Test
+    void testSetContentReplacesTemplate() {
+        comment = Comment.fromTemplate(CommentTemplate.GENERATED, "7");
+        comment.setContent("Done by hand");
+        assertEquals("Done by hand", comment.getContent());
+        assertNull(comment.getTemplate());
+    }
+    
+    @Test
+    void testStoredTemplateCommentsShareArguments() {
+        Comment first = new Comment(CommentTemplate.GENERATED, "" + 42, LocalDateTime.now(), null);
+        Comment second = new Comment(CommentTemplate.GENERATED, "" + 42, LocalDateTime.now(), null);
+        Comment own = new Comment(null, "Generated as part of recurring task #42", LocalDateTime.now(), null);
+        assertEquals(CommentTemplate.GENERATED, first.getTemplate());
+        assertEquals("Generated as part of recurring task #42", first.getContent());
+        assertSame(first.getArgument(), second.getArgument());
+        assertNull(own.getTemplate());
+        assertEquals("Generated as part of recurring task #42", own.getContent());
+    }
 }
@@ -0,0 +1,76 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Compression")
+class CompressionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        AppConfig.getInstance().setCompressStorage(false);
+    }
+
+    @Test
+    @DisplayName("should write GZIP and read it back transparently")
+    void shouldRoundTripGzip() throws IOException {
+        // given
+        File file = tempDir.resolve("tasks.json.gz").toFile();
+        byte[] content = "{\"schema\":2,\"tasks\":[]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+        // when
+        try (OutputStream out = Compression.GZIP.compress(Files.newOutputStream(file.toPath()))) {
+            out.write(content);
+        }
+
+        // then
+        byte[] stored = Files.readAllBytes(file.toPath());
+        assertEquals(0x1f, stored[0] & 0xff);
+        assertEquals(0x8b, stored[1] & 0xff);
+        assertTrue(stored.length < content.length);
+        assertArrayEquals(content, Compression.readAllBytes(file));
+    }
+
+    @Test
+    @DisplayName("should read uncompressed files as they are")
+    void shouldReadPlainFiles() throws IOException {
+        // given
+        File file = tempDir.resolve("tasks.json").toFile();
+        Files.write(file.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+        File empty = tempDir.resolve("empty.json").toFile();
+        Files.write(empty.toPath(), new byte[0]);
+
+        // when / then
+        assertArrayEquals("[]".getBytes(StandardCharsets.UTF_8), Compression.readAllBytes(file));
+        assertArrayEquals(new byte[0], Compression.readAllBytes(empty));
+    }
+
+    @Test
+    @DisplayName("should choose compression by extension and configuration")
+    void shouldChooseCompressionForFile() {
+        File plain = new File("tasks.json");
+        File gzip = new File("tasks.json.gz");
+
+        assertEquals(Compression.NONE, Compression.forFile(plain));
+        assertEquals(Compression.GZIP, Compression.forFile(gzip));
+
+        AppConfig.getInstance().setCompressStorage(true);
+        assertEquals(Compression.GZIP, Compression.forFile(plain));
+        assertEquals(Compression.NONE, Compression.byExtension(plain));
+        assertEquals(Compression.GZIP, Compression.byExtension(gzip));
+    }
+}
@@ -0,0 +1,191 @@
+package pl.edu.agh.isi;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Domain Codecs")
+class DomainCodecsTest {
+
+    private ObjectMapper databind;
+    private ObjectMapper codecs;
+
+    @BeforeEach
+    void setUp() {
+        databind = new ObjectMapper();
+        databind.registerModule(new JavaTimeModule());
+        databind.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        databind.registerModule(TaskSchema.module());
+        codecs = StorageFormat.JSON.newMapper();
+        codecs.registerModule(TaskSchema.module());
+    }
+
+    private String write(ObjectMapper mapper, List<Task> tasks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskSchema.write(mapper, out, tasks);
+        return out.toString();
+    }
+
+    private List<Task> sampleTasks() {
+        RecurrenceConfig config = new RecurrenceConfig(RecurrenceInterval.MONTHLY, 5, LocalDateTime.of(2026, 1, 1, 0, 0));
+        config.setEvery(2);
+        config.setWeekdays(EnumSet.of(DayOfWeek.FRIDAY));
+        config.setWeekOfMonth(-1);
+        Task parent = new Task("Pay rent", LocalDateTime.of(2025, 6, 1, 10, 0, 0, 123), "Transfer", TaskPriority.HIGH, config);
+        parent.setId(1);
+        parent.setAssignedTo("2");
+        parent.addComment(new Comment("Paid early", "Anna"));
+        SeriesHistory history = new SeriesHistory();
+        Task compacted = new Task("Pay rent", LocalDateTime.of(2025, 5, 1, 10, 0), null, TaskPriority.HIGH, 1, 1);
+        compacted.setCompleted(true);
+        history.add(compacted);
+        parent.setSeriesHistory(history);
+
+        Task done = new Task("Water plants", null, null);
+        done.setId(2);
+        done.setCompleted(true);
+        done.setCompletedAt(LocalDateTime.of(2025, 1, 1, 8, 30));
+
+        Task instance = new Task("Pay rent", LocalDateTime.of(2025, 7, 1, 10, 0), "Transfer", TaskPriority.LOW, 1, 2);
+        instance.setId(3);
+        instance.addComment(Comment.fromTemplate(CommentTemplate.GENERATED, "1"));
+        return Arrays.asList(parent, done, instance);
+    }
+
+    @Test
+    @DisplayName("should write tasks exactly like databind")
+    void shouldWriteTasksLikeDatabind() throws IOException {
+        // given
+        List<Task> tasks = sampleTasks();
+
+        // when
+        String streamed = write(codecs, tasks);
+
+        // then
+        assertEquals(write(databind, tasks), streamed);
+    }
+
+    @Test
+    @DisplayName("should read tasks back to the same file")
+    void shouldReadTasksBack() throws IOException {
+        // given
+        byte[] data = write(databind, sampleTasks()).getBytes();
+
+        // when
+        Task[] read = TaskSchema.readTasks(codecs, data);
+
+        // then
+        assertEquals(new String(data), write(databind, Arrays.asList(read)));
+        assertEquals(EnumSet.of(DayOfWeek.FRIDAY), read[0].getRecurrenceConfig().getWeekdays());
+        assertEquals("Anna", read[0].getComments().get(0).getAuthor());
+        assertEquals(1, read[0].getSeriesHistory().getEntries().size());
+        assertTrue(read[1].getComments().isEmpty());
+        assertEquals(CommentTemplate.GENERATED, read[2].getComments().get(0).getTemplate());
+        assertEquals("Generated as part of recurring task #1", read[2].getComments().get(0).getContent());
+    }
+
+    @Test
+    @DisplayName("should keep a written comment that starts like a template as its text")
+    void shouldNotTakeWrittenCommentForTemplate() throws IOException {
+        // given
+        Task task = new Task(1, "Vacuum", null, null);
+        task.addComment(new Comment("Task assigned to whoever is home first", "Anna"));
+        task.addComment(Comment.fromTemplate(CommentTemplate.ASSIGNED, "Anna"));
+
+        // when
+        String json = write(codecs, List.of(task));
+        Task read = TaskSchema.readTasks(codecs, json.getBytes())[0];
+
+        // then
+        assertTrue(json.contains("\"s\":\"Task assigned to whoever is home first\""));
+        assertTrue(json.contains("\"tpl\":\"ASSIGNED\",\"arg\":\"Anna\""));
+        assertNull(read.getComments().get(0).getTemplate());
+        assertEquals("Task assigned to whoever is home first", read.getComments().get(0).getContent());
+        assertEquals(CommentTemplate.ASSIGNED, read.getComments().get(1).getTemplate());
+        assertEquals("Task assigned to Anna", read.getComments().get(1).getContent());
+    }
+
+    @Test
+    @DisplayName("should read version 1 names and skip derived fields")
+    void shouldReadVersion1Names() throws IOException {
+        // given
+        String v1 = "[{\"id\":4,\"topic\":\"Water plants\",\"description\":null,"
+                + "\"createdAt\":[2025,5,23,20,41,54,802859000],\"dueDate\":[2025,6,1,10,0],"
+                + "\"completed\":true,\"assignedTo\":\"2\",\"comments\":[{\"content\":\"Done\",\"author\":null}],"
+                + "\"priority\":\"HIGH\",\"recurrenceConfig\":{\"interval\":\"WEEKLY\",\"occurrences\":-1,"
+                + "\"endDate\":null,\"unlimited\":true},\"recurring\":true,\"recurrenceInstance\":false}]";
+
+        // when
+        Task task = TaskSchema.readTasks(codecs, v1.getBytes())[0];
+
+        // then
+        assertEquals("Water plants", task.getTopic());
+        assertNull(task.getDescription());
+        assertEquals(LocalDateTime.of(2025, 5, 23, 20, 41, 54, 802859000), task.getCreatedAt());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 10, 0), task.getDueDate());
+        assertTrue(task.isCompleted());
+        assertEquals("Done", task.getComments().get(0).getContent());
+        assertNotNull(task.getComments().get(0).getCreatedAt());
+        assertEquals(TaskPriority.HIGH, task.getPriority());
+        assertTrue(task.getRecurrenceConfig().isUnlimited());
+        assertEquals(1, task.getRecurrenceConfig().getEvery());
+    }
+
+    @Test
+    @DisplayName("should read stored fields without the checks of new input")
+    void shouldReadStoredFieldsWithoutChecks() throws IOException {
+        // given
+        String json = "{\"schema\":2,\"tasks\":[{\"id\":1,\"t\":\" \",\"r\":{\"iv\":\"DAILY\",\"every\":0}}]}";
+
+        // when
+        Task task = TaskSchema.readTasks(codecs, json.getBytes())[0];
+
+        // then
+        assertEquals(" ", task.getTopic());
+        assertEquals(0, task.getRecurrenceConfig().getEvery());
+        assertThrows(IOException.class, () -> TaskSchema.readTasks(databind, json.getBytes()));
+    }
+
+    @Test
+    @DisplayName("should reject unknown priority")
+    void shouldRejectUnknownPriority() {
+        String json = "{\"schema\":2,\"tasks\":[{\"id\":1,\"t\":\"Task\",\"p\":\"URGENT\"}]}";
+
+        assertThrows(IOException.class, () -> TaskSchema.readTasks(codecs, json.getBytes()));
+    }
+
+    @Test
+    @DisplayName("should write and read family members like databind")
+    void shouldHandleFamilyMembersLikeDatabind() throws IOException {
+        // given
+        ObjectMapper plain = new ObjectMapper();
+        plain.registerModule(new JavaTimeModule());
+        ObjectMapper memberCodecs = StorageFormat.JSON.newMapper();
+        FamilyMember unnamed = new FamilyMember();
+        unnamed.setId(2);
+        List<FamilyMember> members = Arrays.asList(new FamilyMember(1, "John Smith"), unnamed);
+
+        // when
+        String streamed = memberCodecs.writeValueAsString(members);
+        FamilyMember[] read = memberCodecs.readValue(streamed, FamilyMember[].class);
+
+        // then
+        assertEquals(plain.writeValueAsString(members), streamed);
+        assertEquals("John Smith", read[0].getName());
+        assertEquals(members.get(0).getCreatedAt(), read[0].getCreatedAt());
+        assertNull(read[1].getName());
+    }
+}
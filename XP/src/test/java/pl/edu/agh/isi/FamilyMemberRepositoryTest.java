@@ -349,5 +349,54 @@ class FamilyMemberRepositoryTest {
             assertTrue(content.contains("John Smith"));
             assertTrue(content.contains("Jane Doe"));
         }
+        
+        @Test
+        @DisplayName("should export and apply only the changes since a backup")
+        void shouldExportAndApplyChangesSinceBackup() throws IOException {
+            // Given
+            FamilyMember john = repository.save(new FamilyMember("John Smith"));
+            FamilyMember jane = repository.save(new FamilyMember("Jane Doe"));
+            File backup = tempDir.resolve("members-backup.json").toFile();
+            long backedUp = repository.exportTo(backup, StorageFormat.JSON);
+            repository.delete(john.getId());
+            jane.setName("Jane Smith");
+            repository.update(jane);
+            File changes = tempDir.resolve("members-changes.json").toFile();
+            
+            // When
+            Delta delta = repository.exportChangesSince(backedUp, changes, StorageFormat.JSON);
+            FamilyMemberRepository restored = new FamilyMemberRepository(tempDir.resolve("restored.json").toFile());
+            restored.replaceAll(new FamilyMemberRepository(backup).findAll(), StorageFormat.JSON);
+            restored.applyChanges(changes);
+            restored.applyChanges(changes);
+            FamilyMemberRepository reloaded = new FamilyMemberRepository(tempDir.resolve("restored.json").toFile());
+            
+            // Then
+            assertEquals(1, delta.getChangedCount());
+            assertEquals(1, delta.getDeletedCount());
+            assertEquals(1, reloaded.findAll().size());
+            assertEquals("Jane Smith", reloaded.findById(jane.getId()).get().getName());
+            assertEquals(repository.getChangeSequence(), new FamilyMemberRepository(testFile).getChangeSequence());
+        }
+        
+        @Test
+        @DisplayName("should keep writing a file in the Smile format it was read in")
+        void shouldKeepSmileFormat() throws IOException {
+            // Given
+            repository.save(new FamilyMember("John Smith"));
+            File exported = tempDir.resolve("members.sml").toFile();
+            repository.exportTo(exported, StorageFormat.SMILE);
+            
+            // When
+            FamilyMemberRepository smileRepository = new FamilyMemberRepository(exported);
+            smileRepository.save(new FamilyMember("Jane Doe"));
+            FamilyMemberRepository reloaded = new FamilyMemberRepository(exported);
+            
+            // Then
+            assertEquals(StorageFormat.SMILE, reloaded.getStorageFormat());
+            assertEquals(StorageFormat.SMILE, StorageFormat.detect(Files.readAllBytes(exported.toPath())));
+            assertEquals(2, reloaded.findAll().size());
+            assertTrue(reloaded.findAll().stream().anyMatch(member -> "Jane Doe".equals(member.getName())));
+        }
     }
-} 
\ No newline at end of file
+}
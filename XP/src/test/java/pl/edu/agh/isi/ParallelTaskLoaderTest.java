@@ -0,0 +1,173 @@
+package pl.edu.agh.isi;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelTaskLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ObjectMapper mapper;
+    private LocalDateTime dueDate;
+
+    @BeforeEach
+    void setUp() {
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        dueDate = LocalDateTime.of(2025, 1, 1, 12, 0);
+    }
+
+    @Test
+    void shouldFindRecordBoundariesIgnoringBracesInStrings() throws IOException {
+        // given
+        String json = " [ {\"id\":1,\"topic\":\"a } { \\\" ]\"}, {\"id\":2,\"comments\":[{\"content\":\"x\"}]} ] ";
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+
+        // when
+        int[] bounds = ParallelTaskLoader.scanRecordBounds(data);
+
+        // then
+        assertEquals(4, bounds.length);
+        assertEquals("{\"id\":1,\"topic\":\"a } { \\\" ]\"}", json.substring(bounds[0], bounds[1]));
+        assertEquals("{\"id\":2,\"comments\":[{\"content\":\"x\"}]}", json.substring(bounds[2], bounds[3]));
+    }
+
+    @Test
+    void shouldRejectContentThatIsNotAnArray() {
+        assertThrows(IOException.class,
+                () -> ParallelTaskLoader.scanRecordBounds("{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IOException.class,
+                () -> ParallelTaskLoader.scanRecordBounds("[{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void shouldLoadSameTasksAsSequentialParse() throws IOException {
+        // given
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5_000; i++) {
+            Task task = new Task(i, "Task \"" + i + "\" {ąę}", dueDate.plusHours(i), "Details " + i);
+            task.addComment(new Comment("Comment ] " + i));
+            tasks.add(task);
+        }
+        byte[] data = mapper.writeValueAsBytes(tasks);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        // when
+        ParallelTaskLoader.Result result;
+        try {
+            result = new ParallelTaskLoader(mapper, pool).load(data);
+        } finally {
+            pool.shutdown();
+        }
+
+        // then
+        assertEquals(5_000, result.getTasks().size());
+        assertEquals(5_000, result.getMaxId());
+        Task loaded = result.getTasks().get(1234);
+        assertEquals("Task \"1234\" {ąę}", loaded.getTopic());
+        assertEquals(dueDate.plusHours(1234), loaded.getDueDate());
+        assertEquals("Comment ] 1234", loaded.getComments().get(0).getContent());
+    }
+
+    @Test
+    void shouldKeepLastRecordOfDuplicateIdsLikeSequentialParse() throws IOException {
+        // given
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5_000; i++) {
+            tasks.add(new Task((i - 1) % 1_000 + 1, "Task " + i, dueDate, null));
+        }
+        byte[] data = mapper.writeValueAsBytes(tasks);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        // when
+        ParallelTaskLoader.Result result;
+        try {
+            result = new ParallelTaskLoader(mapper, pool).load(data);
+        } finally {
+            pool.shutdown();
+        }
+
+        // then
+        assertEquals(1_000, result.getTasks().size());
+        assertEquals(1_000, result.getMaxId());
+        for (int id = 1; id <= 1_000; id++) {
+            assertEquals("Task " + (4_000 + id), result.getTasks().get(id).getTopic());
+        }
+    }
+
+    @Test
+    void shouldLoadTasksWrappedInSchemaVersion2() throws IOException {
+        // given
+        mapper.registerModule(TaskSchema.module());
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 2_000; i++) {
+            tasks.add(new Task(i, "Task {" + i + "}", dueDate.plusMinutes(i), null));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskSchema.write(mapper, out, tasks);
+
+        // when
+        ParallelTaskLoader.Result result = new ParallelTaskLoader(mapper).load(out.toByteArray());
+
+        // then
+        assertEquals(2_000, result.getTasks().size());
+        assertEquals("Task {77}", result.getTasks().get(77).getTopic());
+        assertEquals(dueDate.plusMinutes(77), result.getTasks().get(77).getDueDate());
+    }
+
+    @Test
+    void shouldLoadTasksAsWrittenWithoutMigrating() throws IOException {
+        // given
+        String json = "[{\"id\":3,\"description\":\"Legacy\"},{\"id\":2,\"topic\":\"Valid\"}]";
+
+        // when
+        ParallelTaskLoader.Result result = new ParallelTaskLoader(mapper).load(json.getBytes(StandardCharsets.UTF_8));
+
+        // then
+        assertEquals(2, result.getTasks().size());
+        assertNull(result.getTasks().get(3).getTopic());
+        assertEquals(3, result.getMaxId());
+    }
+
+    @Test
+    void shouldUseParallelLoadForLargeRepositoryFiles() throws IOException {
+        // given
+        List<Task> tasks = new ArrayList<>();
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            description.append("padding ");
+        }
+        for (int i = 1; i <= 1_000; i++) {
+            tasks.add(new Task(i, "Task " + i, dueDate, description.toString()));
+        }
+        File tasksFile = tempDir.resolve("large-tasks.json").toFile();
+        mapper.writeValue(tasksFile, tasks);
+        assertTrue(tasksFile.length() >= TaskFileLoader.PARALLEL_LOAD_THRESHOLD_BYTES);
+
+        // when
+        TaskRepository repository = new TaskRepository(tasksFile, mapper);
+        Task created = repository.save(new Task("New task", dueDate, ""));
+
+        // then
+        assertEquals(1_001, repository.findAll().size());
+        assertEquals(1_001, created.getId());
+    }
+}
@@ -0,0 +1,229 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Recurrence Rule")
+class RecurrenceRuleTest {
+
+    @Nested
+    @DisplayName("Examples")
+    class Examples {
+
+        @Test
+        @DisplayName("should return to the 31st after a short month")
+        void shouldNotDriftAfterMonthEndClamp() {
+            RecurrenceRule rule = RecurrenceRule.monthly(LocalDateTime.of(2024, 1, 31, 9, 0), 1);
+
+            assertEquals(LocalDateTime.of(2024, 2, 29, 9, 0), rule.nthOccurrence(1));
+            assertEquals(LocalDateTime.of(2024, 3, 31, 9, 0), rule.nthOccurrence(2));
+            assertEquals(LocalDateTime.of(2024, 4, 30, 9, 0), rule.nthOccurrence(3));
+            assertEquals(LocalDateTime.of(2024, 3, 31, 9, 0), rule.nextAfter(LocalDateTime.of(2024, 2, 29, 9, 0)));
+        }
+
+        @Test
+        @DisplayName("should keep a monthly series on the 31st when stepping through the config")
+        void shouldNotDriftThroughConfig() {
+            RecurrenceConfig config = new RecurrenceConfig(RecurrenceInterval.MONTHLY);
+            LocalDateTime start = LocalDateTime.of(2025, 1, 31, 9, 0);
+
+            LocalDateTime february = config.calculateNextDueDate(start, start);
+            LocalDateTime march = config.calculateNextDueDate(start, february);
+
+            assertEquals(LocalDateTime.of(2025, 2, 28, 9, 0), february);
+            assertEquals(LocalDateTime.of(2025, 3, 31, 9, 0), march);
+        }
+
+        @Test
+        @DisplayName("should repeat on weekdays of every second week")
+        void shouldRepeatOnWeekdaysOfEverySecondWeek() {
+            // Wednesday
+            LocalDateTime start = LocalDateTime.of(2025, 3, 5, 18, 0);
+            RecurrenceRule rule = RecurrenceRule.weekly(start, 2,
+                    EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY));
+
+            assertEquals(start, rule.nthOccurrence(0));
+            assertEquals(LocalDateTime.of(2025, 3, 7, 18, 0), rule.nthOccurrence(1));
+            assertEquals(LocalDateTime.of(2025, 3, 17, 18, 0), rule.nthOccurrence(2));
+            assertEquals(LocalDateTime.of(2025, 3, 17, 18, 0), rule.nextAfter(LocalDateTime.of(2025, 3, 8, 0, 0)));
+            assertEquals(4, rule.countBetween(start, LocalDateTime.of(2025, 3, 19, 18, 0)));
+        }
+
+        @Test
+        @DisplayName("should repeat on the second Tuesday and the last Friday of a month")
+        void shouldRepeatOnNthWeekday() {
+            LocalDateTime start = LocalDateTime.of(2025, 3, 20, 8, 0);
+            RecurrenceRule secondTuesday = RecurrenceRule.monthlyOnWeekday(start, 1, 2, DayOfWeek.TUESDAY);
+            RecurrenceRule lastFriday = RecurrenceRule.monthlyOnWeekday(start, 1, RecurrenceRule.LAST, DayOfWeek.FRIDAY);
+
+            // The second Tuesday of March is before the start
+            assertEquals(LocalDateTime.of(2025, 4, 8, 8, 0), secondTuesday.nthOccurrence(0));
+            assertEquals(LocalDateTime.of(2025, 3, 28, 8, 0), lastFriday.nthOccurrence(0));
+            assertEquals(LocalDateTime.of(2025, 5, 30, 8, 0), lastFriday.nthOccurrence(2));
+        }
+
+        @Test
+        @DisplayName("should reject invalid rules")
+        void shouldRejectInvalidRules() {
+            LocalDateTime start = LocalDateTime.of(2025, 3, 20, 8, 0);
+
+            assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.daily(start, 0));
+            assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.monthlyOnWeekday(start, 1, 5, DayOfWeek.MONDAY));
+            assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.daily(start, 1).nthOccurrence(-1));
+        }
+
+        @Test
+        @DisplayName("should build rules from a recurrence config")
+        void shouldBuildRulesFromConfig() {
+            LocalDateTime start = LocalDateTime.of(2025, 3, 20, 8, 0);
+            RecurrenceConfig config = new RecurrenceConfig(RecurrenceInterval.MONTHLY);
+            config.setEvery(2);
+            config.setWeekOfMonth(1);
+            config.setWeekdays(EnumSet.of(DayOfWeek.SUNDAY));
+
+            assertEquals(LocalDateTime.of(2025, 5, 4, 8, 0), config.toRule(start).nthOccurrence(0));
+
+            config.setWeekdays(EnumSet.of(DayOfWeek.SUNDAY, DayOfWeek.MONDAY));
+            assertThrows(IllegalArgumentException.class, () -> config.toRule(start));
+            assertThrows(IllegalArgumentException.class, () -> config.setEvery(0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Properties")
+    class Properties {
+        private static final int RULES = 300;
+        private static final int OCCURRENCES = 120;
+
+        // Fixed seed, so a failure can be reproduced
+        private final Random random = new Random(20250310L);
+
+        @Test
+        @DisplayName("should agree with day-by-day stepping for random rules")
+        void shouldAgreeWithSteppingOracle() {
+            for (int i = 0; i < RULES; i++) {
+                RandomRule sample = randomRule();
+                List<LocalDateTime> expected = oracle(sample, OCCURRENCES);
+
+                for (int n = 0; n < expected.size(); n++) {
+                    assertEquals(expected.get(n), sample.rule.nthOccurrence(n), sample + " occurrence " + n);
+                }
+
+                LocalDateTime last = expected.get(expected.size() - 1);
+                long span = ChronoUnit.MINUTES.between(sample.start, last);
+                for (int probe = 0; probe < 20; probe++) {
+                    LocalDateTime a = sample.start.plusMinutes((long) (random.nextDouble() * span) - span / 10);
+                    LocalDateTime b = a.plusMinutes((long) (random.nextDouble() * span / 2));
+                    if (probe % 5 == 0) {
+                        // Probe exactly on an occurrence as well
+                        a = expected.get(random.nextInt(expected.size() / 2));
+                    }
+                    LocalDateTime from = a;
+                    LocalDateTime to = b.isBefore(a) ? a : b;
+
+                    LocalDateTime next = expected.stream().filter(t -> t.isAfter(from)).findFirst().orElse(null);
+                    if (next != null) {
+                        assertEquals(next, sample.rule.nextAfter(from), sample + " next after " + from);
+                    }
+                    if (!to.isAfter(last)) {
+                        long count = expected.stream().filter(t -> !t.isBefore(from) && !t.isAfter(to)).count();
+                        assertEquals(count, sample.rule.countBetween(from, to), sample + " between " + from + " and " + to);
+                    }
+                }
+            }
+        }
+
+        private RandomRule randomRule() {
+            LocalDateTime start = LocalDateTime.of(2020 + random.nextInt(10), 1 + random.nextInt(12), 1, 0, 0)
+                    .plusDays(random.nextInt(31))
+                    .plusMinutes(random.nextInt(24 * 60));
+            int every = 1 + random.nextInt(4);
+            switch (random.nextInt(4)) {
+                case 0:
+                    return new RandomRule(start, RecurrenceRule.daily(start, every), date ->
+                            ChronoUnit.DAYS.between(start.toLocalDate(), date) % every == 0);
+                case 1: {
+                    Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+                    for (DayOfWeek day : DayOfWeek.values()) {
+                        if (random.nextInt(3) == 0) {
+                            days.add(day);
+                        }
+                    }
+                    Set<DayOfWeek> effective = days.isEmpty() ? EnumSet.of(start.getDayOfWeek()) : days;
+                    LocalDate firstMonday = start.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                    return new RandomRule(start, RecurrenceRule.weekly(start, every, days), date ->
+                            effective.contains(date.getDayOfWeek())
+                                    && ChronoUnit.WEEKS.between(firstMonday,
+                                            date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))) % every == 0);
+                }
+                case 2:
+                    return new RandomRule(start, RecurrenceRule.monthly(start, every), date ->
+                            monthsBetween(start.toLocalDate(), date) % every == 0
+                                    && date.getDayOfMonth() == Math.min(start.getDayOfMonth(), date.lengthOfMonth()));
+                default: {
+                    int ordinal = random.nextInt(5) == 0 ? RecurrenceRule.LAST : 1 + random.nextInt(4);
+                    DayOfWeek day = DayOfWeek.of(1 + random.nextInt(7));
+                    return new RandomRule(start, RecurrenceRule.monthlyOnWeekday(start, every, ordinal, day), date -> {
+                        if (monthsBetween(start.toLocalDate(), date) % every != 0 || date.getDayOfWeek() != day) {
+                            return false;
+                        }
+                        int week = (date.getDayOfMonth() - 1) / 7 + 1;
+                        return ordinal == RecurrenceRule.LAST
+                                ? date.plusWeeks(1).getMonth() != date.getMonth()
+                                : week == ordinal;
+                    });
+                }
+            }
+        }
+
+        // Walks the calendar one day at a time and keeps the matching days
+        private List<LocalDateTime> oracle(RandomRule sample, int count) {
+            List<LocalDateTime> occurrences = new ArrayList<>();
+            LocalDate date = sample.start.toLocalDate();
+            while (occurrences.size() < count) {
+                LocalDateTime candidate = LocalDateTime.of(date, sample.start.toLocalTime());
+                if (!candidate.isBefore(sample.start) && sample.matches.test(date)) {
+                    occurrences.add(candidate);
+                }
+                date = date.plusDays(1);
+            }
+            return occurrences;
+        }
+
+        private long monthsBetween(LocalDate from, LocalDate to) {
+            return (to.getYear() * 12L + to.getMonthValue()) - (from.getYear() * 12L + from.getMonthValue());
+        }
+    }
+
+    private static final class RandomRule {
+        final LocalDateTime start;
+        final RecurrenceRule rule;
+        final Predicate<LocalDate> matches;
+
+        RandomRule(LocalDateTime start, RecurrenceRule rule, Predicate<LocalDate> matches) {
+            this.start = start;
+            this.rule = rule;
+            this.matches = matches;
+        }
+
+        @Override
+        public String toString() {
+            return rule.toString();
+        }
+    }
+}
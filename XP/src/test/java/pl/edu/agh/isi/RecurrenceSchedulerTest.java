@@ -0,0 +1,254 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Recurrence Scheduler")
+class RecurrenceSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File tasksFile;
+    private TaskRepository taskRepository;
+    private RecurringTaskService recurringTaskService;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        tasksFile = tempDir.resolve("tasks.json").toFile();
+        taskRepository = new TaskRepository(tasksFile);
+        recurringTaskService = new RecurringTaskService(taskRepository);
+        now = LocalDateTime.of(2025, 3, 10, 12, 0);
+    }
+
+    private RecurrenceScheduler schedulerAt(LocalDateTime time) {
+        ZoneId zone = ZoneId.systemDefault();
+        Clock clock = Clock.fixed(time.atZone(zone).toInstant(), zone);
+        return new RecurrenceScheduler(taskRepository, recurringTaskService, new TaskLockManager(), clock);
+    }
+
+    private Task recurring(String topic, LocalDateTime dueDate, RecurrenceConfig config) {
+        return recurringTaskService.createRecurringTask(topic, dueDate, "", TaskPriority.MEDIUM, config);
+    }
+
+    private List<Task> instancesOf(Task parent) {
+        return taskRepository.findAll().stream()
+                .filter(t -> t.isRecurrenceInstance() && t.getParentTaskId() == parent.getId())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("should queue series by the due date of their latest occurrence")
+    void shouldQueueSeriesByLatestOccurrence() {
+        // given
+        Task weekly = recurring("Trash", now.plusDays(3), new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        Task daily = recurring("Dishes", now.minusDays(5), new RecurrenceConfig(RecurrenceInterval.DAILY));
+        taskRepository.save(new Task("Dishes", now.plusDays(1), "", TaskPriority.MEDIUM, daily.getId(), 1));
+        recurring("No date", null, new RecurrenceConfig(RecurrenceInterval.DAILY));
+        taskRepository.save(new Task("One-off", now.minusDays(1), ""));
+        RecurrenceScheduler scheduler = schedulerAt(now);
+
+        // when
+        scheduler.rebuild();
+
+        // then
+        assertEquals(2, scheduler.size());
+        assertEquals(Optional.of(now.plusDays(1)), scheduler.nextDeadline());
+        assertTrue(scheduler.materializeDue().isEmpty());
+        assertEquals(0, instancesOf(weekly).size());
+    }
+
+    @Test
+    @DisplayName("should create every missed instance of an uncompleted series in one write")
+    void shouldCreateMissedInstances() {
+        // given
+        Task weekly = recurring("Trash", now.minusDays(15), new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        RecurrenceScheduler scheduler = schedulerAt(now);
+        scheduler.rebuild();
+
+        // when
+        List<Task> created = scheduler.materializeDue();
+
+        // then
+        // Occurrences due 15, 8 and 1 days ago have passed, each one brings the next
+        assertEquals(3, created.size());
+        assertEquals(Integer.valueOf(1), created.get(0).getRecurrenceNumber());
+        assertEquals(now.minusDays(8), created.get(0).getDueDate());
+        assertEquals(Integer.valueOf(3), created.get(2).getRecurrenceNumber());
+        assertEquals(now.plusDays(6), created.get(2).getDueDate());
+        assertEquals(3, instancesOf(weekly).size());
+        assertEquals(Optional.of(now.plusDays(6)), scheduler.nextDeadline());
+
+        TaskRepository reloaded = new TaskRepository(tasksFile);
+        assertEquals(4, reloaded.findAll().size());
+    }
+
+    @Test
+    @DisplayName("should read tasks another process saved before writing its instances")
+    void shouldReloadChangedFileBeforeWriting() {
+        // given
+        RecurrenceConfig config = new RecurrenceConfig(RecurrenceInterval.WEEKLY);
+        Task weekly = recurring("Trash", now.minusDays(1), config);
+        RecurrenceScheduler scheduler = schedulerAt(now);
+        scheduler.rebuild();
+        TaskRepository otherProcess = new TaskRepository(tasksFile);
+        otherProcess.save(new Task("Saved elsewhere", now.plusDays(1), "Added while scheduling"));
+
+        // when
+        List<Task> created = scheduler.materializeDue();
+
+        // then
+        assertEquals(1, created.size());
+        List<Task> stored = new TaskRepository(tasksFile).findAll();
+        assertEquals(3, stored.size());
+        assertTrue(stored.stream().anyMatch(t -> "Saved elsewhere".equals(t.getTopic())));
+        assertEquals(1, stored.stream().filter(t -> t.getId() == created.get(0).getId()).count());
+        assertEquals(1, instancesOf(weekly).size());
+    }
+
+    @Test
+    @DisplayName("should keep a failing series queued and save the others")
+    void shouldRequeueFailingSeries() {
+        // given
+        Task broken = recurring("Broken", now.minusDays(1),
+                new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        Task weekly = recurring("Trash", now.minusDays(2),
+                new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        RecurringTaskService failing = new RecurringTaskService(taskRepository) {
+            @Override
+            public Optional<Task> createNextInstance(Task parentTask, int previousNumber,
+                    LocalDateTime previousDueDate) {
+                if (parentTask.getId() == broken.getId()) {
+                    throw new IllegalStateException("broken series");
+                }
+                return super.createNextInstance(parentTask, previousNumber, previousDueDate);
+            }
+        };
+        ZoneId zone = ZoneId.systemDefault();
+        RecurrenceScheduler scheduler = new RecurrenceScheduler(taskRepository, failing,
+                new TaskLockManager(), Clock.fixed(now.atZone(zone).toInstant(), zone));
+        scheduler.rebuild();
+
+        // when
+        List<Task> created = scheduler.materializeDue();
+
+        // then
+        assertEquals(1, created.size());
+        assertEquals(Integer.valueOf(weekly.getId()), created.get(0).getParentTaskId());
+        assertEquals(1, instancesOf(weekly).size());
+        assertEquals(3, new TaskRepository(tasksFile).findAll().size());
+        assertEquals(2, scheduler.size());
+        assertEquals(Optional.of(now.minusDays(1)), scheduler.nextDeadline());
+    }
+
+    @Test
+    @DisplayName("should drop a series when it reaches its occurrence limit")
+    void shouldDropSeriesAtOccurrenceLimit() {
+        // given
+        recurring("Trash", now.minusDays(30), new RecurrenceConfig(RecurrenceInterval.WEEKLY, 3));
+        RecurrenceScheduler scheduler = schedulerAt(now);
+        scheduler.rebuild();
+
+        // when
+        List<Task> created = scheduler.materializeDue();
+
+        // then
+        assertEquals(2, created.size());
+        assertEquals(0, scheduler.size());
+        assertEquals(Optional.empty(), scheduler.nextDeadline());
+    }
+
+    @Test
+    @DisplayName("should pick up changes of a single series")
+    void shouldRescheduleSingleSeries() {
+        // given
+        Task task = taskRepository.save(new Task("Water plants", now.plusDays(2), ""));
+        RecurrenceScheduler scheduler = schedulerAt(now);
+        scheduler.rebuild();
+        assertEquals(0, scheduler.size());
+
+        // when
+        recurringTaskService.setTaskAsRecurring(task.getId(), new RecurrenceConfig(RecurrenceInterval.DAILY));
+        scheduler.reschedule(task.getId());
+
+        // then
+        assertEquals(Optional.of(now.plusDays(2)), scheduler.nextDeadline());
+
+        // when
+        recurringTaskService.removeRecurrence(task.getId());
+        scheduler.reschedule(task.getId());
+
+        // then
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    @DisplayName("should follow series changed in this process while listening")
+    void shouldFollowSeriesChangedWhileListening() {
+        // given
+        Task daily = recurring("Water plants", now.plusDays(2), new RecurrenceConfig(RecurrenceInterval.DAILY));
+        Task other = taskRepository.save(new Task("Dust shelves", now.plusDays(1), ""));
+        RecurrenceScheduler scheduler = schedulerAt(now);
+        scheduler.rebuild();
+        taskRepository.addChangeListener(scheduler);
+
+        // when
+        taskRepository.save(new Task("Water plants", now.plusDays(3), "", TaskPriority.MEDIUM, daily.getId(), 1));
+
+        // then
+        assertEquals(Optional.of(now.plusDays(3)), scheduler.nextDeadline());
+
+        // when
+        recurringTaskService.setTaskAsRecurring(other.getId(), new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+
+        // then
+        assertEquals(2, scheduler.size());
+        assertEquals(Optional.of(now.plusDays(1)), scheduler.nextDeadline());
+
+        // when
+        recurringTaskService.removeRecurrence(other.getId());
+        taskRepository.delete(daily.getId());
+
+        // then
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    @DisplayName("should generate instances in the background when a deadline passes")
+    void shouldGenerateInstancesInBackground() throws InterruptedException {
+        // given
+        Task daily = recurring("Feed cat", LocalDateTime.now().plusNanos(200_000_000L),
+                new RecurrenceConfig(RecurrenceInterval.DAILY));
+        RecurrenceScheduler scheduler = new RecurrenceScheduler(taskRepository, recurringTaskService,
+                new TaskLockManager());
+
+        // when
+        scheduler.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (instancesOf(daily).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            scheduler.stop();
+        }
+
+        // then
+        assertEquals(1, instancesOf(daily).size());
+        assertEquals(daily.getDueDate().plusDays(1), instancesOf(daily).get(0).getDueDate());
+    }
+}
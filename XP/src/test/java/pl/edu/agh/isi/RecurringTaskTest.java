@@ -4,11 +4,15 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -246,6 +250,295 @@ public class RecurringTaskTest {
             verify(taskRepository).findById(1);
             verify(taskRepository).save(any(Task.class));
         }
+        
+        @Test
+        @DisplayName("should continue the series after its latest instance")
+        void shouldContinueSeriesAfterLatestInstance() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 15, 10, 0);
+            Task parentTask = new Task("Clean kitchen", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+            
+            Task firstInstance = new Task("Clean kitchen", dueDate.plusWeeks(1), "", TaskPriority.MEDIUM, 1, 1);
+            firstInstance.setId(2);
+            Task secondInstance = new Task("Clean kitchen", dueDate.plusWeeks(2), "", TaskPriority.MEDIUM, 1, 2);
+            secondInstance.setId(3);
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask, secondInstance, firstInstance));
+            
+            Optional<Task> nextInstance = service.createNextInstance(parentTask);
+            
+            assertTrue(nextInstance.isPresent());
+            assertEquals(Integer.valueOf(3), nextInstance.get().getRecurrenceNumber());
+            assertEquals(dueDate.plusWeeks(3), nextInstance.get().getDueDate());
+        }
+        
+        @Test
+        @DisplayName("should materialize a window of one series in a single write")
+        @SuppressWarnings("unchecked")
+        void shouldMaterializeWindowOfOneSeries() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 15, 10, 0);
+            Task parentTask = new Task("Clean kitchen", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+            Task firstInstance = new Task("Clean kitchen", dueDate.plusWeeks(1), "", TaskPriority.MEDIUM, 1, 1);
+            firstInstance.setId(2);
+            
+            when(taskRepository.findById(1)).thenReturn(Optional.of(parentTask));
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask, firstInstance));
+            
+            service.materializeWindow(1, dueDate.plusWeeks(4));
+            
+            ArgumentCaptor<Collection<Task>> captor = ArgumentCaptor.forClass(Collection.class);
+            verify(taskRepository).saveAll(captor.capture());
+            verify(taskRepository, never()).save(any(Task.class));
+            List<Task> saved = new ArrayList<>(captor.getValue());
+            assertEquals(3, saved.size());
+            assertEquals(Integer.valueOf(2), saved.get(0).getRecurrenceNumber());
+            assertEquals(dueDate.plusWeeks(2), saved.get(0).getDueDate());
+            assertEquals(Integer.valueOf(4), saved.get(2).getRecurrenceNumber());
+            assertEquals(dueDate.plusWeeks(4), saved.get(2).getDueDate());
+        }
+        
+        @Test
+        @DisplayName("should honor occurrence limits and end dates when materializing all series")
+        @SuppressWarnings("unchecked")
+        void shouldHonorLimitsWhenMaterializingAllSeries() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 15, 10, 0);
+            Task limited = new Task("Water plants", dueDate, "");
+            limited.setId(1);
+            limited.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.DAILY, 3));
+            Task ending = new Task("Pay rent", dueDate, "");
+            ending.setId(2);
+            ending.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.WEEKLY, dueDate.plusWeeks(2)));
+            Task oneOff = new Task("Fix sink", dueDate, "");
+            oneOff.setId(3);
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(limited, ending, oneOff));
+            
+            service.materializeWindow(dueDate.plusYears(1));
+            
+            ArgumentCaptor<Collection<Task>> captor = ArgumentCaptor.forClass(Collection.class);
+            verify(taskRepository).saveAll(captor.capture());
+            List<Task> saved = new ArrayList<>(captor.getValue());
+            assertEquals(4, saved.size());
+            assertEquals(2, saved.stream().filter(t -> t.getParentTaskId() == 1).count());
+            assertEquals(2, saved.stream().filter(t -> t.getParentTaskId() == 2).count());
+        }
+        
+        @Test
+        @DisplayName("should not write when nothing is due within the window")
+        void shouldNotWriteEmptyWindow() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 15, 10, 0);
+            Task parentTask = new Task("Clean kitchen", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.MONTHLY));
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask));
+            
+            assertTrue(service.materializeWindow(dueDate.plusDays(10)).isEmpty());
+            verify(taskRepository, never()).saveAll(anyCollection());
+        }
+        
+        @Test
+        @DisplayName("should catch up on every missed occurrence in a single write")
+        @SuppressWarnings("unchecked")
+        void shouldCatchUpOnAllMissedOccurrences() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 1, 31, 10, 0);
+            Task parentTask = new Task("Pay rent", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.MONTHLY));
+            Task firstInstance = new Task("Pay rent", LocalDateTime.of(2024, 2, 29, 10, 0), "", TaskPriority.MEDIUM, 1, 1);
+            firstInstance.setId(2);
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask, firstInstance));
+            
+            service.catchUp(LocalDateTime.of(2024, 6, 1, 0, 0), false);
+            
+            ArgumentCaptor<Collection<Task>> captor = ArgumentCaptor.forClass(Collection.class);
+            verify(taskRepository).saveAll(captor.capture());
+            List<Task> saved = new ArrayList<>(captor.getValue());
+            assertEquals(3, saved.size());
+            assertEquals(Integer.valueOf(2), saved.get(0).getRecurrenceNumber());
+            assertEquals(LocalDateTime.of(2024, 3, 31, 10, 0), saved.get(0).getDueDate());
+            assertEquals(LocalDateTime.of(2024, 4, 30, 10, 0), saved.get(1).getDueDate());
+            assertEquals(Integer.valueOf(4), saved.get(2).getRecurrenceNumber());
+            assertEquals(LocalDateTime.of(2024, 5, 31, 10, 0), saved.get(2).getDueDate());
+        }
+        
+        @Test
+        @DisplayName("should create only the latest missed occurrence and count the skipped ones")
+        @SuppressWarnings("unchecked")
+        void shouldCatchUpOnLatestMissedOccurrence() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 1, 8, 0);
+            Task daily = new Task("Feed the cat", dueDate, "");
+            daily.setId(1);
+            daily.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.DAILY));
+            Task limited = new Task("Water plants", dueDate, "");
+            limited.setId(2);
+            limited.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.WEEKLY, 3));
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(daily, limited));
+            
+            service.catchUp(dueDate.plusDays(30).plusHours(1), true);
+            
+            ArgumentCaptor<Collection<Task>> captor = ArgumentCaptor.forClass(Collection.class);
+            verify(taskRepository).saveAll(captor.capture());
+            List<Task> saved = new ArrayList<>(captor.getValue());
+            assertEquals(2, saved.size());
+            assertEquals(Integer.valueOf(30), saved.get(0).getRecurrenceNumber());
+            assertEquals(dueDate.plusDays(30), saved.get(0).getDueDate());
+            assertTrue(saved.get(0).getComments().get(0).getContent().contains("skipped 29"));
+            // The series ends after its third occurrence
+            assertEquals(Integer.valueOf(2), saved.get(1).getRecurrenceNumber());
+            assertEquals(dueDate.plusWeeks(2), saved.get(1).getDueDate());
+        }
+        
+        @Test
+        @DisplayName("should not write when no occurrence was missed")
+        void shouldNotWriteWithoutMissedOccurrences() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 15, 10, 0);
+            Task parentTask = new Task("Clean kitchen", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask));
+            
+            assertTrue(service.catchUp(dueDate.plusDays(6), false).isEmpty());
+            verify(taskRepository, never()).saveAll(anyCollection());
+        }
+        
+        @Test
+        @DisplayName("should project upcoming instances without saving them")
+        void shouldProjectUpcomingInstances() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 1, 31, 10, 0);
+            Task parentTask = new Task("Pay rent", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.MONTHLY, 5));
+            Task savedInstance = new Task("Pay rent", LocalDateTime.of(2024, 3, 31, 10, 0), "", TaskPriority.MEDIUM, 1, 2);
+            savedInstance.setId(2);
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask, savedInstance));
+            
+            List<Task> projected = service.projectInstances(LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0));
+            
+            // Occurrence 2 is saved already and the series ends after occurrence 4
+            assertEquals(2, projected.size());
+            assertEquals("1#3", RecurringTaskService.instanceReference(projected.get(0)));
+            assertEquals(LocalDateTime.of(2024, 4, 30, 10, 0), projected.get(0).getDueDate());
+            assertEquals(LocalDateTime.of(2024, 5, 31, 10, 0), projected.get(1).getDueDate());
+            verify(taskRepository, never()).save(any(Task.class));
+        }
+        
+        @Test
+        @DisplayName("should save a projected instance once it is referenced")
+        void shouldPersistProjectedInstance() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 15, 10, 0);
+            Task parentTask = new Task("Clean kitchen", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+            
+            when(taskRepository.findById(1)).thenReturn(Optional.of(parentTask));
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask));
+            when(taskRepository.save(any(Task.class))).thenAnswer(invocation -> {
+                Task task = invocation.getArgument(0);
+                task.setId(2);
+                return task;
+            });
+            
+            Task instance = service.persistInstance("1#3");
+            
+            assertEquals(2, instance.getId());
+            assertEquals(Integer.valueOf(3), instance.getRecurrenceNumber());
+            assertEquals(dueDate.plusWeeks(3), instance.getDueDate());
+            verify(taskRepository, times(1)).save(any(Task.class));
+            assertThrows(IllegalArgumentException.class, () -> service.persistInstance("1#0"));
+            assertThrows(IllegalArgumentException.class, () -> service.persistInstance("x#3"));
+        }
+        
+        @Test
+        @DisplayName("should compact old completed instances into the series history")
+        @SuppressWarnings("unchecked")
+        void shouldCompactOldCompletedInstances() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 1, 8, 0);
+            Task parentTask = new Task("Feed the cat", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.DAILY));
+            Task oldDone = new Task("Feed the cat", dueDate.plusDays(1), "", TaskPriority.MEDIUM, 1, 1);
+            oldDone.setId(2);
+            oldDone.setCompleted(true);
+            oldDone.setAssignedTo("3");
+            oldDone.addComment(new Comment("Done"));
+            Task oldOpen = new Task("Feed the cat", dueDate.plusDays(2), "", TaskPriority.MEDIUM, 1, 2);
+            oldOpen.setId(3);
+            Task recentDone = new Task("Feed the cat", dueDate.plusDays(40), "", TaskPriority.MEDIUM, 1, 40);
+            recentDone.setId(4);
+            recentDone.setCompleted(true);
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask, oldDone, oldOpen, recentDone));
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
+            
+            assertEquals(1, service.compact(dueDate.plusDays(30)));
+            
+            ArgumentCaptor<Collection<Task>> captor = ArgumentCaptor.forClass(Collection.class);
+            verify(taskRepository).updateAll(captor.capture());
+            verify(taskRepository).delete(2);
+            verify(taskRepository, never()).delete(3);
+            verify(taskRepository, never()).delete(4);
+            assertEquals(1, captor.getValue().size());
+            SeriesHistory.Entry entry = parentTask.getSeriesHistory().getEntries().get(0);
+            assertEquals(1, entry.getNumber());
+            assertEquals("3", entry.getAssignedTo());
+            assertEquals(1, entry.getCommentCount());
+        }
+        
+        @Test
+        @DisplayName("should continue a series after its compacted instances")
+        void shouldContinueAfterCompactedInstances() {
+            RecurringTaskService service = new RecurringTaskService(taskRepository);
+            
+            LocalDateTime dueDate = LocalDateTime.of(2024, 8, 1, 8, 0);
+            Task parentTask = new Task("Feed the cat", dueDate, "");
+            parentTask.setId(1);
+            parentTask.setRecurrenceConfig(new RecurrenceConfig(RecurrenceInterval.DAILY));
+            SeriesHistory history = new SeriesHistory();
+            for (int number = 1; number <= 5; number++) {
+                Task done = new Task("Feed the cat", dueDate.plusDays(number), "", TaskPriority.MEDIUM, 1, number);
+                done.setCompleted(true);
+                history.add(done);
+            }
+            parentTask.setSeriesHistory(history);
+            
+            when(taskRepository.findAll()).thenReturn(Arrays.asList(parentTask));
+            
+            Optional<Task> next = service.createNextInstance(parentTask);
+            
+            assertTrue(next.isPresent());
+            assertEquals(Integer.valueOf(6), next.get().getRecurrenceNumber());
+            assertEquals(dueDate.plusDays(6), next.get().getDueDate());
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
+            assertEquals(5, new TaskService(taskRepository).getRecurrenceInstancesForParent(1).size());
+        }
     }
     
     @Nested
@@ -255,6 +548,7 @@ public class RecurringTaskTest {
         @Test
         @DisplayName("should generate new instance when completing recurring task")
         void shouldGenerateNewInstanceWhenCompletingRecurringTask() {
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
             TaskService taskService = new TaskService(taskRepository);
             RecurringTaskService recurringTaskService = spy(new RecurringTaskService(taskRepository));
             taskService.setRecurringTaskService(recurringTaskService);
@@ -0,0 +1,238 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Reminder Service")
+class ReminderServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TaskRepository taskRepository;
+    private TestClock clock;
+    private ReminderService service;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = new TaskRepository(tempDir.resolve("tasks.json").toFile());
+        now = LocalDateTime.of(2025, 3, 10, 12, 0);
+        clock = new TestClock(now);
+        service = new ReminderService(taskRepository, Arrays.asList(Duration.ofDays(1), Duration.ofHours(1), Duration.ZERO), clock);
+        service.setSink(reminder -> { });
+        taskRepository.addChangeListener(service);
+    }
+
+    @Test
+    @DisplayName("should fire every lead time when it comes due")
+    void shouldFireEveryLeadTime() {
+        // given
+        Task task = taskRepository.save(new Task("Pay bills", now.plusDays(2), ""));
+        service.rebuild();
+
+        // when / then
+        assertTrue(service.fireDue().isEmpty());
+        assertEquals(now.plusDays(1), service.nextReminder().orElse(null));
+
+        clock.set(now.plusDays(1));
+        List<ReminderService.Reminder> dayAhead = service.fireDue();
+        assertEquals(1, dayAhead.size());
+        assertEquals(task.getId(), dayAhead.get(0).getTaskId());
+        assertEquals(Duration.ofDays(1), dayAhead.get(0).getLead());
+        assertTrue(dayAhead.get(0).getMessage().contains("due in 1 day(s)"));
+
+        clock.set(now.plusDays(2).minusHours(1));
+        assertEquals(Duration.ofHours(1), service.fireDue().get(0).getLead());
+
+        clock.set(now.plusDays(2));
+        assertTrue(service.fireDue().get(0).getMessage().contains("is due now"));
+        assertFalse(service.nextReminder().isPresent());
+    }
+
+    @Test
+    @DisplayName("should follow changes to due dates, completions and deletions")
+    void shouldFollowChanges() {
+        // given
+        Task moved = taskRepository.save(new Task("Pay bills", now.plusHours(2), ""));
+        Task completed = taskRepository.save(new Task("Water plants", now.plusHours(2), ""));
+        Task deleted = taskRepository.save(new Task("Fix sink", now.plusHours(2), ""));
+
+        // when
+        moved.setDueDate(now.plusDays(3));
+        taskRepository.update(moved);
+        completed.setCompleted(true);
+        taskRepository.update(completed);
+        taskRepository.delete(deleted.getId());
+        clock.set(now.plusHours(2));
+
+        // then
+        assertTrue(service.fireDue().isEmpty());
+        clock.set(now.plusDays(2));
+        List<ReminderService.Reminder> fired = service.fireDue();
+        assertEquals(1, fired.size());
+        assertEquals(moved.getId(), fired.get(0).getTaskId());
+    }
+
+    @Test
+    @DisplayName("should collapse late reminders of a task into the one closest to the due date")
+    void shouldCollapseLateReminders() {
+        // given
+        taskRepository.save(new Task("Pay bills", now.minusHours(3), ""));
+        taskRepository.save(new Task("Call plumber", now.plusMinutes(30), ""));
+        service.rebuild();
+
+        // when
+        List<ReminderService.Reminder> fired = service.fireDue();
+
+        // then
+        assertEquals(2, fired.size());
+        assertEquals(Duration.ZERO, fired.get(0).getLead());
+        assertTrue(fired.get(0).getMessage().contains("is overdue"));
+        assertEquals(Duration.ofHours(1), fired.get(1).getLead());
+
+        service.rebuild();
+        assertTrue(service.fireDue().isEmpty());
+    }
+
+    @Test
+    @DisplayName("should not write a reminder twice across runs sharing an outbox")
+    void shouldNotRepeatRemindersFromOutbox() {
+        // given
+        File outboxFile = tempDir.resolve("reminders.outbox").toFile();
+        taskRepository.save(new Task("Pay bills", now.minusMinutes(5), ""));
+        ReminderOutbox outbox = new ReminderOutbox(outboxFile);
+        service.setSink(outbox::append);
+        service.rebuild();
+        assertEquals(1, service.fireDue().size());
+
+        // when
+        ReminderService nextRun = new ReminderService(taskRepository, Arrays.asList(Duration.ZERO), clock);
+        nextRun.markFired(new ReminderOutbox(outboxFile).loadKeys());
+        nextRun.rebuild();
+
+        // then
+        assertTrue(nextRun.fireDue().isEmpty());
+        assertEquals(1, new ReminderOutbox(outboxFile).loadKeys().size());
+    }
+
+    @Test
+    @DisplayName("should fire due reminders on the background thread")
+    void shouldFireOnBackgroundThread() throws InterruptedException {
+        // given
+        BlockingQueue<ReminderService.Reminder> received = new LinkedBlockingQueue<>();
+        service.setSink(received::add);
+        service.rebuild();
+        service.start();
+
+        try {
+            // when
+            Task task = taskRepository.save(new Task("Pay bills", now.minusMinutes(1), ""));
+
+            // then
+            ReminderService.Reminder reminder = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(reminder);
+            assertEquals(task.getId(), reminder.getTaskId());
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("should purge superseded reminders once they outnumber the current ones")
+    void shouldPurgeSupersededReminders() {
+        // given
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            tasks.add(new Task("Chore " + i, now.plusDays(2), ""));
+        }
+        taskRepository.saveAll(tasks);
+
+        // when
+        for (int round = 1; round <= 3; round++) {
+            for (Task task : tasks) {
+                task.setDueDate(now.plusDays(2).plusMinutes(round));
+            }
+            taskRepository.updateAll(tasks);
+        }
+
+        // then - 400 tasks with 3 lead times, 4800 entries without purging
+        assertTrue(service.size() >= 1200);
+        assertTrue(service.size() <= 2 * 1200, "queue size " + service.size());
+        clock.set(now.plusDays(2).plusMinutes(3));
+        assertEquals(400, service.fireDue().size());
+    }
+
+    @Test
+    @DisplayName("should see tasks another process saved once the repository is reloaded")
+    void shouldSeeTasksSavedByAnotherProcess() {
+        // given
+        service.rebuild();
+        assertFalse(taskRepository.reloadIfChanged());
+        new TaskRepository(tempDir.resolve("tasks.json").toFile())
+                .save(new Task("Pay bills", now.plusHours(2), ""));
+
+        // when
+        assertTrue(taskRepository.reloadIfChanged());
+        service.rebuild();
+
+        // then
+        clock.set(now.plusHours(1));
+        assertEquals(1, service.fireDue().size());
+    }
+
+    @Test
+    @DisplayName("should reject negative lead times")
+    void shouldRejectNegativeLeadTimes() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReminderService(taskRepository, Arrays.asList(Duration.ofHours(-1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ReminderService(taskRepository, Arrays.asList()));
+    }
+
+    private static final class TestClock extends Clock {
+        private final ZoneId zone = ZoneId.systemDefault();
+        private volatile Instant instant;
+
+        TestClock(LocalDateTime time) {
+            set(time);
+        }
+
+        void set(LocalDateTime time) {
+            instant = time.atZone(zone).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
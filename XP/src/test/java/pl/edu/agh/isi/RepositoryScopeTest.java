@@ -0,0 +1,73 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Repository Scope")
+class RepositoryScopeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should create fresh repositories outside a scope")
+    void shouldCreateFreshRepositoriesOutsideScope() {
+        // given
+        File file = tempDir.resolve("tasks.json").toFile();
+
+        // when / then
+        assertNotSame(RepositoryScope.taskRepository(file), RepositoryScope.taskRepository(file));
+        assertNotSame(RepositoryScope.taskService(file).getLockManager(),
+                RepositoryScope.taskService(file).getLockManager());
+    }
+
+    @Test
+    @DisplayName("should share repositories and task locks inside a scope")
+    void shouldShareRepositoriesInsideScope() {
+        // given
+        File file = tempDir.resolve("tasks.json").toFile();
+        File sameFile = new File(tempDir.toFile(), "./tasks.json");
+        File membersFile = tempDir.resolve("members.json").toFile();
+
+        RepositoryScope scope = RepositoryScope.open();
+        try {
+            // when
+            TaskService first = RepositoryScope.taskService(file);
+            TaskService second = RepositoryScope.taskService(sameFile);
+            first.createTask("Clean kitchen", null, null);
+
+            // then
+            assertNotSame(first, second);
+            assertSame(first.getLockManager(), second.getLockManager());
+            assertEquals(1, second.getAllTasks().size());
+            assertSame(RepositoryScope.familyMemberRepository(membersFile),
+                    RepositoryScope.familyMemberRepository(membersFile));
+            assertThrows(IllegalStateException.class, RepositoryScope::open);
+        } finally {
+            scope.close();
+        }
+
+        assertNotSame(RepositoryScope.taskRepository(file), RepositoryScope.taskRepository(file));
+    }
+
+    @Test
+    @DisplayName("should share the task locks of a repository between its services")
+    void shouldShareTaskLocksOfRepository() {
+        // given
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json").toFile());
+
+        // when
+        TaskService first = new TaskService(repository);
+        TaskService second = new TaskService(repository, null, new RecurringTaskService(repository));
+
+        // then
+        assertSame(repository.getLockManager(), first.getLockManager());
+        assertSame(first.getLockManager(), second.getLockManager());
+    }
+}
@@ -0,0 +1,61 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Serialization Registry")
+class SerializationRegistryTest {
+
+    @Test
+    @DisplayName("should share one registry per format")
+    void shouldShareRegistryPerFormat() {
+        assertSame(SerializationRegistry.of(StorageFormat.JSON), SerializationRegistry.of(StorageFormat.JSON));
+        assertNotSame(SerializationRegistry.of(StorageFormat.JSON), SerializationRegistry.of(StorageFormat.SMILE));
+    }
+
+    @Test
+    @DisplayName("should write tasks in the current schema and read them back")
+    void shouldRoundTripTasks() throws IOException {
+        // given
+        SerializationRegistry registry = SerializationRegistry.of(StorageFormat.JSON);
+        Task task = new Task(3, "Vacuum", LocalDateTime.of(2025, 3, 1, 9, 0), null, TaskPriority.LOW);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        TaskSchema.write(registry.taskWriter(), out, List.of(task));
+        Task[] read = TaskSchema.readTasks(registry.taskArrayReader(), out.toByteArray());
+
+        // then
+        assertTrue(out.toString().contains("\"due\":1740819600"));
+        assertEquals(1, read.length);
+        assertEquals("Vacuum", read[0].getTopic());
+        assertEquals(task.getDueDate(), read[0].getDueDate());
+    }
+
+    @Test
+    @DisplayName("should keep date arrays in family member files")
+    void shouldKeepDateArraysForFamilyMembers() throws IOException {
+        // given
+        FamilyMember member = new FamilyMember(1, "John Smith");
+        member.setCreatedAt(LocalDateTime.of(2025, 3, 1, 9, 0));
+
+        // when
+        String json = SerializationRegistry.of(StorageFormat.JSON).memberWriter().writeValueAsString(List.of(member));
+
+        // then
+        assertEquals("[{\"id\":1,\"name\":\"John Smith\",\"createdAt\":[2025,3,1,9,0]}]", json);
+    }
+
+    @Test
+    @DisplayName("should warm up without failing")
+    void shouldWarmUp() {
+        assertDoesNotThrow(SerializationRegistry::warmUp);
+    }
+}
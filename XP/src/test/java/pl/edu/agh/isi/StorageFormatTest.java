@@ -0,0 +1,40 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Storage Format")
+class StorageFormatTest {
+
+    @Test
+    @DisplayName("should detect Smile from its header")
+    void shouldDetectSmileFromHeader() {
+        assertEquals(StorageFormat.SMILE, StorageFormat.detect(new byte[] {':', ')', '\n', 0x05, (byte) 0xfa}));
+    }
+
+    @Test
+    @DisplayName("should detect JSON for anything else")
+    void shouldDetectJsonOtherwise() {
+        assertEquals(StorageFormat.JSON, StorageFormat.detect("{\"schema\":2,\"tasks\":[]}".getBytes()));
+        assertEquals(StorageFormat.JSON, StorageFormat.detect("[]".getBytes()));
+        assertEquals(StorageFormat.JSON, StorageFormat.detect(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("should find format by name in any case")
+    void shouldFindFormatByName() {
+        assertEquals(StorageFormat.SMILE, StorageFormat.fromName("Smile"));
+        assertEquals(StorageFormat.JSON, StorageFormat.fromName(" json "));
+        assertEquals("smile", StorageFormat.SMILE.getName());
+    }
+
+    @Test
+    @DisplayName("should reject unknown format name")
+    void shouldRejectUnknownFormatName() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> StorageFormat.fromName("cbor"));
+        assertEquals("Unknown storage format: cbor, use json or smile", e.getMessage());
+    }
+}
@@ -0,0 +1,38 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("String Pool")
+class StringPoolTest {
+
+    @Test
+    @DisplayName("should return the pooled copy of an equal string")
+    void shouldReturnPooledCopy() {
+        String first = new String("member-7");
+        String second = new String("member-7");
+
+        assertSame(first, StringPool.intern(first));
+        assertSame(first, StringPool.intern(second));
+    }
+
+    @Test
+    @DisplayName("should leave null and long strings alone")
+    void shouldLeaveNullAndLongStringsAlone() {
+        String longText = "x".repeat(StringPool.MAX_LENGTH + 1);
+
+        assertNull(StringPool.intern(null));
+        assertSame(longText, StringPool.intern(longText));
+        assertNotSame(longText, StringPool.intern(new String(longText)));
+    }
+
+    @Test
+    @DisplayName("should stay bounded when many strings are pooled")
+    void shouldStayBounded() {
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals("topic " + i, StringPool.intern("topic " + i));
+        }
+    }
+}
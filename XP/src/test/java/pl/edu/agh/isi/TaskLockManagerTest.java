@@ -0,0 +1,129 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskLockManagerTest {
+
+    @Test
+    void shouldRoundStripeCountUpToPowerOfTwo() {
+        assertEquals(1, new TaskLockManager(1).getStripeCount());
+        assertEquals(8, new TaskLockManager(5).getStripeCount());
+        assertEquals(64, new TaskLockManager(64).getStripeCount());
+        assertThrows(IllegalArgumentException.class, () -> new TaskLockManager(0));
+    }
+
+    @Test
+    void shouldSerializeOperationsOnSameTask() throws Exception {
+        // given
+        TaskLockManager lockManager = new TaskLockManager();
+        int[] counter = new int[1];
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        try {
+            for (int t = 0; t < 4; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        lockManager.withLock(7, () -> counter[0]++);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // then
+        assertEquals(40_000, counter[0]);
+    }
+
+    @Test
+    void shouldRunOperationsOnDifferentTasksInParallel() throws Exception {
+        // given
+        TaskLockManager lockManager = new TaskLockManager();
+        CountDownLatch bothInside = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // when - each task waits inside its lock until the other one is inside too
+        try {
+            Future<Boolean> first = executor.submit(() -> lockManager.withLock(1, () -> awaitLatch(bothInside)));
+            Future<Boolean> second = executor.submit(() -> lockManager.withLock(2, () -> awaitLatch(bothInside)));
+
+            // then
+            assertTrue(first.get(10, TimeUnit.SECONDS));
+            assertTrue(second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldAcquireMultipleLocksWithoutDeadlock() throws Exception {
+        // given
+        TaskLockManager lockManager = new TaskLockManager();
+        List<Integer> forward = Arrays.asList(1, 2, 3);
+        List<Integer> backward = Arrays.asList(3, 2, 1, 3);
+        int[] counter = new int[1];
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // when
+        try {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    lockManager.withLocks(forward, () -> counter[0]++);
+                }
+            });
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    lockManager.withLocks(backward, () -> counter[0]++);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        // then
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(20_000, counter[0]);
+    }
+
+    @Test
+    void shouldReleaseLocksWhenActionThrows() throws Exception {
+        // given
+        TaskLockManager lockManager = new TaskLockManager();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // when
+        assertThrows(IllegalStateException.class, () -> lockManager.withLocks(Arrays.asList(4, 5), () -> {
+            throw new IllegalStateException("failure");
+        }));
+
+        // then - another thread can take the same locks
+        try {
+            Future<String> result = executor.submit(() -> lockManager.withLocks(Arrays.asList(4, 5), () -> "ok"));
+            assertEquals("ok", result.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean awaitLatch(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package pl.edu.agh.isi;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TaskMigration")
+class TaskMigrationTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectReader reader = SerializationRegistry.of(StorageFormat.JSON).taskReader();
+
+    @Test
+    @DisplayName("should upgrade version 1 records and quarantine those it cannot keep")
+    void shouldUpgradeAndQuarantine() throws IOException {
+        // given
+        String json = "[{\"id\":0,\"topic\":\"No id\"},{\"id\":3,\"description\":\"Legacy\"},"
+                + "{\"id\":2,\"topic\":\"Valid\"},{\"id\":5,\"topic\":\"Late\",\"dueDate\":\"tomorrow\"}]";
+        File quarantine = TaskMigration.quarantineFile(tempDir.resolve("tasks.json").toFile());
+
+        // when
+        TaskMigration.Result result = TaskMigration.migrate(reader, json.getBytes(StandardCharsets.UTF_8), 1, quarantine);
+
+        // then
+        assertEquals(2, result.getTasks().size());
+        assertEquals("Legacy", result.getTasks().get(0).getTopic());
+        assertEquals("Valid", result.getTasks().get(1).getTopic());
+        assertEquals(2, result.getQuarantined());
+        assertEquals("tasks.json.quarantine.jsonl", quarantine.getName());
+        List<String> lines = Files.readAllLines(quarantine.toPath());
+        assertEquals(2, lines.size());
+        assertEquals("{\"schema\":1,\"reason\":\"Task has no id\",\"task\":{\"id\":0,\"topic\":\"No id\"}}", lines.get(0));
+        assertTrue(lines.get(1).startsWith("{\"schema\":1,\"reason\":\"Cannot be read: "));
+        assertTrue(lines.get(1).endsWith("\"task\":{\"id\":5,\"topic\":\"Late\",\"dueDate\":\"tomorrow\"}}"));
+    }
+
+    @Test
+    @DisplayName("should quarantine a record once when a file is migrated again")
+    void shouldQuarantineRecordOnce() throws IOException {
+        // given
+        String json = "[{\"id\":0,\"topic\":\"No id\"},{\"id\":2,\"topic\":\"\"},"
+                + "{\"id\":5,\"topic\":\"Late\",\"dueDate\":\"tomorrow\"}]";
+        File quarantine = TaskMigration.quarantineFile(tempDir.resolve("tasks.json").toFile());
+        TaskMigration.migrate(reader, json.getBytes(StandardCharsets.UTF_8), 1, quarantine);
+        List<String> first = Files.readAllLines(quarantine.toPath());
+
+        // when - the upgraded file could not be written back, so the next load migrates it again
+        TaskMigration.Result result = TaskMigration.migrate(reader, json.getBytes(StandardCharsets.UTF_8), 1, quarantine);
+
+        // then
+        assertEquals(3, result.getQuarantined());
+        assertEquals(3, first.size());
+        assertEquals(first, Files.readAllLines(quarantine.toPath()));
+    }
+
+    @Test
+    @DisplayName("should keep recurrence instances that take their topic from their recurring task")
+    void shouldKeepInheritingInstances() throws IOException {
+        // given
+        String json = "{\"schema\":2,\"tasks\":[{\"id\":1,\"t\":\"Water plants\",\"due\":1748772000,"
+                + "\"r\":{\"iv\":\"WEEKLY\"}},{\"id\":2,\"due\":1749376800.25,\"pid\":1,\"n\":2}]}";
+        File quarantine = TaskMigration.quarantineFile(tempDir.resolve("tasks.json").toFile());
+
+        // when
+        TaskMigration.Result result = TaskMigration.migrate(reader, json.getBytes(StandardCharsets.UTF_8), 2, quarantine);
+
+        // then
+        assertEquals(2, result.getTasks().size());
+        assertEquals(0, result.getQuarantined());
+        assertFalse(quarantine.exists());
+        assertEquals(LocalDateTime.of(2025, 6, 8, 10, 0, 0, 250000000), result.getTasks().get(1).getDueDate());
+    }
+
+    @Test
+    @DisplayName("should link instances once and quarantine those of a missing recurring task")
+    void shouldLinkInstancesAndQuarantineOrphans() throws IOException {
+        // given
+        String json = "{\"schema\":2,\"tasks\":[{\"id\":1,\"t\":\"Water plants\",\"d\":\"Balcony\","
+                + "\"r\":{\"iv\":\"WEEKLY\"}},{\"id\":2,\"t\":\"Water plants\",\"d\":\"Balcony\",\"pid\":1,\"n\":1},"
+                + "{\"id\":3,\"pid\":7,\"n\":1},{\"id\":4,\"t\":\"Feed cat\",\"pid\":7,\"n\":2}]}";
+        File quarantine = TaskMigration.quarantineFile(tempDir.resolve("tasks.json").toFile());
+
+        // when
+        TaskMigration.Result result = TaskMigration.migrate(reader, json.getBytes(StandardCharsets.UTF_8), 2, quarantine);
+        List<Task> delta = TaskMigration.migrateDelta(reader, json.getBytes(StandardCharsets.UTF_8), 2, quarantine)
+                .getTasks();
+
+        // then
+        assertEquals(3, result.getTasks().size());
+        assertEquals(1, result.getQuarantined());
+        Task instance = result.getTasks().get(1);
+        String stored = SerializationRegistry.of(StorageFormat.JSON).taskWriter().writeValueAsString(instance);
+        assertEquals("Water plants", instance.getTopic());
+        assertEquals("Balcony", instance.getDescription());
+        assertFalse(stored.contains("\"t\":"));
+        assertFalse(stored.contains("\"d\":"));
+        assertEquals("Feed cat", result.getTasks().get(2).getTopic());
+        assertEquals(List.of("{\"schema\":2,\"reason\":\"Instance of a missing recurring task, without a topic "
+                + "of its own\",\"task\":{\"id\":3,\"pid\":7,\"n\":1}}"), Files.readAllLines(quarantine.toPath()));
+        assertEquals(4, delta.size());
+    }
+
+    @Test
+    @DisplayName("should only migrate from versions before the current one")
+    void shouldRejectCurrentVersion() {
+        File quarantine = tempDir.resolve("q.jsonl").toFile();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> TaskMigration.migrate(reader, new byte[0], TaskSchema.VERSION, quarantine));
+    }
+}
@@ -111,6 +111,7 @@ public class TaskPriorityTest {
         @Test
         @DisplayName("should create task with priority")
         void shouldCreateTaskWithPriority() {
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
             TaskService service = new TaskService(taskRepository);
             
             when(taskRepository.save(any(Task.class))).thenAnswer(invocation -> {
@@ -128,6 +129,7 @@ public class TaskPriorityTest {
         @Test
         @DisplayName("should create task with priority level")
         void shouldCreateTaskWithPriorityLevel() {
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
             TaskService service = new TaskService(taskRepository);
             
             when(taskRepository.save(any(Task.class))).thenAnswer(invocation -> {
@@ -145,6 +147,7 @@ public class TaskPriorityTest {
         @Test
         @DisplayName("should set task priority")
         void shouldSetTaskPriority() {
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
             TaskService service = new TaskService(taskRepository);
             
             Task existingTask = new Task("Clean kitchen", null, "");
@@ -163,6 +166,7 @@ public class TaskPriorityTest {
         @Test
         @DisplayName("should set task priority by level")
         void shouldSetTaskPriorityByLevel() {
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
             TaskService service = new TaskService(taskRepository);
             
             Task existingTask = new Task("Clean kitchen", null, "");
@@ -181,6 +185,7 @@ public class TaskPriorityTest {
         @Test
         @DisplayName("should filter tasks by priority")
         void shouldFilterTasksByPriority() {
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
             TaskService service = new TaskService(taskRepository);
             
             Task task1 = new Task("Task 1", null, "");
@@ -209,6 +214,7 @@ public class TaskPriorityTest {
         @Test
         @DisplayName("should sort tasks by priority (highest first)")
         void shouldSortTasksByPriorityHighestFirst() {
+            when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
             TaskService service = new TaskService(taskRepository);
             
             Task task1 = new Task("Task 1", null, "");
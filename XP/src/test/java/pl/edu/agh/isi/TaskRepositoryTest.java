@@ -8,12 +8,19 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class TaskRepositoryTest {
 
@@ -142,6 +149,447 @@ class TaskRepositoryTest {
         assertTrue(newRepository.findById(task1.getId()).isPresent());
         assertTrue(newRepository.findById(task2.getId()).isPresent());
     }
-}
 
+    @Test
+    void shouldSaveAllTasksInOneBatch() {
+        // given
+        Task existing = repository.save(new Task("Existing", dueDate, "Details"));
+        existing.setDescription("Changed");
+        Task task1 = new Task("Batch 1", dueDate, "Details 1");
+        Task task2 = new Task("Batch 2", dueDate, "Details 2");
+
+        // when
+        List<Task> saved = repository.saveAll(Arrays.asList(task1, existing, task2));
+        TaskRepository newRepository = new TaskRepository(tasksFile, mapper);
+
+        // then
+        assertEquals(3, saved.size());
+        assertNotEquals(0, task1.getId());
+        assertNotEquals(0, task2.getId());
+        assertNotEquals(task1.getId(), task2.getId());
+        assertEquals(3, newRepository.findAll().size());
+        assertEquals("Changed", newRepository.findById(existing.getId()).get().getDescription());
+    }
+
+    @Test
+    void shouldUpdateAllTasksOrNoneWhenOneIsMissing() {
+        // given
+        Task task1 = repository.save(new Task("Task 1", dueDate, "Details 1"));
+        Task task2 = repository.save(new Task("Task 2", dueDate, "Details 2"));
+        Task missing = new Task("Missing", dueDate, "Details");
+        missing.setId(999);
+        task1.setPriority(TaskPriority.HIGH);
+        task2.setPriority(TaskPriority.HIGH);
+
+        // when
+        repository.updateAll(Arrays.asList(task1, task2));
+
+        // then
+        TaskRepository newRepository = new TaskRepository(tasksFile, mapper);
+        assertEquals(TaskPriority.HIGH, newRepository.findById(task1.getId()).get().getPriority());
+        assertEquals(TaskPriority.HIGH, newRepository.findById(task2.getId()).get().getPriority());
+        assertThrows(IllegalArgumentException.class, () -> repository.updateAll(Arrays.asList(task1, missing)));
+        assertFalse(repository.findById(999).isPresent());
+    }
+
+    @Test
+    void shouldStoreInstancesAsTheirDifferencesFromTheRecurringTask() throws IOException {
+        // given
+        Task parent = repository.save(new Task("Water plants", dueDate, "Balcony too",
+                TaskPriority.HIGH, new RecurrenceConfig(RecurrenceInterval.WEEKLY)));
+        Task same = repository.save(new Task("Water plants", dueDate.plusWeeks(1), "Balcony too",
+                TaskPriority.HIGH, parent.getId(), 1));
+        Task changed = repository.save(new Task("Water plants", dueDate.plusWeeks(2), "Balcony too",
+                TaskPriority.HIGH, parent.getId(), 2));
+        changed.setPriority(TaskPriority.LOW);
+        repository.update(changed);
+
+        // when
+        String json = new String(Files.readAllBytes(tasksFile.toPath()));
+        TaskRepository newRepository = new TaskRepository(tasksFile, mapper);
+
+        // then
+        assertEquals(1, json.split("\"t\":", -1).length - 1);
+        assertEquals(1, json.split("Balcony too", -1).length - 1);
+        Task loadedSame = newRepository.findById(same.getId()).get();
+        Task loadedChanged = newRepository.findById(changed.getId()).get();
+        assertEquals("Water plants", loadedSame.getTopic());
+        assertEquals("Balcony too", loadedSame.getDescription());
+        assertEquals(TaskPriority.HIGH, loadedSame.getPriority());
+        assertEquals(TaskPriority.LOW, loadedChanged.getPriority());
+        assertSame(loadedSame.getTemplate(), loadedChanged.getTemplate());
+    }
+
+    @Test
+    void shouldKeepInstanceWithoutDescriptionOfItsRecurringTask() throws IOException {
+        // given
+        Task parent = repository.save(new Task("Water plants", dueDate, "Balcony too",
+                TaskPriority.HIGH, new RecurrenceConfig(RecurrenceInterval.WEEKLY)));
+        Task instance = repository.save(new Task("Water plants", dueDate.plusWeeks(1), null,
+                TaskPriority.HIGH, parent.getId(), 1));
+
+        // when
+        String json = new String(Files.readAllBytes(tasksFile.toPath()));
+        Task loaded = new TaskRepository(tasksFile, mapper).findById(instance.getId()).get();
+        instance.setDescription("Kitchen only");
+        repository.update(instance);
+        Task described = new TaskRepository(tasksFile, mapper).findById(instance.getId()).get();
+
+        // then
+        assertTrue(json.contains("\"d\":null"));
+        assertNull(loaded.getDescription());
+        assertNotNull(loaded.getTemplate());
+        assertEquals("Kitchen only", described.getDescription());
+    }
+
+    @Test
+    void shouldKeepInstanceFieldsWhenTheRecurringTaskChangesOrIsDeleted() {
+        // given
+        Task parent = repository.save(new Task("Water plants", dueDate, "Balcony too",
+                TaskPriority.HIGH, new RecurrenceConfig(RecurrenceInterval.WEEKLY)));
+        Task instance = repository.save(new Task("Water plants", dueDate.plusWeeks(1), "Balcony too",
+                TaskPriority.HIGH, parent.getId(), 1));
 
+        // when
+        parent.setTopic("Water all plants");
+        parent.setDescription(null);
+        repository.update(parent);
+        Task afterChange = new TaskRepository(tasksFile, mapper).findById(instance.getId()).get();
+        repository.delete(parent.getId());
+        Task afterDelete = new TaskRepository(tasksFile, mapper).findById(instance.getId()).get();
+
+        // then
+        assertEquals("Water plants", afterChange.getTopic());
+        assertEquals("Balcony too", afterChange.getDescription());
+        assertEquals(TaskPriority.HIGH, afterChange.getPriority());
+        assertEquals("Water plants", afterDelete.getTopic());
+        assertEquals(TaskPriority.HIGH, afterDelete.getPriority());
+        assertNull(afterDelete.getTemplate());
+    }
+
+    @Test
+    void shouldWriteSchemaVersion2WithEpochDatesAndNoEmptyFields() throws IOException {
+        // given
+        LocalDateTime due = LocalDateTime.of(2025, 5, 23, 20, 41, 54, 802859000);
+        Task task = new Task("Pay bills", due, null);
+        task.setCreatedAt(LocalDateTime.of(2025, 5, 1, 8, 0));
+
+        // when
+        repository.save(task);
+        String json = new String(Files.readAllBytes(tasksFile.toPath()));
+        Task loaded = new TaskRepository(tasksFile, mapper).findById(task.getId()).get();
+
+        // then
+        assertTrue(json.startsWith("{\"schema\":3,\"changes\":{\"seq\":1,\"changed\":[1,1],\"deleted\":[]},\"tasks\":["));
+        assertTrue(json.contains("\"due\":1748032914.802859"));
+        assertTrue(json.contains("\"c\":1746086400,"));
+        assertFalse(json.contains("null"));
+        assertFalse(json.contains("recurring"));
+        assertEquals(due, loaded.getDueDate());
+        assertEquals(task.getCreatedAt(), loaded.getCreatedAt());
+    }
+
+    @Test
+    void shouldMigrateVersion1FileOnLoad() throws IOException {
+        // given
+        String v1 = "[{\"id\":4,\"topic\":\"Water plants\",\"description\":null,"
+                + "\"createdAt\":[2025,5,23,20,41,54,802859000],\"dueDate\":[2025,6,1,10,0],"
+                + "\"completed\":true,\"completedAt\":null,\"assignedTo\":\"2\","
+                + "\"comments\":[{\"content\":\"Done\",\"createdAt\":[2025,6,1,9,30],\"author\":null}],"
+                + "\"priority\":\"HIGH\",\"recurrenceConfig\":{\"interval\":\"WEEKLY\",\"occurrences\":-1,"
+                + "\"endDate\":null,\"unlimited\":true},\"parentTaskId\":null,\"recurrenceNumber\":null,"
+                + "\"recurring\":true,\"recurrenceInstance\":false}]";
+        Files.write(tasksFile.toPath(), v1.getBytes());
+
+        // when
+        TaskRepository migrated = new TaskRepository(tasksFile, mapper);
+        String json = new String(Files.readAllBytes(tasksFile.toPath()));
+        Task task = new TaskRepository(tasksFile, mapper).findById(4).get();
+
+        // then
+        assertEquals(1, migrated.findAll().size());
+        assertTrue(json.startsWith("{\"schema\":3,"));
+        assertTrue(json.length() < v1.length() / 2);
+        assertEquals("Water plants", task.getTopic());
+        assertEquals(LocalDateTime.of(2025, 5, 23, 20, 41, 54, 802859000), task.getCreatedAt());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 10, 0), task.getDueDate());
+        assertTrue(task.isCompleted());
+        assertEquals("2", task.getAssignedTo());
+        assertEquals("Done", task.getComments().get(0).getContent());
+        assertEquals(TaskPriority.HIGH, task.getPriority());
+        assertEquals(RecurrenceInterval.WEEKLY, task.getRecurrenceConfig().getInterval());
+        assertTrue(task.getRecurrenceConfig().isUnlimited());
+    }
+
+    @Test
+    void shouldNotLoadFileFromNewerSchemaVersion() throws IOException {
+        // given
+        Files.write(tasksFile.toPath(), "{\"schema\":99,\"tasks\":[{\"id\":1,\"t\":\"Future\"}]}".getBytes());
+
+        // when
+        TaskRepository newer = new TaskRepository(tasksFile, mapper);
+
+        // then
+        assertTrue(newer.findAll().isEmpty());
+    }
+
+    @Test
+    void shouldNotOverwriteFileThatCouldNotBeLoaded() throws IOException {
+        // given
+        byte[] future = "{\"schema\":99,\"tasks\":[{\"id\":1,\"t\":\"Future\"}]}".getBytes();
+        Files.write(tasksFile.toPath(), future);
+        TaskRepository newer = new TaskRepository(tasksFile, mapper);
+
+        // when
+        newer.save(new Task("Today", dueDate, ""));
+
+        // then
+        assertArrayEquals(future, Files.readAllBytes(tasksFile.toPath()));
+    }
+
+    @Test
+    void shouldWriteImageOfLargeFileWithEverySave() throws IOException {
+        // given
+        String description = "padding ".repeat(200);
+        for (int i = 1; i <= 1_000; i++) {
+            repository.save(new Task("Task " + i, dueDate, description));
+        }
+        WarmStartImage image = new WarmStartImage(tasksFile);
+
+        // when
+        WarmStartImage.Contents afterSaves = image.read(Files.readAllBytes(tasksFile.toPath()),
+                tasksFile.lastModified());
+        TaskRepository warm = new TaskRepository(tasksFile, mapper);
+        warm.save(new Task("Task 1001", dueDate, ""));
+        WarmStartImage.Contents afterSave = image.read(Files.readAllBytes(tasksFile.toPath()),
+                tasksFile.lastModified());
+        image.delete();
+        TaskRepository cold = new TaskRepository(tasksFile, mapper);
+
+        // then
+        assertTrue(tasksFile.length() >= TaskRepository.WARM_START_THRESHOLD_BYTES);
+        assertNotNull(afterSaves);
+        assertEquals(1_000, afterSaves.getTasks().length);
+        assertEquals(description, warm.findById(500).get().getDescription());
+        assertNotNull(afterSave);
+        assertEquals(1_001, afterSave.getTasks().length);
+        assertEquals(warm.getChangeSequence(), afterSave.getChanges().getSequence());
+        // Loading does not write it
+        assertFalse(image.getFile().exists());
+        assertEquals(1_001, cold.findAll().size());
+        assertEquals("Task 1001", cold.findById(1_001).get().getTopic());
+    }
+
+    @Test
+    void shouldMigrateOnceAndQuarantineInvalidTasks() throws IOException {
+        // given
+        Files.write(tasksFile.toPath(), ("{\"schema\":2,\"tasks\":[{\"id\":1,\"t\":\"Water plants\"},"
+                + "{\"id\":2,\"t\":\"\"},{\"id\":3,\"d\":\"Old topic\"},{\"id\":-4,\"t\":\"No id\"}]}").getBytes());
+        File quarantine = TaskMigration.quarantineFile(tasksFile);
+
+        // when
+        TaskRepository migrated = new TaskRepository(tasksFile, mapper);
+        String json = new String(Files.readAllBytes(tasksFile.toPath()));
+        TaskRepository reloaded = new TaskRepository(tasksFile, mapper);
+
+        // then
+        assertEquals(2, migrated.findAll().size());
+        assertEquals("Old topic", reloaded.findById(3).get().getTopic());
+        assertTrue(json.startsWith("{\"schema\":3,"));
+        List<String> quarantined = Files.readAllLines(quarantine.toPath());
+        assertEquals(List.of(
+                "{\"schema\":2,\"reason\":\"Task has no topic\",\"task\":{\"id\":2,\"t\":\"\"}}",
+                "{\"schema\":2,\"reason\":\"Task has no id\",\"task\":{\"id\":-4,\"t\":\"No id\"}}"),
+                quarantined);
+    }
+
+    @Test
+    void shouldExportToSmileAndKeepImportedFormat() throws IOException {
+        // given
+        Task task = new Task("Water plants", LocalDateTime.of(2025, 6, 1, 10, 0, 0, 500000000), "Balcony",
+                TaskPriority.HIGH, new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        repository.save(task);
+        File exported = tempDir.resolve("tasks.sml").toFile();
+
+        // when
+        repository.exportTo(exported, StorageFormat.SMILE);
+        TaskRepository source = new TaskRepository(exported);
+        TaskRepository target = new TaskRepository(tempDir.resolve("restored.json").toFile());
+        target.replaceAll(source.findAll(), source.getStorageFormat());
+        Task restored = new TaskRepository(tempDir.resolve("restored.json").toFile()).findById(task.getId()).get();
+
+        // then
+        assertEquals(StorageFormat.SMILE, StorageFormat.detect(Files.readAllBytes(exported.toPath())));
+        assertEquals(StorageFormat.SMILE, source.getStorageFormat());
+        assertEquals(StorageFormat.SMILE, target.getStorageFormat());
+        assertEquals("Water plants", restored.getTopic());
+        assertEquals(task.getDueDate(), restored.getDueDate());
+        assertEquals(RecurrenceInterval.WEEKLY, restored.getRecurrenceConfig().getInterval());
+    }
+
+    @Test
+    void shouldExportCompressedAndKeepDataFileCompressed() throws IOException {
+        // given
+        Task task = new Task("Pay rent", dueDate, "Transfer", TaskPriority.HIGH);
+        repository.save(task);
+        File exported = tempDir.resolve("backup.json.gz").toFile();
+
+        // when
+        repository.exportTo(exported, StorageFormat.JSON);
+        TaskRepository source = new TaskRepository(exported);
+        source.save(new Task("Call plumber", dueDate, "Kitchen sink", TaskPriority.MEDIUM));
+        TaskRepository reloaded = new TaskRepository(exported);
+
+        // then
+        byte[] stored = Files.readAllBytes(exported.toPath());
+        assertEquals(0x1f, stored[0] & 0xff);
+        assertEquals(0x8b, stored[1] & 0xff);
+        assertEquals(StorageFormat.JSON, source.getStorageFormat());
+        assertEquals(2, reloaded.findAll().size());
+        assertEquals("Pay rent", reloaded.findById(task.getId()).get().getTopic());
+    }
+
+    @Test
+    void shouldReplaceDataFileWithoutLeavingTemporaryFiles() throws IOException {
+        // given
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        repository.save(new Task("Pay rent", dueDate, "Transfer", TaskPriority.HIGH));
+        Set<PosixFilePermission> shared = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(tasksFile.toPath(), shared);
+
+        // when
+        repository.save(new Task("Call plumber", dueDate, "Kitchen sink", TaskPriority.MEDIUM));
+
+        // then
+        assertEquals(shared, Files.getPosixFilePermissions(tasksFile.toPath()));
+        assertArrayEquals(new String[] {tasksFile.getName()}, tempDir.toFile().list());
+    }
+
+    @Test
+    void shouldExportOnlyChangesSinceBackupAndApplyThemIdempotently() throws IOException {
+        // given
+        Task kept = repository.save(new Task("Pay rent", dueDate, "Transfer", TaskPriority.HIGH));
+        Task deleted = repository.save(new Task("Call plumber", dueDate, "Kitchen sink", TaskPriority.MEDIUM));
+        File backup = tempDir.resolve("backup.json").toFile();
+        long backedUp = repository.exportTo(backup, StorageFormat.JSON);
+        kept.setDescription("Transfer by Friday");
+        repository.update(kept);
+        repository.delete(deleted.getId());
+        Task added = repository.save(new Task("Buy milk", dueDate, "Two bottles", TaskPriority.LOW));
+        File changes = tempDir.resolve("changes.json").toFile();
+
+        // when
+        Delta delta = repository.exportChangesSince(backedUp, changes, StorageFormat.JSON);
+        TaskRepository restored = new TaskRepository(tempDir.resolve("restored.json").toFile());
+        restored.replaceAll(new TaskRepository(backup).findAll(), StorageFormat.JSON);
+        restored.applyChanges(changes);
+        Delta again = restored.applyChanges(changes);
+        TaskRepository reloaded = new TaskRepository(tempDir.resolve("restored.json").toFile());
+
+        // then
+        assertTrue(Delta.isDeltaFile(changes));
+        assertFalse(Delta.isDeltaFile(backup));
+        assertEquals(backedUp, delta.getSince());
+        assertEquals(repository.getChangeSequence(), delta.getSequence());
+        assertEquals(2, delta.getChangedCount());
+        assertEquals(1, delta.getDeletedCount());
+        assertFalse(new String(Files.readAllBytes(changes.toPath())).contains("Kitchen sink"));
+        assertEquals(2, again.getChangedCount());
+        assertEquals(2, reloaded.findAll().size());
+        assertEquals("Transfer by Friday", reloaded.findById(kept.getId()).get().getDescription());
+        assertEquals("Buy milk", reloaded.findById(added.getId()).get().getTopic());
+        assertFalse(reloaded.findById(deleted.getId()).isPresent());
+    }
+
+    @Test
+    void shouldRefuseDeltaThatDoesNotContinueFromTheLastOneUnlessForced() throws IOException {
+        // given
+        Task task = repository.save(new Task("Pay rent", dueDate, "Transfer", TaskPriority.HIGH));
+        File backup = tempDir.resolve("backup.json").toFile();
+        long backedUp = repository.exportTo(backup, StorageFormat.JSON);
+        task.setDescription("Transfer by Friday");
+        repository.update(task);
+        File first = tempDir.resolve("first.json").toFile();
+        long firstSequence = repository.exportChangesSince(backedUp, first, StorageFormat.JSON).getSequence();
+        task.setDescription("Transfer by Monday");
+        repository.update(task);
+        File second = tempDir.resolve("second.json").toFile();
+        repository.exportChangesSince(firstSequence, second, StorageFormat.JSON);
+        File restoredFile = tempDir.resolve("restored.json").toFile();
+        TaskRepository restored = new TaskRepository(restoredFile);
+        restored.replaceAll(new TaskRepository(backup).findAll(), StorageFormat.JSON);
+
+        // when
+        restored.applyChanges(second);
+        TaskRepository reloaded = new TaskRepository(restoredFile);
+
+        // then
+        assertThrows(IllegalArgumentException.class, () -> reloaded.applyChanges(first));
+        assertEquals("Transfer by Monday", reloaded.findById(task.getId()).get().getDescription());
+        reloaded.applyChanges(second);
+        reloaded.applyChanges(first, true);
+        assertEquals("Transfer by Friday", reloaded.findById(task.getId()).get().getDescription());
+        reloaded.applyChanges(second);
+        assertEquals("Transfer by Monday", reloaded.findById(task.getId()).get().getDescription());
+    }
+
+    @Test
+    void shouldKeepChangeNumbersInTheFileAndRejectNumbersFromTheFuture() {
+        // given
+        Task task = repository.save(new Task("Pay rent", dueDate, "Transfer", TaskPriority.HIGH));
+        repository.update(task);
+        File changes = tempDir.resolve("changes.json").toFile();
+
+        // when
+        TaskRepository reloaded = new TaskRepository(tasksFile, mapper);
+
+        // then
+        assertEquals(2, reloaded.getChangeSequence());
+        assertThrows(IllegalArgumentException.class, () -> reloaded.exportChangesSince(3, changes, StorageFormat.JSON));
+        assertThrows(IllegalArgumentException.class, () -> reloaded.exportChangesSince(-1, changes, StorageFormat.JSON));
+        assertThrows(IOException.class, () -> reloaded.applyChanges(tasksFile));
+    }
+
+    @Test
+    void shouldApplyChangedInstancesOnTheirRecurringTask() throws IOException {
+        // given
+        Task parent = repository.save(new Task("Water plants", dueDate, "Balcony too",
+                TaskPriority.HIGH, new RecurrenceConfig(RecurrenceInterval.WEEKLY)));
+        File backup = tempDir.resolve("backup.json").toFile();
+        long backedUp = repository.exportTo(backup, StorageFormat.JSON);
+        Task instance = repository.save(new Task("Water plants", dueDate.plusWeeks(1), "Balcony too",
+                TaskPriority.HIGH, parent.getId(), 1));
+        File changes = tempDir.resolve("changes.json").toFile();
+
+        // when
+        Delta delta = repository.exportChangesSince(backedUp, changes, StorageFormat.JSON);
+        TaskRepository restored = new TaskRepository(tempDir.resolve("restored.json").toFile());
+        restored.replaceAll(new TaskRepository(backup).findAll(), StorageFormat.JSON);
+        restored.applyChanges(changes);
+
+        // then
+        assertEquals(1, delta.getChangedCount());
+        Task applied = restored.findById(instance.getId()).get();
+        assertEquals("Water plants", applied.getTopic());
+        assertEquals("Balcony too", applied.getDescription());
+        assertEquals(TaskPriority.HIGH, applied.getPriority());
+        assertEquals(parent.getId(), applied.getParentTaskId().intValue());
+    }
+
+    @Test
+    void shouldReplaceAllTasksAndContinueIds() {
+        // given
+        repository.save(new Task("Old task", null, null));
+        Task imported = new Task("Imported task", null, null);
+        imported.setId(7);
+
+        // when
+        repository.replaceAll(List.of(imported), StorageFormat.JSON);
+        Task next = repository.save(new Task("Next task", null, null));
+
+        // then
+        assertEquals(2, repository.findAll().size());
+        assertEquals("Imported task", repository.findById(7).get().getTopic());
+        assertEquals(8, next.getId());
+    }
+}
@@ -34,7 +34,10 @@ class TaskServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(taskRepository.getLockManager()).thenReturn(new TaskLockManager());
         taskService = new TaskService(taskRepository, familyMemberService);
+        // Only what the tested operation does with the repository is verified
+        clearInvocations(taskRepository);
         dueDate = LocalDateTime.now().plusDays(1);
     }
     
@@ -723,4 +726,134 @@ class TaskServiceTest {
             verifyNoInteractions(familyMemberService);
         }
     }
+    
+    @Nested
+    @DisplayName("Bulk operations")
+    class BulkOperations {
+        
+        @Test
+        @DisplayName("should create all tasks with a single save")
+        void shouldCreateAllTasksWithSingleSave() {
+            // Given
+            List<Task> newTasks = Arrays.asList(
+                new Task("Task 1", dueDate, ""),
+                new Task("Task 2", dueDate, ""));
+            when(taskRepository.saveAll(newTasks)).thenReturn(newTasks);
+            
+            // When
+            List<Task> result = taskService.createAll(newTasks);
+            
+            // Then
+            assertEquals(2, result.size());
+            verify(taskRepository).saveAll(newTasks);
+            verify(taskRepository, never()).save(any(Task.class));
+        }
+        
+        @Test
+        @DisplayName("should not create anything when a task already has an id")
+        void shouldNotCreateAnythingWhenTaskHasId() {
+            // Given
+            List<Task> newTasks = Arrays.asList(
+                new Task("Task 1", dueDate, ""),
+                new Task(5, "Task 2", dueDate, ""));
+            
+            // When/Then
+            assertThrows(IllegalArgumentException.class, () -> taskService.createAll(newTasks));
+            verifyNoInteractions(taskRepository);
+        }
+        
+        @Test
+        @DisplayName("should complete all tasks with a single save")
+        void shouldCompleteAllTasksWithSingleSave() {
+            // Given
+            Task task1 = new Task(1, "Clean basement", null, "");
+            Task task2 = new Task(2, "Wash car", null, "");
+            when(taskRepository.findById(1)).thenReturn(Optional.of(task1));
+            when(taskRepository.findById(2)).thenReturn(Optional.of(task2));
+            
+            // When
+            List<Task> result = taskService.completeAll(Arrays.asList(1, 2), "Done");
+            
+            // Then
+            assertEquals(2, result.size());
+            assertTrue(task1.isCompleted());
+            assertTrue(task2.isCompleted());
+            assertEquals("Done", task2.getComments().get(0).getContent());
+            verify(taskRepository).saveAll(anyCollection());
+            verify(taskRepository, never()).update(any(Task.class));
+        }
+        
+        @Test
+        @DisplayName("should not complete anything when a task is missing")
+        void shouldNotCompleteAnythingWhenTaskIsMissing() {
+            // Given
+            Task task1 = new Task(1, "Clean basement", null, "");
+            when(taskRepository.findById(1)).thenReturn(Optional.of(task1));
+            when(taskRepository.findById(99)).thenReturn(Optional.empty());
+            
+            // When/Then
+            assertThrows(IllegalArgumentException.class, 
+                () -> taskService.completeAll(Arrays.asList(1, 99), null));
+            assertFalse(task1.isCompleted());
+            verify(taskRepository, never()).saveAll(anyCollection());
+        }
+        
+        @Test
+        @DisplayName("should assign all tasks with a single update")
+        void shouldAssignAllTasksWithSingleUpdate() {
+            // Given
+            Task task1 = new Task(1, "Clean basement", null, "");
+            Task task2 = new Task(2, "Wash car", null, "");
+            FamilyMember member = new FamilyMember(3, "John Smith");
+            when(familyMemberService.getFamilyMember(3)).thenReturn(Optional.of(member));
+            when(taskRepository.findById(1)).thenReturn(Optional.of(task1));
+            when(taskRepository.findById(2)).thenReturn(Optional.of(task2));
+            
+            // When
+            taskService.assignAll(Arrays.asList(1, 2), 3);
+            
+            // Then
+            assertEquals("3", task1.getAssignedTo());
+            assertEquals("3", task2.getAssignedTo());
+            verify(taskRepository).updateAll(anyCollection());
+            verify(taskRepository, never()).update(any(Task.class));
+        }
+        
+        @Test
+        @DisplayName("should not assign anything when a task is already assigned")
+        void shouldNotAssignAnythingWhenTaskIsAlreadyAssigned() {
+            // Given
+            Task task1 = new Task(1, "Clean basement", null, "");
+            Task task2 = new Task(2, "Wash car", null, "");
+            task2.setAssignedTo("4");
+            FamilyMember member = new FamilyMember(3, "John Smith");
+            when(familyMemberService.getFamilyMember(3)).thenReturn(Optional.of(member));
+            when(taskRepository.findById(1)).thenReturn(Optional.of(task1));
+            when(taskRepository.findById(2)).thenReturn(Optional.of(task2));
+            
+            // When/Then
+            assertThrows(IllegalArgumentException.class, 
+                () -> taskService.assignAll(Arrays.asList(1, 2), 3));
+            assertNull(task1.getAssignedTo());
+            verify(taskRepository, never()).updateAll(anyCollection());
+        }
+        
+        @Test
+        @DisplayName("should set priority of all tasks with a single update")
+        void shouldSetPriorityOfAllTasksWithSingleUpdate() {
+            // Given
+            Task task1 = new Task(1, "Clean basement", null, "");
+            Task task2 = new Task(2, "Wash car", null, "");
+            when(taskRepository.findById(1)).thenReturn(Optional.of(task1));
+            when(taskRepository.findById(2)).thenReturn(Optional.of(task2));
+            
+            // When
+            taskService.setPriorityAll(Arrays.asList(1, 2, 2), TaskPriority.HIGH);
+            
+            // Then
+            assertEquals(TaskPriority.HIGH, task1.getPriority());
+            assertEquals(TaskPriority.HIGH, task2.getPriority());
+            verify(taskRepository).updateAll(anyCollection());
+        }
+    }
 } 
\ No newline at end of file
@@ -73,6 +73,36 @@ class TaskTest {
         assertEquals("John", task.getComments().get(0).getAuthor());
     }
     
+    @Test
+    void testSetCompletion() {
+        task.setCompletion(now);
+        assertTrue(task.isCompleted());
+        assertEquals(now, task.getCompletedAt());
+
+        task.setCompletion(null);
+        assertFalse(task.isCompleted());
+        assertNull(task.getCompletedAt());
+    }
+
+    @Test
+    void testCopyIsNotChangedWithTask() {
+        task.setAssignedTo("John");
+        task.addComment(new Comment("Started"));
+
+        Task copy = task.copy();
+        task.setCompletion(now);
+        task.setAssignedTo(null);
+        task.addComment(new Comment("Done"));
+
+        assertEquals(1, copy.getId());
+        assertEquals("Clean the kitchen", copy.getTopic());
+        assertEquals(dueDate, copy.getDueDate());
+        assertFalse(copy.isCompleted());
+        assertNull(copy.getCompletedAt());
+        assertEquals("John", copy.getAssignedTo());
+        assertEquals(1, copy.getComments().size());
+    }
+    
     @Test
     void testSetEmptyTopicThrowsException() {
         assertThrows(IllegalArgumentException.class, () -> {
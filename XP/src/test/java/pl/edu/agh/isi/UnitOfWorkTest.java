@@ -0,0 +1,174 @@
+package pl.edu.agh.isi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File tasksFile;
+    private File membersFile;
+    private ObjectMapper mapper;
+    private TaskRepository taskRepository;
+    private FamilyMemberRepository familyMemberRepository;
+    private LocalDateTime dueDate;
+
+    @BeforeEach
+    void setUp() {
+        tasksFile = tempDir.resolve("tasks.json").toFile();
+        membersFile = tempDir.resolve("members.json").toFile();
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        taskRepository = new TaskRepository(tasksFile, mapper);
+        familyMemberRepository = new FamilyMemberRepository(membersFile);
+        dueDate = LocalDateTime.of(2025, 3, 10, 18, 0);
+    }
+
+    @Test
+    void shouldWriteNothingUntilCommit() {
+        // given
+        Task existing = taskRepository.save(new Task("Existing", dueDate, ""));
+        UnitOfWork unitOfWork = new UnitOfWork(taskRepository, familyMemberRepository);
+
+        // when
+        unitOfWork.execute(() -> {
+            taskRepository.save(new Task("New task", dueDate, ""));
+            existing.setCompleted(true);
+            taskRepository.update(existing);
+            familyMemberRepository.save(new FamilyMember("Mom"));
+
+            // then - the files still hold the last committed state
+            assertEquals(1, new TaskRepository(tasksFile, mapper).findAll().size());
+            assertFalse(membersFile.exists());
+        });
+
+        // then
+        TaskRepository reloadedTasks = new TaskRepository(tasksFile, mapper);
+        assertEquals(2, reloadedTasks.findAll().size());
+        assertTrue(reloadedTasks.findById(existing.getId()).get().isCompleted());
+        assertEquals(1, new FamilyMemberRepository(membersFile).findAll().size());
+    }
+
+    @Test
+    void shouldRollBackAllStoresWhenWorkThrows() {
+        // given
+        Task existing = taskRepository.save(new Task("Existing", dueDate, ""));
+        familyMemberRepository.save(new FamilyMember("Dad"));
+        UnitOfWork unitOfWork = new UnitOfWork(taskRepository, familyMemberRepository);
+
+        // when
+        assertThrows(IllegalStateException.class, () -> unitOfWork.execute(() -> {
+            taskRepository.save(new Task("New task", dueDate, ""));
+            existing.setCompleted(true);
+            taskRepository.update(existing);
+            familyMemberRepository.save(new FamilyMember("Mom"));
+            throw new IllegalStateException("failure");
+        }));
+
+        // then
+        assertEquals(1, taskRepository.findAll().size());
+        assertFalse(taskRepository.findById(existing.getId()).get().isCompleted());
+        assertEquals(1, familyMemberRepository.findAll().size());
+        assertEquals(1, new TaskRepository(tasksFile, mapper).findAll().size());
+        // Ids handed out inside the rolled back work are reused
+        assertEquals(2, taskRepository.save(new Task("After rollback", dueDate, "")).getId());
+    }
+
+    @Test
+    void shouldRollBackOnlyTasksTheWorkChanged() {
+        // given
+        Task changed = taskRepository.save(new Task("Changed", dueDate, ""));
+        Task untouched = taskRepository.save(new Task("Untouched", dueDate, ""));
+        UnitOfWork unitOfWork = new UnitOfWork(taskRepository, null);
+
+        // when
+        assertThrows(IllegalStateException.class, () -> unitOfWork.execute(() -> {
+            changed.setTopic("Renamed");
+            taskRepository.update(changed);
+            throw new IllegalStateException("failure");
+        }));
+
+        // then
+        assertEquals("Changed", taskRepository.findById(changed.getId()).get().getTopic());
+        assertNotSame(changed, taskRepository.findById(changed.getId()).get());
+        assertSame(untouched, taskRepository.findById(untouched.getId()).get());
+    }
+
+    @Test
+    void shouldRollBackOnlyFamilyMembersTheWorkChanged() {
+        // given
+        FamilyMember changed = familyMemberRepository.save(new FamilyMember("Mom"));
+        FamilyMember deleted = familyMemberRepository.save(new FamilyMember("Dad"));
+        FamilyMember untouched = familyMemberRepository.save(new FamilyMember("Grandma"));
+        UnitOfWork unitOfWork = new UnitOfWork(null, familyMemberRepository);
+
+        // when
+        assertThrows(IllegalStateException.class, () -> unitOfWork.execute(() -> {
+            changed.setName("Mother");
+            familyMemberRepository.update(changed);
+            familyMemberRepository.delete(deleted.getId());
+            familyMemberRepository.save(new FamilyMember("Grandpa"));
+            throw new IllegalStateException("failure");
+        }));
+
+        // then
+        assertEquals("Mom", familyMemberRepository.findById(changed.getId()).get().getName());
+        assertNotSame(changed, familyMemberRepository.findById(changed.getId()).get());
+        assertEquals("Dad", familyMemberRepository.findById(deleted.getId()).get().getName());
+        assertSame(untouched, familyMemberRepository.findById(untouched.getId()).get());
+        assertEquals(3, familyMemberRepository.findAll().size());
+        // Ids handed out inside the rolled back work are reused
+        assertEquals(4, familyMemberRepository.save(new FamilyMember("Grandpa")).getId());
+    }
+
+    @Test
+    void shouldJoinNestedUnitOfWork() {
+        // given
+        UnitOfWork outer = new UnitOfWork(taskRepository, null);
+        UnitOfWork inner = new UnitOfWork(taskRepository, null);
+
+        // when
+        outer.execute(() -> {
+            inner.execute(() -> {
+                taskRepository.save(new Task("Inner task", dueDate, ""));
+            });
+            assertFalse(tasksFile.exists());
+        });
+
+        // then
+        assertEquals(1, new TaskRepository(tasksFile, mapper).findAll().size());
+    }
+
+    @Test
+    void shouldCompleteRecurringTaskInSingleCommit() {
+        // given
+        RecurringTaskService recurringTaskService = new RecurringTaskService(taskRepository);
+        TaskService taskService = new TaskService(taskRepository, null, recurringTaskService);
+        Task parent = recurringTaskService.createRecurringTask("Take out trash", dueDate, "",
+                TaskPriority.MEDIUM, new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+
+        // when
+        taskService.markTaskAsCompleted(parent.getId(), "Done");
+
+        // then
+        List<Task> stored = new TaskRepository(tasksFile, mapper).findAll();
+        assertEquals(2, stored.size());
+        Task instance = stored.stream().filter(Task::isRecurrenceInstance).findFirst().get();
+        assertEquals(dueDate.plusWeeks(1), instance.getDueDate());
+        assertEquals("Generated as part of recurring task #" + parent.getId(),
+                instance.getComments().get(0).getContent());
+        assertFalse(tempDir.resolve("tasks.json.tmp").toFile().exists());
+    }
+}
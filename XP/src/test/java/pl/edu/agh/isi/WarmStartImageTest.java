@@ -0,0 +1,88 @@
+package pl.edu.agh.isi;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WarmStartImage")
+class WarmStartImageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private WarmStartImage image;
+    private byte[] stored;
+    private List<Task> tasks;
+    private ChangeLog changes;
+
+    @BeforeEach
+    void setUp() {
+        image = new WarmStartImage(tempDir.resolve("tasks.json").toFile());
+        stored = "{\"schema\":3,\"tasks\":[]}".getBytes(StandardCharsets.UTF_8);
+        tasks = List.of(new Task(1, "Water plants", LocalDateTime.of(2025, 6, 1, 10, 0), "Balcony"),
+                new Task(2, "Pay bills", null, null));
+        changes = ChangeLog.startingWith(List.of(1, 2));
+    }
+
+    @Test
+    @DisplayName("should read the tasks back while the data file is unchanged")
+    void shouldReadMatchingImage() throws IOException {
+        // given
+        image.write(stored, 1000L, StorageFormat.JSON, tasks, changes);
+
+        // when
+        WarmStartImage.Contents contents = image.read(stored, 1000L);
+
+        // then
+        assertEquals(tempDir.resolve("tasks.json.cache").toFile(), image.getFile());
+        assertNotNull(contents);
+        assertEquals(StorageFormat.JSON, contents.getFormat());
+        assertEquals(2, contents.getTasks().length);
+        assertEquals("Water plants", contents.getTasks()[0].getTopic());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 10, 0), contents.getTasks()[0].getDueDate());
+        assertEquals(1, contents.getChanges().getSequence());
+        assertEquals(List.of(1, 2), contents.getChanges().changedSince(0));
+    }
+
+    @Test
+    @DisplayName("should not be used once the size, time or content of the data file differs")
+    void shouldIgnoreStaleImage() throws IOException {
+        // given
+        image.write(stored, 1000L, StorageFormat.JSON, tasks, changes);
+        byte[] longer = "{\"schema\":3,\"tasks\":[ ]}".getBytes(StandardCharsets.UTF_8);
+        byte[] sameSize = "{\"schema\":4,\"tasks\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        // then
+        assertNull(image.read(longer, 1000L));
+        assertNull(image.read(stored, 2000L));
+        assertNull(image.read(sameSize, 1000L));
+        assertNotNull(image.read(stored, 1000L));
+    }
+
+    @Test
+    @DisplayName("should give up on a damaged image")
+    void shouldIgnoreDamagedImage() throws IOException {
+        // given
+        image.write(stored, 1000L, StorageFormat.JSON, tasks, changes);
+        byte[] written = Files.readAllBytes(image.getFile().toPath());
+        Files.write(image.getFile().toPath(), Arrays.copyOf(written, written.length / 2));
+
+        // then
+        assertNull(image.read(stored, 1000L));
+        image.delete();
+        assertFalse(image.getFile().exists());
+        assertNull(image.read(stored, 1000L));
+    }
+}
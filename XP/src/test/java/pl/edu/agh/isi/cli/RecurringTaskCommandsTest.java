@@ -10,9 +10,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.PrintStream;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import pl.edu.agh.isi.Task;
@@ -21,6 +23,7 @@ import pl.edu.agh.isi.RecurrenceConfig;
 import pl.edu.agh.isi.RecurrenceInterval;
 import pl.edu.agh.isi.RecurringTaskService;
 import pl.edu.agh.isi.TaskPriority;
+import pl.edu.agh.isi.TaskRepository;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -194,6 +197,82 @@ public class RecurringTaskCommandsTest {
         assertTrue(output.contains("Error: Due date is required for recurring tasks"));
     }
     
+    @Test
+    @DisplayName("CompleteTaskCommand should complete an upcoming instance in the data file")
+    void completeTaskCommandShouldCompleteUpcomingInstanceInDataFile() throws Exception {
+        // Given
+        File tasksFile = tempDir.resolve("tasks.json").toFile();
+        new RecurringTaskService(new TaskRepository(tasksFile)).createRecurringTask("Water plants",
+            LocalDateTime.of(2030, 1, 6, 9, 0), "", TaskPriority.MEDIUM,
+            new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        
+        CompleteTaskCommand command = new CompleteTaskCommand();
+        command.id = "1#2";
+        command.tasksFile = tasksFile;
+        
+        // When
+        int result = command.call();
+        
+        // Then
+        assertEquals(0, result, outputStream.toString());
+        assertTrue(outputStream.toString().contains("(ID: 2) marked as completed"));
+        Task instance = new TaskRepository(tasksFile).findById(2).orElseThrow();
+        assertTrue(instance.isCompleted());
+        assertEquals(Integer.valueOf(1), instance.getParentTaskId());
+        assertEquals(Integer.valueOf(2), instance.getRecurrenceNumber());
+        assertEquals(LocalDateTime.of(2030, 1, 20, 9, 0), instance.getDueDate());
+    }
+    
+    @Test
+    @DisplayName("SetPriorityCommand should change an upcoming instance in the data file")
+    void setPriorityCommandShouldChangeUpcomingInstanceInDataFile() throws Exception {
+        // Given
+        File tasksFile = tempDir.resolve("tasks.json").toFile();
+        new RecurringTaskService(new TaskRepository(tasksFile)).createRecurringTask("Water plants",
+            LocalDateTime.of(2030, 1, 6, 9, 0), "", TaskPriority.MEDIUM,
+            new RecurrenceConfig(RecurrenceInterval.WEEKLY));
+        
+        SetPriorityCommand command = new SetPriorityCommand();
+        command.taskId = "1#3";
+        command.priorityLevel = "3";
+        command.tasksFile = tasksFile;
+        
+        // When
+        int result = command.call();
+        
+        // Then
+        assertEquals(0, result, outputStream.toString());
+        List<Task> tasks = new TaskRepository(tasksFile).findAll();
+        assertEquals(2, tasks.size());
+        assertEquals(TaskPriority.HIGH, tasks.get(1).getPriority());
+        assertEquals(Integer.valueOf(3), tasks.get(1).getRecurrenceNumber());
+    }
+    
+    @Test
+    @DisplayName("ListTasksCommand should size the ID column to upcoming instance references")
+    void listTasksCommandShouldSizeIdColumnToInstanceReferences() throws Exception {
+        // Given
+        File tasksFile = tempDir.resolve("tasks.json").toFile();
+        new RecurringTaskService(new TaskRepository(tasksFile)).createRecurringTask("Feed the cat",
+            LocalDateTime.now().plusHours(1), "", TaskPriority.MEDIUM,
+            new RecurrenceConfig(RecurrenceInterval.DAILY));
+        
+        ListTasksCommand command = new ListTasksCommand();
+        command.aheadDays = 12;
+        command.tasksFile = tasksFile;
+        command.familyMembersFile = tempDir.resolve("family_members.json").toFile();
+        
+        // When
+        int result = command.call();
+        
+        // Then
+        assertEquals(0, result, outputStream.toString());
+        String output = outputStream.toString();
+        assertTrue(output.contains("ID   | Status |"), output);
+        assertTrue(output.contains("1    |        |"), output);
+        assertTrue(output.contains("1#10 |        |"), output);
+    }
+    
     @Test
     @DisplayName("ListTasksCommand should filter recurring tasks")
     void listTasksCommandShouldFilterRecurringTasks() throws Exception {
@@ -0,0 +1,186 @@
+package pl.edu.agh.isi.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Script Runner")
+class ScriptRunnerTest {
+
+    private ExecutorService executor;
+    private List<String> executed;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        executed = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // Records every line and runs the given action for it
+    private ScriptRunner runner(ScriptAction action) {
+        return new ScriptRunner(new ScriptRunner.LineHandler() {
+            @Override
+            public Set<Integer> footprint(String[] args) {
+                return CommandFootprint.of(args);
+            }
+
+            @Override
+            public int execute(String[] args) {
+                int code = action.run(args);
+                executed.add(String.join(" ", args));
+                return code;
+            }
+        }, executor);
+    }
+
+    private interface ScriptAction {
+        int run(String[] args);
+    }
+
+    @Test
+    @DisplayName("should run lines on the same task in script order")
+    void shouldRunLinesOnSameTaskInOrder() {
+        // given
+        List<String> script = Arrays.asList("complete 1", "reopen 1", "complete 1", "set-priority 1 3");
+
+        // when
+        runner(args -> {
+            // The first line is the slowest, a reordering would show up
+            sleep(args[0].equals("complete") && executed.isEmpty() ? 50 : 1);
+            return 0;
+        }).run(script);
+
+        // then
+        assertEquals(script, executed);
+    }
+
+    @Test
+    @DisplayName("should run lines on different tasks concurrently")
+    void shouldRunDisjointLinesConcurrently() {
+        // given
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        // when
+        ScriptRunner.Report report = runner(args -> {
+            bothStarted.countDown();
+            try {
+                // Only succeeds if the other line runs at the same time
+                return bothStarted.await(5, TimeUnit.SECONDS) ? 0 : 1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 1;
+            }
+        }).run(Arrays.asList("complete 1", "complete 2"));
+
+        // then
+        assertEquals(2, report.getCommandCount());
+        assertEquals(0, report.getFailedCount());
+    }
+
+    @Test
+    @DisplayName("should run lines with an unknown footprint alone")
+    void shouldRunBarrierLinesAlone() {
+        // given
+        List<String> script = Arrays.asList("complete 1", "complete 2", "list -a", "complete 3", "complete 4");
+
+        // when
+        runner(args -> {
+            sleep(args[0].equals("complete") && (args[1].equals("1") || args[1].equals("3")) ? 30 : 1);
+            return 0;
+        }).run(script);
+
+        // then
+        assertEquals(2, executed.indexOf("list -a"));
+        assertTrue(executed.subList(0, 2).containsAll(Arrays.asList("complete 1", "complete 2")));
+        assertTrue(executed.subList(3, 5).containsAll(Arrays.asList("complete 3", "complete 4")));
+    }
+
+    @Test
+    @DisplayName("should skip comments and count failed lines")
+    void shouldSkipCommentsAndCountFailures() {
+        // given
+        List<String> script = Arrays.asList("# setup", "", "complete 1", "complete 2", "complete 3");
+
+        // when
+        ScriptRunner.Report report = runner(args -> {
+            if (args[1].equals("2")) {
+                throw new IllegalStateException("broken");
+            }
+            return args[1].equals("3") ? 1 : 0;
+        }).run(script);
+
+        // then
+        assertEquals(3, report.getCommandCount());
+        assertEquals(2, report.getFailedCount());
+        assertTrue(report.getThroughputPerSecond() > 0);
+        assertTrue(report.getLatencyPercentileNanos(50) <= report.getLatencyPercentileNanos(99));
+        assertTrue(report.getLatencyPercentileNanos(99) <= report.getLatencyPercentileNanos(100));
+    }
+
+    @Test
+    @DisplayName("should compute nearest-rank latency percentiles")
+    void shouldComputeNearestRankPercentiles() {
+        // given
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = 100 - i;
+        }
+
+        // when
+        ScriptRunner.Report report = new ScriptRunner.Report(latencies, 0, 1_000_000_000L);
+
+        // then
+        assertEquals(50, report.getLatencyPercentileNanos(50));
+        assertEquals(90, report.getLatencyPercentileNanos(90));
+        assertEquals(99, report.getLatencyPercentileNanos(99));
+        assertEquals(100, report.getLatencyPercentileNanos(100));
+        assertEquals(100.0, report.getThroughputPerSecond(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> report.getLatencyPercentileNanos(101));
+    }
+
+    @Test
+    @DisplayName("should find the tasks touched by a command line")
+    void shouldFindCommandFootprint() {
+        assertEquals(Set.of(1, 3, 4, 5), CommandFootprint.of(new String[] {"complete", "1", "3-5", "-c", "7"}));
+        assertEquals(Set.of(2), CommandFootprint.of(new String[] {"assign", "2", "7"}));
+        assertEquals(Set.of(2, 4), CommandFootprint.of(new String[] {"set-priority", "2,4", "3"}));
+        assertEquals(Set.of(4), CommandFootprint.of(new String[] {"set-recurring", "4", "WEEKLY", "-n", "3"}));
+        assertEquals(Set.of(6), CommandFootprint.of(new String[] {"reopen", "--comment=again", "6"}));
+    }
+
+    @Test
+    @DisplayName("should report an unknown footprint for other commands")
+    void shouldReportUnknownFootprint() {
+        assertNull(CommandFootprint.of(new String[] {"create", "Clean kitchen"}));
+        assertNull(CommandFootprint.of(new String[] {"list", "-a"}));
+        assertNull(CommandFootprint.of(new String[] {"complete"}));
+        assertNull(CommandFootprint.of(new String[] {"complete", "1", "-f", "other.json"}));
+        assertNull(CommandFootprint.of(new String[] {"complete", "abc"}));
+        assertNull(CommandFootprint.of(new String[] {"assign", "-h"}));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
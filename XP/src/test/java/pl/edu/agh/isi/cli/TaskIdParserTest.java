@@ -0,0 +1,42 @@
+package pl.edu.agh.isi.cli;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Task ID Parser")
+class TaskIdParserTest {
+
+    @Test
+    @DisplayName("should detect lists and ranges")
+    void shouldDetectListsAndRanges() {
+        assertTrue(TaskIdParser.isBulk("1,2"));
+        assertTrue(TaskIdParser.isBulk("10-200"));
+        assertFalse(TaskIdParser.isBulk("7"));
+        assertFalse(TaskIdParser.isBulk(null));
+    }
+
+    @Test
+    @DisplayName("should parse ids, lists and ranges into sorted distinct ids")
+    void shouldParseIdsListsAndRanges() {
+        List<Integer> ids = TaskIdParser.parse(Arrays.asList("9", "3-5", "1,4,9"));
+
+        assertEquals(Arrays.asList(1, 3, 4, 5, 9), ids);
+    }
+
+    @Test
+    @DisplayName("should reject malformed ids and ranges")
+    void shouldRejectMalformedIdsAndRanges() {
+        assertThrows(IllegalArgumentException.class, () -> TaskIdParser.parse(Collections.singletonList("abc")));
+        assertThrows(IllegalArgumentException.class, () -> TaskIdParser.parse(Collections.singletonList("5-3")));
+        assertThrows(IllegalArgumentException.class, () -> TaskIdParser.parse(Collections.singletonList("0")));
+        assertThrows(IllegalArgumentException.class, () -> TaskIdParser.parse(Collections.singletonList(",")));
+        assertThrows(IllegalArgumentException.class,
+                () -> TaskIdParser.parse(Collections.singletonList("1-" + (TaskIdParser.MAX_IDS + 1))));
+    }
+}
@@ -0,0 +1,76 @@
+package pl.edu.agh.isi.cli;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import pl.edu.agh.isi.Task;
+import pl.edu.agh.isi.TaskRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Task Row Importer")
+class TaskRowImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should save valid rows in batches with consecutive ids and report rejected ones")
+    void shouldImportInBatches() throws IOException {
+        // given
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json").toFile());
+        repository.save(new Task("Existing", null, null));
+        StringBuilder csv = new StringBuilder("topic,priority\n");
+        for (int i = 1; i <= 7; i++) {
+            csv.append("Chore ").append(i).append(',').append(i == 3 ? "9" : "1").append('\n');
+        }
+        File input = tempDir.resolve("chores.csv").toFile();
+        Files.write(input.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        TaskRowImporter importer = new TaskRowImporter(repository, 3,
+                new PrintStream(out, true), new PrintStream(err, true));
+
+        // when
+        TaskRowImporter.Summary summary;
+        try (TaskRowReader reader = TaskRowReader.open(input)) {
+            summary = importer.importRows(reader);
+        }
+        List<Task> reloaded = new TaskRepository(tempDir.resolve("tasks.json").toFile()).findAll();
+
+        // then
+        assertEquals(7, summary.getRows());
+        assertEquals(6, summary.getImported());
+        assertEquals(1, summary.getRejected());
+        assertEquals(3, summary.getBatches());
+        assertTrue(summary.getRowsPerSecond() > 0);
+        String report = out.toString();
+        assertTrue(report.contains("Batch 1 (lines 2-4): 2 imported with IDs 2-3, 1 rejected"));
+        assertTrue(report.contains("Batch 2 (lines 5-7): 3 imported with IDs 4-6, 0 rejected"));
+        assertTrue(report.contains("Batch 3 (lines 8-8): 1 imported with IDs 7-7, 0 rejected"));
+        assertTrue(err.toString().contains("line 4: Invalid priority level"));
+        assertEquals(7, reloaded.size());
+        assertEquals(List.of("Chore 1", "Chore 2", "Chore 4", "Chore 5", "Chore 6", "Chore 7"),
+                reloaded.stream().filter(task -> task.getId() > 1).sorted((a, b) -> a.getId() - b.getId())
+                        .map(Task::getTopic).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("should reject a batch size below one")
+    void shouldRejectInvalidBatchSize() {
+        TaskRepository repository = new TaskRepository(tempDir.resolve("tasks.json").toFile());
+
+        assertThrows(IllegalArgumentException.class, () -> new TaskRowImporter(repository, 0, null, null));
+    }
+}
@@ -0,0 +1,154 @@
+package pl.edu.agh.isi.cli;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.edu.agh.isi.RecurrenceInterval;
+import pl.edu.agh.isi.Task;
+import pl.edu.agh.isi.TaskPriority;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Task Row Reader")
+class TaskRowReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<TaskRow> readAll(String name, String content) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        List<TaskRow> rows = new ArrayList<>();
+        try (TaskRowReader reader = TaskRowReader.open(file)) {
+            TaskRow row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("should read quoted CSV fields with commas, quotes and line breaks")
+    void shouldReadQuotedCsvFields() throws IOException {
+        // given
+        String csv = "\uFEFFTopic,Due-Date,priority,description\r\n"
+                + "Clean kitchen,2025-03-01 10:00,3,\"Sink, oven and \"\"the\"\" floor\"\r\n"
+                + "\r\n"
+                + "\"Water\nplants\",,,\n"
+                + "Buy milk";
+
+        // when
+        List<TaskRow> rows = readAll("chores.csv", csv);
+
+        // then
+        assertEquals(3, rows.size());
+        Task kitchen = rows.get(0).toTask();
+        assertEquals("Clean kitchen", kitchen.getTopic());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 10, 0), kitchen.getDueDate());
+        assertEquals(TaskPriority.HIGH, kitchen.getPriority());
+        assertEquals("Sink, oven and \"the\" floor", kitchen.getDescription());
+        assertEquals("Water\nplants", rows.get(1).toTask().getTopic());
+        assertEquals(TaskPriority.MEDIUM, rows.get(1).toTask().getPriority());
+        assertEquals("Buy milk", rows.get(2).toTask().getTopic());
+        assertEquals(2, rows.get(0).getLine());
+        assertEquals(4, rows.get(1).getLine());
+        assertEquals(6, rows.get(2).getLine());
+    }
+
+    @Test
+    @DisplayName("should read JSON Lines with numbers and recurrence")
+    void shouldReadJsonLines() throws IOException {
+        // given
+        String jsonl = "{\"topic\":\"Take out trash\",\"due\":\"2025-03-03 18:00\",\"recurring\":\"weekly\",\"on\":\"MON,THU\"}\n"
+                + "\n"
+                + "{\"topic\":\"Pay rent\",\"priority\":3,\"description\":null}\n";
+
+        // when
+        List<TaskRow> rows = readAll("chores.jsonl", jsonl);
+
+        // then
+        assertEquals(2, rows.size());
+        Task trash = rows.get(0).toTask();
+        assertEquals(RecurrenceInterval.WEEKLY, trash.getRecurrenceConfig().getInterval());
+        assertEquals(2, trash.getRecurrenceConfig().getWeekdays().size());
+        assertEquals(TaskPriority.HIGH, rows.get(1).toTask().getPriority());
+        assertEquals(3, rows.get(1).getLine());
+    }
+
+    @Test
+    @DisplayName("should report invalid rows and keep reading")
+    void shouldReportInvalidRows() throws IOException {
+        // given
+        String jsonl = "{\"topic\":\"Broken\"\n"
+                + "{\"topic\":\"Nested\",\"due\":{\"at\":1}}\n"
+                + "{\"topic\":\"Fine\"}\n";
+        String csv = "topic,priority\nToo,many,fields\nUrgent,5\nWeekly,2\n";
+
+        // when
+        List<TaskRow> jsonRows = readAll("broken.jsonl", jsonl);
+        List<TaskRow> csvRows = readAll("broken.csv", csv);
+
+        // then
+        assertTrue(assertThrows(IllegalArgumentException.class, () -> jsonRows.get(0).toTask())
+                .getMessage().startsWith("Invalid JSON"));
+        assertEquals("Field due must be a text or a number",
+                assertThrows(IllegalArgumentException.class, () -> jsonRows.get(1).toTask()).getMessage());
+        assertEquals("Fine", jsonRows.get(2).toTask().getTopic());
+        assertEquals("Expected 2 fields, found 3",
+                assertThrows(IllegalArgumentException.class, () -> csvRows.get(0).toTask()).getMessage());
+        assertEquals("Invalid priority level. Please use: 1 (low), 2 (medium), or 3 (high)",
+                assertThrows(IllegalArgumentException.class, () -> csvRows.get(1).toTask()).getMessage());
+        assertEquals(TaskPriority.MEDIUM, csvRows.get(2).toTask().getPriority());
+    }
+
+    @Test
+    @DisplayName("should check rows like create")
+    void shouldCheckRowsLikeCreate() throws IOException {
+        // given
+        String csv = "topic,due,recurring,every\n"
+                + " ,,,\n"
+                + "Dentist,next week,,\n"
+                + "Mow lawn,,WEEKLY,\n"
+                + "Mow lawn,2025-04-01 09:00,YEARLY,\n"
+                + "Mow lawn,2025-04-01 09:00,WEEKLY,two\n"
+                + "Mow lawn,2025-04-01 09:00,WEEKLY,2\n";
+
+        // when
+        List<TaskRow> rows = readAll("rows.csv", csv);
+
+        // then
+        assertEquals("Topic cannot be empty",
+                assertThrows(IllegalArgumentException.class, () -> rows.get(0).toTask()).getMessage());
+        assertEquals("Invalid date format for due date. Please use: yyyy-MM-dd HH:mm",
+                assertThrows(IllegalArgumentException.class, () -> rows.get(1).toTask()).getMessage());
+        assertEquals("Due date is required for recurring tasks",
+                assertThrows(IllegalArgumentException.class, () -> rows.get(2).toTask()).getMessage());
+        assertEquals("Invalid recurrence interval. Please use: DAILY, WEEKLY, or MONTHLY",
+                assertThrows(IllegalArgumentException.class, () -> rows.get(3).toTask()).getMessage());
+        assertEquals("Invalid number for every: two",
+                assertThrows(IllegalArgumentException.class, () -> rows.get(4).toTask()).getMessage());
+        assertEquals(2, rows.get(5).toTask().getRecurrenceConfig().getEvery());
+    }
+
+    @Test
+    @DisplayName("should reject unknown CSV columns and other files")
+    void shouldRejectUnknownColumnsAndOtherFiles() {
+        assertThrows(IllegalArgumentException.class, () -> readAll("bad.csv", "topic,colour\nA,red\n"));
+        assertThrows(IllegalArgumentException.class, () -> readAll("bad.csv", "due\n2025-01-01 10:00\n"));
+        assertThrows(IllegalArgumentException.class, () -> readAll("tasks.json", "[]"));
+        assertTrue(TaskRowReader.isRowFile(new File("chores.csv.gz")));
+        assertTrue(TaskRowReader.isRowFile(new File("chores.NDJSON")));
+        assertFalse(TaskRowReader.isRowFile(new File("tasks.json")));
+    }
+}